@@ -1,6 +1,7 @@
 package com.chillspace.backend.config;
 
 import com.chillspace.backend.security.JwtAuthenticationFilter;
+import com.chillspace.backend.security.RateLimitFilter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -24,9 +25,11 @@ import java.util.List;
 public class SecurityConfig {
 
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
+    private final RateLimitFilter rateLimitFilter;
 
-    public SecurityConfig(JwtAuthenticationFilter jwtAuthenticationFilter) {
+    public SecurityConfig(JwtAuthenticationFilter jwtAuthenticationFilter, RateLimitFilter rateLimitFilter) {
         this.jwtAuthenticationFilter = jwtAuthenticationFilter;
+        this.rateLimitFilter = rateLimitFilter;
     }
 
     @Bean
@@ -38,11 +41,12 @@ public class SecurityConfig {
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/api/auth/**", "/api/config/**").permitAll()
                         .requestMatchers("/api/users/*/avatar", "/api/users/*/stats").permitAll()
-                        .requestMatchers("/", "/index.html", "/register.html", "/home.html", "/admin.html", "/ws/**", "/css/**",
+                        .requestMatchers("/", "/index.html", "/register.html", "/home.html", "/admin.html", "/ws/**", "/ws-native", "/css/**",
                                 "/js/**", "/images/**", "/Assets/**")
                         .permitAll()
                         .anyRequest().authenticated());
         http.addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+        http.addFilterAfter(rateLimitFilter, JwtAuthenticationFilter.class);
 
         return http.build();
     }
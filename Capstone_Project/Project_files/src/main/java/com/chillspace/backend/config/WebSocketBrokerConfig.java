@@ -0,0 +1,97 @@
+package com.chillspace.backend.config;
+
+import com.chillspace.backend.service.ClusterEventRelay;
+import com.chillspace.backend.service.OutboundSessionRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.lang.Nullable;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.broker.AbstractBrokerMessageHandler;
+import org.springframework.messaging.simp.stomp.StompBrokerRelayMessageHandler;
+import org.springframework.messaging.simp.user.UserDestinationMessageHandler;
+import org.springframework.messaging.simp.user.UserDestinationResolver;
+import org.springframework.messaging.support.AbstractSubscribableChannel;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.config.annotation.DelegatingWebSocketMessageBrokerConfiguration;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator.OverflowStrategy;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Takes the place of @EnableWebSocketMessageBroker so the per-session send buffer can use a
+ * configurable overflow policy and report into {@link OutboundSessionRegistry}, and so the broker
+ * relay (when enabled) also subscribes to the system topic of {@link ClusterEventRelay}.
+ * The actual broker, endpoints and channels are still configured in {@link WebSocketConfig}.
+ */
+@Configuration
+public class WebSocketBrokerConfig extends DelegatingWebSocketMessageBrokerConfiguration {
+
+    private final OutboundSessionRegistry outboundSessionRegistry;
+    private final ClusterEventRelay clusterEventRelay;
+
+    // What to do once a session's send buffer is full: "terminate" closes it (the client
+    // reconnects and catches up), "drop" discards the oldest buffered frames
+    @Value("${chat.websocket.overflow-strategy:terminate}")
+    private String overflowStrategy;
+
+    public WebSocketBrokerConfig(OutboundSessionRegistry outboundSessionRegistry, ClusterEventRelay clusterEventRelay) {
+        this.outboundSessionRegistry = outboundSessionRegistry;
+        this.clusterEventRelay = clusterEventRelay;
+    }
+
+    @Bean
+    @Nullable
+    @Override
+    public AbstractBrokerMessageHandler stompBrokerRelayMessageHandler(
+            @Qualifier("clientInboundChannel") AbstractSubscribableChannel clientInboundChannel,
+            @Qualifier("clientOutboundChannel") AbstractSubscribableChannel clientOutboundChannel,
+            @Qualifier("brokerChannel") AbstractSubscribableChannel brokerChannel,
+            UserDestinationMessageHandler userDestinationMessageHandler,
+            @Qualifier("userRegistryMessageHandler") @Nullable MessageHandler userRegistryMessageHandler,
+            UserDestinationResolver userDestinationResolver) {
+
+        AbstractBrokerMessageHandler handler = super.stompBrokerRelayMessageHandler(clientInboundChannel,
+                clientOutboundChannel, brokerChannel, userDestinationMessageHandler, userRegistryMessageHandler,
+                userDestinationResolver);
+
+        // Null in simple mode; otherwise add ours to the system subscriptions Spring set up (if any)
+        if (handler instanceof StompBrokerRelayMessageHandler relay) {
+            Map<String, MessageHandler> subscriptions = new HashMap<>(relay.getSystemSubscriptions());
+            subscriptions.put(ClusterEventRelay.TOPIC, clusterEventRelay::receive);
+            relay.setSystemSubscriptions(subscriptions);
+        }
+        return handler;
+    }
+
+    @Bean
+    @Override
+    public WebSocketHandler subProtocolWebSocketHandler(
+            @Qualifier("clientInboundChannel") AbstractSubscribableChannel clientInboundChannel,
+            @Qualifier("clientOutboundChannel") AbstractSubscribableChannel clientOutboundChannel) {
+
+        OverflowStrategy strategy = OverflowStrategy.valueOf(overflowStrategy.trim().toUpperCase());
+        SubProtocolWebSocketHandler handler = new SubProtocolWebSocketHandler(clientInboundChannel, clientOutboundChannel) {
+            @Override
+            protected WebSocketSession decorateSession(WebSocketSession session) {
+                return outboundSessionRegistry.register(session, getSendTimeLimit(), getSendBufferSizeLimit(), strategy);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                try {
+                    super.afterConnectionClosed(session, closeStatus);
+                } finally {
+                    outboundSessionRegistry.unregister(session.getId());
+                }
+            }
+        };
+        handler.setPhase(getPhase());
+        return handler;
+    }
+}
@@ -1,25 +1,205 @@
 package com.chillspace.backend.config;
 
+import com.chillspace.backend.listener.BinaryCodecChannelInterceptor;
+import com.chillspace.backend.listener.PresenceChannelInterceptor;
+import com.chillspace.backend.security.RateLimitChannelInterceptor;
+import com.chillspace.backend.security.StompAuthChannelInterceptor;
+import com.chillspace.backend.service.ChatSessionRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
-import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.server.HandshakeInterceptor;
 
+import java.util.Map;
+
+// The broker itself is enabled by WebSocketBrokerConfig
 @Configuration
-@EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketConfig.class);
+
+    private final StompAuthChannelInterceptor stompAuthChannelInterceptor;
+    private final PresenceChannelInterceptor presenceChannelInterceptor;
+    private final RateLimitChannelInterceptor rateLimitChannelInterceptor;
+    private final BinaryCodecChannelInterceptor binaryCodecChannelInterceptor;
+
+    // "simple" = in-memory broker (single node), "relay" = external STOMP broker shared by all nodes
+    @Value("${chat.broker.mode:simple}")
+    private String brokerMode;
+
+    @Value("${chat.broker.relay.host:localhost}")
+    private String relayHost;
+
+    @Value("${chat.broker.relay.port:61613}")
+    private int relayPort;
+
+    @Value("${chat.broker.relay.login:guest}")
+    private String relayLogin;
+
+    @Value("${chat.broker.relay.passcode:guest}")
+    private String relayPasscode;
+
+    // STOMP heartbeats (ms) - keep presence alive for idle but connected clients
+    @Value("${chat.presence.heartbeat-ms:10000}")
+    private long heartbeatMs;
+
+    // Outbound limits per session, so one slow client can't hold a broadcast thread or grow without bound
+    @Value("${chat.websocket.send-time-limit-ms:10000}")
+    private int sendTimeLimitMs;
+
+    @Value("${chat.websocket.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+
+    @Value("${chat.websocket.outbound.core-pool-size:8}")
+    private int outboundCorePoolSize;
+
+    @Value("${chat.websocket.outbound.max-pool-size:32}")
+    private int outboundMaxPoolSize;
+
+    @Value("${chat.websocket.outbound.queue-capacity:10000}")
+    private int outboundQueueCapacity;
+
+    // With virtual threads: most frames being written at once, across all sessions
+    @Value("${chat.websocket.outbound.virtual-concurrency-limit:1000}")
+    private int outboundVirtualConcurrencyLimit;
+
+    // spring.threads.virtual.enabled on a Java 21+ runtime: Tomcat, @Scheduled and both STOMP channels use virtual threads
+    private final boolean virtualThreads;
+
+    public WebSocketConfig(StompAuthChannelInterceptor stompAuthChannelInterceptor,
+            PresenceChannelInterceptor presenceChannelInterceptor,
+            RateLimitChannelInterceptor rateLimitChannelInterceptor,
+            BinaryCodecChannelInterceptor binaryCodecChannelInterceptor,
+            Environment environment) {
+        this.stompAuthChannelInterceptor = stompAuthChannelInterceptor;
+        this.presenceChannelInterceptor = presenceChannelInterceptor;
+        this.rateLimitChannelInterceptor = rateLimitChannelInterceptor;
+        this.binaryCodecChannelInterceptor = binaryCodecChannelInterceptor;
+        this.virtualThreads = Threading.VIRTUAL.isActive(environment);
+        if (virtualThreads) {
+            logger.info("🧵 STOMP inbound/outbound channels run on virtual threads");
+        }
+    }
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
+        // A session's frames are handled one after another, in the order they arrived; otherwise
+        // the channel executor (pooled or one virtual thread per frame) could reorder a burst
+        registry.setPreserveReceiveOrder(true);
+
         registry.addEndpoint("/ws")
                 .setAllowedOriginPatterns("*") // Allow all origins for now
                 .withSockJS();
+
+        // Plain WebSocket for browsers that have it: no SockJS framing, binary frames allowed,
+        // and Tomcat negotiates permessage-deflate on the upgrade when the client offers it
+        registry.addEndpoint("/ws-native")
+                .setAllowedOriginPatterns("*")
+                .addInterceptors(new NativeTransportHandshakeInterceptor());
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendTimeLimit(sendTimeLimitMs)
+                .setSendBufferSizeLimit(sendBufferSizeLimit);
     }
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry registry) {
         registry.setApplicationDestinationPrefixes("/app");
-        registry.enableSimpleBroker("/topic");
+        // Same on the way out: frames reach each session in the order they were published
+        registry.setPreservePublishOrder(true);
+        // /queue carries per-user replies, addressed as /user/queue/... (see ChatController.ERROR_QUEUE)
+
+        if ("relay".equalsIgnoreCase(brokerMode)) {
+            // Every node relays /topic traffic through the same broker, so broadcasts reach all nodes
+            logger.info("📡 Using STOMP broker relay at {}:{}", relayHost, relayPort);
+            registry.enableStompBrokerRelay("/topic", "/queue")
+                    .setRelayHost(relayHost)
+                    .setRelayPort(relayPort)
+                    .setClientLogin(relayLogin)
+                    .setClientPasscode(relayPasscode)
+                    .setSystemLogin(relayLogin)
+                    .setSystemPasscode(relayPasscode);
+        } else {
+            ThreadPoolTaskScheduler heartbeatScheduler = new ThreadPoolTaskScheduler();
+            heartbeatScheduler.setPoolSize(1);
+            heartbeatScheduler.setThreadNamePrefix("wss-heartbeat-");
+            heartbeatScheduler.initialize();
+
+            registry.enableSimpleBroker("/topic", "/queue")
+                    .setHeartbeatValue(new long[] { heartbeatMs, heartbeatMs })
+                    .setTaskScheduler(heartbeatScheduler);
+        }
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        // Authenticate on CONNECT and pin user + role to the session, track liveness, then throttle sends
+        registration.interceptors(stompAuthChannelInterceptor, presenceChannelInterceptor, rateLimitChannelInterceptor);
+
+        if (virtualThreads) {
+            // Received order is preserved, so at most one frame per session is in flight
+            registration.executor(virtualThreadExecutor("clientInboundChannel-",
+                    SimpleAsyncTaskExecutor.UNBOUNDED_CONCURRENCY));
+        }
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        // CBOR for sessions that negotiated it, plus egress byte counters
+        registration.interceptors(binaryCodecChannelInterceptor);
+
+        if (virtualThreads) {
+            // Slow clients are bounded per session by the send time and buffer limits, and the total by
+            // the concurrency limit: past it, publishing blocks until a write finishes (backpressure)
+            registration.executor(virtualThreadExecutor("clientOutboundChannel-", outboundVirtualConcurrencyLimit));
+            return;
+        }
+
+        // Bounded, instead of the default unbounded queue; a frame rejected here is dropped for that session only
+        registration.taskExecutor()
+                .corePoolSize(outboundCorePoolSize)
+                .maxPoolSize(outboundMaxPoolSize)
+                .queueCapacity(outboundQueueCapacity);
+    }
+
+    // One virtual thread per message; database access stays bounded by the Hikari pool
+    private static SimpleAsyncTaskExecutor virtualThreadExecutor(String threadNamePrefix, int concurrencyLimit) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+        executor.setVirtualThreads(true);
+        executor.setConcurrencyLimit(concurrencyLimit);
+        return executor;
+    }
+
+    /**
+     * Marks sessions opened on the native endpoint, so CONNECT knows binary frames can reach them
+     */
+    private static class NativeTransportHandshakeInterceptor implements HandshakeInterceptor {
+
+        @Override
+        public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                WebSocketHandler wsHandler, Map<String, Object> attributes) {
+            attributes.put(ChatSessionRegistry.NATIVE_TRANSPORT_ATTRIBUTE, Boolean.TRUE);
+            return true;
+        }
+
+        @Override
+        public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                WebSocketHandler wsHandler, Exception exception) {
+        }
     }
 }
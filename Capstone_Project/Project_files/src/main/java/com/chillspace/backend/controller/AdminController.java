@@ -1,13 +1,23 @@
 package com.chillspace.backend.controller;
 
+import com.chillspace.backend.listener.BinaryCodecChannelInterceptor;
 import com.chillspace.backend.model.Role;
 import com.chillspace.backend.model.User;
 import com.chillspace.backend.repository.MessageRepository;
 import com.chillspace.backend.repository.SharedFileRepository;
 import com.chillspace.backend.repository.UserRepository;
+import com.chillspace.backend.service.ChatRooms;
+import com.chillspace.backend.service.ChatSessionRegistry;
+import com.chillspace.backend.service.FileBlobService;
+import com.chillspace.backend.service.MessageArchiveService;
+import com.chillspace.backend.service.MessageWriteBehindService;
+import com.chillspace.backend.service.OutboundSessionRegistry;
+import com.chillspace.backend.service.PresenceService;
+import com.chillspace.backend.service.UserDirectory;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
@@ -24,11 +34,24 @@ public class AdminController {
     private final UserRepository userRepository;
     private final MessageRepository messageRepository;
     private final SharedFileRepository fileRepository;
+    private final FileBlobService fileBlobService;
 
     private final org.springframework.messaging.simp.SimpMessagingTemplate messagingTemplate;
+    private final ChatSessionRegistry chatSessionRegistry;
+    private final PresenceService presenceService;
+    private final BinaryCodecChannelInterceptor binaryCodecChannelInterceptor;
+    private final OutboundSessionRegistry outboundSessionRegistry;
+    private final MessageArchiveService messageArchiveService;
+    private final MessageWriteBehindService messageWriter;
+    private final UserDirectory userDirectory;
+    private final SimpUserRegistry simpUserRegistry;
 
     // Helper to broadcast updates
     private void broadcastUserUpdate(User user) {
+        // Refresh the role / ban flag pinned to the user's live WebSocket sessions
+        chatSessionRegistry.refreshUser(user);
+        userDirectory.changed();
+
         com.chillspace.backend.model.Message updateMsg = new com.chillspace.backend.model.Message();
         updateMsg.setType(com.chillspace.backend.model.MessageType.USER_UPDATE);
         updateMsg.setSender(user.getUsername());
@@ -47,9 +70,9 @@ public class AdminController {
         }
 
         long totalUsers = userRepository.count();
-        long totalMessages = messageRepository.count();
+        long totalMessages = messageRepository.count() + messageArchiveService.getArchivedCount();
         long totalFiles = fileRepository.count();
-        long onlineUsers = userRepository.countByIsOnline(true);
+        long onlineUsers = presenceService.getOnlineCount();
         long bannedUsers = userRepository.countByIsBanned(true);
 
         // Messages today
@@ -60,11 +83,12 @@ public class AdminController {
         LocalDateTime weekAgo = LocalDateTime.now().minusDays(7);
         long newUsersThisWeek = userRepository.countByCreatedAtAfter(weekAgo);
 
-        // Calculate storage used (approximate from file sizes)
+        // Logical: every shared file at its size. Physical: bytes on disk, identical files counted once
         Long storageUsed = fileRepository.sumFileSizes();
         if (storageUsed == null) storageUsed = 0L;
+        long storageStored = fileBlobService.getPhysicalSize();
 
-        return ResponseEntity.ok(Map.of(
+        Map<String, Object> stats = new HashMap<>(Map.of(
                 "totalUsers", totalUsers,
                 "totalMessages", totalMessages,
                 "totalFiles", totalFiles,
@@ -72,8 +96,98 @@ public class AdminController {
                 "bannedUsers", bannedUsers,
                 "messagesToday", messagesToday,
                 "newUsersThisWeek", newUsersThisWeek,
-                "storageUsed", storageUsed
+                "storageUsed", storageUsed,
+                "storageStored", storageStored
         ));
+        // Write-behind health: accepted but not yet stored, and rejected by the database
+        stats.put("messagesPending", messageWriter.getPendingCount());
+        stats.put("messagesDropped", messageWriter.getDroppedCount());
+        return ResponseEntity.ok(stats);
+    }
+
+    /**
+     * WebSocket egress by codec, to compare JSON and CBOR bytes per fan-out
+     */
+    @GetMapping("/stats/websocket")
+    public ResponseEntity<?> getWebSocketStats(Principal principal) {
+        if (!isAdmin(principal)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        Collection<ChatSessionRegistry.ChatSession> sessions = chatSessionRegistry.getSessions();
+        long binarySessions = sessions.stream().filter(ChatSessionRegistry.ChatSession::isBinaryCodec).count();
+
+        Map<String, Object> stats = new HashMap<>(binaryCodecChannelInterceptor.getStats());
+        stats.put("sessions", sessions.size());
+        stats.put("binarySessions", binarySessions);
+        return ResponseEntity.ok(stats);
+    }
+
+    /**
+     * Slowest WebSocket consumers: deepest send buffer first, then longest write in progress
+     */
+    @GetMapping("/stats/websocket/sessions")
+    public ResponseEntity<?> getSlowConsumers(@RequestParam(defaultValue = "20") int limit, Principal principal) {
+        if (!isAdmin(principal)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (OutboundSessionRegistry.OutboundSession session : outboundSessionRegistry.worstConsumers(Math.max(1, Math.min(limit, 200)))) {
+            ChatSessionRegistry.ChatSession chatSession = chatSessionRegistry.get(session.getSessionId());
+
+            Map<String, Object> row = new HashMap<>();
+            row.put("sessionId", session.getSessionId());
+            row.put("username", chatSession != null ? chatSession.getUsername() : null);
+            row.put("queuedBytes", session.getQueuedBytes());
+            row.put("undeliveredFrames", session.getUndelivered());
+            row.put("sendInProgressMs", session.getSendInProgressMs());
+            row.put("avgSendMs", session.getAvgSendMs());
+            row.put("maxSendMs", session.getMaxSendMs());
+            row.put("framesSent", session.getSent());
+            row.put("bytesSent", session.getBytesSent());
+            result.add(row);
+        }
+
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * Activity per room: stored messages, messages today and current subscribers
+     */
+    @GetMapping("/stats/rooms")
+    public ResponseEntity<?> getRoomStats(Principal principal) {
+        if (!isAdmin(principal)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        Map<String, Long> totals = toCounts(messageRepository.countGroupedByRoomId());
+        Map<String, Long> today = toCounts(messageRepository.countGroupedByRoomIdSince(LocalDate.now().atStartOfDay()));
+        Map<String, Integer> subscribers = ChatRooms.subscriberCounts(simpUserRegistry);
+
+        Set<String> rooms = new TreeSet<>(totals.keySet());
+        rooms.addAll(subscribers.keySet());
+
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (String room : rooms) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("room", room);
+            row.put("totalMessages", totals.getOrDefault(room, 0L));
+            row.put("messagesToday", today.getOrDefault(room, 0L));
+            row.put("subscribers", subscribers.getOrDefault(room, 0));
+            result.add(row);
+        }
+        result.sort(Comparator.comparing((Map<String, Object> row) -> (Long) row.get("messagesToday")).reversed());
+
+        return ResponseEntity.ok(result);
+    }
+
+    private Map<String, Long> toCounts(List<Object[]> rows) {
+        Map<String, Long> counts = new HashMap<>();
+        for (Object[] row : rows) {
+            counts.put((String) row[0], (Long) row[1]);
+        }
+        return counts;
     }
 
     /**
@@ -113,18 +227,24 @@ public class AdminController {
         List<User> users = userRepository.findAll();
         List<Map<String, Object>> result = new ArrayList<>();
 
+        // One grouped count instead of a COUNT query per user
+        Map<Long, Long> messageCounts = new HashMap<>();
+        for (Object[] row : messageRepository.countGroupedBySenderId()) {
+            messageCounts.put((Long) row[0], (Long) row[1]);
+        }
+
         for (User user : users) {
             Map<String, Object> userMap = new HashMap<>();
             userMap.put("id", user.getId());
             userMap.put("username", user.getUsername());
             userMap.put("email", user.getEmail());
             userMap.put("role", user.getRole());
-            userMap.put("isOnline", user.isOnline());
+            userMap.put("isOnline", presenceService.isOnline(user.getUsername()));
             userMap.put("isBanned", user.isBanned());
             userMap.put("bannedBy", user.getBannedBy());
             userMap.put("createdAt", user.getCreatedAt());
             userMap.put("lastSeen", user.getLastSeen());
-            userMap.put("messageCount", messageRepository.countBySender(user.getUsername()));
+            userMap.put("messageCount", messageCounts.getOrDefault(user.getId(), 0L));
             result.add(userMap);
         }
 
@@ -263,7 +383,7 @@ public class AdminController {
         }
 
         User user = userOpt.get();
-        var messages = messageRepository.findBySenderOrderByTimestampDesc(user.getUsername());
+        var messages = userDirectory.resolve(messageRepository.findBySenderIdOrderByTimestampDesc(user.getId()));
 
         return ResponseEntity.ok(messages);
     }
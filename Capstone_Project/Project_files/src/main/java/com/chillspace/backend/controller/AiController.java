@@ -5,7 +5,7 @@ import com.chillspace.backend.repository.MessageRepository;
 import com.chillspace.backend.repository.SharedFileRepository;
 import com.chillspace.backend.repository.UserRepository;
 import com.chillspace.backend.model.Message;
-import com.chillspace.backend.model.SharedFile;
+import com.chillspace.backend.model.SharedFileSummary;
 import com.chillspace.backend.model.User;
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -37,17 +37,26 @@ public class AiController {
     private final SharedFileRepository sharedFileRepository;
     private final UserRepository userRepository;
     private final com.chillspace.backend.service.KnowledgeService knowledgeService;
+    private final com.chillspace.backend.service.PresenceService presenceService;
+    private final com.chillspace.backend.service.MessageSearchIndex searchIndex;
+    private final com.chillspace.backend.service.UserDirectory userDirectory;
 
     public AiController(GeminiService geminiService,
             MessageRepository messageRepository,
             SharedFileRepository sharedFileRepository,
             UserRepository userRepository,
-            com.chillspace.backend.service.KnowledgeService knowledgeService) {
+            com.chillspace.backend.service.KnowledgeService knowledgeService,
+            com.chillspace.backend.service.PresenceService presenceService,
+            com.chillspace.backend.service.MessageSearchIndex searchIndex,
+            com.chillspace.backend.service.UserDirectory userDirectory) {
         this.geminiService = geminiService;
         this.messageRepository = messageRepository;
         this.sharedFileRepository = sharedFileRepository;
         this.userRepository = userRepository;
         this.knowledgeService = knowledgeService;
+        this.presenceService = presenceService;
+        this.searchIndex = searchIndex;
+        this.userDirectory = userDirectory;
     }
 
     /**
@@ -211,11 +220,11 @@ public class AiController {
                     .orElse(List.of());
         } else if ("online".equalsIgnoreCase(status)) {
             users = userRepository.findAll().stream()
-                    .filter(User::isOnline)
+                    .filter(u -> presenceService.isOnline(u.getUsername()))
                     .collect(Collectors.toList());
         } else if ("offline".equalsIgnoreCase(status)) {
             users = userRepository.findAll().stream()
-                    .filter(u -> !u.isOnline())
+                    .filter(u -> !presenceService.isOnline(u.getUsername()))
                     .collect(Collectors.toList());
         } else {
             users = userRepository.findAll();
@@ -230,7 +239,7 @@ public class AiController {
         for (User user : users) {
             sb.append("- ").append(user.getUsername())
                     .append(" (").append(user.getRole()).append(")")
-                    .append(user.isOnline() ? " 🟢 Online" : " ⚫ Offline")
+                    .append(presenceService.isOnline(user.getUsername()) ? " 🟢 Online" : " ⚫ Offline")
                     .append(user.isBanned() ? " [BANNED]" : "")
                     .append("\n");
         }
@@ -251,16 +260,9 @@ public class AiController {
             type = (String) args.get("type");
         }
 
-        List<SharedFile> files = sharedFileRepository.findAll(
-                PageRequest.of(0, limit, Sort.by(Sort.Direction.DESC, "uploadedAt"))).getContent();
-
-        if (type != null && !type.isEmpty()) {
-            final String filterType = type.toLowerCase();
-            files = files.stream()
-                    .filter(f -> f.getContentType() != null &&
-                            f.getContentType().toLowerCase().contains(filterType))
-                    .collect(Collectors.toList());
-        }
+        // Filtered in the query, so "last 10 PDFs" really returns up to 10 PDFs
+        List<SharedFileSummary> files = sharedFileRepository.findSummaries(null,
+                type != null && !type.isBlank() ? type : null, null, PageRequest.of(0, limit));
 
         if (files.isEmpty()) {
             return "No files found.";
@@ -268,10 +270,10 @@ public class AiController {
 
         StringBuilder sb = new StringBuilder();
         sb.append("Found ").append(files.size()).append(" file(s):\n");
-        for (SharedFile file : files) {
-            sb.append("- ").append(file.getFilename())
-                    .append(" (").append(formatFileSize(file.getFileSize())).append(")")
-                    .append(" by ").append(file.getUploadedBy())
+        for (SharedFileSummary file : files) {
+            sb.append("- ").append(file.originalFilename())
+                    .append(" (").append(formatFileSize(file.fileSize())).append(")")
+                    .append(" by ").append(file.uploadedBy())
                     .append("\n");
         }
         return sb.toString();
@@ -283,23 +285,38 @@ public class AiController {
     private String executeGetMessages(Map<String, Object> args) {
         int limit = 10;
         String sender = null;
+        String query = null;
 
         if (args != null) {
             if (args.get("limit") != null) {
                 limit = ((Number) args.get("limit")).intValue();
             }
             sender = (String) args.get("sender");
+            query = (String) args.get("query");
         }
 
-        List<Message> messages = messageRepository.findAll(
-                PageRequest.of(0, limit, Sort.by(Sort.Direction.DESC, "timestamp"))).getContent();
-
-        if (sender != null && !sender.isEmpty()) {
-            final String filterSender = sender.toLowerCase();
-            messages = messages.stream()
-                    .filter(m -> m.getSender() != null &&
-                            m.getSender().toLowerCase().contains(filterSender))
-                    .collect(Collectors.toList());
+        List<Message> messages;
+
+        if (query != null && !query.isBlank()) {
+            // Keyword search goes through the full-text index instead of scanning a page
+            String fullQuery = sender != null && !sender.isEmpty() ? query + " from:" + sender : query;
+            List<Long> ids = searchIndex.search(fullQuery).ids();
+            ids = ids.subList(0, Math.min(limit, ids.size()));
+            Map<Long, Message> byId = messageRepository.findAllById(ids).stream()
+                    .collect(Collectors.toMap(Message::getId, m -> m));
+            messages = userDirectory.resolve(
+                    ids.stream().map(byId::get).filter(m -> m != null).collect(Collectors.toList()));
+        } else {
+            messages = userDirectory.resolve(messageRepository.findAll(
+                    PageRequest.of(0, limit, Sort.by(Sort.Direction.DESC, "timestamp"))).getContent());
+
+            if (sender != null && !sender.isEmpty()) {
+                final String filterSender = sender.toLowerCase();
+                messages = messages.stream()
+                        .filter(m -> m.getSender() != null &&
+                                m.getSender().toLowerCase().contains(filterSender))
+                        .collect(Collectors.toList());
+            }
         }
 
         if (messages.isEmpty()) {
@@ -367,7 +384,7 @@ public class AiController {
                 "You have access to tools to query the ChillSpace database:\n" +
                 "- get_users: Get user information (online status, roles)\n" +
                 "- get_files: Get shared files\n" +
-                "- get_messages: Get recent chat messages\n\n" +
+                "- get_messages: Get recent chat messages, or search chat history by keyword\n\n" +
                 "When users ask about ChillSpace members, users, files, or chat history, USE THE TOOLS!\n" +
                 "After getting tool results, give a friendly, natural response.\n\n" +
                 "KNOWLEDGE BASE (if available):\n" +
@@ -0,0 +1,71 @@
+package com.chillspace.backend.controller;
+
+import com.chillspace.backend.service.MessageArchiveService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Raw access to archived chat days. Segments never change once written, so clients may cache
+ * them for good; the history and search APIs read them transparently as well.
+ */
+@RestController
+@RequestMapping("/api/chat/archive")
+@RequiredArgsConstructor
+public class ChatArchiveController {
+
+    private final MessageArchiveService archiveService;
+
+    @GetMapping
+    public ResponseEntity<?> listSegments() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (MessageArchiveService.Segment segment : archiveService.getSegments()) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("name", segment.name());
+            row.put("day", segment.day());
+            row.put("count", segment.count());
+            row.put("minId", segment.minId());
+            row.put("maxId", segment.maxId());
+            row.put("firstTimestamp", segment.firstTimestamp());
+            row.put("lastTimestamp", segment.lastTimestamp());
+            row.put("bytes", segment.bytes());
+            row.put("url", "/api/chat/archive/" + segment.name());
+            result.add(row);
+        }
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * One day as gzipped NDJSON (one message per line); browsers decompress it transparently
+     */
+    @GetMapping("/{name}")
+    public void downloadSegment(@PathVariable String name, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        Optional<Path> file = archiveService.segmentFile(name);
+        if (file.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        if (HttpCaching.notModified(request, response, HttpCaching.etag(name), HttpCaching.IMMUTABLE)) {
+            return;
+        }
+
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        ZeroCopyFileSender.send(request, response, file.get(), 0, Files.size(file.get()));
+    }
+}
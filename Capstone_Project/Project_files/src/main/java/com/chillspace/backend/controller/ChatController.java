@@ -6,88 +6,360 @@ import com.chillspace.backend.model.Role;
 import com.chillspace.backend.model.User;
 import com.chillspace.backend.repository.MessageRepository;
 import com.chillspace.backend.repository.UserRepository;
+import com.chillspace.backend.service.ChatHistoryService;
+import com.chillspace.backend.service.ChatRooms;
+import com.chillspace.backend.service.ChatSessionRegistry;
+import com.chillspace.backend.service.ChatSessionRegistry.ChatSession;
+import com.chillspace.backend.service.MessageArchiveService;
+import com.chillspace.backend.service.MessageIdAllocator;
+import com.chillspace.backend.service.MessageRejectedEvent;
+import com.chillspace.backend.service.MessageSearchIndex;
+import com.chillspace.backend.service.MessageWriteBehindService;
+import com.chillspace.backend.service.PresenceService;
+import com.chillspace.backend.service.RecentMessageBuffer;
+import com.chillspace.backend.service.TypingSignalService;
+import com.chillspace.backend.service.UserDirectory;
+import lombok.Data;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.handler.annotation.SendTo;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.messaging.simp.annotation.SendToUser;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.security.Principal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.TreeSet;
 
 @RestController
 @RequiredArgsConstructor
 public class ChatController {
 
+    public static final String PUBLIC_TOPIC = "/topic/public"; // Presence and user events, seen by everyone
+    public static final String ERROR_QUEUE = "/queue/errors"; // Per user, subscribed as /user/queue/errors
+    private static final int MAX_BULK_DELETE = 500;
+    private static final int MAX_SEARCH_PAGE_SIZE = 50;
+
     private final MessageRepository messageRepository;
     private final UserRepository userRepository;
+    private final ChatHistoryService chatHistoryService;
+    private final MessageIdAllocator messageIdAllocator;
+    private final MessageWriteBehindService messageWriter;
+    private final PresenceService presenceService;
+    private final RecentMessageBuffer recentMessages;
+    private final MessageSearchIndex searchIndex;
+    private final MessageArchiveService archive;
+    private final UserDirectory userDirectory;
+    private final SimpMessageSendingOperations messagingTemplate;
+    private final SimpUserRegistry simpUserRegistry;
+    private final TypingSignalService typingSignals;
 
-    // Thread-safe Set to store online users
-    private final Set<String> onlineUsers = ConcurrentHashMap.newKeySet();
+    @Value("${chat.broker.mode:simple}")
+    private String brokerMode;
 
-    @MessageMapping("/chat.sendMessage")
-    @SendTo("/topic/public")
-    public Message sendMessage(@Payload Message chatMessage) {
-        if (chatMessage.getType() == MessageType.CHAT) {
-            // Fetch User to get authoritative Role
-            Optional<User> sender = userRepository.findByUsername(chatMessage.getSender());
-            if (sender.isPresent()) {
-                chatMessage.setSenderRole(sender.get().getRole());
-                messageRepository.save(chatMessage);
-            }
+    // Only the room's subscribers receive the message. Clients may only send CHAT: DELETE and EDIT events are
+    // published by the REST endpoints after their checks, and every server-owned field is reset here.
+    @MessageMapping("/chat.sendMessage/{room}")
+    @SendTo(ChatRooms.TOPIC_PREFIX + "{room}")
+    public Message sendMessage(@DestinationVariable String room, @Payload Message chatMessage,
+            SimpMessageHeaderAccessor headerAccessor) {
+        // Identity and role were pinned to the session on CONNECT - no DB lookups per frame
+        ChatSession session = ChatSessionRegistry.from(headerAccessor);
+        if (session == null || session.isBanned() || !ChatRooms.isValid(room)
+                || chatMessage.getType() != MessageType.CHAT) {
+            return null;
+        }
+
+        // Checked before anything is allocated or broadcast; the sender is told why (see handleInvalidMessage)
+        String error = contentError(chatMessage.getContent());
+        if (error != null) {
+            throw new InvalidMessageException(error);
         }
+
+        chatMessage.setSender(session.getUsername());
+        chatMessage.setRoomId(room);
+        chatMessage.setSenderId(session.getUserId());
+        chatMessage.setSenderRole(session.getRole());
+        chatMessage.setMessageIds(null);
+        chatMessage.setSeq(null);
+        chatMessage.setEditedAt(null);
+        // Assign id and timestamp now so the broadcast is final; the insert happens in the background
+        chatMessage.setId(messageIdAllocator.nextId());
+        chatMessage.setTimestamp(LocalDateTime.now());
+        messageWriter.enqueue(chatMessage);
+        recentMessages.append(ChatRooms.topic(room), chatMessage);
+        searchIndex.add(chatMessage);
+        typingSignals.stopped(room, session.getUsername());
         return chatMessage;
     }
 
+    // Only to the session that sent the frame, not the user's other tabs
+    @MessageExceptionHandler(InvalidMessageException.class)
+    @SendToUser(destinations = ERROR_QUEUE, broadcast = false)
+    public Map<String, Object> handleInvalidMessage(InvalidMessageException e) {
+        return Map.of("message", e.getMessage());
+    }
+
+    // The message was already broadcast when the database refused it: take it back out of everyone's
+    // view and the search index, and tell the sender it is gone
+    @EventListener
+    public void onMessageRejected(MessageRejectedEvent event) {
+        Message message = event.message();
+        searchIndex.remove(List.of(message.getId()));
+        broadcastDeletion(ChatRooms.of(message), List.of(message.getId()), message.getSender());
+        messagingTemplate.convertAndSendToUser(message.getSender(), ERROR_QUEUE, Map.of(
+                "message", "Your message could not be saved and was removed",
+                "messageId", message.getId()));
+    }
+
+    // Typing signals are ephemeral: no id, no storage, no catch-up; see TypingSignalService
+    @MessageMapping("/chat.typing/{room}")
+    public void typing(@DestinationVariable String room, @Payload TypingRequest request,
+            SimpMessageHeaderAccessor headerAccessor) {
+        ChatSession session = ChatSessionRegistry.from(headerAccessor);
+        if (session == null || session.isBanned() || !ChatRooms.isValid(room)) {
+            return;
+        }
+
+        if (request.isTyping()) {
+            typingSignals.typing(room, session.getUsername());
+        } else {
+            typingSignals.stopped(room, session.getUsername());
+        }
+    }
+
+    // Clients that predate rooms post to the default room
+    @MessageMapping("/chat.sendMessage")
+    @SendTo(ChatRooms.TOPIC_PREFIX + ChatRooms.DEFAULT_ROOM)
+    public Message sendMessageToDefaultRoom(@Payload Message chatMessage, SimpMessageHeaderAccessor headerAccessor) {
+        return sendMessage(ChatRooms.DEFAULT_ROOM, chatMessage, headerAccessor);
+    }
+
     @MessageMapping("/chat.addUser")
-    @SendTo("/topic/public")
+    @SendTo(PUBLIC_TOPIC)
     public Message addUser(@Payload Message chatMessage, SimpMessageHeaderAccessor headerAccessor) {
-        // Add username in web socket session
-        headerAccessor.getSessionAttributes().put("username", chatMessage.getSender());
-
-        // Add to online list (In-Memory)
-        onlineUsers.add(chatMessage.getSender());
-        
-        // Sync with Database
-        userRepository.findByUsername(chatMessage.getSender()).ifPresent(user -> {
-            user.setOnline(true);
-            user.setLastSeen(java.time.LocalDateTime.now());
-            userRepository.save(user);
-        });
+        ChatSession session = ChatSessionRegistry.from(headerAccessor);
+        if (session == null) {
+            return null;
+        }
 
-        return chatMessage;
-    }
+        // Only announce the user's first session (a second tab is not a new JOIN)
+        boolean cameOnline = presenceService.connect(session.getSessionId(), session.getUsername());
+        if (!cameOnline) {
+            return null;
+        }
 
-    // Helper to remove user (called by EventListener)
-    public void removeUser(String username) {
-        onlineUsers.remove(username);
-        
-        // Sync with Database
-        userRepository.findByUsername(username).ifPresent(user -> {
-            user.setOnline(false);
-            user.setLastSeen(java.time.LocalDateTime.now());
-            userRepository.save(user);
-        });
+        // A fresh frame: nothing the client sent besides the request itself is rebroadcast
+        Message join = new Message();
+        join.setType(MessageType.JOIN);
+        join.setSender(session.getUsername());
+        return join;
     }
 
     // API to get online users
     @GetMapping("/api/chat/online")
     @ResponseBody
     public Set<String> getOnlineUsers() {
-        return onlineUsers;
+        return presenceService.getOnlineUsers();
+    }
+
+    // Rooms that have messages or subscribers, with how many sessions are in each right now
+    @GetMapping("/api/chat/rooms")
+    @ResponseBody
+    public List<Map<String, Object>> getRooms() {
+        Map<String, Integer> subscribers = ChatRooms.subscriberCounts(simpUserRegistry);
+        Set<String> rooms = new TreeSet<>(messageRepository.findRoomIds());
+        rooms.addAll(subscribers.keySet());
+        rooms.remove(ChatRooms.DEFAULT_ROOM);
+
+        List<Map<String, Object>> result = new ArrayList<>();
+        result.add(Map.of("name", ChatRooms.DEFAULT_ROOM,
+                "subscribers", subscribers.getOrDefault(ChatRooms.DEFAULT_ROOM, 0)));
+        for (String room : rooms) {
+            result.add(Map.of("name", room, "subscribers", subscribers.getOrDefault(room, 0)));
+        }
+        return result;
     }
 
-    // REST Endpoint to fetch history
+    // REST Endpoint to fetch a room's history (keyset-paginated: latest page, or before/after a message id)
     @GetMapping("/api/chat/history")
     @ResponseBody
-    public List<Message> getChatHistory() {
-        return messageRepository.findAllByOrderByTimestampAsc();
+    public ResponseEntity<?> getChatHistory(
+            @RequestParam(value = "room", defaultValue = ChatRooms.DEFAULT_ROOM) String room,
+            @RequestParam(value = "before", required = false) Long before,
+            @RequestParam(value = "after", required = false) Long after,
+            @RequestParam(value = "limit", defaultValue = "" + ChatHistoryService.DEFAULT_LIMIT) int limit,
+            ServletWebRequest webRequest) {
+
+        if (!ChatRooms.isValid(room)) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Invalid room name"));
+        }
+        if (before != null && after != null) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Use either 'before' or 'after', not both"));
+        }
+
+        // Every message, edit and deletion in the room moves its catch-up sequence, and renames move the
+        // directory version, so together they version any page. Not tagged while messages are still
+        // queued (the page would miss them), nor with a broker relay, where other nodes' traffic is not
+        // in this node's sequence.
+        if (!"relay".equalsIgnoreCase(brokerMode)) {
+            long seq = recentMessages.currentSeq(ChatRooms.topic(room));
+            if (!messageWriter.hasPending()) {
+                String etag = HttpCaching.etag("history-" + recentMessages.getEpoch() + "-" + seq + "-"
+                        + userDirectory.getVersion());
+                if (HttpCaching.notModified(webRequest, etag, HttpCaching.REVALIDATE)) {
+                    return null;
+                }
+            }
+        }
+
+        if (before == null && after == null) {
+            return ResponseEntity.ok(chatHistoryService.latest(room, limit));
+        }
+
+        Optional<List<Message>> page = before != null
+                ? chatHistoryService.before(room, before, limit)
+                : chatHistoryService.after(room, after, limit);
+
+        return page.<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("message", "Cursor message not found")));
+    }
+
+    // Full-text search: every term must match, "from:name" limits to one sender
+    @GetMapping("/api/chat/search")
+    @ResponseBody
+    public ResponseEntity<?> searchMessages(
+            @RequestParam("q") String query,
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", defaultValue = "20") int size) {
+
+        if (query.isBlank()) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Search query cannot be empty"));
+        }
+
+        page = Math.max(page, 0);
+        size = Math.max(1, Math.min(size, MAX_SEARCH_PAGE_SIZE));
+
+        MessageSearchIndex.SearchResult result = searchIndex.search(query);
+        List<Long> ids = result.ids();
+        int from = (int) Math.min((long) page * size, ids.size());
+        List<Long> pageIds = ids.subList(from, Math.min(from + size, ids.size()));
+
+        // Newest messages may still be in the write-behind queue
+        Map<Long, Message> found = new HashMap<>();
+        List<Long> stored = new ArrayList<>();
+        for (Long id : pageIds) {
+            Message pending = messageWriter.getPending(id);
+            if (pending != null) {
+                found.put(id, pending);
+            } else {
+                stored.add(id);
+            }
+        }
+        messageRepository.findAllById(stored).forEach(message -> found.put(message.getId(), message));
+        if (found.size() < pageIds.size()) {
+            // Older hits live in the archive
+            List<Long> archived = stored.stream().filter(id -> !found.containsKey(id)).toList();
+            archive.findByIds(archived).forEach(message -> found.put(message.getId(), message));
+        }
+
+        List<Message> messages = userDirectory.resolve(pageIds.stream()
+                .map(found::get)
+                .filter(Objects::nonNull)
+                .toList());
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("query", query);
+        response.put("page", page);
+        response.put("size", size);
+        response.put("total", ids.size());
+        response.put("totalCapped", result.capped());
+        response.put("indexing", !searchIndex.isReady());
+        response.put("messages", messages);
+        return ResponseEntity.ok(response);
+    }
+
+    // Reconnect catch-up: replay what the client missed from the in-memory buffer,
+    // falling back to a keyset query when the gap is older than the buffer
+    @GetMapping("/api/chat/catchup")
+    @ResponseBody
+    public ResponseEntity<?> catchUp(
+            @RequestParam(value = "room", defaultValue = ChatRooms.DEFAULT_ROOM) String room,
+            @RequestParam(value = "epoch", required = false) Long epoch,
+            @RequestParam(value = "since", required = false) Long since,
+            @RequestParam(value = "lastId", required = false) Long lastId) {
+
+        if (!ChatRooms.isValid(room)) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Invalid room name"));
+        }
+
+        String topic = ChatRooms.topic(room);
+        long head = recentMessages.currentSeq(topic);
+        Map<String, Object> response = new HashMap<>();
+        response.put("epoch", recentMessages.getEpoch());
+        response.put("seq", head);
+
+        // No cursor yet: just hand out the current position
+        if (since == null) {
+            response.put("source", "buffer");
+            response.put("messages", List.of());
+            return ResponseEntity.ok(response);
+        }
+
+        // With a broker relay each node numbers only the broadcasts it published itself, so the client's
+        // sequence (taken from messages that came through any node) means nothing to this buffer; resync by id
+        boolean relay = "relay".equalsIgnoreCase(brokerMode);
+        if (!relay && epoch != null && epoch == recentMessages.getEpoch()) {
+            Optional<List<Message>> buffered = recentMessages.since(topic, since);
+            if (buffered.isPresent()) {
+                response.put("source", "buffer");
+                response.put("messages", buffered.get());
+                return ResponseEntity.ok(response);
+            }
+        }
+
+        // Gap is older than the buffer (or the server restarted, or relay mode): resync from the database,
+        // topped up with buffered messages this node's write-behind queue may not have stored yet
+        Map<Long, Message> merged = new LinkedHashMap<>();
+        List<Message> stored = lastId != null
+                ? chatHistoryService.after(room, lastId, ChatHistoryService.MAX_LIMIT).orElse(List.of())
+                : chatHistoryService.latest(room, ChatHistoryService.DEFAULT_LIMIT);
+        stored.forEach(message -> merged.put(message.getId(), message));
+        for (Message message : recentMessages.snapshot(topic)) {
+            if (message.getType() == MessageType.CHAT && messageWriter.isPending(message.getId())) {
+                merged.putIfAbsent(message.getId(), message);
+            }
+        }
+
+        List<Message> messages = new ArrayList<>(merged.values());
+        messages.sort(Comparator.comparing(Message::getTimestamp).thenComparing(Message::getId));
+        response.put("source", "history");
+        response.put("messages", messages);
+        return ResponseEntity.ok(response);
     }
 
     // DELETE Message Endpoint
@@ -100,6 +372,8 @@ public class ChatController {
         User requester = userRepository.findByUsername(username)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
+        // The message may still be sitting in the write-behind queue
+        messageWriter.awaitPersisted(id);
         Message message = messageRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Message not found"));
 
@@ -116,23 +390,185 @@ public class ChatController {
             }
         } else {
             // User can only delete OWN messages
-            if (message.getSender().equals(username)) {
+            if (isSentBy(message, requester)) {
                 canDelete = true;
             }
         }
 
         if (canDelete) {
             messageRepository.delete(message);
-            // In a real STOMP app, we might want to broadcast the deletion ID to
-            // /topic/public
-            // so clients verify it in real-time. For now, clients will see it gone on
-            // refresh.
-            // We can also hack a "DELETE" message via WebSocket here if we injected
-            // SimpMessagingTemplate.
+            searchIndex.remove(List.of(id));
+            // Let connected clients drop it from their view right away
+            broadcastDeletion(ChatRooms.of(message), List.of(id), username);
             return ResponseEntity.ok().build();
         } else {
             return ResponseEntity.status(HttpStatus.FORBIDDEN)
                     .body("You do not have permission to delete this message.");
         }
     }
+
+    // Bulk DELETE for moderators: one DELETE statement, one broadcast frame
+    @PostMapping("/api/chat/bulk-delete")
+    @Transactional
+    public ResponseEntity<?> bulkDeleteMessages(@RequestBody BulkDeleteRequest request, Principal principal) {
+        if (principal == null)
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+
+        String username = principal.getName();
+        User requester = userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        if (requester.getRole() != Role.ADMIN && requester.getRole() != Role.MODERATOR) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of("message", "Moderator access required"));
+        }
+
+        if (request.getIds() == null || request.getIds().isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("message", "No message ids given"));
+        }
+        if (request.getIds().size() > MAX_BULK_DELETE) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("message", "At most " + MAX_BULK_DELETE + " messages per request"));
+        }
+
+        Set<Long> ids = new LinkedHashSet<>(request.getIds());
+        ids.forEach(messageWriter::awaitPersisted);
+
+        // Mods can delete anyone EXCEPT Admin
+        List<Object[]> rows = requester.getRole() == Role.ADMIN
+                ? messageRepository.findExistingIdsWithRoom(ids)
+                : messageRepository.findIdsWithRoomNotSentByRole(ids, Role.ADMIN);
+
+        List<Long> deletable = new ArrayList<>();
+        Map<String, List<Long>> byRoom = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            deletable.add((Long) row[0]);
+            byRoom.computeIfAbsent((String) row[1], r -> new ArrayList<>()).add((Long) row[0]);
+        }
+
+        if (!deletable.isEmpty()) {
+            messageRepository.deleteAllByIdInBatch(deletable);
+            searchIndex.remove(deletable);
+            byRoom.forEach((room, roomIds) -> broadcastDeletion(room, roomIds, username));
+        }
+
+        return ResponseEntity.ok(Map.of(
+                "deleted", deletable.size(),
+                "messageIds", deletable));
+    }
+
+    // EDIT Message Endpoint (own messages only)
+    @PutMapping("/api/chat/{id}")
+    @Transactional
+    public ResponseEntity<?> editMessage(@PathVariable Long id, @RequestBody EditMessageRequest request,
+            Principal principal) {
+        if (principal == null)
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+
+        String error = contentError(request.getContent() != null ? request.getContent().trim() : null);
+        if (error != null) {
+            return ResponseEntity.badRequest().body(Map.of("message", error));
+        }
+
+        messageWriter.awaitPersisted(id);
+        Message message = messageRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Message not found"));
+
+        User requester = userRepository.findByUsername(principal.getName())
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        if (!isSentBy(message, requester)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of("message", "You can only edit your own messages"));
+        }
+
+        LocalDateTime editedAt = LocalDateTime.now();
+        String content = request.getContent().trim();
+        messageRepository.updateContent(id, content, editedAt);
+        searchIndex.update(id, requester.getUsername(), message.getContent(), content);
+
+        Message event = Message.builder()
+                .type(MessageType.EDIT)
+                .id(id)
+                .sender(requester.getUsername())
+                .senderId(requester.getId())
+                .roomId(ChatRooms.of(message))
+                .senderRole(message.getSenderRole())
+                .content(content)
+                .timestamp(message.getTimestamp())
+                .editedAt(editedAt)
+                .build();
+        publish(ChatRooms.of(message), event);
+
+        return ResponseEntity.ok(event);
+    }
+
+    // Null if the content fits messages.content; MySQL counts the VARCHAR length in characters (code points)
+    static String contentError(String content) {
+        if (content == null || content.isBlank()) {
+            return "Message content cannot be empty";
+        }
+        if (content.codePointCount(0, content.length()) > Message.MAX_CONTENT_LENGTH) {
+            return "Message is too long (at most " + Message.MAX_CONTENT_LENGTH + " characters)";
+        }
+        return null;
+    }
+
+    // Rows from before sender_id was backfilled only carry the name they were sent under
+    private boolean isSentBy(Message message, User user) {
+        if (message.getSenderId() != null) {
+            return message.getSenderId().equals(user.getId());
+        }
+        return user.getUsername().equals(message.getSender());
+    }
+
+    private void broadcastDeletion(String room, List<Long> ids, String deletedBy) {
+        publish(room, Message.builder()
+                .type(MessageType.DELETE)
+                .sender(deletedBy)
+                .roomId(room)
+                .messageIds(List.copyOf(ids))
+                .build());
+    }
+
+    // Events go through the room's catch-up buffer too, so reconnecting clients see them.
+    // Inside a transaction they wait for the commit, so nobody sees (or caches history around) a change that rolls back.
+    private void publish(String room, Message event) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    send(room, event);
+                }
+            });
+        } else {
+            send(room, event);
+        }
+    }
+
+    private void send(String room, Message event) {
+        String topic = ChatRooms.topic(room);
+        recentMessages.append(topic, event);
+        messagingTemplate.convertAndSend(topic, event);
+    }
+
+    static class InvalidMessageException extends RuntimeException {
+        InvalidMessageException(String message) {
+            super(message);
+        }
+    }
+
+    @Data
+    static class BulkDeleteRequest {
+        private List<Long> ids;
+    }
+
+    @Data
+    static class EditMessageRequest {
+        private String content;
+    }
+
+    @Data
+    static class TypingRequest {
+        private boolean typing = true;
+    }
 }
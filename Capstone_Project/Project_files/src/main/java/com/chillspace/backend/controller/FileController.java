@@ -1,15 +1,32 @@
 package com.chillspace.backend.controller;
 
 import com.chillspace.backend.model.SharedFile;
+import com.chillspace.backend.model.SharedFileSummary;
 import com.chillspace.backend.repository.SharedFileRepository;
+import com.chillspace.backend.service.FileBlobMigrationService;
+import com.chillspace.backend.service.FileBlobService;
+import com.chillspace.backend.service.ThumbnailService;
+import com.chillspace.backend.storage.BlobStore;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.*;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.Principal;
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
 
 @RestController
 @RequestMapping("/api/files")
@@ -17,15 +34,23 @@ import java.util.*;
 public class FileController {
 
     private final SharedFileRepository fileRepository;
+    private final BlobStore blobStore;
+    private final FileBlobService fileBlobService;
+    private final ThumbnailService thumbnailService;
+    private final FileBlobMigrationService fileBlobMigrationService;
 
     // Maximum file size: 50MB
     private static final long MAX_FILE_SIZE = 50 * 1024 * 1024;
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final String TOTAL_COUNT = "X-Total-Count";
+
     /**
      * Upload a new file
      */
     @PostMapping("/upload")
-    @Transactional
+    @Transactional(rollbackFor = IOException.class)
     public ResponseEntity<?> uploadFile(
             @RequestParam("file") MultipartFile file,
             @RequestParam(value = "description", required = false) String description,
@@ -44,16 +69,23 @@ public class FileController {
                 return ResponseEntity.badRequest().body(Map.of("message", "File size must be less than 50MB"));
             }
 
+            // The multipart part is on disk already; stream it into the store instead of reading it into memory
+            BlobStore.StoredBlob blob;
+            try (InputStream content = file.getInputStream()) {
+                blob = fileBlobService.store(content);
+            }
+
             SharedFile sharedFile = new SharedFile();
             sharedFile.setFilename(UUID.randomUUID().toString());
             sharedFile.setOriginalFilename(file.getOriginalFilename());
             sharedFile.setContentType(file.getContentType());
-            sharedFile.setFileSize(file.getSize());
-            sharedFile.setFileData(file.getBytes());
+            sharedFile.setFileSize(blob.size());
+            sharedFile.setBlobHash(blob.hash());
             sharedFile.setUploadedBy(principal.getName());
             sharedFile.setDescription(description);
 
             fileRepository.save(sharedFile);
+            thumbnailService.generateAfterCommit(blob.hash(), sharedFile.getContentType(), blob.size());
 
             return ResponseEntity.ok(Map.of(
                     "message", "File uploaded successfully",
@@ -61,53 +93,203 @@ public class FileController {
                     "filename", sharedFile.getOriginalFilename()
             ));
         } catch (Exception e) {
+            // The error is answered here rather than thrown, so roll back explicitly: nothing taken so far may stay
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("message", "Failed to upload file: " + e.getMessage()));
         }
     }
 
     /**
-     * List all shared files (metadata only, no file data)
+     * List shared files, newest first, keyset-paginated: pass the last id of a page as 'before' for the next.
+     * Optional filters: uploadedBy (exact), type (part of the content type), q (part of the filename).
+     * X-Total-Count carries the number of files matching the filters.
      */
     @GetMapping
-    public ResponseEntity<?> listFiles() {
-        List<SharedFile> files = fileRepository.findAllByOrderByUploadedAtDesc();
-        List<Map<String, Object>> result = new ArrayList<>();
+    public ResponseEntity<?> listFiles(
+            @RequestParam(value = "before", required = false) Long before,
+            @RequestParam(value = "limit", defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+            @RequestParam(value = "uploadedBy", required = false) String uploadedBy,
+            @RequestParam(value = "type", required = false) String type,
+            @RequestParam(value = "q", required = false) String query) {
+
+        PageRequest page = PageRequest.of(0, Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
+        uploadedBy = blankToNull(uploadedBy);
+        type = blankToNull(type);
+        query = blankToNull(query);
+
+        List<SharedFileSummary> files;
+        if (before == null) {
+            files = fileRepository.findSummaries(uploadedBy, type, query, page);
+        } else {
+            Optional<LocalDateTime> cursor = fileRepository.findUploadedAtById(before);
+            if (cursor.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", "Cursor file not found"));
+            }
+            files = fileRepository.findSummariesBefore(uploadedBy, type, query, cursor.get(), before, page);
+        }
 
-        for (SharedFile file : files) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (SharedFileSummary file : files) {
             Map<String, Object> fileInfo = new HashMap<>();
-            fileInfo.put("id", file.getId());
-            fileInfo.put("filename", file.getOriginalFilename());
-            fileInfo.put("contentType", file.getContentType());
-            fileInfo.put("fileSize", file.getFileSize());
-            fileInfo.put("uploadedBy", file.getUploadedBy());
-            fileInfo.put("uploadedAt", file.getUploadedAt());
-            fileInfo.put("description", file.getDescription());
+            fileInfo.put("id", file.id());
+            fileInfo.put("filename", file.originalFilename());
+            fileInfo.put("contentType", file.contentType());
+            fileInfo.put("fileSize", file.fileSize());
+            fileInfo.put("uploadedBy", file.uploadedBy());
+            fileInfo.put("uploadedAt", file.uploadedAt());
+            fileInfo.put("description", file.description());
+            fileInfo.put("hasThumbnail", thumbnailService.supports(file.contentType(), file.fileSize()));
             result.add(fileInfo);
         }
 
-        return ResponseEntity.ok(result);
+        // Unfiltered, a plain count can be answered from an index; the filter clause would read every row
+        long total = uploadedBy == null && type == null && query == null
+                ? fileRepository.count()
+                : fileRepository.countSummaries(uploadedBy, type, query);
+        return ResponseEntity.ok()
+                .header(TOTAL_COUNT, String.valueOf(total))
+                .body(result);
     }
 
     /**
-     * Download a file by ID
+     * Download a file by ID. Honours a single byte range (Range: bytes=start-end) with 206 Partial Content,
+     * so media can seek and interrupted downloads can resume; memory use does not depend on the file size.
      */
     @GetMapping("/{id}")
-    public ResponseEntity<?> downloadFile(@PathVariable Long id) {
-        Optional<SharedFile> fileOpt = fileRepository.findById(id);
+    public void downloadFile(@PathVariable Long id, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        Optional<SharedFileSummary> fileOpt = findStoredSummary(id);
 
-        if (fileOpt.isEmpty()) {
-            return ResponseEntity.notFound().build();
+        if (fileOpt.isEmpty() || fileOpt.get().blobHash() == null || !blobStore.exists(fileOpt.get().blobHash())) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
         }
 
-        SharedFile file = fileOpt.get();
+        SharedFileSummary file = fileOpt.get();
 
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(
-                        file.getContentType() != null ? file.getContentType() : "application/octet-stream"))
-                .header(HttpHeaders.CONTENT_DISPOSITION,
-                        "attachment; filename=\"" + file.getOriginalFilename() + "\"")
-                .body(file.getFileData());
+        // A file id always serves the same bytes, so its content hash is a strong validator for good
+        String etag = HttpCaching.etag(file.blobHash());
+        if (HttpCaching.notModified(request, response, etag, HttpCaching.IMMUTABLE)) {
+            return;
+        }
+
+        long length = file.fileSize();
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setContentType(file.contentType() != null ? file.contentType() : "application/octet-stream");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"" + file.originalFilename() + "\"");
+
+        long start = 0;
+        long end = length;
+        HttpRange range;
+        try {
+            range = singleRange(request.getHeader(HttpHeaders.RANGE));
+        } catch (IllegalArgumentException e) {
+            range = null;
+        }
+        // Resuming against a different version than the client holds: send it whole
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(etag)) {
+            range = null;
+        }
+        if (range != null) {
+            if (length == 0 || range.getRangeStart(length) >= length) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            start = range.getRangeStart(length);
+            end = range.getRangeEnd(length) + 1;
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (end - 1) + "/" + length);
+        }
+
+        Optional<Path> localPath = blobStore.localPath(file.blobHash());
+        if (localPath.isPresent()) {
+            ZeroCopyFileSender.send(request, response, localPath.get(), start, end);
+            return;
+        }
+
+        response.setContentLengthLong(end - start);
+        if (end > start) {
+            try (InputStream content = blobStore.open(file.blobHash())) {
+                StreamUtils.copyRange(content, response.getOutputStream(), start, end - 1);
+            }
+        }
+    }
+
+    /**
+     * A small JPEG preview of an image, or of the first page of a PDF. Usually rendered in the background
+     * after upload; older files are rendered on their first request. 404 for files that have none, 503 with
+     * Retry-After while rendering takes longer than chat.files.thumbnail-wait-ms.
+     */
+    @GetMapping("/{id}/thumbnail")
+    public void getThumbnail(@PathVariable Long id, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        Optional<SharedFileSummary> fileOpt = findStoredSummary(id);
+        if (fileOpt.isEmpty() || fileOpt.get().blobHash() == null
+                || !thumbnailService.supports(fileOpt.get().contentType(), fileOpt.get().fileSize())) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        SharedFileSummary file = fileOpt.get();
+
+        // Rendered from the content, so the content hash identifies it for good
+        if (HttpCaching.notModified(request, response, HttpCaching.etag("thumb-" + file.blobHash()),
+                HttpCaching.IMMUTABLE)) {
+            return;
+        }
+
+        Optional<Path> thumbnail;
+        try {
+            thumbnail = thumbnailService.getThumbnail(file.blobHash(), file.contentType(), file.fileSize());
+        } catch (TimeoutException | RejectedExecutionException e) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noStore().getHeaderValue());
+            response.setHeader(HttpHeaders.RETRY_AFTER, "2");
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
+        if (thumbnail.isEmpty()) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noStore().getHeaderValue());
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        response.setContentType(MediaType.IMAGE_JPEG_VALUE);
+        ZeroCopyFileSender.send(request, response, thumbnail.get(), 0, Files.size(thumbnail.get()));
+    }
+
+    /**
+     * The file, with its content in the blob store. Rows from before the blob store that
+     * FileBlobMigrationService has not reached yet (no hash, content still in file_data) are moved first.
+     */
+    private Optional<SharedFileSummary> findStoredSummary(Long id) {
+        Optional<SharedFileSummary> file = fileRepository.findSummaryById(id);
+        if (file.isPresent() && file.get().blobHash() == null) {
+            fileBlobMigrationService.migrate(id);
+            file = fileRepository.findSummaryById(id);
+        }
+        return file;
+    }
+
+    /**
+     * The requested range, or null to send the whole file. Multi-range requests are answered with the
+     * whole file as well (allowed by RFC 9110); players and download managers only ask for one range.
+     * Throws IllegalArgumentException for a malformed header, which is likewise ignored.
+     */
+    private static HttpRange singleRange(String header) {
+        if (header == null) {
+            return null;
+        }
+        List<HttpRange> ranges = HttpRange.parseRanges(header);
+        return ranges.size() == 1 ? ranges.get(0) : null;
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
     }
 
     /**
@@ -115,22 +297,22 @@ public class FileController {
      */
     @GetMapping("/{id}/info")
     public ResponseEntity<?> getFileInfo(@PathVariable Long id) {
-        Optional<SharedFile> fileOpt = fileRepository.findById(id);
+        Optional<SharedFileSummary> fileOpt = fileRepository.findSummaryById(id);
 
         if (fileOpt.isEmpty()) {
             return ResponseEntity.notFound().build();
         }
 
-        SharedFile file = fileOpt.get();
+        SharedFileSummary file = fileOpt.get();
 
         return ResponseEntity.ok(Map.of(
-                "id", file.getId(),
-                "filename", file.getOriginalFilename(),
-                "contentType", file.getContentType() != null ? file.getContentType() : "unknown",
-                "fileSize", file.getFileSize(),
-                "uploadedBy", file.getUploadedBy(),
-                "uploadedAt", file.getUploadedAt(),
-                "description", file.getDescription() != null ? file.getDescription() : ""
+                "id", file.id(),
+                "filename", file.originalFilename(),
+                "contentType", file.contentType() != null ? file.contentType() : "unknown",
+                "fileSize", file.fileSize(),
+                "uploadedBy", file.uploadedBy(),
+                "uploadedAt", file.uploadedAt(),
+                "description", file.description() != null ? file.description() : ""
         ));
     }
 
@@ -144,21 +326,24 @@ public class FileController {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
-        Optional<SharedFile> fileOpt = fileRepository.findById(id);
+        Optional<SharedFileSummary> fileOpt = fileRepository.findSummaryById(id);
 
         if (fileOpt.isEmpty()) {
             return ResponseEntity.notFound().build();
         }
 
-        SharedFile file = fileOpt.get();
+        SharedFileSummary file = fileOpt.get();
 
         // Only allow uploader to delete (admins handled by role check in security)
-        if (!file.getUploadedBy().equals(principal.getName())) {
+        if (!file.uploadedBy().equals(principal.getName())) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN)
                     .body(Map.of("message", "You can only delete your own files"));
         }
 
-        fileRepository.delete(file);
+        // Only release the reference if this request actually removed the row
+        if (fileRepository.deleteFileById(id) > 0) {
+            fileBlobService.release(file.blobHash());
+        }
 
         return ResponseEntity.ok(Map.of("message", "File deleted successfully"));
     }
@@ -0,0 +1,163 @@
+package com.chillspace.backend.controller;
+
+import com.chillspace.backend.model.FileUpload;
+import com.chillspace.backend.model.SharedFile;
+import com.chillspace.backend.repository.FileUploadRepository;
+import com.chillspace.backend.service.ChunkedUploadService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.security.Principal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Chunked uploads for files too large for a single multipart POST:
+ *
+ *   POST   /api/files/uploads                 {filename, contentType, size, description} -> uploadId, chunkSize
+ *   PUT    /api/files/uploads/{id}?offset=N   raw chunk body, optional X-Chunk-Sha256 header
+ *   GET    /api/files/uploads/{id}            bytes received so far, to resume after a disconnect
+ *   POST   /api/files/uploads/{id}/complete   -> fileId
+ *   DELETE /api/files/uploads/{id}            abort
+ */
+@RestController
+@RequestMapping("/api/files/uploads")
+@RequiredArgsConstructor
+public class FileUploadController {
+
+    private static final String CHUNK_SHA256 = "X-Chunk-Sha256";
+
+    private final ChunkedUploadService uploadService;
+    private final FileUploadRepository uploadRepository;
+
+    @PostMapping
+    public ResponseEntity<?> initiate(@RequestBody InitiateRequest body, Principal principal) {
+        if (principal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        if (body.getFilename() == null || body.getFilename().isBlank()) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Filename is required"));
+        }
+
+        try {
+            FileUpload upload = uploadService.initiate(principal.getName(), body.getFilename(),
+                    body.getContentType(), body.getSize(), body.getDescription());
+            return ResponseEntity.ok(status(upload));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("message", "Failed to start upload: " + e.getMessage()));
+        }
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<?> getStatus(@PathVariable String id, Principal principal) {
+        Optional<FileUpload> upload = findOwn(id, principal);
+        if (upload.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(status(upload.get()));
+    }
+
+    /**
+     * Append one chunk. 409 means the offset is not where the upload stands; the body carries the
+     * right one ("received"), so the client can resend from there.
+     */
+    @PutMapping("/{id}")
+    public ResponseEntity<?> putChunk(@PathVariable String id, @RequestParam long offset,
+            HttpServletRequest request, Principal principal) {
+        Optional<FileUpload> upload = findOwn(id, principal);
+        if (upload.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        try (InputStream body = request.getInputStream()) {
+            FileUpload updated = uploadService.writeChunk(id, offset, body, request.getHeader(CHUNK_SHA256));
+            return ResponseEntity.ok(status(updated));
+        } catch (IllegalStateException e) {
+            Map<String, Object> result = new HashMap<>();
+            result.put("message", e.getMessage());
+            uploadRepository.findById(id).ifPresent(current -> result.putAll(status(current)));
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("message", "Failed to store chunk: " + e.getMessage()));
+        }
+    }
+
+    @PostMapping("/{id}/complete")
+    public ResponseEntity<?> complete(@PathVariable String id, Principal principal) {
+        Optional<FileUpload> upload = findOwn(id, principal);
+        if (upload.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        try {
+            SharedFile sharedFile = uploadService.complete(id);
+            return ResponseEntity.ok(Map.of(
+                    "message", "File uploaded successfully",
+                    "fileId", sharedFile.getId(),
+                    "filename", sharedFile.getOriginalFilename()
+            ));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage()));
+        } catch (IOException | UncheckedIOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("message", "Failed to upload file: " + e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> abort(@PathVariable String id, Principal principal) {
+        Optional<FileUpload> upload = findOwn(id, principal);
+        if (upload.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        try {
+            uploadService.abort(upload.get());
+            return ResponseEntity.ok(Map.of("message", "Upload cancelled"));
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("message", "Failed to cancel upload: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Someone else's upload looks the same as a missing one
+     */
+    private Optional<FileUpload> findOwn(String id, Principal principal) {
+        if (principal == null) {
+            return Optional.empty();
+        }
+        return uploadRepository.findById(id).filter(u -> u.getUploadedBy().equals(principal.getName()));
+    }
+
+    private Map<String, Object> status(FileUpload upload) {
+        return Map.of(
+                "uploadId", upload.getId(),
+                "size", upload.getTotalSize(),
+                "received", upload.getReceivedBytes(),
+                "chunkSize", uploadService.getChunkSize()
+        );
+    }
+
+    @Data
+    static class InitiateRequest {
+        private String filename;
+        private String contentType;
+        private long size;
+        private String description;
+    }
+}
@@ -0,0 +1,55 @@
+package com.chillspace.backend.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conditional GET support for the read endpoints: a strong ETag plus a Cache-Control policy.
+ * Callers compute the tag from something cheap (a content hash, a version counter) before
+ * loading the body, so a matching If-None-Match costs neither a payload nor the full read.
+ */
+final class HttpCaching {
+
+    /**
+     * Content behind the URL never changes (content-addressed or versioned URLs)
+     */
+    static final CacheControl IMMUTABLE = CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate().immutable();
+
+    /**
+     * May change at any time: keep a copy, but revalidate before every use
+     */
+    static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
+    private HttpCaching() {
+    }
+
+    /**
+     * Set ETag and Cache-Control, and answer 304 Not Modified if the client's copy is current.
+     * Pass the WebRequest Spring injected into the handler, so it knows the request was answered;
+     * when this returns true the handler must return null (or just return, for void handlers).
+     */
+    static boolean notModified(ServletWebRequest webRequest, String etag, CacheControl cacheControl) {
+        HttpServletResponse response = webRequest.getResponse();
+        if (response != null) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+        }
+        return webRequest.checkNotModified(etag);
+    }
+
+    /**
+     * Same, for handlers that write the response themselves
+     */
+    static boolean notModified(HttpServletRequest request, HttpServletResponse response, String etag,
+            CacheControl cacheControl) {
+        return notModified(new ServletWebRequest(request, response), etag, cacheControl);
+    }
+
+    static String etag(String value) {
+        return "\"" + value + "\"";
+    }
+}
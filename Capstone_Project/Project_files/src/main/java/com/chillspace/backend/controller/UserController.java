@@ -1,23 +1,30 @@
 package com.chillspace.backend.controller;
 
-import com.chillspace.backend.model.ProfileImage;
 import com.chillspace.backend.model.User;
 import com.chillspace.backend.repository.MessageRepository;
-import com.chillspace.backend.repository.ProfileImageRepository;
 import com.chillspace.backend.repository.UserRepository;
+import com.chillspace.backend.service.AvatarService;
+import com.chillspace.backend.service.MessageSearchIndex;
+import com.chillspace.backend.service.PresenceService;
+import com.chillspace.backend.service.UserDirectory;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.security.Principal;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/users")
@@ -26,10 +33,22 @@ public class UserController {
 
     private final UserRepository userRepository;
     private final MessageRepository messageRepository;
-    private final ProfileImageRepository profileImageRepository;
-
+    private final AvatarService avatarService;
+    private final PresenceService presenceService;
+    private final MessageSearchIndex searchIndex;
+    private final UserDirectory userDirectory;
+
+    /**
+     * Every user with presence. Tagged with the directory and presence versions, so clients polling an
+     * unchanged list get a 304 without the users table being read.
+     */
     @GetMapping
-    public List<Map<String, Object>> getAllUsers() {
+    public List<Map<String, Object>> getAllUsers(ServletWebRequest webRequest) {
+        String etag = HttpCaching.etag("users-" + userDirectory.getVersion() + "-" + presenceService.getVersion());
+        if (HttpCaching.notModified(webRequest, etag, HttpCaching.REVALIDATE)) {
+            return null;
+        }
+
         List<User> users = userRepository.findAll();
         List<Map<String, Object>> result = new ArrayList<>();
 
@@ -40,9 +59,11 @@ public class UserController {
             userMap.put("email", user.getEmail());
             userMap.put("role", user.getRole());
             userMap.put("avatarStyle", user.getAvatarStyle());
-            userMap.put("hasProfileImage", profileImageRepository.existsByUserId(user.getId()));
+            userMap.put("hasProfileImage", user.getAvatarVersion() != null);
+            // Avatar URLs carry this as ?v=, which makes them cacheable for good
+            userMap.put("avatarVersion", user.getAvatarVersion());
             userMap.put("createdAt", user.getCreatedAt());
-            userMap.put("isOnline", user.isOnline());
+            userMap.put("isOnline", presenceService.isOnline(user.getUsername()));
             result.add(userMap);
         }
 
@@ -73,56 +94,60 @@ public class UserController {
             User user = userRepository.findByUsername(principal.getName())
                     .orElseThrow(() -> new RuntimeException("User not found"));
 
-            String base64Image = Base64.getEncoder().encodeToString(file.getBytes());
-
-            // Save to separate profile_images table
-            Optional<ProfileImage> existingImage = profileImageRepository.findByUserId(user.getId());
-            ProfileImage profileImage;
-            if (existingImage.isPresent()) {
-                profileImage = existingImage.get();
-                profileImage.setImageData(base64Image);
-                profileImage.setImageType(contentType);
-            } else {
-                profileImage = new ProfileImage();
-                profileImage.setUser(user);
-                profileImage.setImageData(base64Image);
-                profileImage.setImageType(contentType);
-            }
-            profileImageRepository.save(profileImage);
+            // Saved to the separate profile_images table, with its size variants
+            avatarService.save(user, file.getBytes(), contentType);
+            userDirectory.changed();
 
             return ResponseEntity.ok(Map.of(
                     "message", "Avatar uploaded successfully",
-                    "hasProfileImage", true));
+                    "hasProfileImage", true,
+                    "avatarVersion", user.getAvatarVersion()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("message", "Failed to upload avatar: " + e.getMessage()));
         }
     }
 
+    /**
+     * The avatar image, as the original or, with ?size=N (display pixels), as the smallest pre-rendered
+     * square variant at least that large. Served from AvatarService's cache; tagged with the user's avatar
+     * version, so requests carrying the current one as ?v= (from the user list) may be cached for good,
+     * and others are revalidated.
+     */
     @GetMapping("/{username}/avatar")
-    public ResponseEntity<?> getAvatar(@PathVariable String username) {
+    public ResponseEntity<?> getAvatar(@PathVariable String username,
+            @RequestParam(value = "v", required = false) Long version,
+            @RequestParam(value = "size", required = false) Integer size, ServletWebRequest webRequest) {
         Optional<User> userOpt = userRepository.findByUsername(username);
 
-        if (userOpt.isEmpty()) {
+        if (userOpt.isEmpty() || userOpt.get().getAvatarVersion() == null) {
             return ResponseEntity.notFound().build();
         }
 
         User user = userOpt.get();
-        Optional<ProfileImage> profileImageOpt = profileImageRepository.findByUserId(user.getId());
+        long currentVersion = user.getAvatarVersion();
+        Integer variant = AvatarService.variantFor(size);
+
+        CacheControl cacheControl = Objects.equals(version, currentVersion)
+                ? CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable()
+                : CacheControl.noCache().cachePublic();
+        String etag = HttpCaching.etag("avatar-" + user.getId() + "-" + currentVersion + "-"
+                + (variant != null ? variant : "original"));
+        if (HttpCaching.notModified(webRequest, etag, cacheControl)) {
+            return null;
+        }
 
-        if (profileImageOpt.isEmpty() || profileImageOpt.get().getImageData() == null) {
+        Optional<AvatarService.Avatar> avatar = avatarService.load(user.getId(), currentVersion, variant);
+        if (avatar.isEmpty()) {
             return ResponseEntity.notFound().build();
         }
 
         try {
-            ProfileImage profileImage = profileImageOpt.get();
-            byte[] imageBytes = Base64.getDecoder().decode(profileImage.getImageData());
-            MediaType mediaType = MediaType.parseMediaType(
-                    profileImage.getImageType() != null ? profileImage.getImageType() : "image/png");
-
             return ResponseEntity.ok()
-                    .contentType(mediaType)
-                    .body(imageBytes);
+                    .contentType(MediaType.parseMediaType(avatar.get().contentType()))
+                    .body(avatar.get().data());
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
@@ -137,7 +162,7 @@ public class UserController {
         }
 
         User user = userOpt.get();
-        long messageCount = messageRepository.countBySender(username);
+        long messageCount = messageRepository.countBySenderId(user.getId());
         long daysActive = ChronoUnit.DAYS.between(user.getCreatedAt(), LocalDateTime.now());
         if (daysActive < 1)
             daysActive = 1;
@@ -148,7 +173,7 @@ public class UserController {
                 "daysActive", daysActive,
                 "role", user.getRole(),
                 "createdAt", user.getCreatedAt(),
-                "hasProfileImage", profileImageRepository.existsByUserId(user.getId())));
+                "hasProfileImage", user.getAvatarVersion() != null));
     }
 
     @DeleteMapping("/avatar")
@@ -161,7 +186,8 @@ public class UserController {
         User user = userRepository.findByUsername(principal.getName())
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
-        profileImageRepository.deleteByUserId(user.getId());
+        avatarService.delete(user);
+        userDirectory.changed();
 
         return ResponseEntity.ok(Map.of("message", "Avatar removed"));
     }
@@ -186,9 +212,12 @@ public class UserController {
                     return ResponseEntity.badRequest().body(Map.of("message", "Username already taken"));
                 }
 
-                int updatedMessages = messageRepository.updateSenderUsername(oldUsername, newUsername);
-                System.out.println(
-                        "Updated " + updatedMessages + " messages from '" + oldUsername + "' to '" + newUsername + "'");
+                // Messages reference the sender by id, so only the users row changes
+                Long userId = user.getId();
+                afterCommit(() -> {
+                    userDirectory.rename(userId, newUsername);
+                    searchIndex.renameSender(oldUsername, newUsername);
+                });
 
                 user.setUsername(newUsername);
                 usernameChanged = true;
@@ -200,6 +229,7 @@ public class UserController {
         }
 
         userRepository.save(user);
+        afterCommit(userDirectory::changed);
 
         return ResponseEntity.ok(Map.of(
                 "message", "Profile updated successfully",
@@ -208,6 +238,21 @@ public class UserController {
                 "avatarStyle", user.getAvatarStyle() != null ? user.getAvatarStyle() : "initials"));
     }
 
+    // Node-local caches follow the users row only once it is committed, so a rename that rolls back
+    // (e.g. on the unique username constraint) never shows up in the directory or in search.
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
     @GetMapping("/profile")
     public ResponseEntity<?> getCurrentUserProfile(Principal principal) {
         if (principal == null) {
@@ -223,9 +268,10 @@ public class UserController {
         userMap.put("email", user.getEmail());
         userMap.put("role", user.getRole());
         userMap.put("avatarStyle", user.getAvatarStyle());
-        userMap.put("hasProfileImage", profileImageRepository.existsByUserId(user.getId()));
+        userMap.put("hasProfileImage", user.getAvatarVersion() != null);
+        userMap.put("avatarVersion", user.getAvatarVersion());
         userMap.put("createdAt", user.getCreatedAt());
-        userMap.put("isOnline", user.isOnline());
+        userMap.put("isOnline", presenceService.isOnline(user.getUsername()));
 
         return ResponseEntity.ok(userMap);
     }
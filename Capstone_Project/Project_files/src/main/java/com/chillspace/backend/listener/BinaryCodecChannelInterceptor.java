@@ -0,0 +1,111 @@
+package com.chillspace.backend.listener;
+
+import com.chillspace.backend.service.ChatSessionRegistry;
+import com.chillspace.backend.service.ChatSessionRegistry.ChatSession;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Re-encodes outbound MESSAGE frames as CBOR for sessions that asked for it on CONNECT,
+ * and counts the payload bytes we put on the wire for every subscriber.
+ *
+ * A broadcast hands the same payload array to every subscriber, so each payload is
+ * transcoded once per fan-out rather than once per session.
+ */
+@Component
+public class BinaryCodecChannelInterceptor implements ChannelInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(BinaryCodecChannelInterceptor.class);
+
+    private final ChatSessionRegistry sessionRegistry;
+    private final ObjectMapper jsonMapper = new ObjectMapper();
+    private final CBORMapper cborMapper = new CBORMapper();
+
+    // Keyed by payload identity (arrays don't override equals), entries go once the broadcast is gone
+    private final Map<byte[], byte[]> encoded = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final AtomicLong jsonFrames = new AtomicLong();
+    private final AtomicLong jsonBytes = new AtomicLong();
+    private final AtomicLong cborFrames = new AtomicLong();
+    private final AtomicLong cborBytes = new AtomicLong();
+    private final AtomicLong cborSourceBytes = new AtomicLong();
+
+    public BinaryCodecChannelInterceptor(ChatSessionRegistry sessionRegistry) {
+        this.sessionRegistry = sessionRegistry;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        if (accessor.getMessageType() != SimpMessageType.MESSAGE || !(message.getPayload() instanceof byte[] payload)) {
+            return message;
+        }
+
+        // Broker fan-out frames carry the session id but not the session attributes
+        ChatSession session = sessionRegistry.get(accessor.getSessionId());
+        MimeType contentType = accessor.getContentType();
+        if (session == null || !session.isBinaryCodec()
+                || contentType == null || !MimeTypeUtils.APPLICATION_JSON.isCompatibleWith(contentType)) {
+            jsonFrames.incrementAndGet();
+            jsonBytes.addAndGet(payload.length);
+            return message;
+        }
+
+        byte[] cbor = encoded.computeIfAbsent(payload, this::toCbor);
+        if (cbor == null) {
+            jsonFrames.incrementAndGet();
+            jsonBytes.addAndGet(payload.length);
+            return message;
+        }
+
+        cborFrames.incrementAndGet();
+        cborBytes.addAndGet(cbor.length);
+        cborSourceBytes.addAndGet(payload.length);
+
+        // Spring only sends a binary WebSocket frame for octet-stream content
+        accessor.setContentType(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+        accessor.removeNativeHeader("content-type");
+        accessor.removeNativeHeader("content-length");
+        return MessageBuilder.createMessage(cbor, accessor.getMessageHeaders());
+    }
+
+    private byte[] toCbor(byte[] json) {
+        try {
+            return cborMapper.writeValueAsBytes(jsonMapper.readTree(json));
+        } catch (IOException e) {
+            logger.warn("⚠️ Could not CBOR-encode outbound frame, sending JSON: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Payload bytes sent per codec since startup (STOMP headers and deflate not included)
+     */
+    public Map<String, Object> getStats() {
+        long cborSaved = cborSourceBytes.get() - cborBytes.get();
+        return Map.of(
+                "jsonFrames", jsonFrames.get(),
+                "jsonBytes", jsonBytes.get(),
+                "cborFrames", cborFrames.get(),
+                "cborBytes", cborBytes.get(),
+                "cborBytesSaved", cborSaved
+        );
+    }
+}
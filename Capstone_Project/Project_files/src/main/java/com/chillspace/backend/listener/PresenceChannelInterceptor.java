@@ -0,0 +1,30 @@
+package com.chillspace.backend.listener;
+
+import com.chillspace.backend.service.PresenceService;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Treats every inbound frame on a session, STOMP heartbeats included, as a sign of life
+ */
+@Component
+public class PresenceChannelInterceptor implements ChannelInterceptor {
+
+    private final PresenceService presenceService;
+
+    public PresenceChannelInterceptor(PresenceService presenceService) {
+        this.presenceService = presenceService;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        if (sessionId != null) {
+            presenceService.touch(sessionId);
+        }
+        return message;
+    }
+}
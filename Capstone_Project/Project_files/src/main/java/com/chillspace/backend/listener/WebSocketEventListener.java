@@ -1,41 +1,24 @@
 package com.chillspace.backend.listener;
 
-import com.chillspace.backend.controller.ChatController;
-import com.chillspace.backend.model.Message;
-import com.chillspace.backend.model.MessageType;
+import com.chillspace.backend.service.ChatSessionRegistry;
+import com.chillspace.backend.service.PresenceService;
 import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.event.EventListener;
-import org.springframework.messaging.simp.SimpMessageSendingOperations;
-import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.messaging.SessionDisconnectEvent;
 
 @Component
 @RequiredArgsConstructor
-@Slf4j
 public class WebSocketEventListener {
 
-    private final SimpMessageSendingOperations messagingTemplate;
-    private final ChatController chatController;
+    private final ChatSessionRegistry chatSessionRegistry;
+    private final PresenceService presenceService;
 
     @EventListener
     public void handleWebSocketDisconnectListener(SessionDisconnectEvent event) {
-        StompHeaderAccessor headerAccessor = StompHeaderAccessor.wrap(event.getMessage());
-        String username = (String) headerAccessor.getSessionAttributes().get("username");
+        chatSessionRegistry.unregister(event.getSessionId());
 
-        if (username != null) {
-            log.info("User Disconnected: {}", username);
-
-            // Remove user from the online list in ChatController
-            chatController.removeUser(username);
-
-            var chatMessage = Message.builder()
-                    .type(MessageType.LEAVE)
-                    .sender(username)
-                    .build();
-
-            messagingTemplate.convertAndSend("/topic/public", chatMessage);
-        }
+        // Broadcasts LEAVE only when the user's last session goes away
+        presenceService.disconnect(event.getSessionId());
     }
 }
@@ -0,0 +1,60 @@
+package com.chillspace.backend.migration;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * information_schema lookups for the Java migrations, which check before each step because a database
+ * that ran with ddl-auto=update may already have some of what they add.
+ */
+final class SchemaInspector {
+
+    private SchemaInspector() {
+    }
+
+    static boolean columnExists(Connection connection, String table, String column) throws SQLException {
+        return exists(connection, "SELECT 1 FROM information_schema.columns " +
+                "WHERE table_schema = DATABASE() AND table_name = ? AND column_name = ?", table, column);
+    }
+
+    /**
+     * Full column type as MySQL reports it, e.g. "bigint" or "enum('CHAT','JOIN')"; null if there is no such column
+     */
+    static String columnType(Connection connection, String table, String column) throws SQLException {
+        return value(connection, "SELECT column_type FROM information_schema.columns " +
+                "WHERE table_schema = DATABASE() AND table_name = ? AND column_name = ?", table, column);
+    }
+
+    static boolean isAutoIncrement(Connection connection, String table, String column) throws SQLException {
+        return exists(connection, "SELECT 1 FROM information_schema.columns " +
+                "WHERE table_schema = DATABASE() AND table_name = ? AND column_name = ? " +
+                "AND extra LIKE '%auto_increment%'", table, column);
+    }
+
+    static boolean indexExists(Connection connection, String table, String index) throws SQLException {
+        return exists(connection, "SELECT 1 FROM information_schema.statistics " +
+                "WHERE table_schema = DATABASE() AND table_name = ? AND index_name = ?", table, index);
+    }
+
+    static boolean constraintExists(Connection connection, String table, String constraint) throws SQLException {
+        return exists(connection, "SELECT 1 FROM information_schema.table_constraints " +
+                "WHERE table_schema = DATABASE() AND table_name = ? AND constraint_name = ?", table, constraint);
+    }
+
+    private static boolean exists(Connection connection, String sql, String... params) throws SQLException {
+        return value(connection, sql, params) != null;
+    }
+
+    private static String value(Connection connection, String sql, String... params) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                statement.setString(i + 1, params[i]);
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.chillspace.backend.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.Statement;
+
+import static com.chillspace.backend.migration.SchemaInspector.indexExists;
+
+/**
+ * Index behind the (timestamp, id) keyset pagination of the chat history. ddl-auto=update created it
+ * from the entity on databases that ran the code that added it, so it is only created where missing.
+ */
+public class V1_1__MessageKeysetIndex extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        if (!indexExists(connection, "messages", "idx_messages_timestamp_id")) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE INDEX idx_messages_timestamp_id ON messages (timestamp, id)");
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.chillspace.backend.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.Statement;
+
+import static com.chillspace.backend.migration.SchemaInspector.isAutoIncrement;
+
+/**
+ * Message ids are handed out in blocks by MessageIdAllocator instead of AUTO_INCREMENT, so a message
+ * has its id before it is written. Adds the id_generators table the blocks are reserved from and drops
+ * AUTO_INCREMENT from messages.id, which ddl-auto=update never did. The generator row itself is created
+ * by the allocator on first use, continuing after the highest existing id.
+ */
+public class V1_2__MessageIdBlocks extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS id_generators (" +
+                    "name VARCHAR(255) NOT NULL, " +
+                    "next_val BIGINT NOT NULL, " +
+                    "PRIMARY KEY (name)) ENGINE=InnoDB");
+            if (isAutoIncrement(connection, "messages", "id")) {
+                statement.execute("ALTER TABLE messages MODIFY id BIGINT NOT NULL");
+            }
+        }
+    }
+}
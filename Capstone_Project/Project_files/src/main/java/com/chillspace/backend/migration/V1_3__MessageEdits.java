@@ -0,0 +1,32 @@
+package com.chillspace.backend.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.Statement;
+
+import static com.chillspace.backend.migration.SchemaInspector.columnExists;
+import static com.chillspace.backend.migration.SchemaInspector.columnType;
+
+/**
+ * Message editing: messages.edited_at, and EDIT in the messages.type enum. ddl-auto=update added the
+ * column but never changes an existing enum, so the enum is widened wherever EDIT is missing.
+ */
+public class V1_3__MessageEdits extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        try (Statement statement = connection.createStatement()) {
+            if (!columnExists(connection, "messages", "edited_at")) {
+                statement.execute("ALTER TABLE messages ADD COLUMN edited_at DATETIME(6)");
+            }
+            String type = columnType(connection, "messages", "type");
+            if (type != null && !type.toUpperCase().contains("'EDIT'")) {
+                statement.execute("ALTER TABLE messages MODIFY type " +
+                        "ENUM ('CHAT','JOIN','LEAVE','DELETE','EDIT','USER_UPDATE')");
+            }
+        }
+    }
+}
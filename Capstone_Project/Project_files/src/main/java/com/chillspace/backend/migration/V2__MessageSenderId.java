@@ -0,0 +1,83 @@
+package com.chillspace.backend.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static com.chillspace.backend.migration.SchemaInspector.columnExists;
+import static com.chillspace.backend.migration.SchemaInspector.constraintExists;
+import static com.chillspace.backend.migration.SchemaInspector.indexExists;
+
+/**
+ * Adds messages.sender_id (indexed, with a foreign key to users) and fills it for existing rows
+ * by matching the username they were sent under. Rows whose sender was renamed before this ran
+ * have no match and keep serving the stored name.
+ * Written in Java so it can skip what ddl-auto already created and backfill in small id ranges,
+ * committing each one, instead of one UPDATE that locks the whole table.
+ */
+public class V2__MessageSenderId extends BaseJavaMigration {
+
+    private static final Logger logger = LoggerFactory.getLogger(V2__MessageSenderId.class);
+
+    private static final long RANGE_SIZE = 10_000;
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+
+        try (Statement statement = connection.createStatement()) {
+            if (!columnExists(connection, "messages", "sender_id")) {
+                statement.execute("ALTER TABLE messages ADD COLUMN sender_id BIGINT");
+            }
+            if (!indexExists(connection, "messages", "idx_messages_sender_id_timestamp")) {
+                statement.execute("CREATE INDEX idx_messages_sender_id_timestamp ON messages (sender_id, timestamp)");
+            }
+        }
+
+        long updated = backfill(connection);
+        if (updated > 0) {
+            logger.info("🔗 Backfilled sender_id on {} messages", updated);
+        }
+
+        // Added after the backfill so the FK check does not slow down every UPDATE
+        if (!constraintExists(connection, "messages", "fk_messages_sender")) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("ALTER TABLE messages ADD CONSTRAINT fk_messages_sender " +
+                        "FOREIGN KEY (sender_id) REFERENCES users (id)");
+            }
+        }
+    }
+
+    private long backfill(Connection connection) throws SQLException {
+        long maxId;
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM messages")) {
+            rs.next();
+            maxId = rs.getLong(1);
+        }
+
+        long updated = 0;
+        try (PreparedStatement update = connection.prepareStatement(
+                "UPDATE messages m JOIN users u ON u.username = m.sender SET m.sender_id = u.id " +
+                        "WHERE m.sender_id IS NULL AND m.id > ? AND m.id <= ?")) {
+            for (long from = 0; from < maxId; from += RANGE_SIZE) {
+                update.setLong(1, from);
+                update.setLong(2, from + RANGE_SIZE);
+                updated += update.executeUpdate();
+            }
+        }
+        return updated;
+    }
+}
@@ -0,0 +1,33 @@
+package com.chillspace.backend.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * One stored content blob and how many shared_files rows use it. Identical uploads share a
+ * blob; deleting a file only drops the count, and blobs left at zero are removed by
+ * FileBlobService's sweep.
+ */
+@Entity
+@Table(name = "file_blobs", indexes = {
+        @Index(name = "idx_file_blobs_ref_count_updated_at", columnList = "ref_count, updated_at")
+})
+@Data
+@NoArgsConstructor
+public class FileBlob {
+
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    @Column(nullable = false)
+    private long size;
+
+    @Column(name = "ref_count", nullable = false)
+    private int refCount;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,59 @@
+package com.chillspace.backend.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * A chunked upload in progress. The bytes received so far sit in a part file on disk;
+ * receivedBytes only advances once a chunk has been written and its checksum verified,
+ * so it is always the offset a client should resume from.
+ */
+@Entity
+@Table(name = "file_uploads", indexes = {
+        @Index(name = "idx_file_uploads_updated_at", columnList = "updated_at")
+})
+@Data
+@NoArgsConstructor
+public class FileUpload {
+
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Column(name = "uploaded_by", nullable = false)
+    private String uploadedBy;
+
+    @Column(name = "original_filename", nullable = false)
+    private String originalFilename;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    @Column(length = 500)
+    private String description;
+
+    @Column(name = "total_size", nullable = false)
+    private long totalSize;
+
+    @Column(name = "received_bytes", nullable = false)
+    private long receivedBytes;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = createdAt;
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
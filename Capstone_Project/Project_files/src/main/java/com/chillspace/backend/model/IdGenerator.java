@@ -0,0 +1,24 @@
+package com.chillspace.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Hi/lo style id generator row. Each node reserves a block of ids at a time
+ * so entities can get their id before they are written to the database.
+ */
+@Entity
+@Table(name = "id_generators")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdGenerator {
+
+    @Id
+    private String name;
+
+    @Column(name = "next_val", nullable = false)
+    private Long nextVal;
+}
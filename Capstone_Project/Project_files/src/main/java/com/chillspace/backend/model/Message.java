@@ -4,35 +4,76 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 @Entity
-@Table(name = "messages")
+@Table(name = "messages", indexes = {
+        @Index(name = "idx_messages_timestamp_id", columnList = "timestamp, id"),
+        @Index(name = "idx_messages_room_timestamp_id", columnList = "room_id, timestamp, id"),
+        @Index(name = "idx_messages_sender_id_timestamp", columnList = "sender_id, timestamp")
+})
 public class Message {
 
+    public static final int MAX_CONTENT_LENGTH = 255; // messages.content is VARCHAR(255)
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    private Long id;
+    private Long id; // Assigned by MessageIdAllocator before the message is broadcast
 
     @Enumerated(EnumType.STRING)
     private MessageType type;
 
+    @Column(length = MAX_CONTENT_LENGTH)
     private String content;
 
-    private String sender; // Username
+    @Column(name = "room_id", nullable = false, length = 64)
+    private String roomId; // See ChatRooms
+
+    private String sender; // Username at send time; served with the current name (see UserDirectory)
+
+    @Column(name = "sender_id")
+    private Long senderId;
+
+    // Read-only mapping that gives sender_id its foreign key; code works with senderId
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "sender_id", insertable = false, updatable = false,
+            foreignKey = @ForeignKey(name = "fk_messages_sender"))
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private User senderUser;
 
     @Enumerated(EnumType.STRING)
     private Role senderRole; // To display badge in UI
 
     private LocalDateTime timestamp;
 
+    @Column(name = "edited_at")
+    private LocalDateTime editedAt;
+
+    @Transient
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<Long> messageIds; // Target messages of a DELETE event, not stored
+
+    @Transient
+    private Long seq; // Per-destination broadcast sequence (see RecentMessageBuffer), not stored
+
     @PrePersist
     protected void onCreate() {
-        timestamp = LocalDateTime.now();
+        if (timestamp == null) {
+            timestamp = LocalDateTime.now();
+        }
+        if (roomId == null) {
+            roomId = "public";
+        }
     }
 }
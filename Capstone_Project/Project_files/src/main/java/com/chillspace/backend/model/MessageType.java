@@ -5,5 +5,6 @@ public enum MessageType {
     JOIN,
     LEAVE,
     DELETE,
+    EDIT,
     USER_UPDATE
 }
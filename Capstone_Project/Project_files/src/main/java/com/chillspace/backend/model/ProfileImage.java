@@ -6,7 +6,8 @@ import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 
 /**
- * Separate entity for storing profile images to keep users table clean
+ * Separate entity for storing profile images to keep users table clean.
+ * Holds the original as uploaded; the small sizes shown in chat are ProfileImageVariants.
  */
 @Entity
 @Table(name = "profile_images")
@@ -19,8 +20,8 @@ public class ProfileImage {
     private Long userId; // Same as User ID (one-to-one relationship)
 
     @Lob
-    @Column(name = "image_data", columnDefinition = "LONGTEXT")
-    private String imageData; // Base64 encoded image
+    @Column(name = "image_data", columnDefinition = "LONGBLOB")
+    private byte[] imageData; // Original image bytes
 
     @Column(name = "image_type")
     private String imageType; // e.g., "image/png", "image/jpeg"
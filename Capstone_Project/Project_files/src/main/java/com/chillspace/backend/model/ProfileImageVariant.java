@@ -0,0 +1,44 @@
+package com.chillspace.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * A profile image pre-rendered as a size x size square, so chat lines never load or scale the original.
+ * Rendered on upload, or on first request for images uploaded before variants existed.
+ */
+@Entity
+@Table(name = "profile_image_variants")
+@IdClass(ProfileImageVariant.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProfileImageVariant {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Id
+    @Column(name = "size")
+    private Integer size; // Edge length in pixels
+
+    @Lob
+    @Column(name = "image_data", nullable = false, columnDefinition = "MEDIUMBLOB")
+    private byte[] imageData;
+
+    @Column(name = "image_type", nullable = false)
+    private String imageType;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long userId;
+        private Integer size;
+    }
+}
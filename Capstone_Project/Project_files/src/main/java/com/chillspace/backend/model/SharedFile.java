@@ -10,7 +10,11 @@ import java.time.LocalDateTime;
  * Entity for storing shared files in the application
  */
 @Entity
-@Table(name = "shared_files")
+@Table(name = "shared_files", indexes = {
+        @Index(name = "idx_shared_files_uploaded_at", columnList = "uploaded_at"),
+        @Index(name = "idx_shared_files_uploaded_by_uploaded_at", columnList = "uploaded_by, uploaded_at"),
+        @Index(name = "idx_shared_files_blob_hash", columnList = "blob_hash")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -32,9 +36,9 @@ public class SharedFile {
     @Column(name = "file_size")
     private Long fileSize;
 
-    @Lob
-    @Column(name = "file_data", columnDefinition = "LONGBLOB")
-    private byte[] fileData;
+    // Content lives in the BlobStore under this SHA-256; the old file_data column is only read by FileBlobMigrationService
+    @Column(name = "blob_hash", length = 64)
+    private String blobHash;
 
     @Column(name = "uploaded_by", nullable = false)
     private String uploadedBy;
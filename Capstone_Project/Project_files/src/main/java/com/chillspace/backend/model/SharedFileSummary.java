@@ -0,0 +1,17 @@
+package com.chillspace.backend.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Metadata of a shared file, read with a constructor query so listings select only these columns
+ */
+public record SharedFileSummary(
+        Long id,
+        String originalFilename,
+        String contentType,
+        Long fileSize,
+        String uploadedBy,
+        LocalDateTime uploadedAt,
+        String description,
+        String blobHash) {
+}
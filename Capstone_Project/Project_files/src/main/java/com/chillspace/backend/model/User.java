@@ -7,7 +7,11 @@ import lombok.AllArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = {
+        @Index(name = "idx_users_is_online", columnList = "is_online"),
+        @Index(name = "idx_users_is_banned", columnList = "is_banned"),
+        @Index(name = "idx_users_created_at", columnList = "created_at")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -35,6 +39,10 @@ public class User {
     @Column(name = "avatar_style")
     private String avatarStyle = "initials";
 
+    // Stamped on every profile image upload, null without one; avatar URLs carry it, so they never go stale
+    @Column(name = "avatar_version")
+    private Long avatarVersion;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt = LocalDateTime.now();
 
@@ -0,0 +1,45 @@
+package com.chillspace.backend.repository;
+
+import com.chillspace.backend.model.FileBlob;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface FileBlobRepository extends JpaRepository<FileBlob, String> {
+
+    // Insert-or-increment in one statement, so two identical uploads racing cannot both insert
+    @Modifying
+    @Query(value = "INSERT INTO file_blobs (hash, size, ref_count, updated_at) VALUES (:hash, :size, 1, NOW(6)) " +
+            "ON DUPLICATE KEY UPDATE ref_count = ref_count + 1, updated_at = NOW(6)", nativeQuery = true)
+    void acquire(@Param("hash") String hash, @Param("size") long size);
+
+    @Modifying
+    @Query(value = "UPDATE file_blobs SET ref_count = ref_count - 1, updated_at = NOW(6) " +
+            "WHERE hash = :hash AND ref_count > 0", nativeQuery = true)
+    int release(@Param("hash") String hash);
+
+    // Content stored by an upload that then failed: nothing references it, so the sweep will collect it
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO file_blobs (hash, size, ref_count, updated_at) VALUES (:hash, :size, 0, NOW(6))",
+            nativeQuery = true)
+    void registerUnreferenced(@Param("hash") String hash, @Param("size") long size);
+
+    @Query("SELECT b.hash FROM FileBlob b WHERE b.refCount = 0 AND b.updatedAt < :cutoff")
+    List<String> findUnreferencedSince(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM FileBlob b WHERE b.hash = :hash")
+    Optional<FileBlob> findForUpdate(@Param("hash") String hash);
+
+    // Admin stats: bytes actually stored, each shared blob once
+    @Query("SELECT SUM(b.size) FROM FileBlob b")
+    Long sumSizes();
+}
@@ -0,0 +1,12 @@
+package com.chillspace.backend.repository;
+
+import com.chillspace.backend.model.FileUpload;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface FileUploadRepository extends JpaRepository<FileUpload, String> {
+
+    List<FileUpload> findByUpdatedAtBefore(LocalDateTime cutoff);
+}
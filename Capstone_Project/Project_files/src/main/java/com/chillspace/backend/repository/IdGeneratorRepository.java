@@ -0,0 +1,17 @@
+package com.chillspace.backend.repository;
+
+import com.chillspace.backend.model.IdGenerator;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface IdGeneratorRepository extends JpaRepository<IdGenerator, String> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT g FROM IdGenerator g WHERE g.name = :name")
+    Optional<IdGenerator> findForUpdate(@Param("name") String name);
+}
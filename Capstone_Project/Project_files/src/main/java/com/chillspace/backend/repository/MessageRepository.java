@@ -1,22 +1,86 @@
 package com.chillspace.backend.repository;
 
 import com.chillspace.backend.model.Message;
+import com.chillspace.backend.model.Role;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface MessageRepository extends JpaRepository<Message, Long> {
-    List<Message> findAllByOrderByTimestampAsc();
+
+    // Keyset pagination for a room's history (cursor = message id, ordered by timestamp then id)
+    @Query("SELECT m FROM Message m WHERE m.roomId = :roomId ORDER BY m.timestamp DESC, m.id DESC")
+    List<Message> findLatest(@Param("roomId") String roomId, Pageable pageable);
+
+    @Query("SELECT m FROM Message m WHERE m.roomId = :roomId " +
+            "AND (m.timestamp < :timestamp OR (m.timestamp = :timestamp AND m.id < :id)) " +
+            "ORDER BY m.timestamp DESC, m.id DESC")
+    List<Message> findBefore(@Param("roomId") String roomId, @Param("timestamp") LocalDateTime timestamp,
+            @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT m FROM Message m WHERE m.roomId = :roomId " +
+            "AND (m.timestamp > :timestamp OR (m.timestamp = :timestamp AND m.id > :id)) " +
+            "ORDER BY m.timestamp ASC, m.id ASC")
+    List<Message> findAfter(@Param("roomId") String roomId, @Param("timestamp") LocalDateTime timestamp,
+            @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT m.roomId FROM Message m WHERE m.id = :id")
+    Optional<String> findRoomIdById(@Param("id") Long id);
+
+    // Rooms
+    @Query("SELECT DISTINCT m.roomId FROM Message m")
+    List<String> findRoomIds();
+
+    @Query("SELECT m.roomId, COUNT(m) FROM Message m GROUP BY m.roomId")
+    List<Object[]> countGroupedByRoomId();
+
+    @Query("SELECT m.roomId, COUNT(m) FROM Message m WHERE m.timestamp >= :since GROUP BY m.roomId")
+    List<Object[]> countGroupedByRoomIdSince(@Param("since") LocalDateTime since);
+
+    @Query("SELECT m.timestamp FROM Message m WHERE m.id = :id")
+    Optional<LocalDateTime> findTimestampById(@Param("id") Long id);
+
+    @Query("SELECT MAX(m.id) FROM Message m")
+    Long findMaxId();
+
+    // Archiving: oldest day still in the table, then that day in keyset order
+    @Query("SELECT MIN(m.timestamp) FROM Message m")
+    LocalDateTime findOldestTimestamp();
+
+    @Query("SELECT m FROM Message m WHERE m.timestamp >= :start AND m.timestamp < :end " +
+            "AND (m.timestamp > :timestamp OR (m.timestamp = :timestamp AND m.id > :id)) " +
+            "ORDER BY m.timestamp ASC, m.id ASC")
+    List<Message> findDayAfter(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end,
+            @Param("timestamp") LocalDateTime timestamp, @Param("id") Long id, Pageable pageable);
+
+    // Search index build: stream chat messages in id order without loading entities
+    @Query("SELECT m.id, m.sender, m.content, m.senderId FROM Message m " +
+            "WHERE m.type = com.chillspace.backend.model.MessageType.CHAT AND m.id > :afterId ORDER BY m.id ASC")
+    List<Object[]> findSearchBatch(@Param("afterId") Long afterId, Pageable pageable);
 
     @Modifying
-    @Query("UPDATE Message m SET m.sender = :newUsername WHERE m.sender = :oldUsername")
-    int updateSenderUsername(@Param("oldUsername") String oldUsername, @Param("newUsername") String newUsername);
+    @Query("UPDATE Message m SET m.content = :content, m.editedAt = :editedAt WHERE m.id = :id")
+    int updateContent(@Param("id") Long id, @Param("content") String content, @Param("editedAt") LocalDateTime editedAt);
 
-    long countBySender(String sender);
+    // Bulk moderation: (id, roomId) of the deletable messages, so each room gets its own DELETE event
+    @Query("SELECT m.id, m.roomId FROM Message m WHERE m.id IN :ids")
+    List<Object[]> findExistingIdsWithRoom(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT m.id, m.roomId FROM Message m WHERE m.id IN :ids AND (m.senderRole IS NULL OR m.senderRole <> :role)")
+    List<Object[]> findIdsWithRoomNotSentByRole(@Param("ids") Collection<Long> ids, @Param("role") Role role);
+
+    // Per-user counts and listings go through the indexed sender_id
+    long countBySenderId(Long senderId);
+
+    @Query("SELECT m.senderId, COUNT(m) FROM Message m WHERE m.senderId IS NOT NULL GROUP BY m.senderId")
+    List<Object[]> countGroupedBySenderId();
 
     // Admin stats
     long countByTimestampAfter(LocalDateTime timestamp);
@@ -24,6 +88,5 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
     long countByTimestampBetween(LocalDateTime start, LocalDateTime end);
 
     // Spy mode
-    List<Message> findBySenderOrderByTimestampDesc(String sender);
+    List<Message> findBySenderIdOrderByTimestampDesc(Long senderId);
 }
-
@@ -0,0 +1,14 @@
+package com.chillspace.backend.repository;
+
+import com.chillspace.backend.model.ProfileImageVariant;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface ProfileImageVariantRepository extends JpaRepository<ProfileImageVariant, ProfileImageVariant.Key> {
+
+    @Modifying
+    @Query("DELETE FROM ProfileImageVariant v WHERE v.userId = :userId")
+    int deleteAllOfUser(@Param("userId") Long userId);
+}
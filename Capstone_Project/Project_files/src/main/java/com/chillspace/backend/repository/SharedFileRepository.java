@@ -1,22 +1,54 @@
 package com.chillspace.backend.repository;
 
 import com.chillspace.backend.model.SharedFile;
+import com.chillspace.backend.model.SharedFileSummary;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 public interface SharedFileRepository extends JpaRepository<SharedFile, Long> {
-    
-    List<SharedFile> findAllByOrderByUploadedAtDesc();
-    
-    List<SharedFile> findByUploadedByOrderByUploadedAtDesc(String username);
-    
-    @Query("SELECT sf FROM SharedFile sf WHERE sf.fileData IS NULL ORDER BY sf.uploadedAt DESC")
-    List<SharedFile> findAllMetadataOnly();
-
-    // Admin stats
+
+    String SUMMARY = "SELECT new com.chillspace.backend.model.SharedFileSummary(sf.id, sf.originalFilename, " +
+            "sf.contentType, sf.fileSize, sf.uploadedBy, sf.uploadedAt, sf.description, sf.blobHash) FROM SharedFile sf ";
+
+    // Optional filters: null = any. type and name match case-insensitively anywhere in the value
+    String FILTERS = "WHERE (:uploadedBy IS NULL OR sf.uploadedBy = :uploadedBy) " +
+            "AND (:type IS NULL OR LOWER(sf.contentType) LIKE LOWER(CONCAT('%', :type, '%'))) " +
+            "AND (:name IS NULL OR LOWER(sf.originalFilename) LIKE LOWER(CONCAT('%', :name, '%'))) ";
+
+    // Keyset pagination, newest first (cursor = file id, ordered by upload time then id)
+    @Query(SUMMARY + FILTERS + "ORDER BY sf.uploadedAt DESC, sf.id DESC")
+    List<SharedFileSummary> findSummaries(@Param("uploadedBy") String uploadedBy, @Param("type") String type,
+            @Param("name") String name, Pageable pageable);
+
+    @Query(SUMMARY + FILTERS +
+            "AND (sf.uploadedAt < :uploadedAt OR (sf.uploadedAt = :uploadedAt AND sf.id < :id)) " +
+            "ORDER BY sf.uploadedAt DESC, sf.id DESC")
+    List<SharedFileSummary> findSummariesBefore(@Param("uploadedBy") String uploadedBy, @Param("type") String type,
+            @Param("name") String name, @Param("uploadedAt") LocalDateTime uploadedAt, @Param("id") Long id,
+            Pageable pageable);
+
+    @Query("SELECT COUNT(sf) FROM SharedFile sf " + FILTERS)
+    long countSummaries(@Param("uploadedBy") String uploadedBy, @Param("type") String type, @Param("name") String name);
+
+    @Query(SUMMARY + "WHERE sf.id = :id")
+    Optional<SharedFileSummary> findSummaryById(@Param("id") Long id);
+
+    @Query("SELECT sf.uploadedAt FROM SharedFile sf WHERE sf.id = :id")
+    Optional<LocalDateTime> findUploadedAtById(@Param("id") Long id);
+
+    // Delete without loading the entity first, as deleteById would
+    @Modifying
+    @Query("DELETE FROM SharedFile sf WHERE sf.id = :id")
+    int deleteFileById(@Param("id") Long id);
+
+    // Admin stats: bytes as uploaded, counting every copy (see FileBlobRepository.sumSizes for bytes stored)
     @Query("SELECT SUM(sf.fileSize) FROM SharedFile sf")
     Long sumFileSizes();
 }
-
@@ -2,9 +2,14 @@ package com.chillspace.backend.repository;
 
 import com.chillspace.backend.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -15,11 +20,26 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     Boolean existsByUsername(String username);
 
+    // Sender name lookups (UserDirectory)
+    @Query("SELECT u.username FROM User u WHERE u.id = :id")
+    Optional<String> findUsernameById(@Param("id") Long id);
+
+    @Query("SELECT u.id, u.username FROM User u WHERE u.id IN :ids")
+    List<Object[]> findUsernamesByIds(@Param("ids") Collection<Long> ids);
+
     Boolean existsByEmail(String email);
 
-    // Admin stats
-    long countByIsOnline(boolean isOnline);
+    // Presence (written in coalesced batches by PresenceService)
+    @Modifying
+    @Query("UPDATE User u SET u.isOnline = :online, u.lastSeen = :lastSeen WHERE u.username IN :usernames")
+    int updatePresence(@Param("usernames") Collection<String> usernames, @Param("online") boolean online,
+            @Param("lastSeen") LocalDateTime lastSeen);
 
+    @Modifying
+    @Query("UPDATE User u SET u.isOnline = false WHERE u.isOnline = true")
+    int resetOnlineStatus();
+
+    // Admin stats
     long countByIsBanned(boolean isBanned);
 
     long countByCreatedAtAfter(LocalDateTime date);
@@ -0,0 +1,53 @@
+package com.chillspace.backend.security;
+
+import com.chillspace.backend.service.ChatSessionRegistry;
+import com.chillspace.backend.service.ChatSessionRegistry.ChatSession;
+import com.chillspace.backend.service.RateLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Limits chat sends per user before they reach the controller. A rejected frame fails the
+ * send, which Spring answers with a STOMP ERROR frame carrying the message below.
+ */
+@Component
+public class RateLimitChannelInterceptor implements ChannelInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitChannelInterceptor.class);
+
+    private static final String SEND_MESSAGE_DESTINATION = "/app/chat.sendMessage";
+
+    private final RateLimiter rateLimiter;
+
+    public RateLimitChannelInterceptor(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        if (accessor.getMessageType() != SimpMessageType.MESSAGE) {
+            return message;
+        }
+
+        String destination = accessor.getDestination();
+        if (destination == null || !destination.startsWith(SEND_MESSAGE_DESTINATION)) {
+            return message;
+        }
+
+        ChatSession session = ChatSessionRegistry.from(accessor);
+        if (session != null && !rateLimiter.tryAcquire(RateLimiter.Action.CHAT, session.getUsername(), session.getRole())) {
+            logger.warn("🚦 Rate limit hit by {}", session.getUsername());
+            throw new MessageDeliveryException("Rate limit exceeded, slow down");
+        }
+
+        return message;
+    }
+}
@@ -0,0 +1,79 @@
+package com.chillspace.backend.security;
+
+import com.chillspace.backend.model.Role;
+import com.chillspace.backend.service.RateLimiter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Per-user rate limits for the expensive REST endpoints (file upload, AI chat).
+ * Runs after JwtAuthenticationFilter so the user and role are known.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final RateLimiter rateLimiter;
+
+    public RateLimitFilter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        RateLimiter.Action action = actionFor(request);
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+
+        if (action != null && authentication != null && !(authentication instanceof AnonymousAuthenticationToken)
+                && !rateLimiter.tryAcquire(action, authentication.getName(), roleOf(authentication))) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"message\":\"Too many requests, please slow down\"}");
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    private RateLimiter.Action actionFor(HttpServletRequest request) {
+        if (!"POST".equals(request.getMethod())) {
+            return null;
+        }
+        String path = request.getServletPath();
+        // Chunked uploads count once, when they are started
+        if ("/api/files/upload".equals(path) || "/api/files/uploads".equals(path)) {
+            return RateLimiter.Action.UPLOAD;
+        }
+        if ("/api/ai/chat".equals(path)) {
+            return RateLimiter.Action.AI;
+        }
+        return null;
+    }
+
+    private Role roleOf(Authentication authentication) {
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            String name = authority.getAuthority();
+            if (name != null && name.startsWith("ROLE_")) {
+                try {
+                    return Role.valueOf(name.substring(5));
+                } catch (IllegalArgumentException ignored) {
+                    // not one of ours
+                }
+            }
+        }
+        return Role.USER;
+    }
+}
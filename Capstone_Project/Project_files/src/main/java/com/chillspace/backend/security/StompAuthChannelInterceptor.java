@@ -0,0 +1,128 @@
+package com.chillspace.backend.security;
+
+import com.chillspace.backend.model.User;
+import com.chillspace.backend.repository.UserRepository;
+import com.chillspace.backend.service.ChatSessionRegistry;
+import com.chillspace.backend.service.ChatSessionRegistry.ChatSession;
+import com.chillspace.backend.service.ClusterEventRelay;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Authenticates STOMP sessions once, on CONNECT, using the same JWT as the REST API.
+ * The user and role are pinned to the session so later frames need no database lookups.
+ */
+@Component
+public class StompAuthChannelInterceptor implements ChannelInterceptor {
+
+    private static final Pattern WILDCARDS = Pattern.compile("[*#>]");
+    private static final String APP_PREFIX = "/app/";
+    private static final String QUEUE_PREFIX = "/queue/";
+
+    private final JwtUtils jwtUtils;
+    private final UserRepository userRepository;
+    private final ChatSessionRegistry sessionRegistry;
+
+    public StompAuthChannelInterceptor(JwtUtils jwtUtils, UserRepository userRepository,
+            ChatSessionRegistry sessionRegistry) {
+        this.jwtUtils = jwtUtils;
+        this.userRepository = userRepository;
+        this.sessionRegistry = sessionRegistry;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() == null) {
+            return message;
+        }
+
+        StompCommand command = accessor.getCommand();
+        if (StompCommand.CONNECT.equals(command)) {
+            authenticate(accessor);
+        } else if (StompCommand.SEND.equals(command) || StompCommand.SUBSCRIBE.equals(command)) {
+            if (accessor.getUser() == null) {
+                throw new MessageDeliveryException("Not authenticated");
+            }
+            if (!isAllowed(command, accessor.getDestination())) {
+                throw new MessageDeliveryException("Destination not allowed");
+            }
+        }
+
+        return message;
+    }
+
+    /**
+     * Clients only send to the application (/app/...), whose handlers check and stamp every frame, never
+     * straight to the broker. Node-to-node traffic (ban and role changes, presence) is not for clients in
+     * either direction; broker wildcards (* # >) would reach it too, and no chat destination needs them.
+     * Per-user queues are only subscribed through /user/queue/..., which resolves to the caller's own.
+     */
+    static boolean isAllowed(StompCommand command, String destination) {
+        if (destination == null) {
+            return false;
+        }
+        if (destination.startsWith(ClusterEventRelay.SYSTEM_TOPIC_PREFIX) || WILDCARDS.matcher(destination).find()) {
+            return false;
+        }
+        if (StompCommand.SEND.equals(command)) {
+            return destination.startsWith(APP_PREFIX);
+        }
+        return !destination.startsWith(QUEUE_PREFIX);
+    }
+
+    private void authenticate(StompHeaderAccessor accessor) {
+        String jwt = parseJwt(accessor);
+        if (jwt == null || !jwtUtils.validateJwtToken(jwt)) {
+            throw new MessageDeliveryException("Invalid or missing token");
+        }
+
+        String username = jwtUtils.getUserNameFromJwtToken(jwt);
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new MessageDeliveryException("User not found"));
+
+        if (user.isBanned()) {
+            throw new MessageDeliveryException("Account is banned");
+        }
+
+        ChatSession session = new ChatSession(accessor.getSessionId(), user.getId(), user.getUsername(), user.getRole());
+        session.setBinaryCodec(wantsBinaryCodec(accessor));
+        accessor.getSessionAttributes().put(ChatSessionRegistry.SESSION_ATTRIBUTE, session);
+        accessor.getSessionAttributes().put("username", user.getUsername());
+        accessor.setUser(new UsernamePasswordAuthenticationToken(user.getUsername(), null,
+                List.of(new SimpleGrantedAuthority("ROLE_" + user.getRole().name()))));
+
+        sessionRegistry.register(session);
+    }
+
+    /**
+     * Clients on the native endpoint may opt into compact frames with a "codec: cbor" CONNECT header
+     */
+    private boolean wantsBinaryCodec(StompHeaderAccessor accessor) {
+        boolean nativeTransport = Boolean.TRUE.equals(
+                accessor.getSessionAttributes().get(ChatSessionRegistry.NATIVE_TRANSPORT_ATTRIBUTE));
+        return nativeTransport && "cbor".equalsIgnoreCase(accessor.getFirstNativeHeader("codec"));
+    }
+
+    private String parseJwt(StompHeaderAccessor accessor) {
+        String headerAuth = accessor.getFirstNativeHeader("Authorization");
+
+        if (StringUtils.hasText(headerAuth) && headerAuth.startsWith("Bearer ")) {
+            return headerAuth.substring(7);
+        }
+
+        return null;
+    }
+}
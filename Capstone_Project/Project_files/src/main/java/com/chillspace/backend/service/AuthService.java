@@ -20,13 +20,15 @@ public class AuthService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtUtils jwtUtils;
+    private final UserDirectory userDirectory;
 
     public AuthService(AuthenticationManager authenticationManager, UserRepository userRepository,
-            PasswordEncoder passwordEncoder, JwtUtils jwtUtils) {
+            PasswordEncoder passwordEncoder, JwtUtils jwtUtils, UserDirectory userDirectory) {
         this.authenticationManager = authenticationManager;
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.jwtUtils = jwtUtils;
+        this.userDirectory = userDirectory;
     }
 
     public AuthResponse login(LoginRequest request) {
@@ -100,5 +102,6 @@ public class AuthService {
         user.setRole(com.chillspace.backend.model.Role.USER);
 
         userRepository.save(user);
+        userDirectory.changed();
     }
 }
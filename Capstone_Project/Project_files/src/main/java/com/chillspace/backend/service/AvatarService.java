@@ -0,0 +1,208 @@
+package com.chillspace.backend.service;
+
+import com.chillspace.backend.model.ProfileImage;
+import com.chillspace.backend.model.ProfileImageVariant;
+import com.chillspace.backend.model.User;
+import com.chillspace.backend.repository.ProfileImageRepository;
+import com.chillspace.backend.repository.ProfileImageVariantRepository;
+import com.chillspace.backend.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.unit.DataSize;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Profile images: the original as uploaded plus square variants (32, 64 and 128 px) rendered once at
+ * upload, so the avatar on every chat line is a small, ready-made image.
+ *
+ * Served bytes are kept in an LRU cache bounded by total size. Entries are keyed by the user's
+ * avatar version, which every upload changes, so a new avatar is never served from a stale entry
+ * (on this node or any other) and old ones simply age out.
+ */
+@Service
+public class AvatarService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AvatarService.class);
+
+    public static final int[] SIZES = {32, 64, 128};
+
+    // Uploads are limited to 5MB, but a small PNG can still decode to a huge canvas
+    private static final long MAX_SOURCE_PIXELS = 40_000_000;
+
+    private final ProfileImageRepository profileImageRepository;
+    private final ProfileImageVariantRepository variantRepository;
+    private final UserRepository userRepository;
+    private final long cacheCapacity;
+
+    // Access-ordered, so the least recently served entry goes first; guarded by itself
+    private final LinkedHashMap<Key, Avatar> cache = new LinkedHashMap<>(64, 0.75f, true);
+    private long cachedBytes;
+
+    public AvatarService(ProfileImageRepository profileImageRepository,
+            ProfileImageVariantRepository variantRepository, UserRepository userRepository,
+            @Value("${chat.avatars.cache-size:16MB}") DataSize cacheSize) {
+        this.profileImageRepository = profileImageRepository;
+        this.variantRepository = variantRepository;
+        this.userRepository = userRepository;
+        this.cacheCapacity = cacheSize.toBytes();
+    }
+
+    /**
+     * The variant size to serve for a requested display size: the smallest that is at least as large,
+     * or null (the original) above the largest.
+     */
+    public static Integer variantFor(Integer requested) {
+        if (requested == null) {
+            return null;
+        }
+        for (int size : SIZES) {
+            if (size >= requested) {
+                return size;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Replace the user's profile image, render its variants and stamp a new avatar version
+     *
+     * @throws IllegalArgumentException the bytes are not a readable image
+     */
+    @Transactional
+    public void save(User user, byte[] imageBytes, String contentType) {
+        List<ProfileImageVariant> variants = new ArrayList<>();
+        try {
+            BufferedImage source = ImageScaling.read(new ByteArrayInputStream(imageBytes),
+                    SIZES[SIZES.length - 1], MAX_SOURCE_PIXELS);
+            for (int size : SIZES) {
+                variants.add(render(user.getId(), source, size));
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not read image: " + e.getMessage());
+        }
+
+        ProfileImage profileImage = profileImageRepository.findByUserId(user.getId()).orElseGet(() -> {
+            ProfileImage created = new ProfileImage();
+            created.setUser(user);
+            return created;
+        });
+        profileImage.setImageData(imageBytes);
+        profileImage.setImageType(contentType);
+        profileImageRepository.save(profileImage);
+
+        variantRepository.deleteAllOfUser(user.getId());
+        variantRepository.saveAll(variants);
+
+        // Milliseconds, but always moving forward, so two quick uploads never share a version
+        long previous = user.getAvatarVersion() != null ? user.getAvatarVersion() : 0;
+        user.setAvatarVersion(Math.max(System.currentTimeMillis(), previous + 1));
+        userRepository.save(user);
+    }
+
+    @Transactional
+    public void delete(User user) {
+        profileImageRepository.deleteByUserId(user.getId());
+        user.setAvatarVersion(null);
+        userRepository.save(user);
+    }
+
+    /**
+     * The user's avatar at the given variant size (null for the original), from the cache when possible.
+     * Variants missing for images uploaded before they existed are rendered and stored now.
+     */
+    public Optional<Avatar> load(Long userId, long version, Integer size) {
+        Key key = new Key(userId, version, size);
+        synchronized (cache) {
+            Avatar cached = cache.get(key);
+            if (cached != null) {
+                return Optional.of(cached);
+            }
+        }
+
+        Optional<Avatar> avatar = size == null ? loadOriginal(userId) : loadVariant(userId, size);
+        avatar.ifPresent(loaded -> put(key, loaded));
+        return avatar;
+    }
+
+    private Optional<Avatar> loadOriginal(Long userId) {
+        return profileImageRepository.findById(userId)
+                .filter(image -> image.getImageData() != null)
+                .map(image -> new Avatar(image.getImageData(),
+                        image.getImageType() != null ? image.getImageType() : "image/png"));
+    }
+
+    private Optional<Avatar> loadVariant(Long userId, int size) {
+        Optional<ProfileImageVariant> stored = variantRepository.findById(new ProfileImageVariant.Key(userId, size));
+        if (stored.isPresent()) {
+            return Optional.of(new Avatar(stored.get().getImageData(), stored.get().getImageType()));
+        }
+
+        Optional<ProfileImage> original = profileImageRepository.findById(userId);
+        if (original.isEmpty() || original.get().getImageData() == null) {
+            return Optional.empty();
+        }
+        try {
+            BufferedImage source = ImageScaling.read(new ByteArrayInputStream(original.get().getImageData()),
+                    size, MAX_SOURCE_PIXELS);
+            ProfileImageVariant variant = render(userId, source, size);
+            try {
+                variantRepository.save(variant);
+            } catch (DataIntegrityViolationException e) {
+                // Another request stored it first, or the image was just replaced; serve this render anyway
+            }
+            return Optional.of(new Avatar(variant.getImageData(), variant.getImageType()));
+        } catch (IOException e) {
+            // Unreadable as an image: serve the original as it is, like before variants existed
+            logger.warn("⚠️ Could not render {}px avatar of user {}: {}", size, userId, e.getMessage());
+            return loadOriginal(userId);
+        }
+    }
+
+    /**
+     * Center-crop to a square and scale to size x size
+     */
+    private static ProfileImageVariant render(Long userId, BufferedImage source, int size) throws IOException {
+        int edge = Math.min(source.getWidth(), source.getHeight());
+        int x = (source.getWidth() - edge) / 2;
+        int y = (source.getHeight() - edge) / 2;
+        int target = Math.min(size, edge);
+        BufferedImage scaled = ImageScaling.scale(source, x, y, edge, edge, target, target,
+                !source.getColorModel().hasAlpha());
+        return new ProfileImageVariant(userId, size, ImageScaling.encode(scaled), ImageScaling.contentTypeOf(scaled));
+    }
+
+    private void put(Key key, Avatar avatar) {
+        long bytes = avatar.data().length;
+        if (bytes > cacheCapacity) {
+            return;
+        }
+        synchronized (cache) {
+            Avatar replaced = cache.put(key, avatar);
+            cachedBytes += bytes - (replaced != null ? replaced.data().length : 0);
+            Iterator<Map.Entry<Key, Avatar>> eldest = cache.entrySet().iterator();
+            while (cachedBytes > cacheCapacity && eldest.hasNext()) {
+                cachedBytes -= eldest.next().getValue().data().length;
+                eldest.remove();
+            }
+        }
+    }
+
+    public record Avatar(byte[] data, String contentType) {
+    }
+
+    private record Key(Long userId, long version, Integer size) {
+    }
+}
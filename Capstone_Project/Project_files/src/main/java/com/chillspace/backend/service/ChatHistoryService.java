@@ -0,0 +1,104 @@
+package com.chillspace.backend.service;
+
+import com.chillspace.backend.model.Message;
+import com.chillspace.backend.repository.MessageRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Keyset-paginated access to a room's chat timeline.
+ * Pages are always returned oldest-first so clients can render them directly.
+ * The table only holds recent days; pages that reach past it continue into the archive.
+ * Senders are shown under their current username.
+ */
+@Service
+@RequiredArgsConstructor
+public class ChatHistoryService {
+
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 200;
+
+    private final MessageRepository messageRepository;
+    private final MessageArchiveService archive;
+    private final UserDirectory userDirectory;
+
+    /**
+     * Latest page of the room (what a client shows on first load)
+     */
+    public List<Message> latest(String room, int limit) {
+        int size = clamp(limit);
+        List<Message> page = new ArrayList<>(messageRepository.findLatest(room, PageRequest.of(0, size)));
+        Collections.reverse(page);
+
+        if (page.size() < size) {
+            Message oldest = page.isEmpty() ? null : page.get(0);
+            page.addAll(0, oldest == null
+                    ? archive.before(room, LocalDateTime.MAX, Long.MAX_VALUE, size)
+                    : archive.before(room, oldest.getTimestamp(), oldest.getId(), size - page.size()));
+        }
+        return userDirectory.resolve(page);
+    }
+
+    /**
+     * Messages of the room strictly older than the cursor message.
+     * Returns empty if the cursor does not exist.
+     */
+    public Optional<List<Message>> before(String room, Long cursorId, int limit) {
+        Optional<LocalDateTime> cursor = cursorTimestamp(cursorId);
+        if (cursor.isEmpty()) {
+            return Optional.empty();
+        }
+
+        int size = clamp(limit);
+        List<Message> page = new ArrayList<>(
+                messageRepository.findBefore(room, cursor.get(), cursorId, PageRequest.of(0, size)));
+        Collections.reverse(page);
+
+        // Everything archived is older than the table, so the rest comes from the archive
+        if (page.size() < size) {
+            page.addAll(0, archive.before(room, cursor.get(), cursorId, size - page.size()));
+        }
+        return Optional.of(userDirectory.resolve(page));
+    }
+
+    /**
+     * Messages of the room strictly newer than the cursor message.
+     * Returns empty if the cursor does not exist.
+     */
+    public Optional<List<Message>> after(String room, Long cursorId, int limit) {
+        int size = clamp(limit);
+        Optional<LocalDateTime> stored = messageRepository.findTimestampById(cursorId);
+        if (stored.isPresent()) {
+            return Optional.of(userDirectory.resolve(
+                    messageRepository.findAfter(room, stored.get(), cursorId, PageRequest.of(0, size))));
+        }
+
+        // Cursor is archived: the rest of the archive first, then the table
+        return archive.findById(cursorId).map(cursor -> {
+            List<Message> page = new ArrayList<>(archive.after(room, cursor.getTimestamp(), cursorId, size));
+            if (page.size() < size) {
+                page.addAll(messageRepository.findAfter(room, cursor.getTimestamp(), cursorId,
+                        PageRequest.of(0, size - page.size())));
+            }
+            return userDirectory.resolve(page);
+        });
+    }
+
+    private Optional<LocalDateTime> cursorTimestamp(Long cursorId) {
+        Optional<LocalDateTime> stored = messageRepository.findTimestampById(cursorId);
+        return stored.isPresent() ? stored : archive.findById(cursorId).map(Message::getTimestamp);
+    }
+
+    private int clamp(int limit) {
+        if (limit < 1)
+            return DEFAULT_LIMIT;
+        return Math.min(limit, MAX_LIMIT);
+    }
+}
@@ -0,0 +1,53 @@
+package com.chillspace.backend.service;
+
+import com.chillspace.backend.model.Message;
+import org.springframework.messaging.simp.user.SimpSubscription;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Room names and their STOMP destinations. Chat traffic of a room goes to /topic/room.{room},
+ * so a message only fans out to that room's subscribers; presence and user events stay on
+ * /topic/public. Rooms exist as soon as someone posts in them.
+ */
+public final class ChatRooms {
+
+    public static final String DEFAULT_ROOM = "public";
+    public static final String TOPIC_PREFIX = "/topic/room.";
+
+    // Lowercase slug: no dots or slashes, which are destination separators for brokers
+    private static final Pattern NAME = Pattern.compile("[a-z0-9][a-z0-9_-]{0,31}");
+
+    private ChatRooms() {
+    }
+
+    public static boolean isValid(String room) {
+        return room != null && NAME.matcher(room).matches();
+    }
+
+    public static String topic(String room) {
+        return TOPIC_PREFIX + room;
+    }
+
+    /**
+     * Room of a stored message; rows and archive lines from before rooms existed belong to the default room
+     */
+    public static String of(Message message) {
+        return message.getRoomId() != null ? message.getRoomId() : DEFAULT_ROOM;
+    }
+
+    /**
+     * Current subscriptions per room, from the broker's view of connected sessions
+     */
+    public static Map<String, Integer> subscriberCounts(SimpUserRegistry userRegistry) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (SimpSubscription subscription : userRegistry.findSubscriptions(
+                s -> s.getDestination() != null && s.getDestination().startsWith(TOPIC_PREFIX))) {
+            counts.merge(subscription.getDestination().substring(TOPIC_PREFIX.length()), 1, Integer::sum);
+        }
+        return counts;
+    }
+}
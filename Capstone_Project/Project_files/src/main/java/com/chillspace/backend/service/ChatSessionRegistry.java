@@ -0,0 +1,111 @@
+package com.chillspace.backend.service;
+
+import com.chillspace.backend.model.Role;
+import com.chillspace.backend.model.User;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Live STOMP sessions and the identity pinned to each of them on CONNECT.
+ * The per-message path reads identity and role from here instead of the database.
+ * Role and ban changes reach the sessions on other nodes through {@link ClusterEventRelay}.
+ */
+@Service
+public class ChatSessionRegistry {
+
+    public static final String SESSION_ATTRIBUTE = "chatSession";
+
+    // Set by the handshake of the native (non-SockJS) endpoint, the only transport that can carry binary frames
+    public static final String NATIVE_TRANSPORT_ATTRIBUTE = "nativeTransport";
+
+    private final Map<String, ChatSession> sessions = new ConcurrentHashMap<>();
+    private final ClusterEventRelay clusterEventRelay;
+
+    public ChatSessionRegistry(ClusterEventRelay clusterEventRelay) {
+        this.clusterEventRelay = clusterEventRelay;
+    }
+
+    public void register(ChatSession session) {
+        sessions.put(session.getSessionId(), session);
+    }
+
+    public ChatSession unregister(String sessionId) {
+        return sessionId != null ? sessions.remove(sessionId) : null;
+    }
+
+    public ChatSession get(String sessionId) {
+        return sessionId != null ? sessions.get(sessionId) : null;
+    }
+
+    public Collection<ChatSession> getSessions() {
+        return sessions.values();
+    }
+
+    /**
+     * Push role / ban changes made by an admin into every live session of that user, on every node
+     */
+    public void refreshUser(User user) {
+        apply(user.getId(), user.getRole(), user.isBanned());
+        clusterEventRelay.publish(ClusterEvent.userRefresh(user));
+    }
+
+    /**
+     * The same change, made by an admin connected to another node
+     */
+    @EventListener
+    public void onClusterEvent(ClusterEvent event) {
+        if (event.type() == ClusterEvent.Type.USER_REFRESH && event.userId() != null) {
+            apply(event.userId(), event.role(), Boolean.TRUE.equals(event.banned()));
+        }
+    }
+
+    private void apply(Long userId, Role role, boolean banned) {
+        for (ChatSession session : sessions.values()) {
+            if (session.getUserId().equals(userId)) {
+                if (role != null) {
+                    session.setRole(role);
+                }
+                session.setBanned(banned);
+            }
+        }
+    }
+
+    /**
+     * The session pinned by the CONNECT interceptor, or null for unauthenticated sessions
+     */
+    public static ChatSession from(SimpMessageHeaderAccessor headerAccessor) {
+        Map<String, Object> attributes = headerAccessor.getSessionAttributes();
+        return attributes != null ? (ChatSession) attributes.get(SESSION_ATTRIBUTE) : null;
+    }
+
+    @Getter
+    public static class ChatSession {
+        private final String sessionId;
+        private final Long userId;
+        private final String username;
+
+        @Setter
+        private volatile Role role;
+
+        @Setter
+        private volatile boolean banned;
+
+        // Client asked for CBOR-encoded MESSAGE frames on CONNECT
+        @Setter
+        private volatile boolean binaryCodec;
+
+        public ChatSession(String sessionId, Long userId, String username, Role role) {
+            this.sessionId = sessionId;
+            this.userId = userId;
+            this.username = username;
+            this.role = role;
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package com.chillspace.backend.service;
+
+import com.chillspace.backend.model.FileUpload;
+import com.chillspace.backend.model.SharedFile;
+import com.chillspace.backend.repository.FileUploadRepository;
+import com.chillspace.backend.repository.SharedFileRepository;
+import com.chillspace.backend.storage.BlobStore;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * Chunked, resumable uploads: initiate with the total size, PUT chunks in order at the offset the
+ * server reports, then complete. Each chunk is streamed straight into a part file at its offset and
+ * checked against an optional SHA-256; a chunk cut off by a dropped connection or failing its
+ * checksum is truncated away, so the stored offset is always safe to resume from.
+ * On completion the part file is hashed and linked into the BlobStore, never read into memory, and
+ * only deleted once the shared file is committed, so a failed completion can simply be retried.
+ *
+ * Part files are local to the node; with several nodes, route an upload's requests to the same one
+ * or put chat.files.upload-dir on shared storage.
+ */
+@Service
+public class ChunkedUploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChunkedUploadService.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileUploadRepository uploadRepository;
+    private final SharedFileRepository fileRepository;
+    private final BlobStore blobStore;
+    private final FileBlobService fileBlobService;
+    private final ThumbnailService thumbnailService;
+    private final TransactionTemplate transactionTemplate;
+
+    // One writer per upload on this node; a client retrying a chunk must not interleave with itself,
+    // nor with an abort or the expiry sweep removing the upload under it.
+    // Entries go when the upload is completed, aborted or expires.
+    private final Map<String, ReentrantLock> locks = new ConcurrentHashMap<>();
+
+    @Value("${chat.files.upload-dir:./data/blobs/uploads}")
+    private String uploadDir;
+
+    @Value("${chat.files.max-upload-size:2GB}")
+    private DataSize maxUploadSize;
+
+    @Value("${chat.files.chunk-size:8MB}")
+    private DataSize chunkSize;
+
+    @Value("${chat.files.upload-expiry-hours:24}")
+    private long expiryHours;
+
+    private Path root;
+
+    public ChunkedUploadService(FileUploadRepository uploadRepository, SharedFileRepository fileRepository,
+            BlobStore blobStore, FileBlobService fileBlobService, ThumbnailService thumbnailService,
+            PlatformTransactionManager transactionManager) {
+        this.uploadRepository = uploadRepository;
+        this.fileRepository = fileRepository;
+        this.blobStore = blobStore;
+        this.fileBlobService = fileBlobService;
+        this.thumbnailService = thumbnailService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        root = Paths.get(uploadDir).toAbsolutePath().normalize();
+        Files.createDirectories(root);
+    }
+
+    public long getMaxUploadSize() {
+        return maxUploadSize.toBytes();
+    }
+
+    /**
+     * Largest chunk accepted; clients should send chunks of this size
+     */
+    public long getChunkSize() {
+        return chunkSize.toBytes();
+    }
+
+    public FileUpload initiate(String username, String filename, String contentType, long size, String description)
+            throws IOException {
+        if (size <= 0) {
+            throw new IllegalArgumentException("File is empty");
+        }
+        if (size > maxUploadSize.toBytes()) {
+            throw new IllegalArgumentException("File size must be less than " + maxUploadSize.toMegabytes() + "MB");
+        }
+
+        FileUpload upload = new FileUpload();
+        upload.setId(UUID.randomUUID().toString());
+        upload.setUploadedBy(username);
+        upload.setOriginalFilename(filename);
+        upload.setContentType(contentType);
+        upload.setDescription(description);
+        upload.setTotalSize(size);
+        upload.setReceivedBytes(0);
+
+        Files.createFile(partFile(upload.getId()));
+        return uploadRepository.save(upload);
+    }
+
+    /**
+     * Write one chunk at the given offset, which must equal the bytes received so far.
+     *
+     * @param expectedSha256 hex SHA-256 of the chunk, or null to skip the check
+     * @throws IllegalStateException    the offset is not where the upload stands (client should re-sync)
+     * @throws IllegalArgumentException the chunk is too large or fails its checksum
+     */
+    public FileUpload writeChunk(String uploadId, long offset, InputStream body, String expectedSha256)
+            throws IOException {
+        ReentrantLock lock = locks.computeIfAbsent(uploadId, id -> new ReentrantLock());
+        lock.lock();
+        try {
+            FileUpload upload = findLocked(uploadId, lock);
+            if (offset != upload.getReceivedBytes()) {
+                throw new IllegalStateException("Expected offset " + upload.getReceivedBytes());
+            }
+
+            long limit = Math.min(chunkSize.toBytes(), upload.getTotalSize() - offset);
+            MessageDigest digest = sha256();
+            long written = 0;
+
+            try (FileChannel channel = FileChannel.open(partFile(uploadId), StandardOpenOption.WRITE)) {
+                try {
+                    // Drop whatever an earlier, interrupted attempt left past the verified offset
+                    channel.truncate(offset);
+                    channel.position(offset);
+
+                    byte[] buffer = new byte[BUFFER_SIZE];
+                    int read;
+                    while ((read = body.read(buffer)) != -1) {
+                        written += read;
+                        if (written > limit) {
+                            throw new IllegalArgumentException("Chunk is larger than " + limit + " bytes");
+                        }
+                        digest.update(buffer, 0, read);
+                        ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                        while (chunk.hasRemaining()) {
+                            channel.write(chunk);
+                        }
+                    }
+
+                    if (expectedSha256 != null
+                            && !HexFormat.of().formatHex(digest.digest()).equalsIgnoreCase(expectedSha256.trim())) {
+                        throw new IllegalArgumentException("Chunk checksum mismatch");
+                    }
+                    channel.force(false);
+                } catch (IOException | RuntimeException e) {
+                    channel.truncate(offset);
+                    throw e;
+                }
+            }
+
+            upload.setReceivedBytes(offset + written);
+            return uploadRepository.save(upload);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Turn a fully received upload into a shared file
+     *
+     * @throws IllegalStateException bytes are still missing
+     */
+    public SharedFile complete(String uploadId) throws IOException {
+        ReentrantLock lock = locks.computeIfAbsent(uploadId, id -> new ReentrantLock());
+        lock.lock();
+        try {
+            FileUpload upload = findLocked(uploadId, lock);
+            if (upload.getReceivedBytes() != upload.getTotalSize()) {
+                throw new IllegalStateException("Upload incomplete: " + upload.getReceivedBytes()
+                        + " of " + upload.getTotalSize() + " bytes received");
+            }
+
+            Path part = partFile(uploadId);
+            BlobStore.StoredBlob blob = blobStore.putFile(part);
+
+            SharedFile sharedFile = new SharedFile();
+            sharedFile.setFilename(UUID.randomUUID().toString());
+            sharedFile.setOriginalFilename(upload.getOriginalFilename());
+            sharedFile.setContentType(upload.getContentType());
+            sharedFile.setFileSize(blob.size());
+            sharedFile.setBlobHash(blob.hash());
+            sharedFile.setUploadedBy(upload.getUploadedBy());
+            sharedFile.setDescription(upload.getDescription());
+
+            transactionTemplate.execute(status -> {
+                try {
+                    fileBlobService.acquire(blob);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                fileRepository.save(sharedFile);
+                uploadRepository.delete(upload);
+                return null;
+            });
+            locks.remove(uploadId);
+            try {
+                Files.deleteIfExists(part);
+            } catch (IOException e) {
+                logger.warn("⚠️ Could not remove part file of completed upload {}: {}", uploadId, e.getMessage());
+            }
+            thumbnailService.generateAfterCommit(blob.hash(), sharedFile.getContentType(), blob.size());
+            return sharedFile;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drop an upload and its part file; waits for a chunk being written to it to finish
+     */
+    public void abort(FileUpload upload) throws IOException {
+        remove(upload.getId(), current -> true);
+    }
+
+    /**
+     * Drop uploads nobody has touched within the expiry window, with their part files
+     */
+    @Scheduled(fixedDelay = 3_600_000)
+    public void removeAbandoned() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(expiryHours);
+        int removed = 0;
+        for (FileUpload upload : uploadRepository.findByUpdatedAtBefore(cutoff)) {
+            try {
+                // A chunk may have arrived since the query; only what is still idle goes
+                if (remove(upload.getId(), current -> current.getUpdatedAt().isBefore(cutoff))) {
+                    removed++;
+                }
+            } catch (Exception e) {
+                logger.warn("⚠️ Could not remove abandoned upload {}: {}", upload.getId(), e.getMessage());
+            }
+        }
+        if (removed > 0) {
+            logger.info("🧹 Removed {} abandoned uploads", removed);
+        }
+    }
+
+    /**
+     * Delete the upload under its lock if it still exists and matches; false if it was left alone
+     */
+    private boolean remove(String uploadId, Predicate<FileUpload> condition) throws IOException {
+        ReentrantLock lock = locks.computeIfAbsent(uploadId, id -> new ReentrantLock());
+        lock.lock();
+        try {
+            Optional<FileUpload> upload = uploadRepository.findById(uploadId);
+            if (upload.isEmpty()) {
+                locks.remove(uploadId, lock);
+                return false;
+            }
+            if (!condition.test(upload.get())) {
+                return false;
+            }
+            uploadRepository.delete(upload.get());
+            locks.remove(uploadId, lock);
+            Files.deleteIfExists(partFile(uploadId));
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The upload as it stands now, read while holding its lock. It may have been removed while we
+     * waited, and saving the stale copy would bring the row back without its part file.
+     */
+    private FileUpload findLocked(String uploadId, ReentrantLock lock) {
+        Optional<FileUpload> upload = uploadRepository.findById(uploadId);
+        if (upload.isEmpty()) {
+            locks.remove(uploadId, lock);
+            throw new IllegalStateException("Upload no longer exists");
+        }
+        return upload.get();
+    }
+
+    private Path partFile(String uploadId) {
+        // Ids are server-generated UUIDs; resolve() on anything else could escape the directory
+        return root.resolve(UUID.fromString(uploadId) + ".part");
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.chillspace.backend.service;
+
+import com.chillspace.backend.model.Role;
+import com.chillspace.backend.model.User;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * State change made on one node that the other nodes have to apply to their own sessions and
+ * presence. Sent over the broker by {@link ClusterEventRelay}; origin is the sending node.
+ */
+public record ClusterEvent(Type type, String origin, Long userId, Role role, Boolean banned, List<String> usernames) {
+
+    public enum Type {
+        // Role or ban flag of a user changed (userId, role, banned)
+        USER_REFRESH,
+        // A user's first / last session on the origin node opened / closed (usernames has one entry)
+        ONLINE,
+        OFFLINE,
+        // Everyone online on the origin node, sent periodically; also its liveness signal
+        PRESENCE
+    }
+
+    public static ClusterEvent userRefresh(User user) {
+        return new ClusterEvent(Type.USER_REFRESH, null, user.getId(), user.getRole(), user.isBanned(), null);
+    }
+
+    public static ClusterEvent online(String username) {
+        return new ClusterEvent(Type.ONLINE, null, null, null, null, List.of(username));
+    }
+
+    public static ClusterEvent offline(String username) {
+        return new ClusterEvent(Type.OFFLINE, null, null, null, null, List.of(username));
+    }
+
+    public static ClusterEvent presence(Collection<String> usernames) {
+        return new ClusterEvent(Type.PRESENCE, null, null, null, null, List.copyOf(usernames));
+    }
+
+    ClusterEvent from(String node) {
+        return new ClusterEvent(type, node, userId, role, banned, usernames);
+    }
+}
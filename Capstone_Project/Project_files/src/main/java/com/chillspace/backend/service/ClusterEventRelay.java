@@ -0,0 +1,90 @@
+package com.chillspace.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * Carries {@link ClusterEvent}s between nodes in relay mode. Events are published to a system topic on
+ * the shared broker; every node's relay subscribes to it on its system connection (see
+ * WebSocketBrokerConfig) and events from other nodes are republished locally as application events.
+ * In simple (single node) mode there is nobody to tell and publish does nothing.
+ *
+ * Clients can neither subscribe nor send to the system topic (see StompAuthChannelInterceptor).
+ */
+@Service
+public class ClusterEventRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterEventRelay.class);
+
+    public static final String SYSTEM_TOPIC_PREFIX = "/topic/system.";
+    public static final String TOPIC = SYSTEM_TOPIC_PREFIX + "cluster";
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final SimpMessageSendingOperations messagingTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+
+    public ClusterEventRelay(@Lazy SimpMessageSendingOperations messagingTemplate,
+            ApplicationEventPublisher eventPublisher, ObjectMapper objectMapper,
+            @Value("${chat.broker.mode:simple}") String brokerMode) {
+        this.messagingTemplate = messagingTemplate;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.enabled = "relay".equalsIgnoreCase(brokerMode);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Tell the other nodes. Best effort: while the broker is unreachable events are lost, and the
+     * periodic presence snapshots bring the other nodes back in line once it is back.
+     */
+    public void publish(ClusterEvent event) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            messagingTemplate.convertAndSend(TOPIC, event.from(nodeId));
+        } catch (MessagingException e) {
+            logger.warn("⚠️ Could not publish {} to the other nodes: {}", event.type(), e.getMessage());
+        }
+    }
+
+    /**
+     * A frame received on the system topic; called on the relay's connection thread, so listeners must be quick
+     */
+    public void receive(Message<?> message) {
+        if (!(message.getPayload() instanceof byte[] payload)) {
+            return;
+        }
+        ClusterEvent event;
+        try {
+            event = objectMapper.readValue(payload, ClusterEvent.class);
+        } catch (IOException e) {
+            logger.warn("⚠️ Ignoring unreadable cluster event: {}", e.getMessage());
+            return;
+        }
+        // Our own events come back too; they were applied here before publishing
+        if (event.type() != null && !nodeId.equals(event.origin())) {
+            eventPublisher.publishEvent(event);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.chillspace.backend.service;
+
+import com.chillspace.backend.storage.BlobStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.util.List;
+
+/**
+ * Moves file contents still stored in shared_files.file_data (uploads from before the blob store)
+ * into the BlobStore, one row at a time: the content is streamed into the store, then the row gets
+ * its hash and a reference on the blob, and file_data is cleared. Safe to interrupt; the next start
+ * carries on where it stopped. A row that is requested before the background run reaches it is moved
+ * right then (see FileController).
+ */
+@Service
+public class FileBlobMigrationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileBlobMigrationService.class);
+
+    private static final int BATCH_SIZE = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BlobStore blobStore;
+    private final FileBlobService fileBlobService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${chat.files.migrate-on-startup:true}")
+    private boolean enabled;
+
+    public FileBlobMigrationService(JdbcTemplate jdbcTemplate, BlobStore blobStore, FileBlobService fileBlobService,
+            PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.blobStore = blobStore;
+        this.fileBlobService = fileBlobService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        Thread migrator = new Thread(() -> {
+            long start = System.currentTimeMillis();
+            long migrated = 0;
+            long afterId = 0;
+            try {
+                while (true) {
+                    List<Long> ids = jdbcTemplate.queryForList(
+                            "SELECT id FROM shared_files WHERE blob_hash IS NULL AND file_data IS NOT NULL " +
+                                    "AND id > ? ORDER BY id LIMIT " + BATCH_SIZE, Long.class, afterId);
+                    if (ids.isEmpty()) {
+                        break;
+                    }
+                    for (Long id : ids) {
+                        if (migrate(id)) {
+                            migrated++;
+                        }
+                        afterId = id;
+                    }
+                }
+                if (migrated > 0) {
+                    logger.info("📦 Moved {} shared files into the blob store in {} ms",
+                            migrated, System.currentTimeMillis() - start);
+                }
+            } catch (Exception e) {
+                logger.error("❌ Moving shared files into the blob store failed after {} files", migrated, e);
+            }
+        }, "file-blob-migration");
+        migrator.setDaemon(true);
+        migrator.start();
+    }
+
+    /**
+     * Move one row's content into the blob store; false if it had none to move (already moved, by
+     * this or a concurrent call, or no such row)
+     */
+    public boolean migrate(long id) {
+        BlobStore.StoredBlob blob = jdbcTemplate.query(
+                "SELECT file_data FROM shared_files WHERE id = ? AND blob_hash IS NULL AND file_data IS NOT NULL",
+                (ResultSet rs) -> {
+                    if (!rs.next()) {
+                        return null;
+                    }
+                    try (InputStream content = rs.getBinaryStream(1)) {
+                        return blobStore.put(content);
+                    } catch (IOException e) {
+                        throw new IllegalStateException("Could not store file " + id, e);
+                    }
+                }, id);
+        if (blob == null) {
+            return false;
+        }
+        // Size from the stored bytes, which is what downloads will send
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            int updated = jdbcTemplate.update("UPDATE shared_files SET blob_hash = ?, file_size = ?, file_data = NULL " +
+                    "WHERE id = ? AND blob_hash IS NULL", blob.hash(), blob.size(), id);
+            if (updated == 0) {
+                return false;
+            }
+            try {
+                fileBlobService.acquire(blob);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return true;
+        }));
+    }
+}
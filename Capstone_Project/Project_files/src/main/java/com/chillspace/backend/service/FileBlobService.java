@@ -0,0 +1,138 @@
+package com.chillspace.backend.service;
+
+import com.chillspace.backend.model.FileBlob;
+import com.chillspace.backend.repository.FileBlobRepository;
+import com.chillspace.backend.storage.BlobStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Reference-counted file contents on top of the BlobStore. Every shared_files row holds one
+ * reference to its blob: storing takes one, deleting the row releases it, and the bytes are only
+ * removed by the sweep, once a blob has had no references for the grace period, together with its thumbnail.
+ *
+ * The sweep deletes under the blob's row lock, and taking a reference waits on that lock, so an
+ * upload of the same content either keeps the blob alive or sees that it is gone and fails.
+ */
+@Service
+public class FileBlobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileBlobService.class);
+
+    private static final int SWEEP_BATCH_SIZE = 500;
+
+    private final BlobStore blobStore;
+    private final FileBlobRepository blobRepository;
+    private final ThumbnailService thumbnailService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${chat.files.sweep-grace-minutes:10}")
+    private long graceMinutes;
+
+    public FileBlobService(BlobStore blobStore, FileBlobRepository blobRepository, ThumbnailService thumbnailService,
+            PlatformTransactionManager transactionManager) {
+        this.blobStore = blobStore;
+        this.blobRepository = blobRepository;
+        this.thumbnailService = thumbnailService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Stream content into the store and take a reference on it, in the caller's transaction
+     */
+    @Transactional(rollbackFor = IOException.class)
+    public BlobStore.StoredBlob store(InputStream content) throws IOException {
+        return acquire(blobStore.put(content));
+    }
+
+    /**
+     * Take a reference on content already put into the store. If the surrounding transaction rolls back,
+     * the blob is left unreferenced so the sweep can collect it instead of leaking it on disk.
+     *
+     * @throws IOException the content is gone; the transaction is marked for rollback, so the reference
+     *                     taken on the missing blob is never committed
+     */
+    @Transactional(rollbackFor = IOException.class)
+    public BlobStore.StoredBlob acquire(BlobStore.StoredBlob blob) throws IOException {
+        blobRepository.acquire(blob.hash(), blob.size());
+        if (!blobStore.exists(blob.hash())) {
+            // The sweep removed identical, unreferenced content between put and acquire
+            throw new IOException("Stored content was removed concurrently, please retry");
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    transactionTemplate.executeWithoutResult(s -> blobRepository.registerUnreferenced(blob.hash(), blob.size()));
+                }
+            }
+        });
+        return blob;
+    }
+
+    /**
+     * Drop one reference, in the caller's transaction. The bytes stay until the sweep.
+     */
+    @Transactional
+    public void release(String hash) {
+        if (hash != null) {
+            blobRepository.release(hash);
+        }
+    }
+
+    public long getPhysicalSize() {
+        Long size = blobRepository.sumSizes();
+        return size != null ? size : 0;
+    }
+
+    @Scheduled(fixedDelayString = "${chat.files.sweep-interval-ms:600000}")
+    public void sweep() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(graceMinutes);
+        List<String> hashes = blobRepository.findUnreferencedSince(cutoff, PageRequest.of(0, SWEEP_BATCH_SIZE));
+
+        int removed = 0;
+        for (String hash : hashes) {
+            try {
+                Boolean deleted = transactionTemplate.execute(status -> {
+                    Optional<FileBlob> blob = blobRepository.findForUpdate(hash);
+                    if (blob.isEmpty() || blob.get().getRefCount() > 0) {
+                        return false;
+                    }
+                    try {
+                        blobStore.delete(hash);
+                        thumbnailService.delete(hash);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    blobRepository.delete(blob.get());
+                    return true;
+                });
+                if (Boolean.TRUE.equals(deleted)) {
+                    removed++;
+                }
+            } catch (Exception e) {
+                logger.warn("⚠️ Could not remove blob {}: {}", hash, e.getMessage());
+            }
+        }
+        if (removed > 0) {
+            logger.info("🧹 Removed {} unreferenced blobs", removed);
+        }
+    }
+}
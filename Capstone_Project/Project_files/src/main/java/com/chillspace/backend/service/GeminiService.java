@@ -154,7 +154,7 @@ public class GeminiService {
         // Tool 3: get_messages
         JSONObject getMessagesTool = new JSONObject();
         getMessagesTool.put("name", "get_messages");
-        getMessagesTool.put("description", "Get recent chat messages from the group chat.");
+        getMessagesTool.put("description", "Get recent chat messages from the group chat, or search the whole chat history by keyword.");
         JSONObject getMessagesParams = new JSONObject();
         getMessagesParams.put("type", "OBJECT");
         JSONObject getMessagesProps = new JSONObject();
@@ -164,6 +164,9 @@ public class GeminiService {
         getMessagesProps.put("sender", new JSONObject()
             .put("type", "STRING")
             .put("description", "Filter messages by sender username."));
+        getMessagesProps.put("query", new JSONObject()
+            .put("type", "STRING")
+            .put("description", "Keywords to search for in message text. All words must match."));
         getMessagesParams.put("properties", getMessagesProps);
         getMessagesTool.put("parameters", getMessagesParams);
         functionDeclarations.put(getMessagesTool);
@@ -0,0 +1,96 @@
+package com.chillspace.backend.service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * Decoding and downscaling shared by thumbnails and avatar variants
+ */
+final class ImageScaling {
+
+    private ImageScaling() {
+    }
+
+    /**
+     * Decode an image, skipping rows and columns so the result is at most about twice targetSize on its
+     * long edge; a large photo is never held in memory at full size.
+     *
+     * @throws IOException not a readable image, or more than maxPixels
+     */
+    static BufferedImage read(InputStream content, int targetSize, long maxPixels) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(content)) {
+            Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : null;
+            if (readers == null || !readers.hasNext()) {
+                throw new IOException("Unsupported image format");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    throw new IOException("Image too large: " + width + "x" + height);
+                }
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, Math.max(width, height) / (targetSize * 2));
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Draw the source (or the given region of it) at width x height. Opaque results are painted on white,
+     * since JPEG has no transparency.
+     */
+    static BufferedImage scale(BufferedImage source, int x, int y, int sourceWidth, int sourceHeight,
+            int width, int height, boolean opaque) {
+        BufferedImage result = new BufferedImage(width, height,
+                opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = result.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            if (opaque) {
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, width, height);
+            }
+            graphics.drawImage(source, 0, 0, width, height, x, y, x + sourceWidth, y + sourceHeight, null);
+        } finally {
+            graphics.dispose();
+        }
+        return result;
+    }
+
+    /**
+     * Encode as JPEG, or PNG when the image has an alpha channel
+     */
+    static byte[] encode(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (!ImageIO.write(image, formatOf(image), out)) {
+            throw new IOException("No encoder for " + formatOf(image));
+        }
+        return out.toByteArray();
+    }
+
+    static String contentTypeOf(BufferedImage image) {
+        return image.getColorModel().hasAlpha() ? "image/png" : "image/jpeg";
+    }
+
+    private static String formatOf(BufferedImage image) {
+        return image.getColorModel().hasAlpha() ? "png" : "jpg";
+    }
+}
@@ -0,0 +1,472 @@
+package com.chillspace.backend.service;
+
+import com.chillspace.backend.model.Message;
+import com.chillspace.backend.repository.MessageRepository;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Moves chat messages older than the retention window out of MySQL into immutable, gzipped
+ * NDJSON files, one per day ("messages-2025-01-31.ndjson.gz"), each next to a small index
+ * file with its id and time range and the rooms it holds. Every archived message is older than
+ * every message left in the table, so readers can simply continue from the table into the archive;
+ * room reads only open segments whose index says they can hold a match.
+ */
+@Service
+public class MessageArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageArchiveService.class);
+
+    private static final String SEGMENT_PREFIX = "messages-";
+    public static final String SEGMENT_SUFFIX = ".ndjson.gz";
+    private static final String INDEX_SUFFIX = ".idx.json";
+    private static final int ARCHIVE_BATCH_SIZE = 5_000;
+    private static final int DELETE_BATCH_SIZE = 1_000;
+    private static final int CACHED_SEGMENTS = 16;
+
+    private final MessageRepository messageRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${chat.archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${chat.archive.dir:./data/archive}")
+    private String archiveDir;
+
+    // Days kept in the database before they are archived
+    @Value("${chat.archive.retention-days:30}")
+    private int retentionDays;
+
+    private Path directory;
+
+    // Sorted by day, then part; replaced as a whole when a segment is added
+    private volatile List<Segment> segments = List.of();
+    private final ReentrantLock archiveLock = new ReentrantLock();
+
+    // Recently read segments by name, decoded and sorted; segments never change once written
+    private final Map<String, List<Message>> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<Message>> eldest) {
+            return size() > CACHED_SEGMENTS;
+        }
+    };
+
+    public MessageArchiveService(MessageRepository messageRepository, PlatformTransactionManager transactionManager,
+            ObjectMapper objectMapper) {
+        this.messageRepository = messageRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper.copy().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    }
+
+    @PostConstruct
+    public void loadSegments() throws IOException {
+        directory = Paths.get(archiveDir).toAbsolutePath().normalize();
+        Files.createDirectories(directory);
+
+        List<Segment> found = new ArrayList<>();
+        int indexed = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + INDEX_SUFFIX)) {
+            for (Path indexFile : stream) {
+                Segment segment = objectMapper.readValue(indexFile.toFile(), Segment.class);
+                if (!Files.exists(segmentPath(segment.name()))) {
+                    continue;
+                }
+                if (segment.rooms() == null) {
+                    // Written before indexes listed rooms: read it once and record them
+                    segment = withRooms(segment);
+                    writeIndex(segment);
+                    indexed++;
+                }
+                found.add(segment);
+            }
+        }
+        segments = sorted(found);
+        if (indexed > 0) {
+            logger.info("🗄️ Added room ranges to {} archive segment indexes", indexed);
+        }
+
+        logger.info("🗄️ Message archive at {}: {} segments, {} messages", directory, segments.size(), getArchivedCount());
+    }
+
+    /**
+     * Archive every whole day that is older than the retention window
+     */
+    @Scheduled(cron = "${chat.archive.cron:0 30 3 * * *}")
+    public void archiveOldMessages() {
+        if (!enabled) {
+            return;
+        }
+
+        LocalDate cutoff = LocalDate.now().minusDays(retentionDays);
+        // Not synchronized: a run can take minutes of I/O and would pin a virtual scheduler thread's carrier
+        archiveLock.lock();
+        try {
+            LocalDateTime oldest;
+            while ((oldest = messageRepository.findOldestTimestamp()) != null && oldest.toLocalDate().isBefore(cutoff)) {
+                if (archiveDay(oldest.toLocalDate()) == 0) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            logger.error("❌ Message archiving failed", e);
+        } finally {
+            archiveLock.unlock();
+        }
+    }
+
+    /**
+     * Write one day to a new segment, then delete those rows from the table.
+     * Rows already present in an earlier segment of that day (a run that stopped before
+     * its delete) are only deleted, never written twice.
+     */
+    private int archiveDay(LocalDate day) throws IOException {
+        LocalDateTime start = day.atStartOfDay();
+        LocalDateTime end = day.plusDays(1).atStartOfDay();
+
+        Set<Long> alreadyArchived = new HashSet<>();
+        int part = 0;
+        for (Segment segment : segments) {
+            if (segment.day().equals(day)) {
+                readSegment(segment, message -> alreadyArchived.add(message.getId()));
+                part = Math.max(part, segment.part() + 1);
+            }
+        }
+
+        String name = SEGMENT_PREFIX + day + (part > 0 ? "." + part : "");
+        Path target = segmentPath(name);
+        Path temp = directory.resolve(name + SEGMENT_SUFFIX + ".tmp");
+
+        List<Long> ids = new ArrayList<>();
+        Map<String, RoomRange> rooms = new TreeMap<>();
+        long count = 0;
+        long minId = Long.MAX_VALUE;
+        long maxId = Long.MIN_VALUE;
+        LocalDateTime first = null;
+        LocalDateTime last = null;
+
+        try (FileOutputStream file = new FileOutputStream(temp.toFile());
+                GZIPOutputStream gzip = new GZIPOutputStream(file, 64 * 1024);
+                BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8))) {
+
+            LocalDateTime cursorTimestamp = start;
+            long cursorId = Long.MIN_VALUE;
+            while (true) {
+                List<Message> batch = messageRepository.findDayAfter(start, end, cursorTimestamp, cursorId,
+                        PageRequest.of(0, ARCHIVE_BATCH_SIZE));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                for (Message message : batch) {
+                    ids.add(message.getId());
+                    if (alreadyArchived.contains(message.getId())) {
+                        continue;
+                    }
+                    writer.write(objectMapper.writeValueAsString(message));
+                    writer.newLine();
+                    count++;
+                    minId = Math.min(minId, message.getId());
+                    maxId = Math.max(maxId, message.getId());
+                    if (first == null) {
+                        first = message.getTimestamp();
+                    }
+                    last = message.getTimestamp();
+                    rooms.merge(ChatRooms.of(message), RoomRange.of(message), RoomRange::plus);
+                }
+                Message tail = batch.get(batch.size() - 1);
+                cursorTimestamp = tail.getTimestamp();
+                cursorId = tail.getId();
+            }
+
+            writer.flush();
+            gzip.finish();
+            file.getFD().sync();
+        }
+
+        Segment segment = null;
+        if (count > 0) {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            segment = new Segment(name, day, part, count, minId, maxId, first, last, Files.size(target), rooms);
+            writeIndex(segment);
+        } else {
+            Files.deleteIfExists(temp);
+        }
+
+        // Only now that the segment is durable do the rows leave the table
+        for (int i = 0; i < ids.size(); i += DELETE_BATCH_SIZE) {
+            List<Long> chunk = ids.subList(i, Math.min(i + DELETE_BATCH_SIZE, ids.size()));
+            transactionTemplate.executeWithoutResult(status -> messageRepository.deleteAllByIdInBatch(chunk));
+        }
+
+        if (segment != null) {
+            List<Segment> updated = new ArrayList<>(segments);
+            updated.add(segment);
+            segments = sorted(updated);
+        }
+
+        logger.info("🗄️ Archived {}: {} messages moved to {}", day, ids.size(), count > 0 ? target.getFileName() : "existing segment");
+        return ids.size();
+    }
+
+    public List<Segment> getSegments() {
+        return segments;
+    }
+
+    public long getArchivedCount() {
+        return segments.stream().mapToLong(Segment::count).sum();
+    }
+
+    /**
+     * The file of a known segment; unknown names are never resolved against the directory
+     */
+    public Optional<Path> segmentFile(String name) {
+        return segments.stream()
+                .filter(segment -> segment.name().equals(name))
+                .findFirst()
+                .map(segment -> segmentPath(segment.name()));
+    }
+
+    public Optional<Message> findById(Long id) {
+        List<Message> found = findByIds(List.of(id));
+        return found.isEmpty() ? Optional.empty() : Optional.of(found.get(0));
+    }
+
+    public List<Message> findByIds(Collection<Long> ids) {
+        List<Message> found = new ArrayList<>();
+        if (ids.isEmpty() || segments.isEmpty()) {
+            return found;
+        }
+
+        Set<Long> wanted = new HashSet<>(ids);
+        for (Segment segment : segments) {
+            boolean inRange = false;
+            for (Long id : ids) {
+                if (id != null && id >= segment.minId() && id <= segment.maxId()) {
+                    inRange = true;
+                    break;
+                }
+            }
+            if (!inRange) {
+                continue;
+            }
+            for (Message message : loadSegment(segment)) {
+                if (wanted.contains(message.getId())) {
+                    found.add(message);
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Archived messages of the room strictly older than (timestamp, id), oldest first.
+     * Only segments holding the room from before that point are read.
+     */
+    public List<Message> before(String room, LocalDateTime timestamp, long id, int limit) {
+        List<Message> page = new ArrayList<>();
+        for (List<Segment> day : daysOf(room, segment -> !segment.rooms().get(room).first().isAfter(timestamp), true)) {
+            List<Message> messages = loadDay(day);
+            for (int i = messages.size() - 1; i >= 0 && page.size() < limit; i--) {
+                Message message = messages.get(i);
+                if (isBefore(message, timestamp, id) && room.equals(ChatRooms.of(message))) {
+                    page.add(message);
+                }
+            }
+            if (page.size() >= limit) {
+                break;
+            }
+        }
+
+        Collections.reverse(page);
+        return page;
+    }
+
+    /**
+     * Archived messages of the room strictly newer than (timestamp, id), oldest first.
+     * Only segments holding the room from after that point are read.
+     */
+    public List<Message> after(String room, LocalDateTime timestamp, long id, int limit) {
+        List<Message> page = new ArrayList<>();
+        for (List<Segment> day : daysOf(room, segment -> !segment.rooms().get(room).last().isBefore(timestamp), false)) {
+            for (Message message : loadDay(day)) {
+                if (page.size() >= limit) {
+                    return page;
+                }
+                if (isAfter(message, timestamp, id) && room.equals(ChatRooms.of(message))) {
+                    page.add(message);
+                }
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Segments holding the room and passing the filter, grouped by day (parts of one day together,
+     * as their time ranges may overlap), in day order or reversed
+     */
+    private List<List<Segment>> daysOf(String room, Predicate<Segment> filter, boolean newestFirst) {
+        Comparator<LocalDate> order = newestFirst ? Comparator.reverseOrder() : Comparator.naturalOrder();
+        Map<LocalDate, List<Segment>> days = new TreeMap<>(order);
+        for (Segment segment : segments) {
+            if (segment.rooms().containsKey(room) && filter.test(segment)) {
+                days.computeIfAbsent(segment.day(), d -> new ArrayList<>()).add(segment);
+            }
+        }
+        return new ArrayList<>(days.values());
+    }
+
+    /**
+     * Every archived message, oldest day first, without going through the cache
+     */
+    public void forEachArchived(Consumer<Message> consumer) {
+        for (Segment segment : segments) {
+            readSegment(segment, consumer);
+        }
+    }
+
+    /**
+     * The given segments of one day, merged in (timestamp, id) order
+     */
+    private List<Message> loadDay(List<Segment> day) {
+        if (day.size() == 1) {
+            return loadSegment(day.get(0));
+        }
+        List<Message> messages = new ArrayList<>();
+        for (Segment segment : day) {
+            messages.addAll(loadSegment(segment));
+        }
+        messages.sort(Comparator.comparing(Message::getTimestamp).thenComparing(Message::getId));
+        return messages;
+    }
+
+    private List<Message> loadSegment(Segment segment) {
+        synchronized (cache) {
+            List<Message> cached = cache.get(segment.name());
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        List<Message> messages = new ArrayList<>();
+        readSegment(segment, messages::add);
+        messages.sort(Comparator.comparing(Message::getTimestamp).thenComparing(Message::getId));
+        List<Message> loaded = List.copyOf(messages);
+
+        synchronized (cache) {
+            cache.put(segment.name(), loaded);
+        }
+        return loaded;
+    }
+
+    private Segment withRooms(Segment segment) {
+        Map<String, RoomRange> rooms = new TreeMap<>();
+        readSegment(segment, message -> rooms.merge(ChatRooms.of(message), RoomRange.of(message), RoomRange::plus));
+        return new Segment(segment.name(), segment.day(), segment.part(), segment.count(), segment.minId(),
+                segment.maxId(), segment.firstTimestamp(), segment.lastTimestamp(), segment.bytes(), rooms);
+    }
+
+    private void writeIndex(Segment segment) throws IOException {
+        Path indexTemp = directory.resolve(segment.name() + INDEX_SUFFIX + ".tmp");
+        objectMapper.writeValue(indexTemp.toFile(), segment);
+        Files.move(indexTemp, directory.resolve(segment.name() + INDEX_SUFFIX), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void readSegment(Segment segment, Consumer<Message> consumer) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(segmentPath(segment.name())), 64 * 1024),
+                StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    consumer.accept(objectMapper.readValue(line, Message.class));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read archive segment " + segment.name(), e);
+        }
+    }
+
+    private Path segmentPath(String name) {
+        return directory.resolve(name + SEGMENT_SUFFIX);
+    }
+
+    private static List<Segment> sorted(List<Segment> list) {
+        List<Segment> copy = new ArrayList<>(list);
+        copy.sort(Comparator.comparing(Segment::day).thenComparingInt(Segment::part));
+        return List.copyOf(copy);
+    }
+
+    private static boolean isBefore(Message message, LocalDateTime timestamp, long id) {
+        int byTime = message.getTimestamp().compareTo(timestamp);
+        return byTime < 0 || (byTime == 0 && message.getId() < id);
+    }
+
+    private static boolean isAfter(Message message, LocalDateTime timestamp, long id) {
+        int byTime = message.getTimestamp().compareTo(timestamp);
+        return byTime > 0 || (byTime == 0 && message.getId() > id);
+    }
+
+    /**
+     * Contents of a segment's index file
+     */
+    public record Segment(String name, LocalDate day, int part, long count, long minId, long maxId,
+            LocalDateTime firstTimestamp, LocalDateTime lastTimestamp, long bytes, Map<String, RoomRange> rooms) {
+    }
+
+    /**
+     * How many messages of one room a segment holds, and their time range
+     */
+    public record RoomRange(long count, LocalDateTime first, LocalDateTime last) {
+
+        static RoomRange of(Message message) {
+            return new RoomRange(1, message.getTimestamp(), message.getTimestamp());
+        }
+
+        RoomRange plus(RoomRange other) {
+            return new RoomRange(count + other.count,
+                    first.isBefore(other.first) ? first : other.first,
+                    last.isAfter(other.last) ? last : other.last);
+        }
+    }
+}
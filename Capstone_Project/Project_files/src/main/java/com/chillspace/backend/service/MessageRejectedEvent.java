@@ -0,0 +1,10 @@
+package com.chillspace.backend.service;
+
+import com.chillspace.backend.model.Message;
+
+/**
+ * A chat message that was broadcast but that the database refused to store, so it will never be in
+ * the history. Published by {@link MessageWriteBehindService} on its flusher thread.
+ */
+public record MessageRejectedEvent(Message message) {
+}
@@ -0,0 +1,447 @@
+package com.chillspace.backend.service;
+
+import com.chillspace.backend.model.Message;
+import com.chillspace.backend.model.MessageType;
+import com.chillspace.backend.repository.MessageRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over chat message content and sender.
+ *
+ * Each term maps to a sorted array of packed (message id, term frequency) entries. Senders are
+ * indexed under a reserved "@username" term, so a rename moves one posting list. Deleted ids are
+ * tombstoned and purged from the postings in the background.
+ */
+@Service
+public class MessageSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageSearchIndex.class);
+
+    private static final Pattern TOKEN_SPLIT = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int MIN_TOKEN_LENGTH = 2;
+    private static final int MAX_TOKEN_LENGTH = 40;
+    private static final String SENDER_PREFIX = "@";
+
+    // Bounds per query, so a very common term can't make a search slow
+    private static final int MAX_CANDIDATES = 5_000;
+    private static final int MAX_SCANNED = 200_000;
+    private static final int BUILD_BATCH_SIZE = 5_000;
+
+    private final MessageRepository messageRepository;
+    private final MessageArchiveService archive;
+    private final UserDirectory userDirectory;
+
+    private final Map<String, Postings> terms = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Set<Long> tombstones = ConcurrentHashMap.newKeySet();
+    private volatile long documentCount;
+    private volatile boolean ready;
+
+    public MessageSearchIndex(MessageRepository messageRepository, MessageArchiveService archive,
+            UserDirectory userDirectory) {
+        this.messageRepository = messageRepository;
+        this.archive = archive;
+        this.userDirectory = userDirectory;
+    }
+
+    /**
+     * Stream the archive and then the messages table into the index, off the startup thread.
+     * Messages sent meanwhile are indexed as they arrive; duplicates are ignored.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildIndex() {
+        Thread builder = new Thread(() -> {
+            long start = System.currentTimeMillis();
+            long indexed = 0;
+            long afterId = 0;
+            try {
+                long[] archived = { 0 };
+                archive.forEachArchived(message -> {
+                    if (message.getType() == MessageType.CHAT && !tombstones.contains(message.getId())) {
+                        add(message.getId(), currentSender(message.getSenderId(), message.getSender()),
+                                message.getContent());
+                        archived[0]++;
+                    }
+                });
+                indexed += archived[0];
+
+                while (true) {
+                    List<Object[]> batch = messageRepository.findSearchBatch(afterId, PageRequest.of(0, BUILD_BATCH_SIZE));
+                    if (batch.isEmpty()) {
+                        break;
+                    }
+                    for (Object[] row : batch) {
+                        Long id = (Long) row[0];
+                        if (!tombstones.contains(id)) {
+                            add(id, currentSender((Long) row[3], (String) row[1]), (String) row[2]);
+                            indexed++;
+                        }
+                        afterId = id;
+                    }
+                }
+                ready = true;
+                logger.info("🔎 Search index built: {} messages, {} terms in {} ms",
+                        indexed, termCount(), System.currentTimeMillis() - start);
+            } catch (Exception e) {
+                logger.error("❌ Building search index failed after {} messages", indexed, e);
+            }
+        }, "search-index-builder");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    // Index under the sender's current name so from: matches what clients display
+    private String currentSender(Long senderId, String storedName) {
+        String current = userDirectory.usernameOf(senderId);
+        return current != null ? current : storedName;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void add(Message message) {
+        add(message.getId(), message.getSender(), message.getContent());
+    }
+
+    public void add(Long id, String sender, String content) {
+        if (id == null) {
+            return;
+        }
+        Map<String, Integer> frequencies = tokenize(content);
+        if (sender != null) {
+            frequencies.put(SENDER_PREFIX + sender.toLowerCase(Locale.ROOT), 1);
+        }
+
+        lock.writeLock().lock();
+        try {
+            boolean added = false;
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                added |= terms.computeIfAbsent(entry.getKey(), k -> new Postings()).add(id, entry.getValue());
+            }
+            if (added) {
+                documentCount++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Re-index an edited message; the old content is needed to find its postings
+     */
+    public void update(Long id, String sender, String oldContent, String newContent) {
+        lock.writeLock().lock();
+        try {
+            for (String term : tokenize(oldContent).keySet()) {
+                Postings postings = terms.get(term);
+                if (postings != null && postings.remove(id) && postings.size == 0) {
+                    terms.remove(term);
+                }
+            }
+            for (Map.Entry<String, Integer> entry : tokenize(newContent).entrySet()) {
+                terms.computeIfAbsent(entry.getKey(), k -> new Postings()).add(id, entry.getValue());
+            }
+            if (sender != null) {
+                terms.computeIfAbsent(SENDER_PREFIX + sender.toLowerCase(Locale.ROOT), k -> new Postings()).add(id, 1);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Collection<Long> ids) {
+        tombstones.addAll(ids);
+    }
+
+    /**
+     * All of a user's messages now carry the new name: move the sender posting list over
+     */
+    public void renameSender(String oldUsername, String newUsername) {
+        String oldTerm = SENDER_PREFIX + oldUsername.toLowerCase(Locale.ROOT);
+        String newTerm = SENDER_PREFIX + newUsername.toLowerCase(Locale.ROOT);
+        if (oldTerm.equals(newTerm)) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            Postings moved = terms.remove(oldTerm);
+            if (moved == null) {
+                return;
+            }
+            Postings existing = terms.get(newTerm);
+            if (existing == null) {
+                terms.put(newTerm, moved);
+            } else {
+                for (int i = 0; i < moved.size; i++) {
+                    existing.add(Postings.id(moved.entries[i]), Postings.frequency(moved.entries[i]));
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Messages containing every term (and sent by the "from:" user, if given), best match first.
+     * Candidates are collected newest first and capped, so very broad queries rank the recent ones.
+     */
+    public SearchResult search(String query) {
+        ParsedQuery parsed = parse(query);
+        if (parsed.terms.isEmpty()) {
+            return new SearchResult(List.of(), false);
+        }
+
+        lock.readLock().lock();
+        try {
+            List<Postings> lists = new ArrayList<>(parsed.terms.size());
+            List<Double> weights = new ArrayList<>(parsed.terms.size());
+            for (String term : parsed.terms) {
+                Postings postings = terms.get(term);
+                if (postings == null || postings.size == 0) {
+                    return new SearchResult(List.of(), false);
+                }
+                lists.add(postings);
+                // Sender terms only filter; content terms weigh more the rarer they are
+                weights.add(term.startsWith(SENDER_PREFIX) ? 0.0
+                        : Math.log(1.0 + (double) Math.max(documentCount, 1) / postings.size));
+            }
+
+            // Walk the shortest list newest-first and probe the others
+            Integer[] order = new Integer[lists.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparingInt(i -> lists.get(i).size));
+            Postings driver = lists.get(order[0]);
+
+            List<Hit> hits = new ArrayList<>();
+            boolean capped = false;
+            int scanned = 0;
+            for (int i = driver.size - 1; i >= 0; i--) {
+                if (hits.size() >= MAX_CANDIDATES || ++scanned > MAX_SCANNED) {
+                    capped = true;
+                    break;
+                }
+                long id = Postings.id(driver.entries[i]);
+                if (tombstones.contains(id)) {
+                    continue;
+                }
+
+                double score = 0;
+                boolean matches = true;
+                for (int k = 0; k < lists.size() && matches; k++) {
+                    int frequency = k == order[0] ? Postings.frequency(driver.entries[i]) : lists.get(k).frequencyOf(id);
+                    if (frequency == 0) {
+                        matches = false;
+                    } else {
+                        score += (1 + Math.log(frequency)) * weights.get(k);
+                    }
+                }
+                if (matches) {
+                    hits.add(new Hit(id, score));
+                }
+            }
+
+            hits.sort(Comparator.comparingDouble(Hit::score).reversed().thenComparing(Hit::id, Comparator.reverseOrder()));
+            return new SearchResult(hits.stream().map(Hit::id).toList(), capped);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Drop tombstoned ids from every posting list
+     */
+    @Scheduled(fixedDelay = 600_000)
+    public void compact() {
+        if (tombstones.isEmpty()) {
+            return;
+        }
+        Set<Long> purged = Set.copyOf(tombstones);
+
+        lock.writeLock().lock();
+        try {
+            long removedDocuments = 0;
+            var iterator = terms.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, Postings> entry = iterator.next();
+                int before = entry.getValue().size;
+                int after = entry.getValue().removeAll(purged);
+                // Every indexed message has exactly one sender term
+                if (entry.getKey().startsWith(SENDER_PREFIX)) {
+                    removedDocuments += before - after;
+                }
+                if (after == 0) {
+                    iterator.remove();
+                }
+            }
+            documentCount = Math.max(0, documentCount - removedDocuments);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        tombstones.removeAll(purged);
+        logger.info("🔎 Search index compacted, {} deleted messages purged", purged.size());
+    }
+
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private ParsedQuery parse(String query) {
+        List<String> queryTerms = new ArrayList<>();
+        if (query == null) {
+            return new ParsedQuery(queryTerms);
+        }
+        for (String part : query.trim().split("\\s+")) {
+            String lower = part.toLowerCase(Locale.ROOT);
+            if (lower.startsWith("from:") && lower.length() > 5) {
+                queryTerms.add(SENDER_PREFIX + lower.substring(5));
+            } else if (lower.startsWith(SENDER_PREFIX) && lower.length() > 1) {
+                queryTerms.add(lower);
+            } else {
+                for (String token : tokenize(part).keySet()) {
+                    if (!queryTerms.contains(token)) {
+                        queryTerms.add(token);
+                    }
+                }
+            }
+        }
+        return new ParsedQuery(queryTerms);
+    }
+
+    private static Map<String, Integer> tokenize(String text) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        if (text == null || text.isEmpty()) {
+            return frequencies;
+        }
+        for (String token : TOKEN_SPLIT.split(text.toLowerCase(Locale.ROOT))) {
+            if (token.length() >= MIN_TOKEN_LENGTH && token.length() <= MAX_TOKEN_LENGTH) {
+                frequencies.merge(token, 1, Integer::sum);
+            }
+        }
+        return frequencies;
+    }
+
+    public record SearchResult(List<Long> ids, boolean capped) {
+    }
+
+    private record ParsedQuery(List<String> terms) {
+    }
+
+    private record Hit(long id, double score) {
+    }
+
+    /**
+     * Ascending array of (id << 8 | min(tf, 255)) entries
+     */
+    private static class Postings {
+        private long[] entries = new long[4];
+        private int size;
+
+        static long id(long entry) {
+            return entry >>> 8;
+        }
+
+        static int frequency(long entry) {
+            return (int) (entry & 0xFF);
+        }
+
+        /**
+         * Ids mostly arrive in increasing order, so this is usually an append
+         */
+        boolean add(long id, int frequency) {
+            long entry = (id << 8) | Math.min(Math.max(frequency, 1), 0xFF);
+            int position;
+            if (size == 0 || id(entries[size - 1]) < id) {
+                position = size;
+            } else {
+                int found = indexOf(id);
+                if (found >= 0) {
+                    entries[found] = entry;
+                    return false;
+                }
+                position = -found - 1;
+            }
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size + (size >> 1) + 1);
+            }
+            System.arraycopy(entries, position, entries, position + 1, size - position);
+            entries[position] = entry;
+            size++;
+            return true;
+        }
+
+        boolean remove(long id) {
+            int found = indexOf(id);
+            if (found < 0) {
+                return false;
+            }
+            System.arraycopy(entries, found + 1, entries, found, size - found - 1);
+            size--;
+            return true;
+        }
+
+        int removeAll(Set<Long> ids) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (!ids.contains(id(entries[i]))) {
+                    entries[kept++] = entries[i];
+                }
+            }
+            size = kept;
+            if (entries.length > 16 && size < entries.length / 4) {
+                entries = Arrays.copyOf(entries, Math.max(4, size * 2));
+            }
+            return size;
+        }
+
+        int frequencyOf(long id) {
+            int found = indexOf(id);
+            return found >= 0 ? frequency(entries[found]) : 0;
+        }
+
+        private int indexOf(long id) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long midId = id(entries[mid]);
+                if (midId < id) {
+                    low = mid + 1;
+                } else if (midId > id) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+    }
+}
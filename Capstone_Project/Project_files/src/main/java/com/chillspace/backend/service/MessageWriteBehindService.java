@@ -0,0 +1,364 @@
+package com.chillspace.backend.service;
+
+import com.chillspace.backend.model.Message;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.hibernate.PropertyValueException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind persistence for chat messages.
+ *
+ * Messages are broadcast as soon as they have an id, then queued here and
+ * inserted in JDBC batches by a single flusher thread, either when a batch
+ * fills up or when the flush interval elapses. When the queue is full the
+ * caller writes its own message synchronously, which slows down the sender
+ * instead of dropping anything. The queue is drained on shutdown.
+ *
+ * A batch that fails because the database is unavailable goes back to the head of the line and is
+ * retried with exponential backoff, its messages staying pending. A message is only dropped when the
+ * database rejects the row itself (an integrity or data error); those drops are counted and published
+ * as a {@link MessageRejectedEvent}, since the message was already broadcast.
+ */
+@Service
+public class MessageWriteBehindService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageWriteBehindService.class);
+
+    private final BlockingQueue<Message> queue;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long offerTimeoutMs;
+    private final long retryBackoffMs;
+    private final long maxRetryBackoffMs;
+
+    // Messages accepted but not yet committed, by id
+    private final Map<Long, Message> pending = new ConcurrentHashMap<>();
+
+    // Failed batches waiting for the database to come back, oldest first; written before the queue
+    private final BlockingDeque<Message> retries = new LinkedBlockingDeque<>();
+    private volatile int consecutiveFailures;
+    private volatile long retryAt;
+    private final AtomicLong dropped = new AtomicLong();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private volatile boolean running = true;
+    private Thread flusher;
+
+    public MessageWriteBehindService(PlatformTransactionManager transactionManager,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${chat.messages.write-behind.queue-capacity:10000}") int queueCapacity,
+            @Value("${chat.messages.write-behind.batch-size:100}") int batchSize,
+            @Value("${chat.messages.write-behind.flush-interval-ms:200}") long flushIntervalMs,
+            @Value("${chat.messages.write-behind.offer-timeout-ms:50}") long offerTimeoutMs,
+            @Value("${chat.messages.write-behind.retry-backoff-ms:500}") long retryBackoffMs,
+            @Value("${chat.messages.write-behind.max-retry-backoff-ms:30000}") long maxRetryBackoffMs) {
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.retryBackoffMs = retryBackoffMs;
+        this.maxRetryBackoffMs = maxRetryBackoffMs;
+    }
+
+    @PostConstruct
+    void start() {
+        flusher = new Thread(this::runFlusher, "message-write-behind");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Queue a message for insertion. The message must already have its id.
+     */
+    public void enqueue(Message message) {
+        pending.put(message.getId(), message);
+        try {
+            if (queue.offer(message, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Queue is full: apply backpressure by writing on the sender's thread
+        logger.warn("⚠️ Message write-behind queue full ({} pending), writing synchronously", queue.size());
+        writeBatch(List.of(message));
+    }
+
+    /**
+     * True if the message was accepted but is not in the database yet
+     */
+    public boolean isPending(Long id) {
+        return id != null && pending.containsKey(id);
+    }
+
+    /**
+     * True while any accepted message is not in the database yet
+     */
+    public boolean hasPending() {
+        return !pending.isEmpty();
+    }
+
+    /**
+     * Messages the database rejected outright (constraint or data errors) since startup
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * The queued message, if it has not been written yet
+     */
+    public Message getPending(Long id) {
+        return id != null ? pending.get(id) : null;
+    }
+
+    /**
+     * Block until the given message has been written (or the wait times out).
+     * Used by paths that need to modify a message that may still be queued.
+     */
+    public void awaitPersisted(Long id) {
+        if (!isPending(id)) {
+            return;
+        }
+        flush();
+
+        long deadline = System.currentTimeMillis() + Math.max(flushIntervalMs * 10, 1000);
+        while (isPending(id) && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Write everything currently queued on the calling thread
+     */
+    public void flush() {
+        List<Message> batch = new ArrayList<>(batchSize);
+        // Failed batches first, without waiting out the backoff; stop as soon as the database fails again
+        while (retries.drainTo(batch, batchSize) > 0) {
+            if (!writeBatch(batch)) {
+                return;
+            }
+            batch = new ArrayList<>(batchSize);
+        }
+        while (queue.drainTo(batch, batchSize) > 0) {
+            if (!writeBatch(batch)) {
+                return;
+            }
+            batch = new ArrayList<>(batchSize);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        running = false;
+        try {
+            flusher.join(flushIntervalMs * 5 + 5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Whatever the flusher did not get to
+        flush();
+        logger.info("💾 Message write-behind stopped, {} messages left unwritten, {} dropped since startup",
+                pending.size(), dropped.get());
+    }
+
+    private void runFlusher() {
+        while (running || !queue.isEmpty()) {
+            try {
+                if (!retries.isEmpty()) {
+                    long wait = retryAt - System.currentTimeMillis();
+                    if (wait > 0) {
+                        // New messages wait behind the failed ones; the queue applies backpressure meanwhile
+                        Thread.sleep(Math.min(wait, flushIntervalMs));
+                        continue;
+                    }
+                    List<Message> batch = new ArrayList<>(batchSize);
+                    retries.drainTo(batch, batchSize);
+                    writeBatch(batch);
+                    continue;
+                }
+
+                Message first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                List<Message> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+
+                // Keep filling until the batch is full or the interval since the first message elapses
+                long deadline = System.currentTimeMillis() + flushIntervalMs;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                        break;
+                    }
+                    Message next = queue.poll(remaining, TimeUnit.MILLISECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.error("❌ Message write-behind flusher error: ", e);
+            }
+        }
+    }
+
+    /**
+     * Write the batch; false if (part of) it was put back for a later retry
+     */
+    private boolean writeBatch(List<Message> batch) {
+        if (batch.isEmpty()) {
+            return true;
+        }
+        try {
+            persistAll(batch);
+            written(batch);
+            logger.debug("💾 Persisted {} chat messages", batch.size());
+            return true;
+        } catch (RuntimeException e) {
+            if (!isRejected(e)) {
+                retryLater(batch, e);
+                return false;
+            }
+            // Retry row by row so one bad message doesn't take the whole batch with it
+            logger.warn("⚠️ Batch insert of {} messages failed, retrying individually: {}", batch.size(), e.getMessage());
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            Message message = batch.get(i);
+            try {
+                persistAll(List.of(message));
+                written(List.of(message));
+            } catch (RuntimeException e) {
+                if (!isRejected(e)) {
+                    retryLater(batch.subList(i, batch.size()), e);
+                    return false;
+                }
+                if (isStored(message)) {
+                    // Duplicate id: an earlier attempt committed even though it reported a failure
+                    written(List.of(message));
+                    continue;
+                }
+                pending.remove(message.getId());
+                dropped.incrementAndGet();
+                logger.error("❌ Dropping chat message {}, rejected by the database: {}", message.getId(), e.getMessage());
+                rejected(message);
+            }
+        }
+        return true;
+    }
+
+    private void rejected(Message message) {
+        try {
+            eventPublisher.publishEvent(new MessageRejectedEvent(message));
+        } catch (RuntimeException e) {
+            // The rest of the batch still has to be written
+            logger.warn("⚠️ Could not report rejected chat message {}: {}", message.getId(), e.getMessage());
+        }
+    }
+
+    private boolean isStored(Message message) {
+        try {
+            return Boolean.TRUE.equals(transactionTemplate.execute(status ->
+                    entityManager.find(Message.class, message.getId()) != null));
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private void written(List<Message> messages) {
+        consecutiveFailures = 0;
+        messages.forEach(message -> pending.remove(message.getId()));
+    }
+
+    /**
+     * Put the messages back at the head of the line, in order, and back off before the next attempt
+     */
+    private void retryLater(List<Message> messages, RuntimeException cause) {
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            retries.offerFirst(messages.get(i));
+        }
+        int failures = ++consecutiveFailures;
+        long backoff = Math.min(maxRetryBackoffMs, retryBackoffMs << Math.min(failures - 1, 16));
+        retryAt = System.currentTimeMillis() + backoff;
+        logger.warn("⚠️ Could not write {} chat messages ({} pending), retrying in {} ms: {}",
+                messages.size(), pending.size(), backoff, cause.getMessage());
+    }
+
+    /**
+     * True when the database refused the row itself (SQLState class 23 integrity or 22 data error, or
+     * Hibernate's own not-null check), so retrying can never succeed; anything else is treated as the
+     * database being unavailable.
+     */
+    static boolean isRejected(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DataIntegrityViolationException
+                    || cause instanceof org.hibernate.exception.ConstraintViolationException
+                    || cause instanceof PropertyValueException) {
+                return true;
+            }
+            if (cause instanceof SQLException sql && sql.getSQLState() != null
+                    && (sql.getSQLState().startsWith("23") || sql.getSQLState().startsWith("22"))) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    private void persistAll(List<Message> messages) {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (Message message : messages) {
+                entityManager.persist(message);
+            }
+        });
+    }
+}
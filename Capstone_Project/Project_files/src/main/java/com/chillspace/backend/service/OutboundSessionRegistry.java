@@ -0,0 +1,137 @@
+package com.chillspace.backend.service;
+
+import lombok.Getter;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator.OverflowStrategy;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Outbound side of every open WebSocket: the bounded send buffer Spring keeps per session,
+ * plus how long the actual socket writes take. Used to spot clients that can't keep up.
+ */
+@Service
+public class OutboundSessionRegistry {
+
+    private final Map<String, OutboundSession> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * Wrap a raw session so sends are buffered within the given limits and timed
+     */
+    public WebSocketSession register(WebSocketSession session, int sendTimeLimit, int bufferSizeLimit,
+            OverflowStrategy overflowStrategy) {
+        OutboundSession outbound = new OutboundSession(session.getId());
+
+        WebSocketSession timed = new WebSocketSessionDecorator(session) {
+            @Override
+            public void sendMessage(WebSocketMessage<?> message) throws IOException {
+                long start = System.nanoTime();
+                try {
+                    super.sendMessage(message);
+                } finally {
+                    outbound.recordSend(message.getPayloadLength(), System.nanoTime() - start);
+                }
+            }
+        };
+
+        ConcurrentWebSocketSessionDecorator buffered = new ConcurrentWebSocketSessionDecorator(
+                timed, sendTimeLimit, bufferSizeLimit, overflowStrategy) {
+            @Override
+            public void sendMessage(WebSocketMessage<?> message) throws IOException {
+                outbound.offered.increment();
+                super.sendMessage(message);
+            }
+        };
+
+        outbound.session = buffered;
+        sessions.put(session.getId(), outbound);
+        return buffered;
+    }
+
+    public void unregister(String sessionId) {
+        sessions.remove(sessionId);
+    }
+
+    public Collection<OutboundSession> getSessions() {
+        return sessions.values();
+    }
+
+    /**
+     * Sessions with the deepest backlog first, then the ones stuck in the longest write
+     */
+    public List<OutboundSession> worstConsumers(int limit) {
+        return sessions.values().stream()
+                .sorted(Comparator.comparingInt(OutboundSession::getQueuedBytes)
+                        .thenComparingLong(OutboundSession::getSendInProgressMs)
+                        .thenComparingDouble(OutboundSession::getAvgSendMs)
+                        .reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    public static class OutboundSession {
+        @Getter
+        private final String sessionId;
+        private volatile ConcurrentWebSocketSessionDecorator session;
+
+        private final LongAdder offered = new LongAdder();
+        private final AtomicLong sent = new AtomicLong();
+        private final AtomicLong bytesSent = new AtomicLong();
+        private final AtomicLong sendNanos = new AtomicLong();
+        private final AtomicLong maxSendNanos = new AtomicLong();
+
+        OutboundSession(String sessionId) {
+            this.sessionId = sessionId;
+        }
+
+        void recordSend(int bytes, long nanos) {
+            sent.incrementAndGet();
+            bytesSent.addAndGet(bytes);
+            sendNanos.addAndGet(nanos);
+            maxSendNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        public int getQueuedBytes() {
+            return session != null ? session.getBufferSize() : 0;
+        }
+
+        public long getSendInProgressMs() {
+            return session != null ? session.getTimeSinceSendStarted() : 0;
+        }
+
+        public long getSent() {
+            return sent.get();
+        }
+
+        public long getBytesSent() {
+            return bytesSent.get();
+        }
+
+        /**
+         * Frames handed to the session but not written yet: still buffered, or dropped on overflow
+         */
+        public long getUndelivered() {
+            return Math.max(0, offered.sum() - sent.get());
+        }
+
+        public double getAvgSendMs() {
+            long count = sent.get();
+            return count == 0 ? 0 : sendNanos.get() / 1_000_000.0 / count;
+        }
+
+        public double getMaxSendMs() {
+            return maxSendNanos.get() / 1_000_000.0;
+        }
+    }
+}
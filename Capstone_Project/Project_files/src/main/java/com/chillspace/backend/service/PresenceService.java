@@ -0,0 +1,384 @@
+package com.chillspace.backend.service;
+
+import com.chillspace.backend.model.Message;
+import com.chillspace.backend.model.MessageType;
+import com.chillspace.backend.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory presence, the single source of truth for who is online.
+ *
+ * A user is online while at least one of their STOMP sessions is alive, so
+ * closing one of two tabs keeps them online. Every inbound frame (including
+ * STOMP heartbeats) refreshes its session; sessions that go quiet for longer
+ * than the TTL are expired, which also cleans up after crashed clients. An
+ * expired session whose socket turns out to be alive (a laptop waking up)
+ * is registered again on its next frame.
+ * The users table is only updated with coalesced, batched UPDATEs.
+ *
+ * With several nodes (relay mode) each node tracks its own sessions and tells the others through
+ * {@link ClusterEventRelay} when a user comes online or goes offline there, plus a periodic snapshot
+ * that also serves as its heartbeat. A user is online while any node has a session for them; JOIN and
+ * LEAVE are only broadcast for the first and last session cluster-wide.
+ */
+@Service
+public class PresenceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PresenceService.class);
+
+    private final UserRepository userRepository;
+    private final SimpMessageSendingOperations messagingTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final long sessionTtlMs;
+
+    // username -> (sessionId -> last activity millis)
+    private final Map<String, Map<String, Long>> sessionsByUser = new ConcurrentHashMap<>();
+    private final Map<String, String> usernameBySession = new ConcurrentHashMap<>();
+
+    // Sessions expired by the sweep while their socket is still open -> username, until it closes
+    private final Map<String, String> expiredSessions = new ConcurrentHashMap<>();
+
+    // Online flag changes not yet written to the users table
+    private final Map<String, Boolean> pendingWrites = new ConcurrentHashMap<>();
+
+    // Bumped whenever someone comes online or goes offline; part of the user list's ETag
+    private final AtomicLong version = new AtomicLong();
+
+    private final ClusterEventRelay clusterEventRelay;
+
+    // node id -> users online there, as last reported by that node
+    private final Map<String, RemoteNode> remoteNodes = new ConcurrentHashMap<>();
+
+    public PresenceService(UserRepository userRepository,
+            @Lazy SimpMessageSendingOperations messagingTemplate,
+            PlatformTransactionManager transactionManager, ClusterEventRelay clusterEventRelay,
+            @Value("${chat.presence.session-ttl-ms:45000}") long sessionTtlMs) {
+        this.userRepository = userRepository;
+        this.clusterEventRelay = clusterEventRelay;
+        this.messagingTemplate = messagingTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.sessionTtlMs = sessionTtlMs;
+    }
+
+    /**
+     * Nobody is connected right after startup, whatever the table says from the last run.
+     * Other nodes may still have users online, so with a relay the table is left alone.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resetOnlineStatus() {
+        if (clusterEventRelay.isEnabled()) {
+            return;
+        }
+        Integer reset = transactionTemplate.execute(status -> userRepository.resetOnlineStatus());
+        if (reset != null && reset > 0) {
+            logger.info("🔄 Reset {} users to offline status.", reset);
+        }
+    }
+
+    /**
+     * Register a session for a user.
+     * Returns true if this is the user's first live session on any node (they just came online).
+     */
+    public boolean connect(String sessionId, String username) {
+        long now = System.currentTimeMillis();
+        AtomicBoolean cameOnline = new AtomicBoolean(false);
+
+        sessionsByUser.compute(username, (user, sessions) -> {
+            if (sessions == null) {
+                sessions = new ConcurrentHashMap<>();
+                cameOnline.set(true);
+            }
+            sessions.put(sessionId, now);
+            return sessions;
+        });
+        usernameBySession.put(sessionId, username);
+
+        if (cameOnline.get()) {
+            pendingWrites.put(username, true);
+            version.incrementAndGet();
+            clusterEventRelay.publish(ClusterEvent.online(username));
+        }
+        // Already online through another node: not a new JOIN
+        return cameOnline.get() && !isOnlineElsewhere(username);
+    }
+
+    /**
+     * Drop a session. Broadcasts LEAVE if it was the user's last one on any node.
+     */
+    public void disconnect(String sessionId) {
+        String username = removeSession(sessionId);
+        // After removeSession, so a concurrent sweep cannot record it as expired again (see expireStaleSessions)
+        expiredSessions.remove(sessionId);
+        if (username != null) {
+            logger.info("User Disconnected: {}", username);
+            broadcastLeave(username);
+        }
+    }
+
+    /**
+     * Record activity on a session (any inbound frame, including heartbeats)
+     */
+    public void touch(String sessionId) {
+        String username = usernameBySession.get(sessionId);
+        if (username == null) {
+            // Sessions that never joined (frames before chat.addUser) are left alone
+            String expired = expiredSessions.remove(sessionId);
+            if (expired != null) {
+                logger.info("⌛ Expired WebSocket session {} of {} is active again", sessionId, expired);
+                if (connect(sessionId, expired)) {
+                    broadcastJoin(expired);
+                }
+            }
+            return;
+        }
+        Map<String, Long> sessions = sessionsByUser.get(username);
+        if (sessions != null) {
+            sessions.computeIfPresent(sessionId, (id, lastSeen) -> System.currentTimeMillis());
+        }
+    }
+
+    public boolean isOnline(String username) {
+        return sessionsByUser.containsKey(username) || isOnlineElsewhere(username);
+    }
+
+    public Set<String> getOnlineUsers() {
+        if (remoteNodes.isEmpty()) {
+            return Collections.unmodifiableSet(sessionsByUser.keySet());
+        }
+        Set<String> online = new HashSet<>(sessionsByUser.keySet());
+        remoteNodes.values().forEach(node -> online.addAll(node.usernames));
+        return Collections.unmodifiableSet(online);
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    public long getOnlineCount() {
+        return remoteNodes.isEmpty() ? sessionsByUser.size() : getOnlineUsers().size();
+    }
+
+    /**
+     * Expire sessions that stopped sending frames and heartbeats
+     */
+    @Scheduled(fixedDelayString = "${chat.presence.sweep-interval-ms:15000}")
+    public void expireStaleSessions() {
+        long cutoff = System.currentTimeMillis() - sessionTtlMs;
+        List<String> stale = new ArrayList<>();
+
+        sessionsByUser.values().forEach(sessions -> sessions.forEach((sessionId, lastSeen) -> {
+            if (lastSeen < cutoff) {
+                stale.add(sessionId);
+            }
+        }));
+
+        for (String sessionId : stale) {
+            String username = usernameBySession.get(sessionId);
+            if (username == null) {
+                continue;
+            }
+            logger.info("⌛ Expiring stale WebSocket session {}", sessionId);
+            // The socket may still be open; remember whose it is so its next frame brings it back
+            expiredSessions.put(sessionId, username);
+            if (!usernameBySession.containsKey(sessionId)) {
+                // Closed meanwhile
+                expiredSessions.remove(sessionId);
+                continue;
+            }
+            String left = removeSession(sessionId);
+            if (left != null) {
+                broadcastLeave(left);
+            }
+        }
+    }
+
+    /**
+     * Tell the other nodes who is online here, and forget nodes that stopped doing so
+     * (stopped or crashed; their users are marked offline unless online elsewhere)
+     */
+    @Scheduled(fixedDelayString = "${chat.presence.sweep-interval-ms:15000}")
+    public void syncWithOtherNodes() {
+        if (!clusterEventRelay.isEnabled()) {
+            return;
+        }
+        clusterEventRelay.publish(ClusterEvent.presence(sessionsByUser.keySet()));
+
+        long cutoff = System.currentTimeMillis() - sessionTtlMs;
+        remoteNodes.forEach((nodeId, node) -> {
+            if (node.lastSeen < cutoff && remoteNodes.remove(nodeId, node)) {
+                logger.warn("🔌 No presence from node {} since {} ms, dropping its {} users",
+                        nodeId, System.currentTimeMillis() - node.lastSeen, node.usernames.size());
+                for (String username : node.usernames) {
+                    if (!isOnline(username)) {
+                        pendingWrites.put(username, false);
+                    }
+                }
+                version.incrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Presence changes on other nodes
+     */
+    @EventListener
+    public void onClusterEvent(ClusterEvent event) {
+        if (event.usernames() == null || event.origin() == null) {
+            return;
+        }
+        // Nobody online there (or it is shutting down): nothing to track
+        if (event.type() == ClusterEvent.Type.PRESENCE && event.usernames().isEmpty()) {
+            RemoteNode removed = remoteNodes.remove(event.origin());
+            if (removed != null && !removed.usernames.isEmpty()) {
+                version.incrementAndGet();
+            }
+            return;
+        }
+        RemoteNode node = remoteNodes.computeIfAbsent(event.origin(), id -> new RemoteNode());
+        node.lastSeen = System.currentTimeMillis();
+
+        boolean changed = switch (event.type()) {
+            case ONLINE -> node.usernames.addAll(event.usernames());
+            case OFFLINE -> node.usernames.removeAll(event.usernames());
+            case PRESENCE -> node.usernames.retainAll(event.usernames()) | node.usernames.addAll(event.usernames());
+            default -> false;
+        };
+        if (changed) {
+            version.incrementAndGet();
+        }
+    }
+
+    /**
+     * Let the other nodes drop our users now rather than after the session TTL
+     */
+    @EventListener(ContextClosedEvent.class)
+    public void leaveCluster() {
+        clusterEventRelay.publish(ClusterEvent.presence(List.of()));
+    }
+
+    /**
+     * Write coalesced online/offline changes with one UPDATE per state
+     */
+    @Scheduled(fixedDelayString = "${chat.presence.flush-interval-ms:5000}")
+    public void flushPendingWrites() {
+        if (pendingWrites.isEmpty()) {
+            return;
+        }
+
+        List<String> online = new ArrayList<>();
+        List<String> offline = new ArrayList<>();
+        for (String username : new ArrayList<>(pendingWrites.keySet())) {
+            Boolean isOnline = pendingWrites.remove(username);
+            if (isOnline != null) {
+                (isOnline ? online : offline).add(username);
+            }
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                LocalDateTime now = LocalDateTime.now();
+                if (!online.isEmpty()) {
+                    userRepository.updatePresence(online, true, now);
+                }
+                if (!offline.isEmpty()) {
+                    userRepository.updatePresence(offline, false, now);
+                }
+            });
+        } catch (RuntimeException e) {
+            logger.error("❌ Failed to write presence for {} users, will retry: {}",
+                    online.size() + offline.size(), e.getMessage());
+            // Requeue unless a newer change arrived meanwhile
+            online.forEach(username -> pendingWrites.putIfAbsent(username, true));
+            offline.forEach(username -> pendingWrites.putIfAbsent(username, false));
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flushPendingWrites();
+    }
+
+    private String removeSession(String sessionId) {
+        String username = usernameBySession.remove(sessionId);
+        if (username == null) {
+            return null;
+        }
+
+        AtomicBoolean wentOffline = new AtomicBoolean(false);
+        sessionsByUser.computeIfPresent(username, (user, sessions) -> {
+            sessions.remove(sessionId);
+            if (sessions.isEmpty()) {
+                wentOffline.set(true);
+                return null;
+            }
+            return sessions;
+        });
+
+        if (wentOffline.get()) {
+            version.incrementAndGet();
+            clusterEventRelay.publish(ClusterEvent.offline(username));
+            // Still online through another node: no LEAVE, and the row stays online
+            if (isOnlineElsewhere(username)) {
+                return null;
+            }
+            pendingWrites.put(username, false);
+            return username;
+        }
+        return null;
+    }
+
+    private boolean isOnlineElsewhere(String username) {
+        for (RemoteNode node : remoteNodes.values()) {
+            if (node.usernames.contains(username)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void broadcastJoin(String username) {
+        var chatMessage = Message.builder()
+                .type(MessageType.JOIN)
+                .sender(username)
+                .build();
+
+        messagingTemplate.convertAndSend("/topic/public", chatMessage);
+    }
+
+    private void broadcastLeave(String username) {
+        var chatMessage = Message.builder()
+                .type(MessageType.LEAVE)
+                .sender(username)
+                .build();
+
+        messagingTemplate.convertAndSend("/topic/public", chatMessage);
+    }
+
+    private static class RemoteNode {
+        private final Set<String> usernames = ConcurrentHashMap.newKeySet();
+        private volatile long lastSeen;
+    }
+}
@@ -0,0 +1,102 @@
+package com.chillspace.backend.service;
+
+import com.chillspace.backend.model.Role;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory token buckets per user and action, with limits configured per {@link Role}:
+ *
+ *   chat.rate-limit.{action}.{role}.capacity   burst size
+ *   chat.rate-limit.{action}.{role}.per-minute refill rate
+ *
+ * A bucket is a single AtomicLong (the time at which it will be full again), so a check is one CAS.
+ */
+@Service
+public class RateLimiter {
+
+    public enum Action {
+        CHAT("chat", 10, 30),
+        UPLOAD("upload", 5, 10),
+        AI("ai", 5, 10);
+
+        private final String key;
+        private final int defaultCapacity;
+        private final int defaultPerMinute;
+
+        Action(String key, int defaultCapacity, int defaultPerMinute) {
+            this.key = key;
+            this.defaultCapacity = defaultCapacity;
+            this.defaultPerMinute = defaultPerMinute;
+        }
+    }
+
+    private final Map<Action, Map<Role, Limit>> limits = new EnumMap<>(Action.class);
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    public RateLimiter(Environment environment) {
+        for (Action action : Action.values()) {
+            Map<Role, Limit> byRole = new EnumMap<>(Role.class);
+            for (Role role : Role.values()) {
+                String prefix = "chat.rate-limit." + action.key + "." + role.name().toLowerCase() + ".";
+                int capacity = environment.getProperty(prefix + "capacity", Integer.class, action.defaultCapacity);
+                int perMinute = environment.getProperty(prefix + "per-minute", Integer.class, action.defaultPerMinute);
+                byRole.put(role, new Limit(capacity, perMinute));
+            }
+            limits.put(action, byRole);
+        }
+    }
+
+    /**
+     * Take one token for this user, or return false if the bucket is empty
+     */
+    public boolean tryAcquire(Action action, String username, Role role) {
+        Limit limit = limits.get(action).get(role != null ? role : Role.USER);
+        if (limit.perMinute <= 0) {
+            return true; // 0 = unlimited
+        }
+
+        long now = System.nanoTime();
+        AtomicLong fullAt = buckets.computeIfAbsent(action.key + ":" + username, k -> new AtomicLong(now));
+        while (true) {
+            long current = fullAt.get();
+            // Each token pushes the "full again" time one interval further; more than capacity intervals ahead = empty.
+            // nanoTime has an arbitrary origin, so times are only ever compared by their difference.
+            long next = (current - now > 0 ? current : now) + limit.intervalNanos;
+            if (next - now > limit.burstNanos) {
+                return false;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Buckets that have refilled completely carry no state worth keeping
+     */
+    @Scheduled(fixedDelay = 60_000)
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        buckets.values().removeIf(fullAt -> fullAt.get() - now <= 0);
+    }
+
+    private static class Limit {
+        private final int perMinute;
+        private final long intervalNanos;
+        private final long burstNanos;
+
+        Limit(int capacity, int perMinute) {
+            this.perMinute = perMinute;
+            this.intervalNanos = perMinute > 0 ? TimeUnit.MINUTES.toNanos(1) / perMinute : 0;
+            this.burstNanos = intervalNanos * Math.max(1, capacity);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.chillspace.backend.service;
+
+import com.chillspace.backend.model.Message;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free ring buffer of the last N broadcast messages per destination.
+ *
+ * Every appended message gets a per-destination sequence number. Reconnecting
+ * clients send the last sequence they saw and get replayed everything after it,
+ * as long as it is still in the buffer. Sequence numbers restart with the
+ * server, so they are scoped by an epoch.
+ */
+@Service
+public class RecentMessageBuffer {
+
+    private final int capacity;
+    private final long epoch = System.currentTimeMillis();
+    private final Map<String, Ring> rings = new ConcurrentHashMap<>();
+
+    public RecentMessageBuffer(@Value("${chat.messages.recent-buffer-size:500}") int capacity) {
+        this.capacity = capacity;
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Assign the next sequence number to the message and keep it in the buffer
+     */
+    public void append(String destination, Message message) {
+        rings.computeIfAbsent(destination, d -> new Ring(capacity)).append(message);
+    }
+
+    /**
+     * Highest sequence number handed out for the destination (0 if none)
+     */
+    public long currentSeq(String destination) {
+        Ring ring = rings.get(destination);
+        return ring != null ? ring.sequence.get() : 0;
+    }
+
+    /**
+     * Everything after the given sequence number, or empty if part of that
+     * range has already been overwritten (the caller must fall back to the database).
+     */
+    public Optional<List<Message>> since(String destination, long afterSeq) {
+        Ring ring = rings.get(destination);
+        if (ring == null) {
+            return afterSeq == 0 ? Optional.of(List.of()) : Optional.empty();
+        }
+        return ring.since(afterSeq);
+    }
+
+    /**
+     * Current buffer content, oldest first
+     */
+    public List<Message> snapshot(String destination) {
+        Ring ring = rings.get(destination);
+        if (ring == null) {
+            return List.of();
+        }
+        long head = ring.sequence.get();
+        return ring.since(Math.max(0, head - capacity)).orElse(List.of());
+    }
+
+    private static final class Ring {
+
+        private record Entry(long seq, Message message) {
+        }
+
+        private final AtomicLong sequence = new AtomicLong();
+        private final AtomicReferenceArray<Entry> slots;
+        private final int capacity;
+
+        Ring(int capacity) {
+            this.capacity = capacity;
+            this.slots = new AtomicReferenceArray<>(capacity);
+        }
+
+        void append(Message message) {
+            long seq = sequence.incrementAndGet();
+            message.setSeq(seq);
+            slots.set((int) (seq % capacity), new Entry(seq, message));
+        }
+
+        Optional<List<Message>> since(long afterSeq) {
+            long head = sequence.get();
+            if (afterSeq > head || head - afterSeq > capacity) {
+                return Optional.empty();
+            }
+
+            List<Message> result = new ArrayList<>((int) (head - afterSeq));
+            for (long seq = afterSeq + 1; seq <= head; seq++) {
+                Entry entry = slots.get((int) (seq % capacity));
+                if (entry == null || entry.seq() < seq) {
+                    // Sequence handed out but the slot is not written yet - it will arrive live
+                    break;
+                }
+                if (entry.seq() > seq) {
+                    // Overwritten while we were reading
+                    return Optional.empty();
+                }
+                result.add(entry.message());
+            }
+            return Optional.of(result);
+        }
+    }
+}
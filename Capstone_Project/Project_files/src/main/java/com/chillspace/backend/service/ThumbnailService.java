@@ -0,0 +1,286 @@
+package com.chillspace.backend.service;
+
+import com.chillspace.backend.storage.BlobStore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Small JPEG previews of shared images and of the first page of PDFs, so the file panel never has
+ * to download originals. Thumbnails belong to the content, not the file row: they are stored once
+ * per blob under chat.files.thumbnail-dir and removed by the blob sweep along with it.
+ *
+ * New uploads are rendered in the background after their transaction commits, on a small bounded
+ * pool; files uploaded earlier (or dropped from a full queue) are rendered on first request.
+ * Images are subsampled while decoding (see ImageScaling), so a large photo never has to fit in memory.
+ */
+@Service
+public class ThumbnailService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ThumbnailService.class);
+
+    private static final String PDF = "application/pdf";
+
+    private final BlobStore blobStore;
+    private final int size;
+    private final long maxSourceBytes;
+    private final long maxSourcePixels;
+    private final long waitMs;
+    private final ThreadPoolExecutor executor;
+
+    // One render per blob at a time, whoever asked first
+    private final Map<String, CompletableFuture<Optional<Path>>> inFlight = new ConcurrentHashMap<>();
+    // Content that could not be rendered (corrupt, encrypted, ...), not retried until restart
+    private final Set<String> failed = ConcurrentHashMap.newKeySet();
+
+    @Value("${chat.files.thumbnail-dir:./data/blobs/thumbnails}")
+    private String thumbnailDir;
+
+    private Path root;
+
+    public ThumbnailService(BlobStore blobStore,
+            @Value("${chat.files.thumbnail-size:320}") int size,
+            @Value("${chat.files.thumbnail-max-source-size:50MB}") DataSize maxSourceSize,
+            @Value("${chat.files.thumbnail-max-source-pixels:100000000}") long maxSourcePixels,
+            @Value("${chat.files.thumbnail-threads:2}") int threads,
+            @Value("${chat.files.thumbnail-queue-capacity:200}") int queueCapacity,
+            @Value("${chat.files.thumbnail-wait-ms:10000}") long waitMs) {
+        this.blobStore = blobStore;
+        this.size = size;
+        this.maxSourceBytes = maxSourceSize.toBytes();
+        this.maxSourcePixels = maxSourcePixels;
+        this.waitMs = waitMs;
+
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "thumbnail-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                });
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        root = Paths.get(thumbnailDir).toAbsolutePath().normalize();
+        Files.createDirectories(root);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Whether a thumbnail can be made for this content type and size
+     */
+    public boolean supports(String contentType, long fileSize) {
+        if (contentType == null || fileSize <= 0 || fileSize > maxSourceBytes) {
+            return false;
+        }
+        if (contentType.equalsIgnoreCase(PDF)) {
+            return true;
+        }
+        return contentType.startsWith("image/") && ImageIO.getImageReadersByMIMEType(contentType).hasNext();
+    }
+
+    /**
+     * Render in the background once the surrounding transaction (if any) has committed, so a rolled-back
+     * upload is never rendered. A full queue just skips it; the first request renders it instead.
+     */
+    public void generateAfterCommit(String hash, String contentType, long fileSize) {
+        if (hash == null || !supports(contentType, fileSize)) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submitQuietly(hash, contentType);
+                }
+            });
+        } else {
+            submitQuietly(hash, contentType);
+        }
+    }
+
+    /**
+     * The thumbnail of the given content, rendering it now if needed (waiting up to thumbnail-wait-ms).
+     * Empty if the content cannot be rendered.
+     *
+     * @throws TimeoutException           rendering is still under way
+     * @throws RejectedExecutionException the render queue is full
+     */
+    public Optional<Path> getThumbnail(String hash, String contentType, long fileSize)
+            throws IOException, TimeoutException {
+        if (hash == null || !supports(contentType, fileSize) || failed.contains(hash)) {
+            return Optional.empty();
+        }
+        Path thumbnail = thumbnailPath(hash);
+        if (Files.exists(thumbnail)) {
+            return Optional.of(thumbnail);
+        }
+
+        try {
+            return submit(hash, contentType).get(waitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while rendering thumbnail");
+        } catch (ExecutionException e) {
+            throw new IOException("Thumbnail rendering failed", e.getCause());
+        }
+    }
+
+    /**
+     * Remove the thumbnail of content that is being deleted
+     */
+    public void delete(String hash) throws IOException {
+        Files.deleteIfExists(thumbnailPath(hash));
+        failed.remove(hash);
+    }
+
+    private void submitQuietly(String hash, String contentType) {
+        try {
+            submit(hash, contentType);
+        } catch (RejectedExecutionException e) {
+            logger.debug("Thumbnail queue full, {} will be rendered on first request", hash);
+        }
+    }
+
+    private CompletableFuture<Optional<Path>> submit(String hash, String contentType) {
+        CompletableFuture<Optional<Path>> created = new CompletableFuture<>();
+        CompletableFuture<Optional<Path>> existing = inFlight.putIfAbsent(hash, created);
+        if (existing != null) {
+            return existing;
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    created.complete(render(hash, contentType));
+                } catch (Throwable e) {
+                    created.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(hash, created);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(hash, created);
+            throw e;
+        }
+        return created;
+    }
+
+    private Optional<Path> render(String hash, String contentType) throws IOException {
+        Path thumbnail = thumbnailPath(hash);
+        if (Files.exists(thumbnail)) {
+            return Optional.of(thumbnail);
+        }
+
+        BufferedImage source;
+        try {
+            source = contentType.equalsIgnoreCase(PDF) ? renderPdf(hash) : readImage(hash);
+        } catch (IOException | RuntimeException e) {
+            // Bad content stays bad; do not pay for it on every request
+            failed.add(hash);
+            logger.warn("⚠️ Could not render thumbnail for {} ({}): {}", hash, contentType, e.getMessage());
+            return Optional.empty();
+        }
+
+        Files.createDirectories(thumbnail.getParent());
+        Path temp = Files.createTempFile(thumbnail.getParent(), hash, ".tmp");
+        try {
+            ImageIO.write(fit(source), "jpg", temp.toFile());
+            try {
+                Files.move(temp, thumbnail, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, thumbnail, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return Optional.of(thumbnail);
+    }
+
+    private BufferedImage readImage(String hash) throws IOException {
+        try (InputStream content = blobStore.open(hash)) {
+            return ImageScaling.read(content, size, maxSourcePixels);
+        }
+    }
+
+    /**
+     * Render the first page at roughly twice the thumbnail size, buffering the document on disk
+     */
+    private BufferedImage renderPdf(String hash) throws IOException {
+        Optional<Path> local = blobStore.localPath(hash);
+        if (local.isPresent()) {
+            try (PDDocument document = PDDocument.load(local.get().toFile(), MemoryUsageSetting.setupTempFileOnly())) {
+                return renderFirstPage(document);
+            }
+        }
+        try (InputStream content = blobStore.open(hash);
+             PDDocument document = PDDocument.load(content, MemoryUsageSetting.setupTempFileOnly())) {
+            return renderFirstPage(document);
+        }
+    }
+
+    private BufferedImage renderFirstPage(PDDocument document) throws IOException {
+        if (document.getNumberOfPages() == 0) {
+            throw new IOException("PDF has no pages");
+        }
+        PDRectangle box = document.getPage(0).getCropBox();
+        float scale = size * 2f / Math.max(box.getWidth(), box.getHeight());
+        return new PDFRenderer(document).renderImage(0, scale, ImageType.RGB);
+    }
+
+    /**
+     * Scale to fit within size x size
+     */
+    private BufferedImage fit(BufferedImage source) {
+        double ratio = Math.min(1.0, (double) size / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+        return ImageScaling.scale(source, 0, 0, source.getWidth(), source.getHeight(), width, height, true);
+    }
+
+    private Path thumbnailPath(String hash) {
+        if (!hash.matches("[0-9a-f]{64}")) {
+            throw new IllegalArgumentException("Invalid blob hash");
+        }
+        return root.resolve(hash.substring(0, 2)).resolve(hash + ".jpg");
+    }
+}
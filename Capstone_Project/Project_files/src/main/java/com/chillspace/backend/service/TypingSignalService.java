@@ -0,0 +1,115 @@
+package com.chillspace.backend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ephemeral "who is typing" state per room. Nothing here is stored or replayed: signals only
+ * update in-memory state, and one flush per window broadcasts what changed in each room to
+ * /topic/signals.{room}. A user typing non-stop costs one broadcast per half TTL, not one per keystroke.
+ *
+ * Frames carry deltas (started / stopped) rather than the full set, so with several nodes behind a
+ * shared broker each node only reports its own users. Clients drop a name after ttlMs unless it is
+ * announced again, which also covers nodes that go away.
+ */
+@Service
+public class TypingSignalService {
+
+    public static final String TOPIC_PREFIX = "/topic/signals.";
+
+    private final SimpMessageSendingOperations messagingTemplate;
+    private final long ttlMs;
+
+    // room -> username -> state
+    private final Map<String, Map<String, Typist>> rooms = new ConcurrentHashMap<>();
+
+    public TypingSignalService(SimpMessageSendingOperations messagingTemplate,
+            @Value("${chat.signals.typing-ttl-ms:5000}") long ttlMs) {
+        this.messagingTemplate = messagingTemplate;
+        this.ttlMs = ttlMs;
+    }
+
+    public static String topic(String room) {
+        return TOPIC_PREFIX + room;
+    }
+
+    public void typing(String room, String username) {
+        long expiresAt = System.currentTimeMillis() + ttlMs;
+        // Under the room's map entry, so flush() cannot drop the room in between
+        rooms.compute(room, (r, typists) -> {
+            Map<String, Typist> result = typists != null ? typists : new ConcurrentHashMap<>();
+            Typist typist = result.get(username);
+            if (typist == null) {
+                result.put(username, new Typist(expiresAt));
+            } else {
+                typist.expiresAt = expiresAt;
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Stopped typing: cleared input, or sent the message
+     */
+    public void stopped(String room, String username) {
+        Map<String, Typist> typists = rooms.get(room);
+        if (typists == null) {
+            return;
+        }
+        Typist typist = typists.get(username);
+        if (typist != null) {
+            typist.expiresAt = 0;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${chat.signals.window-ms:500}")
+    public void flush() {
+        long now = System.currentTimeMillis();
+
+        for (Map.Entry<String, Map<String, Typist>> room : rooms.entrySet()) {
+            List<String> started = new ArrayList<>();
+            List<String> stopped = new ArrayList<>();
+
+            for (Iterator<Map.Entry<String, Typist>> users = room.getValue().entrySet().iterator(); users.hasNext(); ) {
+                Map.Entry<String, Typist> user = users.next();
+                Typist typist = user.getValue();
+                if (typist.expiresAt <= now) {
+                    users.remove();
+                    if (typist.announcedAt > 0) {
+                        stopped.add(user.getKey());
+                    }
+                } else if (now - typist.announcedAt >= ttlMs / 2) {
+                    // New, or due for a refresh before clients expire it
+                    typist.announcedAt = now;
+                    started.add(user.getKey());
+                }
+            }
+
+            if (!started.isEmpty() || !stopped.isEmpty()) {
+                messagingTemplate.convertAndSend(topic(room.getKey()),
+                        new TypingSignal(room.getKey(), started, stopped, ttlMs));
+            }
+            rooms.computeIfPresent(room.getKey(), (r, typists) -> typists.isEmpty() ? null : typists);
+        }
+    }
+
+    private static final class Typist {
+        private volatile long expiresAt;
+        private volatile long announcedAt;
+
+        private Typist(long expiresAt) {
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    public record TypingSignal(String room, List<String> typing, List<String> stopped, long ttlMs) {
+    }
+}
@@ -0,0 +1,129 @@
+package com.chillspace.backend.service;
+
+import com.chillspace.backend.model.Message;
+import com.chillspace.backend.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cached user id -> current username. Messages reference their sender by id, so the name shown
+ * is looked up here when they are served and a rename only touches the users row.
+ * Entries expire so renames made on another node show up here too.
+ */
+@Service
+public class UserDirectory {
+
+    private final UserRepository userRepository;
+    private final Map<Long, Entry> usernames = new ConcurrentHashMap<>();
+
+    // Bumped on every user change made through this node (see changed()); counted from this start
+    private final long epoch = System.currentTimeMillis();
+    private final AtomicLong version = new AtomicLong();
+
+    @Value("${chat.users.name-cache-ttl-ms:300000}")
+    private long ttlMs;
+
+    public UserDirectory(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Current username for the id, or null if there is no such user
+     */
+    public String usernameOf(Long userId) {
+        if (userId == null) {
+            return null;
+        }
+        Entry entry = usernames.get(userId);
+        if (entry != null && !entry.isExpired(ttlMs)) {
+            return entry.username;
+        }
+        String username = userRepository.findUsernameById(userId).orElse(null);
+        if (username != null) {
+            usernames.put(userId, new Entry(username));
+        }
+        return username;
+    }
+
+    /**
+     * Called after a rename is saved, so this node serves the new name right away
+     */
+    public void rename(Long userId, String newUsername) {
+        usernames.put(userId, new Entry(newUsername));
+        changed();
+    }
+
+    /**
+     * Called after anything shown in user listings changes: sign-ups, profile, avatar, role, ban
+     */
+    public void changed() {
+        version.incrementAndGet();
+    }
+
+    /**
+     * Version of the user data as seen by this node. Changes made on other nodes are not counted,
+     * so it also moves on every cache TTL period, the same staleness bound as cached usernames.
+     */
+    public String getVersion() {
+        return epoch + "." + version.get() + "." + (System.currentTimeMillis() / ttlMs);
+    }
+
+    /**
+     * Replace the stored sender name (the name at send time) with the sender's current name.
+     * Only use on detached messages; on a managed entity this would be written back.
+     */
+    public <T extends Collection<Message>> T resolve(T messages) {
+        Set<Long> missing = new HashSet<>();
+        for (Message message : messages) {
+            Long senderId = message.getSenderId();
+            if (senderId != null) {
+                Entry entry = usernames.get(senderId);
+                if (entry == null || entry.isExpired(ttlMs)) {
+                    missing.add(senderId);
+                }
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            for (Object[] row : userRepository.findUsernamesByIds(missing)) {
+                usernames.put((Long) row[0], new Entry((String) row[1]));
+            }
+        }
+
+        for (Message message : messages) {
+            if (message.getSenderId() != null) {
+                Entry entry = usernames.get(message.getSenderId());
+                if (entry != null) {
+                    message.setSender(entry.username);
+                }
+            }
+        }
+        return messages;
+    }
+
+    public Message resolve(Message message) {
+        resolve(List.of(message));
+        return message;
+    }
+
+    private static class Entry {
+        private final String username;
+        private final long loadedAt = System.currentTimeMillis();
+
+        Entry(String username) {
+            this.username = username;
+        }
+
+        boolean isExpired(long ttlMs) {
+            return System.currentTimeMillis() - loadedAt > ttlMs;
+        }
+    }
+}
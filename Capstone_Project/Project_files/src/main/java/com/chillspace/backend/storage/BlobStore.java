@@ -0,0 +1,51 @@
+package com.chillspace.backend.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Content-addressed storage for file contents. A blob is named by the hex SHA-256 of its bytes,
+ * so identical uploads are stored once and a stored blob never changes.
+ * Metadata (names, owners, content types) lives in the database, not here.
+ */
+public interface BlobStore {
+
+    /**
+     * Stream the content into the store and return its hash and size.
+     * Implementations must not buffer the whole content in memory.
+     */
+    StoredBlob put(InputStream content) throws IOException;
+
+    /**
+     * Store a complete file (e.g. an assembled chunked upload). The file is left where it is, so the
+     * caller can keep it until the blob is referenced and delete it then; it must not change afterwards.
+     * The default streams it through {@link #put}; stores on the same filesystem can just link it.
+     */
+    default StoredBlob putFile(Path file) throws IOException {
+        try (InputStream content = Files.newInputStream(file)) {
+            return put(content);
+        }
+    }
+
+    /**
+     * Read the blob from the start
+     */
+    InputStream open(String hash) throws IOException;
+
+    boolean exists(String hash);
+
+    void delete(String hash) throws IOException;
+
+    /**
+     * The blob as a local file, when the store keeps one, so it can be sent with zero-copy I/O
+     */
+    default Optional<Path> localPath(String hash) {
+        return Optional.empty();
+    }
+
+    record StoredBlob(String hash, long size) {
+    }
+}
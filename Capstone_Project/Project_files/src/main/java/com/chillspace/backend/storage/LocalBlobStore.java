@@ -0,0 +1,158 @@
+package com.chillspace.backend.storage;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Blobs as files under chat.files.blob-dir, at ab/cd/abcd...{64 hex chars}.
+ * Content is written to a temp file while hashing, then moved into place, so readers
+ * never see a partial blob and a second copy of the same content is simply discarded.
+ */
+@Component
+@ConditionalOnProperty(name = "chat.files.store", havingValue = "local", matchIfMissing = true)
+public class LocalBlobStore implements BlobStore {
+
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Value("${chat.files.blob-dir:./data/blobs}")
+    private String blobDir;
+
+    private Path root;
+    private Path tempDir;
+
+    @PostConstruct
+    public void init() throws IOException {
+        root = Paths.get(blobDir).toAbsolutePath().normalize();
+        tempDir = root.resolve("tmp");
+        Files.createDirectories(tempDir);
+    }
+
+    @Override
+    public StoredBlob put(InputStream content) throws IOException {
+        MessageDigest digest = sha256();
+        Path temp = Files.createTempFile(tempDir, "upload-", ".part");
+        long size = 0;
+
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE);
+                 OutputStream out = Channels.newOutputStream(channel)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = content.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                    out.write(buffer, 0, read);
+                    size += read;
+                }
+                channel.force(true);
+            }
+
+            String hash = HexFormat.of().formatHex(digest.digest());
+            moveIntoPlace(temp, hash);
+            return new StoredBlob(hash, size);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Hash the file in place and hard-link it into the store, so a finished chunked upload is
+     * read once and never copied, and stays in place until the caller deletes it.
+     * Falls back to copying when it lives on another filesystem or links are not supported.
+     */
+    @Override
+    public StoredBlob putFile(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        long size = 0;
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+                size += read;
+            }
+        }
+
+        String hash = HexFormat.of().formatHex(digest.digest());
+        Path target = path(hash);
+        if (!Files.exists(target)) {
+            Files.createDirectories(target.getParent());
+            try {
+                Files.createLink(target, file);
+            } catch (FileAlreadyExistsException e) {
+                // Same content stored concurrently; the existing copy is identical
+            } catch (UnsupportedOperationException | FileSystemException e) {
+                return BlobStore.super.putFile(file);
+            }
+        }
+        return new StoredBlob(hash, size);
+    }
+
+    private void moveIntoPlace(Path source, String hash) throws IOException {
+        Path target = path(hash);
+        if (!Files.exists(target)) {
+            Files.createDirectories(target.getParent());
+            try {
+                Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // Same content stored concurrently; the existing copy is identical
+            }
+        }
+    }
+
+    @Override
+    public InputStream open(String hash) throws IOException {
+        return Files.newInputStream(path(hash));
+    }
+
+    @Override
+    public boolean exists(String hash) {
+        return Files.exists(path(hash));
+    }
+
+    @Override
+    public void delete(String hash) throws IOException {
+        Files.deleteIfExists(path(hash));
+    }
+
+    @Override
+    public Optional<Path> localPath(String hash) {
+        Path path = path(hash);
+        return Files.exists(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    private Path path(String hash) {
+        if (hash == null || !HASH.matcher(hash).matches()) {
+            throw new IllegalArgumentException("Invalid blob hash: " + hash);
+        }
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
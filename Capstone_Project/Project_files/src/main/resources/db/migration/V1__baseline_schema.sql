@@ -0,0 +1,52 @@
+-- Schema as previously created by spring.jpa.hibernate.ddl-auto=update, before any of the
+-- changes in later migrations. Existing databases are baselined at this version and skip it.
+
+CREATE TABLE users (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    avatar_style VARCHAR(255),
+    avatar_url VARCHAR(255),
+    banned_at DATETIME(6),
+    banned_by VARCHAR(255),
+    created_at DATETIME(6) NOT NULL,
+    email VARCHAR(255) NOT NULL,
+    is_banned BIT,
+    is_online BIT NOT NULL,
+    last_seen DATETIME(6),
+    password VARCHAR(255) NOT NULL,
+    role ENUM ('USER','MODERATOR','ADMIN') NOT NULL,
+    username VARCHAR(255) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT UK_6dotkott2kjsp8vw4d0m25fb7 UNIQUE (email),
+    CONSTRAINT UK_r43af9ap4edm43mmtq01oddj6 UNIQUE (username)
+) ENGINE=InnoDB;
+
+CREATE TABLE messages (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    content VARCHAR(255),
+    sender VARCHAR(255),
+    sender_role ENUM ('USER','MODERATOR','ADMIN'),
+    timestamp DATETIME(6),
+    type ENUM ('CHAT','JOIN','LEAVE','DELETE','USER_UPDATE'),
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE profile_images (
+    user_id BIGINT NOT NULL,
+    image_data LONGTEXT,
+    image_type VARCHAR(255),
+    PRIMARY KEY (user_id),
+    CONSTRAINT FK6577qi31mxp06kavqxmt68fds FOREIGN KEY (user_id) REFERENCES users (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE shared_files (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    content_type VARCHAR(255),
+    description VARCHAR(500),
+    file_data LONGBLOB,
+    file_size BIGINT,
+    filename VARCHAR(255) NOT NULL,
+    original_filename VARCHAR(255) NOT NULL,
+    uploaded_at DATETIME(6) NOT NULL,
+    uploaded_by VARCHAR(255) NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
@@ -0,0 +1,12 @@
+-- Indexes for the remaining repository queries that scanned whole tables.
+-- messages(timestamp) lookups already use idx_messages_timestamp_id (leftmost column);
+-- per-sender queries use idx_messages_sender_id_timestamp from V2.
+
+-- resetOnlineStatus, countByIsBanned, countByCreatedAtAfter
+CREATE INDEX idx_users_is_online ON users (is_online);
+CREATE INDEX idx_users_is_banned ON users (is_banned);
+CREATE INDEX idx_users_created_at ON users (created_at);
+
+-- findAllByOrderByUploadedAtDesc, findAllMetadataOnly, findByUploadedByOrderByUploadedAtDesc
+CREATE INDEX idx_shared_files_uploaded_at ON shared_files (uploaded_at);
+CREATE INDEX idx_shared_files_uploaded_by_uploaded_at ON shared_files (uploaded_by, uploaded_at);
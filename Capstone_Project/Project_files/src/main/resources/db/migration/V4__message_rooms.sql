@@ -0,0 +1,8 @@
+-- Chat rooms: every existing message belongs to the default room.
+-- History pages are read per room, so the keyset index leads with room_id.
+-- (Native MySQL partitioning by room is not possible here: every unique key,
+-- including the id primary key, would have to contain room_id.)
+
+ALTER TABLE messages ADD COLUMN room_id VARCHAR(64) NOT NULL DEFAULT 'public';
+
+CREATE INDEX idx_messages_room_timestamp_id ON messages (room_id, timestamp, id);
@@ -0,0 +1,7 @@
+-- File contents move out of the table into the blob store, addressed by SHA-256.
+-- file_data stays until FileBlobMigrationService has moved every existing row; it is
+-- emptied row by row and can be dropped in a later migration.
+
+ALTER TABLE shared_files ADD COLUMN blob_hash VARCHAR(64);
+
+CREATE INDEX idx_shared_files_blob_hash ON shared_files (blob_hash);
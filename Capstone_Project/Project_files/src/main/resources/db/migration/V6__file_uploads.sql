@@ -0,0 +1,16 @@
+-- Chunked uploads in progress; the received bytes live in part files under chat.files.upload-dir
+
+CREATE TABLE file_uploads (
+    id VARCHAR(36) NOT NULL,
+    uploaded_by VARCHAR(255) NOT NULL,
+    original_filename VARCHAR(255) NOT NULL,
+    content_type VARCHAR(255),
+    description VARCHAR(500),
+    total_size BIGINT NOT NULL,
+    received_bytes BIGINT NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    updated_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+CREATE INDEX idx_file_uploads_updated_at ON file_uploads (updated_at);
@@ -0,0 +1,19 @@
+-- Reference counts for content blobs, so identical uploads are stored once and deletes only
+-- release a reference. Existing rows are counted here; rows still being moved out of
+-- file_data are counted by FileBlobMigrationService as it goes.
+
+CREATE TABLE file_blobs (
+    hash VARCHAR(64) NOT NULL,
+    size BIGINT NOT NULL,
+    ref_count INTEGER NOT NULL,
+    updated_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (hash)
+) ENGINE=InnoDB;
+
+CREATE INDEX idx_file_blobs_ref_count_updated_at ON file_blobs (ref_count, updated_at);
+
+INSERT INTO file_blobs (hash, size, ref_count, updated_at)
+SELECT blob_hash, MAX(file_size), COUNT(*), NOW(6)
+FROM shared_files
+WHERE blob_hash IS NOT NULL
+GROUP BY blob_hash;
@@ -0,0 +1,7 @@
+-- SHA-256 of each avatar's image bytes, used as its ETag and cache-busting version
+
+ALTER TABLE profile_images ADD COLUMN image_hash VARCHAR(64);
+
+UPDATE profile_images
+SET image_hash = COALESCE(SHA2(FROM_BASE64(image_data), 256), SHA2(image_data, 256))
+WHERE image_data IS NOT NULL;
@@ -0,0 +1,30 @@
+-- Profile images as raw bytes instead of base64 text, pre-rendered size variants, and a version
+-- stamp on users for avatar URLs (replacing image_hash). Variants of existing images are rendered
+-- on first request.
+
+ALTER TABLE profile_images ADD COLUMN image_bytes LONGBLOB;
+
+UPDATE profile_images
+SET image_bytes = COALESCE(FROM_BASE64(image_data), image_data)
+WHERE image_data IS NOT NULL;
+
+-- Rows without an image never served one
+DELETE FROM profile_images WHERE image_bytes IS NULL;
+
+ALTER TABLE profile_images DROP COLUMN image_data, DROP COLUMN image_hash;
+ALTER TABLE profile_images RENAME COLUMN image_bytes TO image_data;
+
+ALTER TABLE users ADD COLUMN avatar_version BIGINT;
+
+UPDATE users u
+JOIN profile_images p ON p.user_id = u.id
+SET u.avatar_version = ROUND(UNIX_TIMESTAMP(NOW(3)) * 1000);
+
+CREATE TABLE profile_image_variants (
+    user_id BIGINT NOT NULL,
+    size INT NOT NULL,
+    image_data MEDIUMBLOB NOT NULL,
+    image_type VARCHAR(255) NOT NULL,
+    PRIMARY KEY (user_id, size),
+    CONSTRAINT fk_profile_image_variants_image FOREIGN KEY (user_id) REFERENCES profile_images (user_id) ON DELETE CASCADE
+) ENGINE=InnoDB;
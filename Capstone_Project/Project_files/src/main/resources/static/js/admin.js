@@ -70,15 +70,43 @@ async function loadStats() {
             animateCounter('messagesToday', stats.messagesToday);
             animateCounter('bannedUsers', stats.bannedUsers);
 
-            // Format storage
+            // Format storage: all files as uploaded, and what is on disk with duplicates stored once
             const storageMB = (stats.storageUsed / (1024 * 1024)).toFixed(2);
             document.getElementById('storageUsed').textContent = storageMB + ' MB';
+            const storedMB = ((stats.storageStored || 0) / (1024 * 1024)).toFixed(2);
+            document.getElementById('storageStored').textContent = storedMB + ' MB';
         }
     } catch (error) {
         console.error('Error loading stats:', error);
     }
 
     loadActivityChart();
+    loadRoomStats();
+}
+
+async function loadRoomStats() {
+    try {
+        const response = await fetch('/api/admin/stats/rooms', {
+            headers: { 'Authorization': 'Bearer ' + token }
+        });
+
+        if (response.ok) {
+            const rooms = await response.json();
+            const tbody = document.getElementById('roomsTableBody');
+            if (!tbody) return;
+
+            tbody.innerHTML = rooms.map(room => `
+                <tr>
+                    <td>#${room.room}</td>
+                    <td>${room.messagesToday.toLocaleString()}</td>
+                    <td>${room.totalMessages.toLocaleString()}</td>
+                    <td>${room.subscribers}</td>
+                </tr>
+            `).join('');
+        }
+    } catch (error) {
+        console.error('Error loading room stats:', error);
+    }
 }
 
 function animateCounter(id, target) {
@@ -331,6 +359,9 @@ async function spyUser(id, targetUsername) {
                 <h3>${targetUsername}</h3>
                 <p>Message History</p>
             </div>
+            <button class="action-btn ban" id="spyDeleteAll" style="margin-left: auto; display: none;">
+                <i class="fas fa-trash"></i> Delete all
+            </button>
         </div>
         <div class="spy-messages" id="spyMessages">
             <p style="text-align: center; color: #606070;">Loading messages...</p>
@@ -358,12 +389,43 @@ async function spyUser(id, targetUsername) {
                     <div class="spy-message-content">${msg.content}</div>
                 </div>
             `).join('');
+
+            const deleteAllBtn = document.getElementById('spyDeleteAll');
+            deleteAllBtn.style.display = 'inline-block';
+            deleteAllBtn.onclick = () => bulkDeleteMessages(messages.map(msg => msg.id), id, targetUsername);
         }
     } catch (error) {
         console.error('Error loading messages:', error);
     }
 }
 
+// One request, one DELETE statement, one broadcast to connected clients
+async function bulkDeleteMessages(ids, userId, targetUsername) {
+    if (!confirm(`Delete all ${ids.length} messages from ${targetUsername}?`)) return;
+
+    try {
+        const response = await fetch('/api/chat/bulk-delete', {
+            method: 'POST',
+            headers: {
+                'Authorization': 'Bearer ' + token,
+                'Content-Type': 'application/json'
+            },
+            body: JSON.stringify({ ids })
+        });
+
+        if (response.ok) {
+            const result = await response.json();
+            showNotification(`Deleted ${result.deleted} messages`);
+            spyUser(userId, targetUsername);
+        } else {
+            const error = await response.json();
+            showNotification(error.message || 'Failed to delete messages');
+        }
+    } catch (error) {
+        console.error('Error:', error);
+    }
+}
+
 // ═══════════════════════════════════════════════════
 // 🔔 NOTIFICATIONS
 // ═══════════════════════════════════════════════════
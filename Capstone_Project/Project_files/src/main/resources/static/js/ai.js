@@ -70,6 +70,7 @@ document.addEventListener('DOMContentLoaded', () => {
             })
         })
             .then(res => {
+                if (res.status === 429) throw new Error('rate-limited');
                 if (!res.ok) throw new Error(`Server returned ${res.status}`);
                 return res.json();
             })
@@ -99,7 +100,9 @@ document.addEventListener('DOMContentLoaded', () => {
                 console.error('AI Error:', err);
                 const bubble = loadingEl.querySelector('.ai-bubble');
                 if (bubble) {
-                    bubble.textContent = "Oops! I'm having trouble connecting right now 😔";
+                    bubble.textContent = err.message === 'rate-limited'
+                        ? "Whoa, that's a lot of questions! Give me a moment and try again ⏳"
+                        : "Oops! I'm having trouble connecting right now 😔";
                 }
             })
             .finally(() => {
@@ -11,6 +11,32 @@ let onlineUsers = new Set();
 let allUsersCache = [];
 let lastDisplayedDate = null;
 
+// Chat history paging (keyset cursor = oldest message id on screen)
+const HISTORY_PAGE_SIZE = 50;
+let oldestMessageId = null;
+let historyExhausted = false;
+let historyLoading = false;
+
+// Reconnect catch-up cursor (server broadcast sequence + last message id seen)
+let seqEpoch = null;
+let lastSeq = 0;
+let lastMessageId = null;
+let hasConnectedBefore = false;
+
+// Chat rooms: chat traffic comes from /topic/room.<room>, presence from /topic/public
+const ROOM_NAME_PATTERN = /^[a-z0-9][a-z0-9_-]{0,31}$/;
+let currentRoom = ROOM_NAME_PATTERN.test(localStorage.getItem('chat_room') || '') ? localStorage.getItem('chat_room') : 'public';
+let roomSubscription = null;
+
+// Typing indicators (ephemeral, /topic/signals.<room>): who is typing, each with an expiry timer
+const typingUsers = new Map();
+let typingSubscription = null;
+let typingTtlMs = 5000;
+let lastTypingSentAt = 0;
+
+// Native WebSocket + CBOR frames when the browser supports it, SockJS + JSON otherwise
+let useNativeTransport = 'WebSocket' in window && typeof CBOR !== 'undefined';
+
 // DOM Elements (Updated for new HTML structure)
 const chatInput = document.getElementById('chatInput');
 const chatMessages = document.getElementById('chatMessages');
@@ -62,6 +88,79 @@ function initializeApp() {
     loadAllUsers().then(() => {
         loadChatHistory();
     });
+    loadRooms();
+}
+
+// ═══════════════════════════════════════════════════
+// #️⃣ ROOMS
+// ═══════════════════════════════════════════════════
+function loadRooms() {
+    const roomSelect = document.getElementById('roomSelect');
+    if (!roomSelect) return;
+
+    fetch('/api/chat/rooms', {
+        headers: {
+            'Authorization': 'Bearer ' + token
+        }
+    })
+        .then(response => response.ok ? response.json() : [])
+        .then(rooms => {
+            const names = rooms.map(room => room.name);
+            if (!names.includes(currentRoom)) names.push(currentRoom);
+            roomSelect.innerHTML = names.map(name => `<option value="${name}"># ${name}</option>`).join('')
+                + '<option value="__new">+ New room…</option>';
+            roomSelect.value = currentRoom;
+        })
+        .catch(error => {
+            console.error('Error loading rooms:', error);
+        });
+
+    roomSelect.onchange = () => {
+        if (roomSelect.value !== '__new') {
+            switchRoom(roomSelect.value);
+            return;
+        }
+        const name = (prompt('Room name (lowercase letters, digits, - and _)') || '').trim().toLowerCase();
+        if (!ROOM_NAME_PATTERN.test(name)) {
+            if (name) showNotification('Invalid room name', 'error');
+            roomSelect.value = currentRoom;
+            return;
+        }
+        if (!roomSelect.querySelector(`option[value="${name}"]`)) {
+            roomSelect.insertBefore(new Option('# ' + name, name), roomSelect.lastElementChild);
+        }
+        roomSelect.value = name;
+        switchRoom(name);
+    };
+}
+
+function switchRoom(room) {
+    if (room === currentRoom) return;
+
+    currentRoom = room;
+    localStorage.setItem('chat_room', room);
+
+    // Start the timeline over for the new room
+    chatMessages.querySelectorAll(':scope > :not(.welcome-banner)').forEach(element => element.remove());
+    lastDisplayedDate = null;
+    oldestMessageId = null;
+    historyExhausted = false;
+    seqEpoch = null;
+    lastSeq = 0;
+    lastMessageId = null;
+    typingUsers.forEach(timer => clearTimeout(timer));
+    typingUsers.clear();
+    lastTypingSentAt = 0;
+    renderTypingIndicator();
+
+    if (stompClient && stompClient.connected) {
+        if (roomSubscription) roomSubscription.unsubscribe();
+        if (typingSubscription) typingSubscription.unsubscribe();
+        roomSubscription = stompClient.subscribe('/topic/room.' + room, onMessageReceived);
+        typingSubscription = stompClient.subscribe('/topic/signals.' + room, onTypingSignal);
+        catchUpMissedMessages(false);
+    }
+    loadChatHistory();
 }
 
 // ═══════════════════════════════════════════════════
@@ -316,10 +415,18 @@ function parseJwt(token) {
     }
 }
 
-function getAvatarUrl(targetUsername) {
+// Pre-rendered square avatar sizes on the server; larger displays get the original
+const AVATAR_SIZES = [32, 64, 128];
+
+// displaySize: CSS pixels the avatar is shown at, to pick the smallest variant that stays sharp
+function getAvatarUrl(targetUsername, displaySize) {
     const userInfo = allUsersCache.find(u => u.username === targetUsername);
     if (userInfo?.hasProfileImage) {
-        return `/api/users/${targetUsername}/avatar?t=${Date.now()}`;
+        // Every upload changes the version, so the browser keeps each URL until the avatar changes
+        const needed = Math.ceil(displaySize * (window.devicePixelRatio || 1));
+        const size = AVATAR_SIZES.find(s => s >= needed);
+        return `/api/users/${encodeURIComponent(targetUsername)}/avatar?v=${userInfo.avatarVersion}`
+            + (size ? `&size=${size}` : '');
     }
     // Default fallback to local asset
     return 'Assets/pfp2.jpg';
@@ -328,7 +435,7 @@ function getAvatarUrl(targetUsername) {
 function updateUserUI() {
     // Update sidebar avatar and username
     if (sidebarAvatar) {
-        sidebarAvatar.src = getAvatarUrl(username);
+        sidebarAvatar.src = getAvatarUrl(username, 40);
     }
     if (sidebarUsername) {
         sidebarUsername.textContent = username;
@@ -355,17 +462,63 @@ function updateUserUI() {
 function connectWebSocket() {
     console.log('🔗 Connecting to WebSocket...');
 
-    const socket = new SockJS('/ws');
+    const headers = { 'Authorization': 'Bearer ' + token };
+    let socket;
+    if (useNativeTransport) {
+        const scheme = window.location.protocol === 'https:' ? 'wss' : 'ws';
+        socket = new WebSocket(`${scheme}://${window.location.host}/ws-native`);
+        socket.binaryType = 'arraybuffer';
+        headers['codec'] = 'cbor';
+    } else {
+        socket = new SockJS('/ws');
+    }
+
     stompClient = Stomp.over(socket);
     stompClient.debug = null;
 
-    stompClient.connect({}, onConnected, onError);
+    // The JWT authenticates the STOMP session once, on CONNECT
+    stompClient.connect(headers, onConnected, onError);
+
+    if (useNativeTransport) {
+        // stomp.js splits binary frames on NUL bytes, so hand it CBOR frames re-encoded as JSON text
+        const handleFrame = socket.onmessage;
+        socket.onmessage = event => handleFrame({ data: decodeBinaryFrame(event.data) });
+    }
+}
+
+function decodeBinaryFrame(data) {
+    if (!(data instanceof ArrayBuffer)) return data;
+
+    const bytes = new Uint8Array(data);
+    let headerEnd = -1;
+    for (let i = 0; i < bytes.length - 1; i++) {
+        if (bytes[i] === 10 && bytes[i + 1] === 10) {
+            headerEnd = i;
+            break;
+        }
+    }
+    if (headerEnd < 0) return new TextDecoder().decode(bytes);
+
+    const headerLines = new TextDecoder().decode(bytes.subarray(0, headerEnd)).split('\n');
+    const lengthLine = headerLines.find(line => line.startsWith('content-length:'));
+    const bodyStart = headerEnd + 2;
+    const bodyEnd = lengthLine ? bodyStart + parseInt(lengthLine.substring(15), 10) : bytes.lastIndexOf(0);
+    const body = JSON.stringify(CBOR.decode(bytes.slice(bodyStart, bodyEnd).buffer));
+
+    const textHeaders = headerLines.filter(line =>
+        !line.startsWith('content-length:') && !line.startsWith('content-type:'));
+    textHeaders.push('content-type:application/json');
+    return textHeaders.join('\n') + '\n\n' + body + '\0';
 }
 
 function onConnected() {
     console.log('✅ WebSocket connected');
 
     stompClient.subscribe('/topic/public', onMessageReceived);
+    // Messages of ours the server refused or could not store
+    stompClient.subscribe('/user/queue/errors', onErrorReceived);
+    roomSubscription = stompClient.subscribe('/topic/room.' + currentRoom, onMessageReceived);
+    typingSubscription = stompClient.subscribe('/topic/signals.' + currentRoom, onTypingSignal);
 
     stompClient.send('/app/chat.addUser', {}, JSON.stringify({
         sender: username,
@@ -373,12 +526,73 @@ function onConnected() {
     }));
 
     fetchOnlineUsers();
+
+    // After a reconnect, replay what we missed instead of reloading history
+    catchUpMissedMessages(hasConnectedBefore);
+    hasConnectedBefore = true;
+}
+
+function trackMessageCursor(message) {
+    if (message.seq != null && message.seq > lastSeq) lastSeq = message.seq;
+    if (message.id != null && (lastMessageId == null || message.id > lastMessageId)) lastMessageId = message.id;
+}
+
+function isMessageDisplayed(message) {
+    return message.id != null && chatMessages.querySelector(`[data-id="${message.id}"]`) !== null;
+}
+
+function catchUpMissedMessages(replay) {
+    const params = new URLSearchParams();
+    if (replay && seqEpoch != null) {
+        params.set('epoch', seqEpoch);
+        params.set('since', lastSeq);
+    } else if (replay) {
+        params.set('since', 0);
+    }
+    // The id cursor is the fallback, and all a server behind a broker relay uses (its sequence is per node)
+    if (replay && lastMessageId != null) params.set('lastId', lastMessageId);
+    params.set('room', currentRoom);
+    const room = currentRoom;
+
+    fetch(`/api/chat/catchup?${params}`, {
+        headers: {
+            'Authorization': 'Bearer ' + token
+        }
+    })
+        .then(response => {
+            if (!response.ok) throw new Error('Failed to catch up');
+            return response.json();
+        })
+        .then(result => {
+            if (room !== currentRoom) return; // Switched rooms meanwhile
+            seqEpoch = result.epoch;
+            result.messages.forEach(applyChatEvent);
+            if (result.seq > lastSeq) lastSeq = result.seq;
+            if (replay) console.log(`🔁 Caught up ${result.messages.length} messages (${result.source})`);
+        })
+        .catch(error => {
+            console.error('Error catching up:', error);
+        });
 }
 
 function onError(error) {
+    // The server answers a rate-limited send with an ERROR frame, then closes the socket;
+    // the close that follows triggers the reconnect
+    if (error && error.command === 'ERROR') {
+        const reason = error.headers && error.headers.message;
+        console.warn('⚠️ STOMP error:', reason);
+        if (reason && reason.indexOf('Rate limit') !== -1) {
+            showNotification('You are sending messages too fast. Please slow down.', 'error');
+        }
+        return;
+    }
+
     console.error('❌ WebSocket error:', error);
     showNotification('Connection lost. Reconnecting...', 'error');
 
+    // Native WebSocket never got through (proxy, old browser): stay on SockJS from now on
+    if (useNativeTransport && !hasConnectedBefore) useNativeTransport = false;
+
     setTimeout(() => {
         connectWebSocket();
     }, 5000);
@@ -396,8 +610,8 @@ function onMessageReceived(payload) {
             onlineUsers.delete(message.sender);
             refreshMembersLists();
             displayEventMessage(`${message.sender} left the chat`);
-        } else if (message.type === 'CHAT') {
-            displayChatMessage(message);
+        } else if (message.type === 'CHAT' || message.type === 'DELETE' || message.type === 'EDIT') {
+            applyChatEvent(message);
         } else if (message.type === 'USER_UPDATE') {
             console.log('🔄 User update received:', message.sender);
             loadAllUsers(); // Refresh user cache
@@ -415,6 +629,30 @@ function onMessageReceived(payload) {
     }
 }
 
+// Apply a timeline event (new, deleted or edited message) to the local view
+function applyChatEvent(message) {
+    if (message.roomId && message.roomId !== currentRoom) return;
+    if (message.type === 'CHAT') {
+        if (!isMessageDisplayed(message)) {
+            displayChatMessage(message);
+        }
+    } else if (message.type === 'DELETE') {
+        (message.messageIds || []).forEach(id => {
+            chatMessages.querySelector(`[data-id="${id}"]`)?.remove();
+        });
+    } else if (message.type === 'EDIT') {
+        const element = chatMessages.querySelector(`[data-id="${message.id}"]`);
+        if (element) {
+            element.querySelector('.message-body').textContent = message.content;
+            const text = element.querySelector('.message-text');
+            if (!text.querySelector('.message-edited')) {
+                text.appendChild(createEditedLabel());
+            }
+        }
+    }
+    trackMessageCursor(message);
+}
+
 // ═══════════════════════════════════════════════════
 // 💬 MESSAGE HANDLING (UPDATED FOR NEW DESIGN)
 // ═══════════════════════════════════════════════════
@@ -437,7 +675,8 @@ function sendMessage(event) {
     };
 
     try {
-        stompClient.send('/app/chat.sendMessage', {}, JSON.stringify(chatMessage));
+        stompClient.send('/app/chat.sendMessage/' + currentRoom, {}, JSON.stringify(chatMessage));
+        lastTypingSentAt = 0; // Sending clears our typing state on the server
         chatInput.value = '';
         if (charCount) charCount.textContent = '0';
     } catch (error) {
@@ -446,9 +685,73 @@ function sendMessage(event) {
     }
 }
 
+// ═══════════════════════════════════════════════════
+// ✍️ TYPING INDICATORS
+// ═══════════════════════════════════════════════════
+
+// The server keeps us "typing" for its TTL, so re-send at most every half TTL
+function sendTypingSignal(typing) {
+    if (!stompClient || !stompClient.connected) return;
+
+    const now = Date.now();
+    if (typing && now - lastTypingSentAt < typingTtlMs / 2) return;
+    if (!typing && lastTypingSentAt === 0) return;
+
+    stompClient.send('/app/chat.typing/' + currentRoom, {}, JSON.stringify({ typing }));
+    lastTypingSentAt = typing ? now : 0;
+}
+
+function onTypingSignal(payload) {
+    try {
+        const signal = JSON.parse(payload.body);
+        if (signal.room !== currentRoom) return;
+        if (signal.ttlMs) typingTtlMs = signal.ttlMs;
+
+        (signal.typing || []).forEach(name => {
+            if (name === username) return;
+            clearTimeout(typingUsers.get(name));
+            // Forget the name unless the server announces it again
+            typingUsers.set(name, setTimeout(() => {
+                typingUsers.delete(name);
+                renderTypingIndicator();
+            }, typingTtlMs));
+        });
+        (signal.stopped || []).forEach(name => {
+            clearTimeout(typingUsers.get(name));
+            typingUsers.delete(name);
+        });
+        renderTypingIndicator();
+    } catch (error) {
+        console.error('Error processing typing signal:', error);
+    }
+}
+
+function renderTypingIndicator() {
+    const indicator = document.getElementById('typingIndicator');
+    const text = document.getElementById('typingText');
+    if (!indicator) return;
+
+    const names = [...typingUsers.keys()];
+    if (names.length === 0) {
+        indicator.style.display = 'none';
+        return;
+    }
+
+    if (text) {
+        if (names.length === 1) text.textContent = `${names[0]} is typing`;
+        else if (names.length === 2) text.textContent = `${names[0]} and ${names[1]} are typing`;
+        else text.textContent = 'Several people are typing';
+    }
+    indicator.style.display = '';
+}
+
+function getDateKey(date) {
+    return date.toLocaleDateString('en-US', { year: 'numeric', month: 'short', day: 'numeric' });
+}
+
 function displayChatMessage(message) {
     const messageDate = message.timestamp ? new Date(message.timestamp) : new Date();
-    const dateKey = messageDate.toLocaleDateString('en-US', { year: 'numeric', month: 'short', day: 'numeric' });
+    const dateKey = getDateKey(messageDate);
 
     // Insert date divider if date changed
     if (lastDisplayedDate !== dateKey) {
@@ -456,6 +759,13 @@ function displayChatMessage(message) {
         lastDisplayedDate = dateKey;
     }
 
+    chatMessages.appendChild(createChatMessageElement(message));
+    scrollToBottom();
+}
+
+function createChatMessageElement(message) {
+    const messageDate = message.timestamp ? new Date(message.timestamp) : new Date();
+
     const messageElement = document.createElement('div');
     messageElement.classList.add('message');
     messageElement.setAttribute('data-id', message.id || '');
@@ -465,7 +775,7 @@ function displayChatMessage(message) {
 
     // Avatar
     const avatar = document.createElement('img');
-    avatar.src = getAvatarUrl(message.sender);
+    avatar.src = getAvatarUrl(message.sender, 40);
     avatar.classList.add('message-avatar');
     avatar.alt = message.sender;
     messageElement.appendChild(avatar);
@@ -512,7 +822,20 @@ function displayChatMessage(message) {
     // Message Text
     const text = document.createElement('div');
     text.classList.add('message-text');
-    text.textContent = message.content;
+
+    const body = document.createElement('span');
+    body.classList.add('message-body');
+    body.textContent = message.content;
+    text.appendChild(body);
+
+    if (message.editedAt) {
+        text.appendChild(createEditedLabel());
+    }
+
+    // Double-click to edit own messages
+    if (isOwnMessage && message.id) {
+        text.addEventListener('dblclick', () => editMessage(message.id, body.textContent));
+    }
 
     // Delete button (if authorized)
     if (canDeleteMessage(message)) {
@@ -549,20 +872,59 @@ function displayChatMessage(message) {
     content.appendChild(text);
     messageElement.appendChild(content);
 
-    chatMessages.appendChild(messageElement);
-    scrollToBottom();
+    return messageElement;
+}
+
+function createEditedLabel() {
+    const label = document.createElement('span');
+    label.classList.add('message-edited');
+    label.textContent = '(edited)';
+    return label;
 }
 
 function displayDateDivider(date) {
+    chatMessages.appendChild(createDateDivider(date));
+}
+
+function createDateDivider(date) {
     const divider = document.createElement('div');
     divider.classList.add('date-divider');
+    divider.setAttribute('data-date', getDateKey(date));
 
     const dateLabel = document.createElement('span');
     dateLabel.classList.add('date-label');
     dateLabel.textContent = date.toLocaleDateString('en-US', { month: 'short', day: 'numeric' }).toUpperCase();
 
     divider.appendChild(dateLabel);
-    chatMessages.appendChild(divider);
+    return divider;
+}
+
+// Insert an older page of messages above what is already on screen,
+// keeping the current scroll position stable.
+function prependChatMessages(messages) {
+    const fragment = document.createDocumentFragment();
+    let pageLastDate = null;
+
+    messages.forEach(message => {
+        if (message.type !== 'CHAT') return;
+        const messageDate = message.timestamp ? new Date(message.timestamp) : new Date();
+        const dateKey = getDateKey(messageDate);
+        if (pageLastDate !== dateKey) {
+            fragment.appendChild(createDateDivider(messageDate));
+            pageLastDate = dateKey;
+        }
+        fragment.appendChild(createChatMessageElement(message));
+    });
+
+    // Drop the existing top divider if the page ends on the same day
+    const firstChild = chatMessages.firstElementChild;
+    if (firstChild?.classList.contains('date-divider') && firstChild.dataset.date === pageLastDate) {
+        firstChild.remove();
+    }
+
+    const previousHeight = chatMessages.scrollHeight;
+    chatMessages.insertBefore(fragment, chatMessages.firstChild);
+    chatMessages.scrollTop += chatMessages.scrollHeight - previousHeight;
 }
 
 function displayEventMessage(text) {
@@ -597,6 +959,7 @@ function deleteMessage(messageId, messageElement) {
     })
         .then(response => {
             if (response.ok) {
+                // Other clients are told through the DELETE event
                 messageElement.remove();
                 showNotification('Message deleted', 'success');
             } else {
@@ -609,6 +972,37 @@ function deleteMessage(messageId, messageElement) {
         });
 }
 
+function onErrorReceived(payload) {
+    const error = JSON.parse(payload.body);
+    showNotification(error.message || 'Message not sent', 'error');
+}
+
+function editMessage(messageId, currentContent) {
+    const newContent = prompt('Edit message', currentContent);
+    if (newContent === null || !newContent.trim() || newContent.trim() === currentContent) return;
+
+    fetch(`/api/chat/${messageId}`, {
+        method: 'PUT',
+        headers: {
+            'Authorization': 'Bearer ' + token,
+            'Content-Type': 'application/json'
+        },
+        body: JSON.stringify({ content: newContent.trim() })
+    })
+        .then(response => {
+            // The EDIT event updates every client, including this one
+            if (!response.ok) {
+                return response.json().catch(() => ({})).then(body => {
+                    throw new Error(body.message || 'Failed to edit message');
+                });
+            }
+        })
+        .catch(error => {
+            console.error('Edit error:', error);
+            showNotification(error.message, 'error');
+        });
+}
+
 function scrollToBottom() {
     chatMessages.scrollTop = chatMessages.scrollHeight;
 }
@@ -616,8 +1010,9 @@ function scrollToBottom() {
 // ═══════════════════════════════════════════════════
 // 📚 DATA LOADING
 // ═══════════════════════════════════════════════════
-function loadChatHistory() {
-    fetch('/api/chat/history', {
+function fetchHistoryPage(query) {
+    const room = currentRoom;
+    return fetch(`/api/chat/history?room=${room}&${query}`, {
         headers: {
             'Authorization': 'Bearer ' + token
         }
@@ -626,17 +1021,48 @@ function loadChatHistory() {
             if (!response.ok) throw new Error('Failed to load history');
             return response.json();
         })
+        .then(messages => {
+            if (room !== currentRoom) return []; // Switched rooms meanwhile
+            if (messages.length < HISTORY_PAGE_SIZE) historyExhausted = true;
+            if (messages.length > 0) oldestMessageId = messages[0].id;
+            return messages;
+        });
+}
+
+// Only the last screenful is loaded up front; older pages come in on scroll
+function loadChatHistory() {
+    historyLoading = true;
+    fetchHistoryPage(`limit=${HISTORY_PAGE_SIZE}`)
         .then(messages => {
             console.log(`📚 Loaded ${messages.length} messages`);
             messages.forEach(message => {
-                if (message.type === 'CHAT') {
+                if (message.type === 'CHAT' && !isMessageDisplayed(message)) {
                     displayChatMessage(message);
                 }
+                if (message.id != null && (lastMessageId == null || message.id > lastMessageId)) {
+                    lastMessageId = message.id;
+                }
             });
         })
         .catch(error => {
             console.error('Error loading chat history:', error);
-        });
+        })
+        .finally(() => historyLoading = false);
+}
+
+function loadOlderMessages() {
+    if (historyLoading || historyExhausted || oldestMessageId == null) return;
+
+    historyLoading = true;
+    fetchHistoryPage(`before=${oldestMessageId}&limit=${HISTORY_PAGE_SIZE}`)
+        .then(messages => {
+            console.log(`📚 Loaded ${messages.length} older messages`);
+            prependChatMessages(messages);
+        })
+        .catch(error => {
+            console.error('Error loading older messages:', error);
+        })
+        .finally(() => historyLoading = false);
 }
 
 function fetchOnlineUsers() {
@@ -735,7 +1161,7 @@ function createMemberItem(memberUsername, isOnline) {
     const memberItem = document.createElement('div');
     memberItem.classList.add('member-item');
 
-    const avatarUrl = getAvatarUrl(memberUsername);
+    const avatarUrl = getAvatarUrl(memberUsername, 36);
 
     memberItem.innerHTML = `
         <div class="member-avatar-wrapper">
@@ -774,7 +1200,7 @@ function showProfileModal(targetUsername, allowEdit = false) {
 
     // Set avatar (custom or fallback)
     if (modalAvatar) {
-        modalAvatar.src = getAvatarUrl(targetUsername);
+        modalAvatar.src = getAvatarUrl(targetUsername, 100);
     }
 
     if (modalUsername) {
@@ -958,6 +1384,14 @@ function closeProfileModal() {
 // 🎯 EVENT LISTENERS
 // ═══════════════════════════════════════════════════
 function setupEventListeners() {
+    if (chatMessages) {
+        chatMessages.addEventListener('scroll', () => {
+            if (chatMessages.scrollTop < 80) {
+                loadOlderMessages();
+            }
+        });
+    }
+
     if (sendBtn) {
         sendBtn.addEventListener('click', sendMessage);
     }
@@ -974,6 +1408,7 @@ function setupEventListeners() {
             if (charCount) {
                 charCount.textContent = chatInput.value.length;
             }
+            sendTypingSignal(chatInput.value.trim().length > 0);
         });
     }
 
@@ -1159,45 +1594,122 @@ if (fileInput) {
     });
 }
 
+const MAX_UPLOAD_SIZE = 2 * 1024 * 1024 * 1024;
+const CHUNK_RETRIES = 3;
+
 async function handleFileUpload(files) {
     for (const file of files) {
-        // Check file size (50MB limit)
-        if (file.size > 50 * 1024 * 1024) {
-            showNotification(`${file.name} is too large (max 50MB)`);
+        if (file.size > MAX_UPLOAD_SIZE) {
+            showNotification(`${file.name} is too large (max 2GB)`);
+            continue;
+        }
+        if (file.size === 0) {
+            showNotification(`${file.name} is empty`);
             continue;
         }
-
-        const formData = new FormData();
-        formData.append('file', file);
 
         try {
-            const response = await fetch('/api/files/upload', {
-                method: 'POST',
-                headers: {
-                    'Authorization': 'Bearer ' + token
-                },
-                body: formData
-            });
-
-            if (response.ok) {
-                showNotification(`${file.name} uploaded successfully!`);
-                loadFiles();
-            } else {
-                const error = await response.json();
-                showNotification(error.message || 'Upload failed');
-            }
+            await uploadInChunks(file);
+            showNotification(`${file.name} uploaded successfully!`);
+            loadFiles();
         } catch (error) {
             console.error('Upload error:', error);
-            showNotification('Failed to upload file');
+            showNotification(error.message || 'Failed to upload file');
         }
     }
 
     fileInput.value = '';
 }
 
-async function loadFiles() {
+async function uploadRequest(url, options = {}) {
+    const response = await fetch(url, {
+        ...options,
+        headers: { 'Authorization': 'Bearer ' + token, ...(options.headers || {}) }
+    });
+    const data = await response.json().catch(() => ({}));
+    return { response, data };
+}
+
+// Chunked upload: start, send chunks at the offset the server reports, complete.
+// A failed chunk is retried from wherever the server says the upload stands.
+async function uploadInChunks(file) {
+    let { response, data } = await uploadRequest('/api/files/uploads', {
+        method: 'POST',
+        headers: { 'Content-Type': 'application/json' },
+        body: JSON.stringify({
+            filename: file.name,
+            contentType: file.type || 'application/octet-stream',
+            size: file.size
+        })
+    });
+    if (!response.ok) {
+        throw new Error(data.message || 'Upload failed');
+    }
+
+    const uploadId = data.uploadId;
+    const chunkSize = data.chunkSize;
+    let offset = data.received;
+    let failures = 0;
+
+    while (offset < file.size) {
+        const chunk = file.slice(offset, Math.min(offset + chunkSize, file.size));
+        const headers = { 'Content-Type': 'application/octet-stream' };
+        const checksum = await sha256Hex(chunk);
+        if (checksum) {
+            headers['X-Chunk-Sha256'] = checksum;
+        }
+
+        try {
+            ({ response, data } = await uploadRequest(`/api/files/uploads/${uploadId}?offset=${offset}`, {
+                method: 'PUT',
+                headers,
+                body: chunk
+            }));
+        } catch (error) {
+            response = null; // connection dropped; ask the server where to resume
+        }
+
+        if (response && response.ok) {
+            offset = data.received;
+            failures = 0;
+            continue;
+        }
+        if (++failures > CHUNK_RETRIES) {
+            await uploadRequest(`/api/files/uploads/${uploadId}`, { method: 'DELETE' }).catch(() => {});
+            throw new Error((data && data.message) || 'Upload failed');
+        }
+        const status = await uploadRequest(`/api/files/uploads/${uploadId}`).catch(() => null);
+        if (status && status.response.ok) {
+            offset = status.data.received;
+        }
+    }
+
+    ({ response, data } = await uploadRequest(`/api/files/uploads/${uploadId}/complete`, { method: 'POST' }));
+    if (!response.ok) {
+        throw new Error(data.message || 'Upload failed');
+    }
+    return data;
+}
+
+// crypto.subtle only exists on secure origins (https, localhost); the checksum is optional
+async function sha256Hex(blob) {
+    if (!window.crypto || !window.crypto.subtle) {
+        return null;
+    }
+    const digest = await window.crypto.subtle.digest('SHA-256', await blob.arrayBuffer());
+    return Array.from(new Uint8Array(digest)).map(b => b.toString(16).padStart(2, '0')).join('');
+}
+
+const FILES_PAGE_SIZE = 50;
+
+// First page, or the page after the given file id ("Load more")
+async function loadFiles(before = null) {
     try {
-        const response = await fetch('/api/files', {
+        const params = new URLSearchParams({ limit: FILES_PAGE_SIZE });
+        if (before) {
+            params.set('before', before);
+        }
+        const response = await fetch(`/api/files?${params}`, {
             headers: {
                 'Authorization': 'Bearer ' + token
             }
@@ -1205,9 +1717,9 @@ async function loadFiles() {
 
         if (response.ok) {
             const files = await response.json();
-            renderFiles(files);
+            renderFiles(files, before !== null);
             if (fileCountDisplay) {
-                fileCountDisplay.textContent = files.length;
+                fileCountDisplay.textContent = response.headers.get('X-Total-Count') || files.length;
             }
         }
     } catch (error) {
@@ -1215,10 +1727,10 @@ async function loadFiles() {
     }
 }
 
-function renderFiles(files) {
+function renderFiles(files, append = false) {
     if (!filesList) return;
 
-    if (files.length === 0) {
+    if (files.length === 0 && !append) {
         filesList.innerHTML = `
             <div class="files-empty">
                 <i class="fas fa-folder-open"></i>
@@ -1229,9 +1741,9 @@ function renderFiles(files) {
         return;
     }
 
-    filesList.innerHTML = files.map(file => `
+    const html = files.map(file => `
         <div class="file-card" data-id="${file.id}">
-            <div class="file-icon ${getFileIconClass(file.contentType)}">
+            <div class="file-icon ${getFileIconClass(file.contentType)}" ${file.hasThumbnail ? `data-thumbnail="${file.id}"` : ''}>
                 <i class="${getFileIcon(file.contentType)}"></i>
             </div>
             <div class="file-info">
@@ -1253,6 +1765,65 @@ function renderFiles(files) {
             </div>
         </div>
     `).join('');
+
+    const loadMore = filesList.querySelector('.files-load-more');
+    if (loadMore) {
+        loadMore.remove();
+    }
+    if (append) {
+        filesList.insertAdjacentHTML('beforeend', html);
+    } else {
+        filesList.innerHTML = html;
+    }
+    if (files.length === FILES_PAGE_SIZE) {
+        filesList.insertAdjacentHTML('beforeend', `
+            <button class="files-load-more" onclick="loadFiles(${files[files.length - 1].id})">Load more</button>
+        `);
+    }
+
+    filesList.querySelectorAll('.file-icon[data-thumbnail]').forEach(icon => {
+        if (thumbnailObserver) {
+            thumbnailObserver.observe(icon);
+        } else {
+            loadThumbnail(icon);
+        }
+    });
+}
+
+// Thumbnails need the auth header, so they are fetched (still through the browser cache) rather than
+// set as an img src, and only when their card scrolls into view
+const thumbnailObserver = 'IntersectionObserver' in window
+    ? new IntersectionObserver(entries => entries.forEach(entry => {
+        if (entry.isIntersecting) {
+            thumbnailObserver.unobserve(entry.target);
+            loadThumbnail(entry.target);
+        }
+    }), { rootMargin: '200px' })
+    : null;
+
+async function loadThumbnail(icon) {
+    const id = icon.dataset.thumbnail;
+    icon.removeAttribute('data-thumbnail');
+    try {
+        const response = await fetch(`/api/files/${id}/thumbnail`, {
+            headers: {
+                'Authorization': 'Bearer ' + token
+            }
+        });
+        if (!response.ok) {
+            return; // keep the icon
+        }
+        const url = URL.createObjectURL(await response.blob());
+        const img = document.createElement('img');
+        img.className = 'file-thumbnail';
+        img.alt = '';
+        img.onload = () => URL.revokeObjectURL(url);
+        img.src = url;
+        icon.replaceChildren(img);
+        icon.classList.add('has-thumbnail');
+    } catch (error) {
+        console.error('Error loading thumbnail:', error);
+    }
 }
 
 function getFileIcon(contentType) {
@@ -0,0 +1,293 @@
+package com.chillspace.backend.config;
+
+import com.chillspace.backend.ChillSpaceApplication;
+import com.chillspace.backend.model.Message;
+import com.chillspace.backend.model.Role;
+import com.chillspace.backend.model.User;
+import com.chillspace.backend.repository.UserRepository;
+import com.chillspace.backend.security.JwtUtils;
+import com.chillspace.backend.service.ChatRooms;
+import com.chillspace.backend.service.ChatSessionRegistry;
+import com.chillspace.backend.service.ChatSessionRegistry.ChatSession;
+import com.chillspace.backend.service.PresenceService;
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.reflect.Type;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two nodes on one STOMP broker: a chat broadcast sent through one node reaches a client of the other
+ * (and how long that takes is reported), and ban and presence changes made on one node are applied on
+ * the other.
+ *
+ * The broker is an embedded Artemis and both nodes share an in-memory H2 database, created by Hibernate
+ * from the entities since the Flyway scripts are MySQL's. The schema itself is checked against MySQL by
+ * QueryPlanTest. The broker runs in the same JVM as both nodes, so the reported latency is only indicative.
+ */
+class BrokerRelayIntegrationTest {
+
+    private static final int BROADCASTS = 500;
+    private static final long SEND_INTERVAL_MS = 5;
+    private static final long TIMEOUT_MS = 15_000;
+
+    // Unique per run: names the in-memory database and the test users
+    private static final String RUN = UUID.randomUUID().toString().substring(0, 8);
+
+    private static EmbeddedActiveMQ broker;
+    private static int brokerPort;
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+    private static final List<User> users = new ArrayList<>();
+    private static final List<StompSession> sessions = new ArrayList<>();
+    private static WebSocketStompClient stompClient;
+
+    @BeforeAll
+    static void startNodes() throws Exception {
+        startBroker();
+        // Only the first node creates the schema; the second would drop what the first wrote
+        nodeA = startNode("a", "create");
+        nodeB = startNode("b", "none");
+
+        stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+    }
+
+    @AfterAll
+    static void stopNodes() throws Exception {
+        sessions.stream().filter(StompSession::isConnected).forEach(StompSession::disconnect);
+        if (nodeB != null) {
+            nodeB.close();
+        }
+        if (nodeA != null) {
+            nodeA.close();
+        }
+        if (broker != null) {
+            broker.stop();
+        }
+    }
+
+    @Test
+    void broadcastReachesClientsOfTheOtherNode() throws Exception {
+        StompSession sender = connect(nodeA, createUser("sender", Role.ADMIN)); // admins are not rate limited
+        StompSession receiver = connect(nodeB, createUser("receiver", Role.USER));
+
+        Map<String, Long> sentAt = new ConcurrentHashMap<>();
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        receiver.subscribe(ChatRooms.topic(ChatRooms.DEFAULT_ROOM), handler(payload -> {
+            Long sent = sentAt.get(String.valueOf(payload.get("content")));
+            if (sent != null) {
+                latencies.add(System.nanoTime() - sent);
+            }
+        }));
+
+        // The subscription reaches the broker asynchronously; probe until it delivers
+        String probe = "probe-" + RUN;
+        awaitTrue(() -> {
+            sentAt.put(probe, System.nanoTime());
+            send(sender, probe);
+            sleep(100);
+            return !latencies.isEmpty();
+        }, "subscription on node b active");
+        latencies.clear();
+
+        // Paced, so this measures delivery rather than how fast a burst drains
+        for (int i = 0; i < BROADCASTS; i++) {
+            String content = "latency-" + RUN + "-" + i;
+            sentAt.put(content, System.nanoTime());
+            send(sender, content);
+            sleep(SEND_INTERVAL_MS);
+        }
+        awaitTrue(() -> latencies.size() >= BROADCASTS, BROADCASTS + " broadcasts delivered on node b");
+
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        System.out.printf("Cross-node broadcast latency over %d messages: p50 %.2f ms, p95 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+                sorted.size(), millis(sorted, 0.50), millis(sorted, 0.95), millis(sorted, 0.99),
+                millis(sorted, 1.0));
+    }
+
+    @Test
+    void banOnOneNodeReachesSessionsOnTheOther() throws Exception {
+        User user = createUser("banned", Role.USER);
+        connect(nodeB, user);
+        ChatSessionRegistry registryB = nodeB.getBean(ChatSessionRegistry.class);
+        awaitTrue(() -> sessionsOf(registryB, user).size() == 1, "session registered on node b");
+
+        user.setBanned(true);
+        user.setRole(Role.MODERATOR);
+        nodeA.getBean(ChatSessionRegistry.class).refreshUser(user);
+
+        awaitTrue(() -> sessionsOf(registryB, user).stream()
+                .allMatch(session -> session.isBanned() && session.getRole() == Role.MODERATOR), "ban applied on node b");
+    }
+
+    @Test
+    void oversizeMessageIsRefusedToItsSenderOnly() throws Exception {
+        StompSession sender = connect(nodeA, createUser("verbose", Role.ADMIN));
+        List<Map<?, ?>> errors = Collections.synchronizedList(new ArrayList<>());
+        List<Map<?, ?>> broadcasts = Collections.synchronizedList(new ArrayList<>());
+        sender.subscribe("/user/queue/errors", handler(errors::add));
+        sender.subscribe(ChatRooms.topic(ChatRooms.DEFAULT_ROOM), handler(broadcasts::add));
+
+        String tooLong = "x".repeat(Message.MAX_CONTENT_LENGTH + 1);
+        awaitTrue(() -> {
+            send(sender, tooLong);
+            sleep(100);
+            return !errors.isEmpty();
+        }, "error on the user queue");
+
+        assertThat(errors.get(0).get("message")).asString().contains("too long");
+        assertThat(broadcasts).noneMatch(payload -> tooLong.equals(payload.get("content")));
+    }
+
+    @Test
+    void presenceIsSharedBetweenNodes() throws Exception {
+        User user = createUser("present", Role.USER);
+        PresenceService presenceA = nodeA.getBean(PresenceService.class);
+
+        StompSession session = connect(nodeB, user);
+        session.send("/app/chat.addUser", Map.of("type", "JOIN"));
+        awaitTrue(() -> presenceA.isOnline(user.getUsername()), "online on node a");
+        assertThat(presenceA.getOnlineUsers()).contains(user.getUsername());
+
+        session.disconnect();
+        awaitTrue(() -> !presenceA.isOnline(user.getUsername()), "offline on node a");
+    }
+
+    private static void startBroker() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            brokerPort = socket.getLocalPort();
+        }
+        ConfigurationImpl config = new ConfigurationImpl();
+        config.setPersistenceEnabled(false);
+        config.setSecurityEnabled(false);
+        config.setBrokerInstance(Files.createTempDirectory("chat-broker").toFile());
+        config.addAcceptorConfiguration("stomp", "tcp://127.0.0.1:" + brokerPort + "?protocols=STOMP");
+        broker = new EmbeddedActiveMQ();
+        broker.setConfiguration(config);
+        broker.start();
+    }
+
+    private static ConfigurableApplicationContext startNode(String name, String ddlAuto) throws Exception {
+        Path dataDir = Files.createTempDirectory("chat-node-" + name);
+        // Command line arguments, which take precedence over application.properties
+        return new SpringApplicationBuilder(ChillSpaceApplication.class).run(
+                "--server.port=0",
+                "--chat.broker.mode=relay",
+                "--chat.broker.relay.host=127.0.0.1",
+                "--chat.broker.relay.port=" + brokerPort,
+                "--spring.datasource.url=jdbc:h2:mem:relay-" + RUN + ";MODE=MySQL;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.hibernate.ddl-auto=" + ddlAuto,
+                "--spring.flyway.enabled=false",
+                // Moves the legacy shared_files.file_data column, which only exists in migrated MySQL databases
+                "--chat.files.migrate-on-startup=false",
+                "--spring.jpa.show-sql=false",
+                "--supabase.url=http://localhost",
+                "--supabase.key=test",
+                "--gemini.api.key=test",
+                "--chat.files.blob-dir=" + dataDir.resolve("blobs"),
+                "--chat.files.thumbnail-dir=" + dataDir.resolve("thumbnails"),
+                "--chat.files.upload-dir=" + dataDir.resolve("uploads"),
+                "--chat.archive.dir=" + dataDir.resolve("archive"));
+    }
+
+    private static User createUser(String name, Role role) {
+        User user = new User();
+        user.setUsername(name + "-" + RUN);
+        user.setEmail(name + "-" + RUN + "@example.com");
+        user.setPassword("not-used");
+        user.setRole(role);
+        user = nodeA.getBean(UserRepository.class).save(user);
+        users.add(user);
+        return user;
+    }
+
+    private static StompSession connect(ConfigurableApplicationContext node, User user) throws Exception {
+        int port = ((WebServerApplicationContext) node).getWebServer().getPort();
+        String token = node.getBean(JwtUtils.class).generateToken(user.getUsername(), user.getRole().name());
+        StompHeaders connectHeaders = new StompHeaders();
+        connectHeaders.add("Authorization", "Bearer " + token);
+
+        StompSession session = stompClient.connectAsync("ws://localhost:" + port + "/ws-native",
+                        new WebSocketHttpHeaders(), connectHeaders, new StompSessionHandlerAdapter() { })
+                .get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        sessions.add(session);
+        return session;
+    }
+
+    private static void send(StompSession session, String content) {
+        session.send("/app/chat.sendMessage/" + ChatRooms.DEFAULT_ROOM, Map.of("type", "CHAT", "content", content));
+    }
+
+    private static StompFrameHandler handler(Consumer<Map<?, ?>> consumer) {
+        return new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return Map.class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                consumer.accept((Map<?, ?>) payload);
+            }
+        };
+    }
+
+    private static List<ChatSession> sessionsOf(ChatSessionRegistry registry, User user) {
+        return registry.getSessions().stream().filter(session -> session.getUserId().equals(user.getId())).toList();
+    }
+
+    private static void awaitTrue(BooleanSupplier condition, String description) {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).as("timed out waiting for: " + description).isLessThan(deadline);
+            sleep(20);
+        }
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static double millis(List<Long> sortedNanos, double percentile) {
+        int index = (int) Math.ceil(percentile * sortedNanos.size()) - 1;
+        return sortedNanos.get(Math.max(0, index)) / 1_000_000.0;
+    }
+}
@@ -0,0 +1,181 @@
+package com.chillspace.backend.config;
+
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Throughput of the two threading modes (see WebSocketConfig and VIRTUAL_THREADS) on this app's
+ * typical request: a short query holding one of DB_POOL_SIZE connections, then a slow remote call
+ * (Gemini, Supabase) holding none. Platform mode is Tomcat's default 200-thread pool and Spring's
+ * default inbound channel pool; virtual mode is the executor WebSocketConfig uses. The outbound case
+ * is a broadcast fanned out to sessions whose socket takes WRITE_MS per frame, on the configured
+ * outbound pool versus virtual threads capped by the outbound concurrency limit. Not part of the
+ * normal build:
+ *
+ *   mvn test -Dtest=ThreadingBenchmark -Dbenchmark=true [-Dbenchmark.requests=5000 -Dbenchmark.remote-ms=200]
+ *
+ * The virtual-thread runs need a Java 21+ JVM and are skipped on older ones.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ThreadingBenchmark {
+
+    private static final int REQUESTS = Integer.getInteger("benchmark.requests", 5_000);
+    private static final int DB_POOL_SIZE = Integer.getInteger("benchmark.db-pool-size", 20);
+    private static final long QUERY_MS = Long.getLong("benchmark.query-ms", 5);
+    private static final long REMOTE_MS = Long.getLong("benchmark.remote-ms", 200);
+    private static final long POOL_TIMEOUT_MS = 10_000;
+    private static final long WRITE_MS = Long.getLong("benchmark.write-ms", 20);
+    private static final int OUTBOUND_CONCURRENCY_LIMIT = Integer.getInteger("benchmark.outbound-limit", 1000);
+
+    // application.properties chat.websocket.outbound.*
+    private static final int OUTBOUND_CORE_POOL_SIZE = 8;
+    private static final int OUTBOUND_MAX_POOL_SIZE = 32;
+    private static final int OUTBOUND_QUEUE_CAPACITY = 10_000;
+
+    // Tomcat's default server.tomcat.threads.max
+    private static final int TOMCAT_THREADS = 200;
+
+    @Test
+    void tomcatRequests() throws Exception {
+        ThreadPoolTaskExecutor platform = pool("http-platform-", TOMCAT_THREADS);
+        try {
+            report("HTTP, platform (" + TOMCAT_THREADS + " threads)", run(platform));
+        } finally {
+            platform.shutdown();
+        }
+        report("HTTP, virtual", run(virtual("http-virtual-")));
+    }
+
+    @Test
+    void stompInboundChannel() throws Exception {
+        // Spring's default clientInboundChannel pool: twice the processors, unbounded queue
+        int threads = Runtime.getRuntime().availableProcessors() * 2;
+        ThreadPoolTaskExecutor platform = pool("inbound-platform-", threads);
+        try {
+            report("STOMP inbound, platform (" + threads + " threads)", run(platform));
+        } finally {
+            platform.shutdown();
+        }
+        report("STOMP inbound, virtual", run(virtual("inbound-virtual-")));
+    }
+
+    @Test
+    void stompOutboundChannel() throws Exception {
+        ThreadPoolTaskExecutor platform = pool("outbound-platform-", OUTBOUND_CORE_POOL_SIZE);
+        platform.setMaxPoolSize(OUTBOUND_MAX_POOL_SIZE);
+        platform.setQueueCapacity(OUTBOUND_QUEUE_CAPACITY);
+        try {
+            report("STOMP outbound, platform (" + OUTBOUND_CORE_POOL_SIZE + "-" + OUTBOUND_MAX_POOL_SIZE
+                    + " threads)", runWrites(platform));
+        } finally {
+            platform.shutdown();
+        }
+        SimpleAsyncTaskExecutor limited = (SimpleAsyncTaskExecutor) virtual("outbound-virtual-");
+        limited.setConcurrencyLimit(OUTBOUND_CONCURRENCY_LIMIT);
+        report("STOMP outbound, virtual (limit " + OUTBOUND_CONCURRENCY_LIMIT + ")", runWrites(limited));
+    }
+
+    // Latency here is until the frame is written
+    private Result runWrites(TaskExecutor executor) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(REQUESTS);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        long[] latencies = new long[REQUESTS];
+
+        long start = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            int frame = i;
+            long submitted = System.nanoTime();
+            executor.execute(() -> {
+                peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(WRITE_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    inFlight.decrementAndGet();
+                    latencies[frame] = System.nanoTime() - submitted;
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        return new Result(REQUESTS * 1e9 / elapsed, latencies[REQUESTS / 2] / 1_000_000,
+                latencies[(int) (REQUESTS * 0.99)] / 1_000_000, "peak writes in flight " + peak.get());
+    }
+
+    private Result run(TaskExecutor executor) throws InterruptedException {
+        Semaphore connections = new Semaphore(DB_POOL_SIZE, true);
+        CountDownLatch done = new CountDownLatch(REQUESTS);
+        AtomicInteger timedOut = new AtomicInteger();
+        long[] latencies = new long[REQUESTS];
+
+        long start = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            int request = i;
+            long submitted = System.nanoTime();
+            executor.execute(() -> {
+                try {
+                    if (connections.tryAcquire(POOL_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                        try {
+                            Thread.sleep(QUERY_MS);
+                        } finally {
+                            connections.release();
+                        }
+                        Thread.sleep(REMOTE_MS);
+                    } else {
+                        timedOut.incrementAndGet();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    latencies[request] = System.nanoTime() - submitted;
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        return new Result(REQUESTS * 1e9 / elapsed, latencies[REQUESTS / 2] / 1_000_000,
+                latencies[(int) (REQUESTS * 0.99)] / 1_000_000, "pool timeouts " + timedOut.get());
+    }
+
+    private static ThreadPoolTaskExecutor pool(String prefix, int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix(prefix);
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.initialize();
+        return executor;
+    }
+
+    private static TaskExecutor virtual(String prefix) {
+        Assumptions.assumeTrue(Runtime.version().feature() >= 21, "Virtual threads need Java 21+");
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(prefix);
+        executor.setVirtualThreads(true);
+        return executor;
+    }
+
+    private static void report(String mode, Result result) {
+        System.out.printf("%-40s %10.0f req/s   p50 %6d ms   p99 %6d ms   %s%n",
+                mode, result.throughput(), result.p50Ms(), result.p99Ms(), result.detail());
+    }
+
+    private record Result(double throughput, long p50Ms, long p99Ms, String detail) {
+    }
+}
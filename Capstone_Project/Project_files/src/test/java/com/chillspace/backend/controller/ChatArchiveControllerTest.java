@@ -0,0 +1,110 @@
+package com.chillspace.backend.controller;
+
+import com.chillspace.backend.service.MessageArchiveService;
+import com.chillspace.backend.service.MessageArchiveService.Segment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ChatArchiveControllerTest {
+
+    private static final String NAME = "messages-2024-01-31";
+    private static final String NDJSON = "{\"id\":1,\"content\":\"hi\"}\n{\"id\":2,\"content\":\"there\"}\n";
+
+    @TempDir
+    Path archiveDir;
+
+    private final MessageArchiveService archiveService = mock(MessageArchiveService.class);
+    private final ChatArchiveController controller = new ChatArchiveController(archiveService);
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = archiveDir.resolve(NAME + MessageArchiveService.SEGMENT_SUFFIX);
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+            out.write(NDJSON.getBytes(StandardCharsets.UTF_8));
+        }
+        LocalDateTime first = LocalDateTime.of(2024, 1, 31, 9, 0);
+        Segment segment = new Segment(NAME, LocalDate.of(2024, 1, 31), 0, 2, 1, 2, first, first.plusHours(1),
+                Files.size(file), Map.of());
+        when(archiveService.getSegments()).thenReturn(List.of(segment));
+        when(archiveService.segmentFile(NAME)).thenReturn(Optional.of(file));
+        when(archiveService.segmentFile("messages-2024-02-01")).thenReturn(Optional.empty());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void listingDescribesEachSegmentWithItsUrl() throws IOException {
+        List<Map<String, Object>> segments = (List<Map<String, Object>>) controller.listSegments().getBody();
+
+        assertThat(segments).hasSize(1);
+        assertThat(segments.get(0))
+                .containsEntry("name", NAME)
+                .containsEntry("count", 2L)
+                .containsEntry("minId", 1L)
+                .containsEntry("maxId", 2L)
+                .containsEntry("bytes", Files.size(file))
+                .containsEntry("url", "/api/chat/archive/" + NAME);
+    }
+
+    @Test
+    void segmentIsServedGzippedAsIsAndCachedForGood() throws IOException {
+        MockHttpServletResponse response = download(new MockHttpServletRequest("GET", "/api/chat/archive/" + NAME));
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentType()).startsWith("application/x-ndjson");
+        assertThat(response.getHeader("Content-Encoding")).isEqualTo("gzip");
+        assertThat(response.getHeader("Cache-Control")).contains("immutable");
+        assertThat(response.getHeader("ETag")).isEqualTo(HttpCaching.etag(NAME));
+        assertThat(response.getContentAsByteArray()).isEqualTo(Files.readAllBytes(file));
+        try (GZIPInputStream body = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            assertThat(new String(body.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(NDJSON);
+        }
+    }
+
+    @Test
+    void cachedCopyIsRevalidatedWithoutABody() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/chat/archive/" + NAME);
+        request.addHeader("If-None-Match", HttpCaching.etag(NAME));
+
+        MockHttpServletResponse response = download(request);
+
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void unknownSegmentIsNotFound() throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller.downloadSegment("messages-2024-02-01",
+                new MockHttpServletRequest("GET", "/api/chat/archive/messages-2024-02-01"), response);
+
+        assertThat(response.getStatus()).isEqualTo(404);
+    }
+
+    private MockHttpServletResponse download(MockHttpServletRequest request) throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller.downloadSegment(NAME, request, response);
+        return response;
+    }
+}
@@ -0,0 +1,419 @@
+package com.chillspace.backend.controller;
+
+import com.chillspace.backend.model.Message;
+import com.chillspace.backend.model.MessageType;
+import com.chillspace.backend.model.Role;
+import com.chillspace.backend.model.User;
+import com.chillspace.backend.repository.MessageRepository;
+import com.chillspace.backend.repository.UserRepository;
+import com.chillspace.backend.service.ChatHistoryService;
+import com.chillspace.backend.service.ChatRooms;
+import com.chillspace.backend.service.ChatSessionRegistry;
+import com.chillspace.backend.service.ChatSessionRegistry.ChatSession;
+import com.chillspace.backend.service.MessageArchiveService;
+import com.chillspace.backend.service.MessageIdAllocator;
+import com.chillspace.backend.service.MessageRejectedEvent;
+import com.chillspace.backend.service.MessageSearchIndex;
+import com.chillspace.backend.service.MessageWriteBehindService;
+import com.chillspace.backend.service.PresenceService;
+import com.chillspace.backend.service.RecentMessageBuffer;
+import com.chillspace.backend.service.TypingSignalService;
+import com.chillspace.backend.service.UserDirectory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.security.Principal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChatControllerTest {
+
+    private final MessageRepository messageRepository = mock(MessageRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final MessageIdAllocator messageIdAllocator = mock(MessageIdAllocator.class);
+    private final MessageWriteBehindService messageWriter = mock(MessageWriteBehindService.class);
+    private final ChatHistoryService chatHistoryService = mock(ChatHistoryService.class);
+    private final RecentMessageBuffer recentMessages = new RecentMessageBuffer(3);
+    private final MessageSearchIndex searchIndex = mock(MessageSearchIndex.class);
+    private final SimpMessageSendingOperations messagingTemplate = mock(SimpMessageSendingOperations.class);
+    private ChatController controller;
+    private SimpMessageHeaderAccessor headers;
+
+    @BeforeEach
+    void setUp() {
+        controller = new ChatController(messageRepository, userRepository, chatHistoryService,
+                messageIdAllocator, messageWriter, mock(PresenceService.class), recentMessages, searchIndex,
+                mock(MessageArchiveService.class), mock(UserDirectory.class), messagingTemplate,
+                mock(SimpUserRegistry.class), mock(TypingSignalService.class));
+
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(ChatSessionRegistry.SESSION_ATTRIBUTE, new ChatSession("s1", 7L, "alice", Role.USER));
+        headers = SimpMessageHeaderAccessor.create();
+        headers.setSessionAttributes(attributes);
+        when(messageIdAllocator.nextId()).thenReturn(100L);
+    }
+
+    @Test
+    void validMessageIsStampedQueuedAndIndexed() {
+        Message sent = controller.sendMessage("public", chat("hello"), headers);
+
+        assertThat(sent.getId()).isEqualTo(100L);
+        assertThat(sent.getSender()).isEqualTo("alice");
+        assertThat(sent.getSenderId()).isEqualTo(7L);
+        verify(messageWriter).enqueue(sent);
+        verify(searchIndex).add(sent);
+    }
+
+    @Test
+    void emptyOrOversizeContentIsRefusedBeforeAnythingIsAllocatedOrBroadcast() {
+        String longest = "x".repeat(Message.MAX_CONTENT_LENGTH);
+        // Counted like the column: in characters, so a supplementary character counts once
+        String longestEmoji = "😀".repeat(Message.MAX_CONTENT_LENGTH);
+
+        for (String content : new String[] { null, "", "   ", longest + "x", longestEmoji + "x" }) {
+            assertThatThrownBy(() -> controller.sendMessage("public", chat(content), headers))
+                    .isInstanceOf(ChatController.InvalidMessageException.class);
+        }
+        verify(messageIdAllocator, never()).nextId();
+        verify(messageWriter, never()).enqueue(any());
+        assertThat(recentMessages.currentSeq(ChatRooms.topic("public"))).isZero();
+        verify(searchIndex, never()).add(any());
+
+        assertThat(controller.sendMessage("public", chat(longest), headers)).isNotNull();
+        assertThat(controller.sendMessage("public", chat(longestEmoji), headers)).isNotNull();
+    }
+
+    @Test
+    void refusalIsReportedToTheSender() {
+        String tooLong = "x".repeat(Message.MAX_CONTENT_LENGTH + 1);
+        ChatController.InvalidMessageException e = new ChatController.InvalidMessageException(
+                ChatController.contentError(tooLong));
+
+        assertThat(controller.handleInvalidMessage(e))
+                .containsEntry("message", "Message is too long (at most 255 characters)");
+    }
+
+    @Test
+    void messageTheDatabaseRejectedIsWithdrawnAndTheSenderTold() {
+        Message message = chat("hello");
+        message.setId(100L);
+        message.setSender("alice");
+        message.setRoomId("games");
+
+        controller.onMessageRejected(new MessageRejectedEvent(message));
+
+        verify(searchIndex).remove(List.of(100L));
+        verify(messagingTemplate).convertAndSend(eq(ChatRooms.topic("games")), argThat((Message event) ->
+                event.getType() == MessageType.DELETE && event.getMessageIds().equals(List.of(100L))));
+        verify(messagingTemplate).convertAndSendToUser(eq("alice"), eq(ChatController.ERROR_QUEUE),
+                argThat((Map<String, Object> error) -> Long.valueOf(100L).equals(error.get("messageId"))));
+    }
+
+    @Test
+    void catchUpReplaysTheBufferWhileTheGapIsInIt() {
+        long epoch = recentMessages.getEpoch();
+        broadcast(1, 2, 3);
+
+        Map<String, Object> result = catchUp(epoch, 1L, 1L);
+
+        assertThat(result).containsEntry("source", "buffer").containsEntry("seq", 3L);
+        assertThat(ids(result)).containsExactly(2L, 3L);
+        verify(chatHistoryService, never()).after(anyString(), anyLong(), anyInt());
+    }
+
+    @Test
+    void catchUpFallsBackToHistoryOnceTheBufferWrappedAround() {
+        long epoch = recentMessages.getEpoch();
+        broadcast(1, 2, 3, 4, 5); // 1 and 2 are overwritten
+        when(chatHistoryService.after("public", 1L, ChatHistoryService.MAX_LIMIT))
+                .thenReturn(Optional.of(stored(2, 3, 4, 5)));
+
+        Map<String, Object> result = catchUp(epoch, 1L, 1L);
+
+        assertThat(result).containsEntry("source", "history");
+        assertThat(ids(result)).containsExactly(2L, 3L, 4L, 5L);
+    }
+
+    @Test
+    void catchUpFallsBackToHistoryWhenTheEpochDoesNotMatch() {
+        broadcast(1, 2);
+        when(chatHistoryService.after("public", 1L, ChatHistoryService.MAX_LIMIT))
+                .thenReturn(Optional.of(stored(2)));
+
+        // A sequence from before a restart would otherwise skip (or repeat) messages
+        Map<String, Object> result = catchUp(recentMessages.getEpoch() - 1, 1L, 1L);
+
+        assertThat(result).containsEntry("source", "history");
+        assertThat(ids(result)).containsExactly(2L);
+    }
+
+    @Test
+    void catchUpWithABrokerRelayAlwaysResyncsById() {
+        ReflectionTestUtils.setField(controller, "brokerMode", "relay");
+        long epoch = recentMessages.getEpoch();
+        broadcast(1, 2, 3);
+        when(chatHistoryService.after("public", 1L, ChatHistoryService.MAX_LIMIT))
+                .thenReturn(Optional.of(stored(2, 3)));
+
+        // The sequence is valid for this node's buffer, but the client's seq may have come from another node
+        Map<String, Object> result = catchUp(epoch, 1L, 1L);
+
+        assertThat(result).containsEntry("source", "history");
+        assertThat(ids(result)).containsExactly(2L, 3L);
+    }
+
+    @Test
+    void usersDeleteOnlyTheirOwnMessages() {
+        account(7L, "alice", Role.USER);
+        stored(message(1L, 7L, "alice", Role.USER));
+        stored(message(2L, 8L, "bob", Role.USER));
+
+        assertThat(controller.deleteMessage(1L, as("alice")).getStatusCode().value()).isEqualTo(200);
+        assertThat(controller.deleteMessage(2L, as("alice")).getStatusCode().value()).isEqualTo(403);
+
+        verify(messageRepository).delete(argThat((Message m) -> m.getId() == 1L));
+        verify(messageRepository, never()).delete(argThat((Message m) -> m.getId() == 2L));
+        verify(messagingTemplate, times(1)).convertAndSend(anyString(), any(Object.class));
+    }
+
+    @Test
+    void rowsFromBeforeSenderIdsAreMatchedByName() {
+        account(7L, "alice", Role.USER);
+        stored(message(1L, null, "alice", null));
+        stored(message(2L, null, "bob", null));
+
+        assertThat(controller.deleteMessage(1L, as("alice")).getStatusCode().value()).isEqualTo(200);
+        assertThat(controller.deleteMessage(2L, as("alice")).getStatusCode().value()).isEqualTo(403);
+    }
+
+    @Test
+    void moderatorsDeleteAnythingButAnAdminsMessage() {
+        account(9L, "mod", Role.MODERATOR);
+        stored(message(1L, 7L, "alice", Role.USER));
+        stored(message(2L, 10L, "carol", Role.MODERATOR));
+        stored(message(3L, 11L, "root", Role.ADMIN));
+        stored(message(4L, null, "legacy", null)); // no role recorded: treated as a user's
+
+        assertThat(controller.deleteMessage(1L, as("mod")).getStatusCode().value()).isEqualTo(200);
+        assertThat(controller.deleteMessage(2L, as("mod")).getStatusCode().value()).isEqualTo(200);
+        assertThat(controller.deleteMessage(3L, as("mod")).getStatusCode().value()).isEqualTo(403);
+        assertThat(controller.deleteMessage(4L, as("mod")).getStatusCode().value()).isEqualTo(200);
+    }
+
+    @Test
+    void adminsDeleteAnyMessage() {
+        account(11L, "root", Role.ADMIN);
+        stored(message(3L, 12L, "other-admin", Role.ADMIN));
+
+        assertThat(controller.deleteMessage(3L, as("root")).getStatusCode().value()).isEqualTo(200);
+    }
+
+    @Test
+    void bulkDeleteIsForModeratorsOnly() {
+        account(7L, "alice", Role.USER);
+
+        assertThat(controller.bulkDeleteMessages(bulk(1L, 2L), as("alice")).getStatusCode().value()).isEqualTo(403);
+        assertThat(controller.bulkDeleteMessages(bulk(1L), null).getStatusCode().value()).isEqualTo(401);
+        verify(messageRepository, never()).deleteAllByIdInBatch(any());
+    }
+
+    @Test
+    void bulkDeleteByAModeratorSkipsAdminMessagesAndTellsEachRoomOnce() {
+        account(9L, "mod", Role.MODERATOR);
+        // 3 is an admin's, so the query leaves it out
+        when(messageRepository.findIdsWithRoomNotSentByRole(anyCollection(), eq(Role.ADMIN))).thenReturn(List.of(
+                new Object[] { 1L, "public" }, new Object[] { 2L, "games" }, new Object[] { 4L, "public" }));
+
+        ResponseEntity<?> response = controller.bulkDeleteMessages(bulk(1L, 2L, 3L, 4L, 1L), as("mod"));
+
+        assertThat(response.getStatusCode().value()).isEqualTo(200);
+        assertThat(response.getBody()).isEqualTo(Map.of("deleted", 3, "messageIds", List.of(1L, 2L, 4L)));
+        verify(messageRepository).findIdsWithRoomNotSentByRole(
+                argThat((Collection<Long> ids) -> ids.size() == 4), eq(Role.ADMIN));
+        verify(messageRepository, never()).findExistingIdsWithRoom(any());
+        verify(messageRepository).deleteAllByIdInBatch(List.of(1L, 2L, 4L));
+        verify(searchIndex).remove(List.of(1L, 2L, 4L));
+        verify(messagingTemplate).convertAndSend(eq(ChatRooms.topic("public")),
+                argThat((Message event) -> event.getMessageIds().equals(List.of(1L, 4L))));
+        verify(messagingTemplate).convertAndSend(eq(ChatRooms.topic("games")),
+                argThat((Message event) -> event.getMessageIds().equals(List.of(2L))));
+    }
+
+    @Test
+    void bulkDeleteByAnAdminIncludesAdminMessages() {
+        account(11L, "root", Role.ADMIN);
+        when(messageRepository.findExistingIdsWithRoom(anyCollection()))
+                .thenReturn(List.<Object[]>of(new Object[] { 3L, "public" }));
+
+        controller.bulkDeleteMessages(bulk(3L), as("root"));
+
+        verify(messageRepository, never()).findIdsWithRoomNotSentByRole(any(), any());
+        verify(messageRepository).deleteAllByIdInBatch(List.of(3L));
+    }
+
+    @Test
+    void bulkDeleteNeedsBetweenOneAndFiveHundredIds() {
+        account(11L, "root", Role.ADMIN);
+
+        assertThat(controller.bulkDeleteMessages(bulk(), as("root")).getStatusCode().value()).isEqualTo(400);
+        long[] tooMany = new long[501];
+        for (int i = 0; i < tooMany.length; i++) {
+            tooMany[i] = i + 1;
+        }
+        assertThat(controller.bulkDeleteMessages(bulk(tooMany), as("root")).getStatusCode().value()).isEqualTo(400);
+        verify(messageRepository, never()).deleteAllByIdInBatch(any());
+    }
+
+    @Test
+    void onlyTheSenderMayEditEvenForModerators() {
+        account(7L, "alice", Role.USER);
+        account(11L, "root", Role.ADMIN);
+        stored(message(1L, 7L, "alice", Role.USER));
+
+        assertThat(controller.editMessage(1L, edit("  fixed  "), as("root")).getStatusCode().value()).isEqualTo(403);
+        verify(messageRepository, never()).updateContent(anyLong(), anyString(), any());
+
+        ResponseEntity<?> response = controller.editMessage(1L, edit("  fixed  "), as("alice"));
+        assertThat(response.getStatusCode().value()).isEqualTo(200);
+        verify(messageRepository).updateContent(eq(1L), eq("fixed"), any());
+        verify(messagingTemplate).convertAndSend(eq(ChatRooms.topic("public")),
+                argThat((Message event) -> event.getType() == MessageType.EDIT && "fixed".equals(event.getContent())));
+    }
+
+    @Test
+    void editIsValidatedLikeASentMessage() {
+        account(7L, "alice", Role.USER);
+        stored(message(1L, 7L, "alice", Role.USER));
+
+        assertThat(controller.editMessage(1L, edit("   "), as("alice")).getStatusCode().value()).isEqualTo(400);
+        assertThat(controller.editMessage(1L, edit("x".repeat(Message.MAX_CONTENT_LENGTH + 1)), as("alice"))
+                .getStatusCode().value()).isEqualTo(400);
+        verify(messageRepository, never()).updateContent(anyLong(), anyString(), any());
+    }
+
+    @Test
+    void editAndDeleteEventsWaitForTheCommit() {
+        account(9L, "mod", Role.MODERATOR);
+        account(7L, "alice", Role.USER);
+        stored(message(1L, 7L, "alice", Role.USER));
+        when(messageRepository.findIdsWithRoomNotSentByRole(anyCollection(), eq(Role.ADMIN)))
+                .thenReturn(List.<Object[]>of(new Object[] { 1L, "public" }));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            controller.editMessage(1L, edit("fixed"), as("alice"));
+            controller.bulkDeleteMessages(bulk(1L), as("mod"));
+            verify(messagingTemplate, never()).convertAndSend(anyString(), any(Object.class));
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        verify(messagingTemplate, times(2)).convertAndSend(eq(ChatRooms.topic("public")), any(Object.class));
+        assertThat(recentMessages.currentSeq(ChatRooms.topic("public"))).isEqualTo(2);
+    }
+
+    private void account(Long id, String username, Role role) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(username);
+        user.setRole(role);
+        when(userRepository.findByUsername(username)).thenReturn(Optional.of(user));
+    }
+
+    private void stored(Message message) {
+        when(messageRepository.findById(message.getId())).thenReturn(Optional.of(message));
+    }
+
+    private static Message message(Long id, Long senderId, String sender, Role senderRole) {
+        Message message = chat("hi");
+        message.setId(id);
+        message.setSenderId(senderId);
+        message.setSender(sender);
+        message.setSenderRole(senderRole);
+        message.setRoomId("public");
+        message.setTimestamp(LocalDateTime.of(2024, 1, 1, 12, 0));
+        return message;
+    }
+
+    private static Principal as(String username) {
+        return () -> username;
+    }
+
+    private static ChatController.BulkDeleteRequest bulk(long... ids) {
+        ChatController.BulkDeleteRequest request = new ChatController.BulkDeleteRequest();
+        request.setIds(Arrays.stream(ids).boxed().toList());
+        return request;
+    }
+
+    private static ChatController.EditMessageRequest edit(String content) {
+        ChatController.EditMessageRequest request = new ChatController.EditMessageRequest();
+        request.setContent(content);
+        return request;
+    }
+
+    // Messages as this node broadcast them, with their ids as contents
+    private void broadcast(long... ids) {
+        for (long id : ids) {
+            recentMessages.append(ChatRooms.topic("public"), stored(id).get(0));
+        }
+    }
+
+    private static List<Message> stored(long... ids) {
+        List<Message> messages = new ArrayList<>();
+        for (long id : ids) {
+            Message message = chat(String.valueOf(id));
+            message.setId(id);
+            message.setTimestamp(LocalDateTime.of(2024, 1, 1, 12, 0).plusSeconds(id));
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> catchUp(Long epoch, Long since, Long lastId) {
+        ResponseEntity<?> response = controller.catchUp("public", epoch, since, lastId);
+        assertThat(response.getStatusCode().value()).isEqualTo(200);
+        return (Map<String, Object>) response.getBody();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Long> ids(Map<String, Object> result) {
+        return ((List<Message>) result.get("messages")).stream().map(Message::getId).toList();
+    }
+
+    private static Message chat(String content) {
+        Message message = new Message();
+        message.setType(MessageType.CHAT);
+        message.setContent(content);
+        return message;
+    }
+}
@@ -0,0 +1,272 @@
+package com.chillspace.backend.controller;
+
+import com.chillspace.backend.model.SharedFileSummary;
+import com.chillspace.backend.repository.SharedFileRepository;
+import com.chillspace.backend.service.FileBlobMigrationService;
+import com.chillspace.backend.service.FileBlobService;
+import com.chillspace.backend.service.ThumbnailService;
+import com.chillspace.backend.storage.BlobStore;
+import com.chillspace.backend.storage.LocalBlobStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FileControllerTest {
+
+    private static final String CONTENT = "0123456789";
+
+    @TempDir
+    Path blobDir;
+
+    private final SharedFileRepository fileRepository = mock(SharedFileRepository.class);
+    private final FileBlobMigrationService migrationService = mock(FileBlobMigrationService.class);
+    private final ThumbnailService thumbnailService = mock(ThumbnailService.class);
+    private LocalBlobStore blobStore;
+    private String hash;
+    private SharedFileSummary summary;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        blobStore = new LocalBlobStore();
+        ReflectionTestUtils.setField(blobStore, "blobDir", blobDir.toString());
+        blobStore.init();
+        hash = blobStore.put(new ByteArrayInputStream(CONTENT.getBytes(StandardCharsets.UTF_8))).hash();
+
+        summary = new SharedFileSummary(1L, "digits.txt", "text/plain", (long) CONTENT.length(), "alice",
+                LocalDateTime.now(), null, hash);
+        when(fileRepository.findSummaryById(1L)).thenReturn(Optional.of(summary));
+    }
+
+    @Test
+    void withoutRangeSendsTheWholeFile() throws IOException {
+        MockHttpServletResponse response = download(request());
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+        assertThat(response.getContentLengthLong()).isEqualTo(10);
+        assertThat(response.getHeader("Accept-Ranges")).isEqualTo("bytes");
+        assertThat(response.getHeader("ETag")).isEqualTo("\"" + hash + "\"");
+    }
+
+    @Test
+    void sendsTheRequestedRange() throws IOException {
+        assertPartial("bytes=2-5", "bytes 2-5/10", "2345");
+        // Open-ended, suffix, and an end past the file are all clamped to the content
+        assertPartial("bytes=7-", "bytes 7-9/10", "789");
+        assertPartial("bytes=-3", "bytes 7-9/10", "789");
+        assertPartial("bytes=5-100", "bytes 5-9/10", "56789");
+    }
+
+    @Test
+    void rangeStartingPastTheEndIsNotSatisfiable() throws IOException {
+        MockHttpServletRequest request = request();
+        request.addHeader("Range", "bytes=10-");
+        MockHttpServletResponse response = download(request);
+
+        assertThat(response.getStatus()).isEqualTo(416);
+        assertThat(response.getHeader("Content-Range")).isEqualTo("bytes */10");
+    }
+
+    @Test
+    void malformedAndMultipleRangesGetTheWholeFile() throws IOException {
+        for (String header : new String[] { "bytes=5-2", "lines=1-2", "bytes=0-1,4-5" }) {
+            MockHttpServletRequest request = request();
+            request.addHeader("Range", header);
+            MockHttpServletResponse response = download(request);
+
+            assertThat(response.getStatus()).as(header).isEqualTo(200);
+            assertThat(response.getContentAsString()).as(header).isEqualTo(CONTENT);
+        }
+    }
+
+    @Test
+    void ifRangeResumesOnlyTheSameContent() throws IOException {
+        MockHttpServletRequest matching = request();
+        matching.addHeader("Range", "bytes=4-");
+        matching.addHeader("If-Range", "\"" + hash + "\"");
+        MockHttpServletResponse resumed = download(matching);
+        assertThat(resumed.getStatus()).isEqualTo(206);
+        assertThat(resumed.getContentAsString()).isEqualTo("456789");
+
+        // Any other validator, including a date, means the client's partial copy may be stale
+        for (String validator : new String[] { "\"other\"", "W/\"" + hash + "\"", "Wed, 21 Oct 2015 07:28:00 GMT" }) {
+            MockHttpServletRequest stale = request();
+            stale.addHeader("Range", "bytes=4-");
+            stale.addHeader("If-Range", validator);
+            MockHttpServletResponse whole = download(stale);
+            assertThat(whole.getStatus()).as(validator).isEqualTo(200);
+            assertThat(whole.getContentAsString()).as(validator).isEqualTo(CONTENT);
+        }
+    }
+
+    @Test
+    void currentCopyIsNotSentAgain() throws IOException {
+        MockHttpServletRequest request = request();
+        request.addHeader("If-None-Match", "\"" + hash + "\"");
+        MockHttpServletResponse response = download(request);
+
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void rangeIsHandedToSendfileWhenTheConnectorSupportsIt() throws IOException {
+        MockHttpServletRequest request = request();
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        request.addHeader("Range", "bytes=3-4");
+        MockHttpServletResponse response = download(request);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentLengthLong()).isEqualTo(2);
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.start")).isEqualTo(3L);
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.end")).isEqualTo(5L);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void storesWithoutLocalFilesStreamTheRange() throws IOException {
+        BlobStore remote = mock(BlobStore.class);
+        when(remote.exists(hash)).thenReturn(true);
+        when(remote.localPath(hash)).thenReturn(Optional.empty());
+        when(remote.open(hash)).thenAnswer(call -> blobStore.open(hash));
+
+        MockHttpServletRequest request = request();
+        request.addHeader("Range", "bytes=1-3");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller(remote).downloadFile(1L, request, response);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentAsString()).isEqualTo("123");
+        assertThat(response.getContentLengthLong()).isEqualTo(3);
+    }
+
+    @Test
+    void fileStillInTheLegacyColumnIsMovedOnItsFirstDownload() throws IOException {
+        SharedFileSummary legacy = new SharedFileSummary(2L, "old.txt", "text/plain", 10L, "alice",
+                LocalDateTime.now(), null, null);
+        SharedFileSummary moved = new SharedFileSummary(2L, "old.txt", "text/plain", (long) CONTENT.length(),
+                "alice", legacy.uploadedAt(), null, hash);
+        when(fileRepository.findSummaryById(2L)).thenReturn(Optional.of(legacy), Optional.of(moved));
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller(blobStore).downloadFile(2L, new MockHttpServletRequest("GET", "/api/files/2"), response);
+
+        verify(migrationService).migrate(2L);
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void thumbnailOfAFileStillInTheLegacyColumnMovesItFirst() throws IOException {
+        SharedFileSummary legacy = new SharedFileSummary(2L, "old.png", "image/png", 10L, "alice",
+                LocalDateTime.now(), null, null);
+        SharedFileSummary moved = new SharedFileSummary(2L, "old.png", "image/png", 10L, "alice",
+                legacy.uploadedAt(), null, hash);
+        when(fileRepository.findSummaryById(2L)).thenReturn(Optional.of(legacy), Optional.of(moved));
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller(blobStore).getThumbnail(2L, new MockHttpServletRequest("GET", "/api/files/2/thumbnail"), response);
+
+        verify(migrationService).migrate(2L);
+        verify(thumbnailService).supports("image/png", 10L);
+    }
+
+    @Test
+    void fileAlreadyInTheBlobStoreIsNotMigrated() throws IOException {
+        download(request());
+
+        verify(migrationService, never()).migrate(anyLong());
+    }
+
+    @Test
+    void listClampsThePageSizeAndIgnoresBlankFilters() {
+        FileController controller = controller(blobStore);
+        when(fileRepository.findSummaries(null, "image", null, PageRequest.of(0, 100))).thenReturn(List.of(summary));
+        when(fileRepository.countSummaries(null, "image", null)).thenReturn(42L);
+
+        ResponseEntity<?> response = controller.listFiles(null, 5000, " ", "image", "");
+
+        assertThat(response.getStatusCode().value()).isEqualTo(200);
+        assertThat(response.getHeaders().getFirst("X-Total-Count")).isEqualTo("42");
+        List<?> files = (List<?>) response.getBody();
+        assertThat(files).hasSize(1);
+        Map<?, ?> file = (Map<?, ?>) files.get(0);
+        assertThat(file.get("id")).isEqualTo(1L);
+        assertThat(file.get("filename")).isEqualTo("digits.txt");
+        assertThat(file.containsKey("blobHash")).isFalse();
+
+        when(fileRepository.count()).thenReturn(7L);
+        assertThat(controller.listFiles(null, 0, null, null, null).getHeaders().getFirst("X-Total-Count"))
+                .isEqualTo("7");
+        verify(fileRepository).findSummaries(null, null, null, PageRequest.of(0, 1));
+        verify(fileRepository, never()).countSummaries(null, null, null);
+    }
+
+    @Test
+    void listContinuesAfterTheCursorFile() {
+        LocalDateTime uploadedAt = LocalDateTime.of(2024, 5, 1, 12, 0);
+        when(fileRepository.findUploadedAtById(7L)).thenReturn(Optional.of(uploadedAt));
+
+        ResponseEntity<?> response = controller(blobStore).listFiles(7L, 20, "alice", null, "notes");
+
+        assertThat(response.getStatusCode().value()).isEqualTo(200);
+        verify(fileRepository).findSummariesBefore("alice", null, "notes", uploadedAt, 7L, PageRequest.of(0, 20));
+        verify(fileRepository, never()).findSummaries(any(), any(), any(), any());
+    }
+
+    @Test
+    void listWithAnUnknownCursorIsNotFound() {
+        when(fileRepository.findUploadedAtById(7L)).thenReturn(Optional.empty());
+
+        assertThat(controller(blobStore).listFiles(7L, 20, null, null, null).getStatusCode().value())
+                .isEqualTo(404);
+    }
+
+    private void assertPartial(String range, String contentRange, String body) throws IOException {
+        MockHttpServletRequest request = request();
+        request.addHeader("Range", range);
+        MockHttpServletResponse response = download(request);
+
+        assertThat(response.getStatus()).as(range).isEqualTo(206);
+        assertThat(response.getHeader("Content-Range")).as(range).isEqualTo(contentRange);
+        assertThat(response.getContentLengthLong()).as(range).isEqualTo(body.length());
+        assertThat(response.getContentAsString()).as(range).isEqualTo(body);
+    }
+
+    private MockHttpServletResponse download(MockHttpServletRequest request) throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller(blobStore).downloadFile(1L, request, response);
+        return response;
+    }
+
+    private FileController controller(BlobStore store) {
+        return new FileController(fileRepository, store, mock(FileBlobService.class), thumbnailService,
+                migrationService);
+    }
+
+    private static MockHttpServletRequest request() {
+        return new MockHttpServletRequest("GET", "/api/files/1");
+    }
+}
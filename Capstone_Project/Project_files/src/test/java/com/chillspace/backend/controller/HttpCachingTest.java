@@ -0,0 +1,48 @@
+package com.chillspace.backend.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HttpCachingTest {
+
+    private static final String ETAG = HttpCaching.etag("abc");
+
+    @Test
+    void firstRequestGetsTheValidatorAndPolicy() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertThat(HttpCaching.notModified(request, response, ETAG, HttpCaching.REVALIDATE)).isFalse();
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader("ETag")).isEqualTo("\"abc\"");
+        assertThat(response.getHeader("Cache-Control")).isEqualTo("no-cache, private");
+    }
+
+    @Test
+    void matchingIfNoneMatchIsAnsweredWith304() {
+        for (String header : new String[] { "\"abc\"", "W/\"abc\"", "\"old\", \"abc\"" }) {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/files/1");
+            request.addHeader("If-None-Match", header);
+            MockHttpServletResponse response = new MockHttpServletResponse();
+
+            assertThat(HttpCaching.notModified(request, response, ETAG, HttpCaching.IMMUTABLE)).as(header).isTrue();
+            assertThat(response.getStatus()).as(header).isEqualTo(304);
+            assertThat(response.getHeader("ETag")).as(header).isEqualTo("\"abc\"");
+            assertThat(response.getHeader("Cache-Control")).as(header).contains("immutable", "max-age=31536000");
+        }
+    }
+
+    @Test
+    void changedContentIsSentAgain() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/files/1");
+        request.addHeader("If-None-Match", "\"old\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertThat(HttpCaching.notModified(request, response, ETAG, HttpCaching.IMMUTABLE)).isFalse();
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader("ETag")).isEqualTo("\"abc\"");
+    }
+}
@@ -0,0 +1,94 @@
+package com.chillspace.backend.controller;
+
+import com.chillspace.backend.model.Role;
+import com.chillspace.backend.model.User;
+import com.chillspace.backend.repository.MessageRepository;
+import com.chillspace.backend.repository.UserRepository;
+import com.chillspace.backend.service.AvatarService;
+import com.chillspace.backend.service.MessageSearchIndex;
+import com.chillspace.backend.service.PresenceService;
+import com.chillspace.backend.service.UserDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.security.Principal;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserControllerTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final MessageSearchIndex searchIndex = mock(MessageSearchIndex.class);
+    private final UserDirectory userDirectory = mock(UserDirectory.class);
+    private final UserController controller = new UserController(userRepository, mock(MessageRepository.class),
+            mock(AvatarService.class), mock(PresenceService.class), searchIndex, userDirectory);
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setId(7L);
+        user.setUsername("alice");
+        user.setRole(Role.USER);
+        when(userRepository.findByUsername("alice")).thenReturn(Optional.of(user));
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void renameReachesDirectoryAndSearchOnlyOnCommit() {
+        controller.updateProfile(request("alicia"), as("alice"));
+
+        verify(userDirectory, never()).rename(anyLong(), anyString());
+        verify(searchIndex, never()).renameSender(anyString(), anyString());
+        verify(userDirectory, never()).changed();
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        verify(userDirectory).rename(7L, "alicia");
+        verify(searchIndex).renameSender("alice", "alicia");
+        verify(userDirectory).changed();
+    }
+
+    @Test
+    void renameThatRollsBackLeavesCachesAlone() {
+        controller.updateProfile(request("alicia"), as("alice"));
+
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        verify(userDirectory, never()).rename(anyLong(), anyString());
+        verify(searchIndex, never()).renameSender(anyString(), anyString());
+    }
+
+    @Test
+    void takenUsernameIsRejectedWithoutSideEffects() {
+        when(userRepository.existsByUsername("bob")).thenReturn(true);
+
+        assertThat(controller.updateProfile(request("bob"), as("alice")).getStatusCode().value()).isEqualTo(400);
+        assertThat(TransactionSynchronizationManager.getSynchronizations()).isEmpty();
+    }
+
+    private static UserController.UpdateProfileRequest request(String username) {
+        UserController.UpdateProfileRequest request = new UserController.UpdateProfileRequest();
+        request.setUsername(username);
+        return request;
+    }
+
+    private static Principal as(String username) {
+        return () -> username;
+    }
+}
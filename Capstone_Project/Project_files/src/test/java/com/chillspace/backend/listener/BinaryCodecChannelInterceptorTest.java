@@ -0,0 +1,142 @@
+package com.chillspace.backend.listener;
+
+import com.chillspace.backend.model.Role;
+import com.chillspace.backend.service.ChatSessionRegistry;
+import com.chillspace.backend.service.ChatSessionRegistry.ChatSession;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BinaryCodecChannelInterceptorTest {
+
+    private static final String JSON = "{\"type\":\"CHAT\",\"id\":42,\"sender\":\"alice\",\"content\":\"hello there\"}";
+
+    private final ChatSessionRegistry sessionRegistry = mock(ChatSessionRegistry.class);
+    private final MessageChannel channel = mock(MessageChannel.class);
+    private BinaryCodecChannelInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        interceptor = new BinaryCodecChannelInterceptor(sessionRegistry);
+        session("json", false);
+        session("cbor-1", true);
+        session("cbor-2", true);
+    }
+
+    @Test
+    void framesForABinarySessionAreTranscodedToCbor() throws IOException {
+        Message<?> sent = interceptor.preSend(frame("cbor-1", json(), MimeTypeUtils.APPLICATION_JSON), channel);
+
+        byte[] cbor = (byte[]) sent.getPayload();
+        JsonNode decoded = new CBORMapper().readTree(cbor);
+        assertThat(decoded).isEqualTo(new ObjectMapper().readTree(JSON));
+        assertThat(cbor.length).isLessThan(JSON.length());
+
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.wrap(sent);
+        assertThat(headers.getContentType()).isEqualTo(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+        assertThat(headers.getFirstNativeHeader("content-type")).isNull();
+        assertThat(headers.getFirstNativeHeader("content-length")).isNull();
+        assertThat(headers.getSessionId()).isEqualTo("cbor-1");
+        assertThat(headers.getDestination()).isEqualTo("/topic/room.public");
+    }
+
+    @Test
+    void oneBroadcastIsTranscodedOnceForAllItsBinarySubscribers() {
+        byte[] payload = json();
+
+        Object first = interceptor.preSend(frame("cbor-1", payload, MimeTypeUtils.APPLICATION_JSON), channel).getPayload();
+        Object second = interceptor.preSend(frame("cbor-2", payload, MimeTypeUtils.APPLICATION_JSON), channel).getPayload();
+        // Equal bytes in another array are another broadcast: cached by identity, not content
+        Object other = interceptor.preSend(frame("cbor-1", json(), MimeTypeUtils.APPLICATION_JSON), channel).getPayload();
+
+        assertThat(second).isSameAs(first);
+        assertThat(other).isNotSameAs(first).isEqualTo(first);
+    }
+
+    @Test
+    void otherFramesPassThroughUntouched() {
+        Message<byte[]> jsonSession = frame("json", json(), MimeTypeUtils.APPLICATION_JSON);
+        Message<byte[]> unknownSession = frame("gone", json(), MimeTypeUtils.APPLICATION_JSON);
+        Message<byte[]> notJson = frame("cbor-1", "plain".getBytes(StandardCharsets.UTF_8), MimeTypeUtils.TEXT_PLAIN);
+        Message<byte[]> noContentType = frame("cbor-1", json(), null);
+
+        for (Message<byte[]> message : List.of(jsonSession, unknownSession, notJson, noContentType)) {
+            assertThat(interceptor.preSend(message, channel)).isSameAs(message);
+        }
+    }
+
+    @Test
+    void nonMessageFramesAreIgnored() {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.HEARTBEAT);
+        accessor.setSessionId("cbor-1");
+        Message<byte[]> heartbeat = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+
+        assertThat(interceptor.preSend(heartbeat, channel)).isSameAs(heartbeat);
+        assertThat(interceptor.getStats()).containsEntry("jsonFrames", 0L).containsEntry("cborFrames", 0L);
+    }
+
+    @Test
+    void unreadableJsonIsSentAsIs() {
+        Message<byte[]> broken = frame("cbor-1", "{\"type\":".getBytes(StandardCharsets.UTF_8),
+                MimeTypeUtils.APPLICATION_JSON);
+
+        assertThat(interceptor.preSend(broken, channel)).isSameAs(broken);
+        assertThat(interceptor.getStats()).containsEntry("jsonFrames", 1L).containsEntry("cborFrames", 0L);
+    }
+
+    @Test
+    void statsCountBytesPerCodec() {
+        byte[] payload = json();
+        interceptor.preSend(frame("json", payload, MimeTypeUtils.APPLICATION_JSON), channel);
+        byte[] cbor = (byte[]) interceptor.preSend(frame("cbor-1", payload, MimeTypeUtils.APPLICATION_JSON), channel)
+                .getPayload();
+        interceptor.preSend(frame("cbor-2", payload, MimeTypeUtils.APPLICATION_JSON), channel);
+
+        assertThat(interceptor.getStats())
+                .containsEntry("jsonFrames", 1L)
+                .containsEntry("jsonBytes", (long) payload.length)
+                .containsEntry("cborFrames", 2L)
+                .containsEntry("cborBytes", 2L * cbor.length)
+                .containsEntry("cborBytesSaved", 2L * (payload.length - cbor.length));
+    }
+
+    private void session(String id, boolean binaryCodec) {
+        ChatSession session = new ChatSession(id, 7L, "alice", Role.USER);
+        session.setBinaryCodec(binaryCodec);
+        when(sessionRegistry.get(id)).thenReturn(session);
+    }
+
+    // A broker fan-out frame: session id and destination, but no session attributes
+    private static Message<byte[]> frame(String sessionId, byte[] payload, MimeType contentType) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(sessionId);
+        accessor.setDestination("/topic/room.public");
+        if (contentType != null) {
+            accessor.setContentType(contentType);
+            accessor.setNativeHeader("content-type", contentType.toString());
+        }
+        accessor.setNativeHeader("content-length", String.valueOf(payload.length));
+        return MessageBuilder.createMessage(payload, accessor.getMessageHeaders());
+    }
+
+    private static byte[] json() {
+        return JSON.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,362 @@
+package com.chillspace.backend.repository;
+
+import com.chillspace.backend.model.Role;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * EXPLAINs the SQL that every MessageRepository, UserRepository and SharedFileRepository query actually
+ * sends (captured with its bound values at the JDBC layer) against a seeded database, and fails if any of
+ * them reads a whole table. A query method added without a case here fails the test as well.
+ *
+ * Needs an empty MySQL database it may migrate, fill and clear; skipped unless TEST_DB_URL is set:
+ *
+ *   TEST_DB_URL=jdbc:mysql://localhost:3306/chat_test TEST_DB_USERNAME=... TEST_DB_PASSWORD=... \
+ *       mvn test -Dtest=QueryPlanTest
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // the seeded rows must be committed for ANALYZE
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@EnabledIfEnvironmentVariable(named = "TEST_DB_URL", matches = ".+")
+class QueryPlanTest {
+
+    private static final int USERS = 2_000;
+    private static final int MESSAGES = 40_000;
+    private static final int FILES = 4_000;
+    private static final int ROOMS = 8;
+    private static final int DAYS = 60;
+    private static final LocalDateTime NOW = LocalDateTime.now().withNano(0);
+
+    // Whole-table aggregates for the admin dashboard; reading every row is what they are for
+    private static final Set<String> FULL_SCAN_ALLOWED = Set.of("sumFileSizes");
+
+    // Statements the JDBC layer ran during the current explain call, with their bound values
+    private static final List<Captured> captured = new CopyOnWriteArrayList<>();
+    private static volatile boolean recording;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getenv("TEST_DB_URL"));
+        registry.add("spring.datasource.username", () -> System.getenv().getOrDefault("TEST_DB_USERNAME", "root"));
+        registry.add("spring.datasource.password", () -> System.getenv().getOrDefault("TEST_DB_PASSWORD", ""));
+        registry.add("spring.jpa.show-sql", () -> "false");
+    }
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SharedFileRepository fileRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private final Map<String, List<String>> plans = new LinkedHashMap<>();
+
+    @BeforeAll
+    void seed() throws Exception {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        try (Connection connection = dataSource.getConnection()) {
+            clear(connection);
+            connection.setAutoCommit(false);
+
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO users (id, username, email, " +
+                    "password, role, created_at, is_online, is_banned) VALUES (?, ?, ?, 'x', ?, ?, ?, ?)")) {
+                for (int i = 1; i <= USERS; i++) {
+                    insert.setLong(1, i);
+                    insert.setString(2, "user" + i);
+                    insert.setString(3, "user" + i + "@example.com");
+                    insert.setString(4, i % 100 == 0 ? "ADMIN" : "USER");
+                    insert.setTimestamp(5, Timestamp.valueOf(NOW.minusDays(i % 365)));
+                    insert.setBoolean(6, i % 20 == 0);
+                    insert.setBoolean(7, i % 50 == 0);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO messages (id, content, sender, " +
+                    "sender_id, sender_role, timestamp, type, room_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+                for (int i = 1; i <= MESSAGES; i++) {
+                    int sender = 1 + i % USERS;
+                    insert.setLong(1, i);
+                    insert.setString(2, "message " + i);
+                    insert.setString(3, "user" + sender);
+                    insert.setLong(4, sender);
+                    insert.setString(5, sender % 100 == 0 ? "ADMIN" : "USER");
+                    insert.setTimestamp(6, Timestamp.valueOf(NOW.minusMinutes((long) (MESSAGES - i) * DAYS * 24 * 60 / MESSAGES)));
+                    insert.setString(7, i % 25 == 0 ? "JOIN" : "CHAT");
+                    insert.setString(8, i % ROOMS == 0 ? "public" : "room-" + (i % ROOMS));
+                    insert.addBatch();
+                    if (i % 5_000 == 0) {
+                        insert.executeBatch();
+                    }
+                }
+                insert.executeBatch();
+            }
+
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO shared_files (id, content_type, " +
+                    "file_size, filename, original_filename, uploaded_at, uploaded_by, blob_hash) VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+                for (int i = 1; i <= FILES; i++) {
+                    insert.setLong(1, i);
+                    insert.setString(2, i % 3 == 0 ? "image/png" : "application/pdf");
+                    insert.setLong(3, 1_000L * i);
+                    insert.setString(4, "stored-" + i);
+                    insert.setString(5, "report-" + i + (i % 3 == 0 ? ".png" : ".pdf"));
+                    insert.setTimestamp(6, Timestamp.valueOf(NOW.minusHours(FILES - i)));
+                    insert.setString(7, "user" + (1 + i % 50));
+                    insert.setString(8, String.format("%064x", i));
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            connection.commit();
+            connection.setAutoCommit(true);
+
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("ANALYZE TABLE users, messages, shared_files");
+            }
+        }
+    }
+
+    @AfterAll
+    void cleanUp() throws Exception {
+        try (Connection connection = dataSource.getConnection()) {
+            clear(connection);
+        }
+    }
+
+    @Test
+    void repositoryQueriesUseIndexes() throws Exception {
+        LocalDateTime middle = NOW.minusDays(DAYS / 2);
+        List<Long> ids = List.of(10L, 20L, 30L);
+
+        // MessageRepository
+        explain("findLatest", () -> messageRepository.findLatest("room-1", PageRequest.of(0, 50)));
+        explain("findBefore", () -> messageRepository.findBefore("room-1", middle, 20_000L, PageRequest.of(0, 50)));
+        explain("findAfter", () -> messageRepository.findAfter("room-1", middle, 20_000L, PageRequest.of(0, 50)));
+        explain("findRoomIdById", () -> messageRepository.findRoomIdById(123L));
+        explain("findRoomIds", () -> messageRepository.findRoomIds());
+        explain("countGroupedByRoomId", () -> messageRepository.countGroupedByRoomId());
+        explain("countGroupedByRoomIdSince", () -> messageRepository.countGroupedByRoomIdSince(NOW.minusDays(1)));
+        explain("findTimestampById", () -> messageRepository.findTimestampById(123L));
+        explain("findMaxId", () -> messageRepository.findMaxId());
+        explain("findOldestTimestamp", () -> messageRepository.findOldestTimestamp());
+        explain("findDayAfter", () -> messageRepository.findDayAfter(middle, middle.plusDays(1), middle, 0L,
+                PageRequest.of(0, 500)));
+        explain("findSearchBatch", () -> messageRepository.findSearchBatch(20_000L, PageRequest.of(0, 5_000)));
+        explain("updateContent", () -> transactionTemplate.execute(status ->
+                messageRepository.updateContent(123L, "edited", NOW)));
+        explain("findExistingIdsWithRoom", () -> messageRepository.findExistingIdsWithRoom(ids));
+        explain("findIdsWithRoomNotSentByRole", () -> messageRepository.findIdsWithRoomNotSentByRole(ids, Role.ADMIN));
+        explain("countBySenderId", () -> messageRepository.countBySenderId(42L));
+        explain("countGroupedBySenderId", () -> messageRepository.countGroupedBySenderId());
+        explain("countByTimestampAfter", () -> messageRepository.countByTimestampAfter(NOW.minusDays(1)));
+        explain("countByTimestampBetween", () -> messageRepository.countByTimestampBetween(NOW.minusDays(2),
+                NOW.minusDays(1)));
+        explain("findBySenderIdOrderByTimestampDesc", () -> messageRepository.findBySenderIdOrderByTimestampDesc(42L));
+
+        // UserRepository
+        explain("findByUsername", () -> userRepository.findByUsername("user42"));
+        explain("findByEmail", () -> userRepository.findByEmail("user42@example.com"));
+        explain("existsByUsername", () -> userRepository.existsByUsername("user42"));
+        explain("existsByEmail", () -> userRepository.existsByEmail("user42@example.com"));
+        explain("findUsernameById", () -> userRepository.findUsernameById(42L));
+        explain("findUsernamesByIds", () -> userRepository.findUsernamesByIds(ids));
+        explain("updatePresence", () -> transactionTemplate.execute(status ->
+                userRepository.updatePresence(List.of("user1", "user2"), true, NOW)));
+        explain("resetOnlineStatus", () -> transactionTemplate.execute(status -> userRepository.resetOnlineStatus()));
+        explain("countByIsBanned", () -> userRepository.countByIsBanned(true));
+        explain("countByCreatedAtAfter", () -> userRepository.countByCreatedAtAfter(NOW.minusDays(7)));
+
+        // SharedFileRepository: the file panel's unfiltered and per-uploader pages, first and following,
+        // and their totals (unfiltered, FileController counts with count())
+        explain("findSummaries", () -> fileRepository.findSummaries(null, null, null, PageRequest.of(0, 50)));
+        explain("findSummaries", () -> fileRepository.findSummaries("user7", null, null, PageRequest.of(0, 50)));
+        explain("findSummariesBefore", () -> fileRepository.findSummariesBefore(null, null, null,
+                NOW.minusHours(1_000), 3_000L, PageRequest.of(0, 50)));
+        explain("findSummariesBefore", () -> fileRepository.findSummariesBefore("user7", null, null,
+                NOW.minusHours(1_000), 3_000L, PageRequest.of(0, 50)));
+        explain("count", () -> fileRepository.count());
+        explain("countSummaries", () -> fileRepository.countSummaries("user7", null, null));
+        explain("findSummaryById", () -> fileRepository.findSummaryById(123L));
+        explain("findUploadedAtById", () -> fileRepository.findUploadedAtById(123L));
+        explain("deleteFileById", () -> transactionTemplate.execute(status -> fileRepository.deleteFileById(3_999L)));
+        explain("sumFileSizes", () -> fileRepository.sumFileSizes());
+
+        Set<String> missing = new TreeSet<>();
+        for (Class<?> repository : List.of(MessageRepository.class, UserRepository.class, SharedFileRepository.class)) {
+            for (Method method : repository.getDeclaredMethods()) {
+                if (!Modifier.isStatic(method.getModifiers()) && !plans.containsKey(method.getName())) {
+                    missing.add(repository.getSimpleName() + "." + method.getName());
+                }
+            }
+        }
+        assertThat(missing).as("repository queries without a plan check").isEmpty();
+
+        Map<String, List<String>> fullScans = plans.entrySet().stream()
+                .filter(entry -> !FULL_SCAN_ALLOWED.contains(entry.getKey()))
+                .filter(entry -> entry.getValue().stream().anyMatch(row -> row.startsWith("ALL ")))
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        assertThat(fullScans).as("queries reading a whole table (type ALL)").isEmpty();
+    }
+
+    /**
+     * Run the query, then EXPLAIN each SELECT/UPDATE/DELETE it sent with the same bound values
+     */
+    private void explain(String query, Runnable call) throws Exception {
+        captured.clear();
+        recording = true;
+        try {
+            call.run();
+        } finally {
+            recording = false;
+        }
+        List<Captured> statements = List.copyOf(captured);
+        assertThat(statements).as(query + " sent no statement").isNotEmpty();
+
+        List<String> rows = plans.computeIfAbsent(query, k -> new ArrayList<>());
+        try (Connection connection = dataSource.getConnection()) {
+            for (Captured statement : statements) {
+                String verb = statement.sql().stripLeading().toLowerCase(Locale.ROOT);
+                if (!verb.startsWith("select") && !verb.startsWith("update") && !verb.startsWith("delete")) {
+                    continue;
+                }
+                try (PreparedStatement explain = connection.prepareStatement("EXPLAIN " + statement.sql())) {
+                    for (Binding binding : statement.bindings()) {
+                        binding.method().invoke(explain, binding.args());
+                    }
+                    try (ResultSet plan = explain.executeQuery()) {
+                        while (plan.next()) {
+                            rows.add(plan.getString("type") + " " + plan.getString("table") + " key="
+                                    + plan.getString("key") + " rows=" + plan.getString("rows")
+                                    + " " + plan.getString("Extra") + " | " + statement.sql());
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static void clear(Connection connection) throws Exception {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DELETE FROM shared_files");
+            statement.execute("DELETE FROM messages");
+            statement.execute("DELETE FROM profile_image_variants");
+            statement.execute("DELETE FROM profile_images");
+            statement.execute("DELETE FROM users");
+        }
+    }
+
+    private record Binding(Method method, Object[] args) {
+    }
+
+    private record Captured(String sql, List<Binding> bindings) {
+    }
+
+    /**
+     * Wraps the DataSource so every prepared statement is recorded with the values bound to it
+     */
+    @TestConfiguration
+    static class Capture {
+
+        @Bean
+        static BeanPostProcessor capturingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? wrap(DataSource.class, dataSource) : bean;
+                }
+            };
+        }
+
+        private static <T> T wrap(Class<T> type, T target) {
+            return type.cast(Proxy.newProxyInstance(QueryPlanTest.class.getClassLoader(), new Class<?>[] { type },
+                    (proxy, method, args) -> {
+                        Object result = invoke(target, method, args);
+                        if (result instanceof Connection connection) {
+                            return wrap(Connection.class, connection);
+                        }
+                        if (result instanceof PreparedStatement statement && method.getName().equals("prepareStatement")) {
+                            return record(statement, (String) args[0]);
+                        }
+                        return result;
+                    }));
+        }
+
+        private static PreparedStatement record(PreparedStatement target, String sql) {
+            // By parameter index: a value stays bound until it is set again, as in JDBC
+            Map<Integer, Binding> bindings = new TreeMap<>();
+            return (PreparedStatement) Proxy.newProxyInstance(QueryPlanTest.class.getClassLoader(),
+                    new Class<?>[] { PreparedStatement.class }, (proxy, method, args) -> {
+                        String name = method.getName();
+                        if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                            bindings.put((Integer) args[0], new Binding(method, args.clone()));
+                        } else if (recording && (name.equals("execute") || name.equals("executeQuery")
+                                || name.equals("executeUpdate"))) {
+                            captured.add(new Captured(sql, List.copyOf(bindings.values())));
+                        } else if (name.equals("clearParameters")) {
+                            bindings.clear();
+                        }
+                        return invoke(target, method, args);
+                    });
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
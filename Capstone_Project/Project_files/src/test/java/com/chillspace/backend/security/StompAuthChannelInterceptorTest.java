@@ -0,0 +1,216 @@
+package com.chillspace.backend.security;
+
+import com.chillspace.backend.model.Role;
+import com.chillspace.backend.model.User;
+import com.chillspace.backend.repository.UserRepository;
+import com.chillspace.backend.service.ChatSessionRegistry;
+import com.chillspace.backend.service.ChatSessionRegistry.ChatSession;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import java.security.Principal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StompAuthChannelInterceptorTest {
+
+    private final JwtUtils jwtUtils = mock(JwtUtils.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final ChatSessionRegistry sessionRegistry = mock(ChatSessionRegistry.class);
+    private final MessageChannel channel = mock(MessageChannel.class);
+    private final Principal alice = new UsernamePasswordAuthenticationToken("alice", null, List.of());
+    private StompAuthChannelInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        interceptor = new StompAuthChannelInterceptor(jwtUtils, userRepository, sessionRegistry);
+        when(jwtUtils.validateJwtToken("good")).thenReturn(true);
+        when(jwtUtils.getUserNameFromJwtToken("good")).thenReturn("alice");
+        when(userRepository.findByUsername("alice")).thenReturn(Optional.of(user(false)));
+    }
+
+    @Test
+    void connectWithAValidTokenPinsTheUserToTheSession() {
+        StompHeaderAccessor accessor = connect("Bearer good", false);
+
+        interceptor.preSend(message(accessor), channel);
+
+        assertThat(accessor.getUser()).isNotNull();
+        assertThat(accessor.getUser().getName()).isEqualTo("alice");
+        ChatSession session = session(accessor);
+        assertThat(session.getUserId()).isEqualTo(7L);
+        assertThat(session.getRole()).isEqualTo(Role.MODERATOR);
+        assertThat(session.isBinaryCodec()).isFalse();
+        verify(sessionRegistry).register(session);
+    }
+
+    @Test
+    void connectWithoutAUsableTokenIsRefused() {
+        when(jwtUtils.validateJwtToken("expired")).thenReturn(false);
+
+        for (String header : new String[] { null, "", "good", "Basic good", "Bearer expired" }) {
+            StompHeaderAccessor accessor = connect(header, false);
+            assertThatThrownBy(() -> interceptor.preSend(message(accessor), channel))
+                    .isInstanceOf(MessageDeliveryException.class);
+            assertThat(accessor.getUser()).isNull();
+        }
+        verify(sessionRegistry, never()).register(any());
+    }
+
+    @Test
+    void connectOfAnUnknownOrBannedUserIsRefused() {
+        when(userRepository.findByUsername("alice")).thenReturn(Optional.empty());
+        assertThatThrownBy(() -> interceptor.preSend(message(connect("Bearer good", false)), channel))
+                .isInstanceOf(MessageDeliveryException.class).hasMessageContaining("not found");
+
+        when(userRepository.findByUsername("alice")).thenReturn(Optional.of(user(true)));
+        assertThatThrownBy(() -> interceptor.preSend(message(connect("Bearer good", false)), channel))
+                .isInstanceOf(MessageDeliveryException.class).hasMessageContaining("banned");
+
+        verify(sessionRegistry, never()).register(any());
+    }
+
+    @Test
+    void binaryCodecIsOnlyGrantedOnTheNativeTransport() {
+        StompHeaderAccessor sockJs = connect("Bearer good", false);
+        sockJs.setNativeHeader("codec", "cbor");
+        interceptor.preSend(message(sockJs), channel);
+
+        StompHeaderAccessor nativeTransport = connect("Bearer good", true);
+        nativeTransport.setNativeHeader("codec", "CBOR");
+        interceptor.preSend(message(nativeTransport), channel);
+
+        assertThat(session(sockJs).isBinaryCodec()).isFalse();
+        assertThat(session(nativeTransport).isBinaryCodec()).isTrue();
+    }
+
+    @Test
+    void sendAndSubscribeNeedAnAuthenticatedSession() {
+        for (StompCommand command : new StompCommand[] { StompCommand.SEND, StompCommand.SUBSCRIBE }) {
+            assertThatThrownBy(() -> interceptor.preSend(message(frame(command, "/topic/public", null)), channel))
+                    .isInstanceOf(MessageDeliveryException.class).hasMessageContaining("Not authenticated");
+        }
+    }
+
+    @Test
+    void framesToAllowedDestinationsPassThroughUnchanged() {
+        for (Message<?> message : List.of(
+                message(frame(StompCommand.SEND, "/app/chat.sendMessage/public", alice)),
+                message(frame(StompCommand.SUBSCRIBE, "/topic/public", alice)),
+                message(frame(StompCommand.SUBSCRIBE, "/user/queue/errors", alice)))) {
+            assertThat(interceptor.preSend(message, channel)).isSameAs(message);
+        }
+    }
+
+    @Test
+    void framesToForbiddenDestinationsAreRefused() {
+        for (StompHeaderAccessor accessor : List.of(
+                frame(StompCommand.SUBSCRIBE, "/topic/system.cluster", alice),
+                frame(StompCommand.SEND, "/topic/public", alice),
+                frame(StompCommand.SUBSCRIBE, "/queue/errors-user1", alice))) {
+            assertThatThrownBy(() -> interceptor.preSend(message(accessor), channel))
+                    .isInstanceOf(MessageDeliveryException.class).hasMessageContaining("not allowed");
+        }
+    }
+
+    @Test
+    void disconnectIsNotChecked() {
+        Message<?> disconnect = message(frame(StompCommand.DISCONNECT, null, null));
+
+        assertThat(interceptor.preSend(disconnect, channel)).isSameAs(disconnect);
+    }
+
+    @Test
+    void systemTopicIsClosedToClientsInBothDirections() {
+        for (StompCommand command : new StompCommand[] { StompCommand.SEND, StompCommand.SUBSCRIBE }) {
+            assertThat(StompAuthChannelInterceptor.isAllowed(command, "/topic/system.cluster")).isFalse();
+            assertThat(StompAuthChannelInterceptor.isAllowed(command, "/topic/system.anything")).isFalse();
+        }
+    }
+
+    @Test
+    void brokerWildcardsAreRefused() {
+        // Any wildcard subscription could be widened to reach the system topic, so none is accepted
+        for (String destination : List.of("/topic/*", "/topic/#", "/topic/>", "/topic/sys*", "/topic/public.>")) {
+            assertThat(StompAuthChannelInterceptor.isAllowed(StompCommand.SUBSCRIBE, destination))
+                    .as(destination).isFalse();
+        }
+        assertThat(StompAuthChannelInterceptor.isAllowed(StompCommand.SEND, "/app/*")).isFalse();
+    }
+
+    @Test
+    void sendOnlyGoesToTheApplication() {
+        assertThat(StompAuthChannelInterceptor.isAllowed(StompCommand.SEND, "/app/chat.sendMessage/public")).isTrue();
+        assertThat(StompAuthChannelInterceptor.isAllowed(StompCommand.SEND, "/topic/public")).isFalse();
+        assertThat(StompAuthChannelInterceptor.isAllowed(StompCommand.SEND, "/queue/errors")).isFalse();
+        assertThat(StompAuthChannelInterceptor.isAllowed(StompCommand.SEND, "/user/bob/queue/errors")).isFalse();
+        assertThat(StompAuthChannelInterceptor.isAllowed(StompCommand.SEND, null)).isFalse();
+    }
+
+    @Test
+    void subscribeReachesOwnQueuesOnlyThroughTheUserPrefix() {
+        assertThat(StompAuthChannelInterceptor.isAllowed(StompCommand.SUBSCRIBE, "/topic/public")).isTrue();
+        assertThat(StompAuthChannelInterceptor.isAllowed(StompCommand.SUBSCRIBE, "/user/queue/errors")).isTrue();
+        // The resolved form would be someone else's queue
+        assertThat(StompAuthChannelInterceptor.isAllowed(StompCommand.SUBSCRIBE, "/queue/errors-user1")).isFalse();
+        assertThat(StompAuthChannelInterceptor.isAllowed(StompCommand.SUBSCRIBE, null)).isFalse();
+    }
+
+    private static StompHeaderAccessor connect(String authorization, boolean nativeTransport) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        accessor.setSessionId("s1");
+        Map<String, Object> attributes = new HashMap<>();
+        if (nativeTransport) {
+            attributes.put(ChatSessionRegistry.NATIVE_TRANSPORT_ATTRIBUTE, Boolean.TRUE);
+        }
+        accessor.setSessionAttributes(attributes);
+        if (authorization != null) {
+            accessor.setNativeHeader("Authorization", authorization);
+        }
+        return accessor;
+    }
+
+    private static StompHeaderAccessor frame(StompCommand command, String destination, Principal user) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(command);
+        accessor.setSessionId("s1");
+        accessor.setDestination(destination);
+        accessor.setUser(user);
+        return accessor;
+    }
+
+    private static Message<byte[]> message(StompHeaderAccessor accessor) {
+        // Mutable, so the interceptor sees (and updates) the same accessor the test holds
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private static ChatSession session(StompHeaderAccessor accessor) {
+        return (ChatSession) accessor.getSessionAttributes().get(ChatSessionRegistry.SESSION_ATTRIBUTE);
+    }
+
+    private static User user(boolean banned) {
+        User user = new User();
+        user.setId(7L);
+        user.setUsername("alice");
+        user.setRole(Role.MODERATOR);
+        user.setBanned(banned);
+        return user;
+    }
+}
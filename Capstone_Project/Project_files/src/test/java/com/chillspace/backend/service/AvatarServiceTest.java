@@ -0,0 +1,111 @@
+package com.chillspace.backend.service;
+
+import com.chillspace.backend.model.ProfileImage;
+import com.chillspace.backend.repository.ProfileImageRepository;
+import com.chillspace.backend.repository.ProfileImageVariantRepository;
+import com.chillspace.backend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AvatarServiceTest {
+
+    private final ProfileImageRepository profileImageRepository = mock(ProfileImageRepository.class);
+    private final Map<Long, Integer> imageSizes = new HashMap<>();
+    private AvatarService avatars;
+
+    @BeforeEach
+    void setUp() {
+        when(profileImageRepository.findById(any())).thenAnswer(call -> {
+            Long userId = call.getArgument(0);
+            Integer size = imageSizes.get(userId);
+            if (size == null) {
+                return Optional.empty();
+            }
+            ProfileImage image = new ProfileImage();
+            image.setUserId(userId);
+            image.setImageData(new byte[size]);
+            image.setImageType("image/png");
+            return Optional.of(image);
+        });
+        avatars = new AvatarService(profileImageRepository, mock(ProfileImageVariantRepository.class),
+                mock(UserRepository.class), DataSize.ofBytes(100));
+    }
+
+    @Test
+    void evictsLeastRecentlyServedOnceOverCapacity() {
+        imageSizes.put(1L, 40);
+        imageSizes.put(2L, 40);
+        imageSizes.put(3L, 40);
+
+        avatars.load(1L, 1, null);
+        avatars.load(2L, 1, null);
+        avatars.load(1L, 1, null); // 1 is now the most recently served
+        assertThat(cachedBytes()).isEqualTo(80);
+
+        avatars.load(3L, 1, null);
+        assertThat(cachedBytes()).isEqualTo(80);
+        assertThat(cachedUsers()).containsExactlyInAnyOrder(1L, 3L);
+
+        avatars.load(1L, 1, null);
+        verify(profileImageRepository, times(1)).findById(1L);
+        avatars.load(2L, 1, null);
+        verify(profileImageRepository, times(2)).findById(2L);
+    }
+
+    @Test
+    void entryLargerThanTheCacheIsServedButNotCached() {
+        imageSizes.put(1L, 60);
+        imageSizes.put(2L, 101);
+
+        avatars.load(1L, 1, null);
+        assertThat(avatars.load(2L, 1, null)).map(avatar -> avatar.data().length).contains(101);
+
+        // Nothing was evicted to make room for it
+        assertThat(cachedBytes()).isEqualTo(60);
+        assertThat(cachedUsers()).containsExactly(1L);
+    }
+
+    @Test
+    void newVersionIsLoadedAgainAndOldOneAgesOut() {
+        imageSizes.put(1L, 30);
+        avatars.load(1L, 1, null);
+        imageSizes.put(1L, 50);
+        assertThat(avatars.load(1L, 2, null)).map(avatar -> avatar.data().length).contains(50);
+        assertThat(cachedBytes()).isEqualTo(80);
+
+        imageSizes.put(2L, 40);
+        avatars.load(2L, 1, null);
+        // The stale first version went first
+        assertThat(cachedBytes()).isEqualTo(90);
+        assertThat(cachedUsers()).containsExactlyInAnyOrder(1L, 2L);
+    }
+
+    @Test
+    void missingAvatarIsNotCached() {
+        assertThat(avatars.load(9L, 1, null)).isEmpty();
+        assertThat(cachedBytes()).isZero();
+    }
+
+    private long cachedBytes() {
+        return (long) ReflectionTestUtils.getField(avatars, "cachedBytes");
+    }
+
+    private List<Long> cachedUsers() {
+        Map<?, ?> cache = (Map<?, ?>) ReflectionTestUtils.getField(avatars, "cache");
+        return cache.keySet().stream().map(key -> (Long) ReflectionTestUtils.invokeGetterMethod(key, "userId")).toList();
+    }
+}
@@ -0,0 +1,209 @@
+package com.chillspace.backend.service;
+
+import com.chillspace.backend.model.Message;
+import com.chillspace.backend.model.MessageType;
+import com.chillspace.backend.repository.MessageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.AdditionalAnswers.returnsFirstArg;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChatHistoryServiceTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 12, 0);
+    private static final Comparator<Message> TIMELINE =
+            Comparator.comparing(Message::getTimestamp).thenComparing(Message::getId);
+
+    // What is still in the messages table, and what has been moved to the archive (always older)
+    private final List<Message> table = new ArrayList<>();
+    private final List<Message> archived = new ArrayList<>();
+    private final MessageRepository repository = mock(MessageRepository.class);
+    private final MessageArchiveService archive = mock(MessageArchiveService.class);
+    private ChatHistoryService history;
+
+    @BeforeEach
+    void setUp() {
+        when(repository.findLatest(anyString(), any())).thenAnswer(call ->
+                page(table, call.getArgument(0), m -> true, call.<Pageable>getArgument(1).getPageSize(), true));
+        when(repository.findBefore(anyString(), any(), anyLong(), any())).thenAnswer(call ->
+                page(table, call.getArgument(0), olderThan(call.getArgument(1), call.getArgument(2)),
+                        call.<Pageable>getArgument(3).getPageSize(), true));
+        when(repository.findAfter(anyString(), any(), anyLong(), any())).thenAnswer(call ->
+                page(table, call.getArgument(0), newerThan(call.getArgument(1), call.getArgument(2)),
+                        call.<Pageable>getArgument(3).getPageSize(), false));
+        when(repository.findTimestampById(anyLong())).thenAnswer(call ->
+                find(table, call.getArgument(0)).map(Message::getTimestamp));
+
+        // The archive pages oldest-first in both directions
+        when(archive.before(anyString(), any(), anyLong(), anyInt())).thenAnswer(call -> {
+            List<Message> page = new ArrayList<>(page(archived, call.getArgument(0),
+                    olderThan(call.getArgument(1), call.getArgument(2)), call.getArgument(3), true));
+            Collections.reverse(page);
+            return page;
+        });
+        when(archive.after(anyString(), any(), anyLong(), anyInt())).thenAnswer(call ->
+                page(archived, call.getArgument(0), newerThan(call.getArgument(1), call.getArgument(2)),
+                        call.getArgument(3), false));
+        when(archive.findById(anyLong())).thenAnswer(call -> find(archived, call.getArgument(0)));
+
+        UserDirectory userDirectory = mock(UserDirectory.class);
+        when(userDirectory.resolve(anyList())).thenAnswer(returnsFirstArg());
+
+        history = new ChatHistoryService(repository, archive, userDirectory);
+    }
+
+    @Test
+    void latestIsTheNewestPageOldestFirst() {
+        store(table, 1, 2, 3, 4, 5);
+
+        assertThat(ids(history.latest("public", 3))).containsExactly(3L, 4L, 5L);
+        verify(archive, never()).before(anyString(), any(), anyLong(), anyInt());
+    }
+
+    @Test
+    void latestIsToppedUpFromTheArchiveWhenTheTableIsShort() {
+        store(archived, 1, 2, 3);
+        store(table, 4, 5);
+
+        assertThat(ids(history.latest("public", 4))).containsExactly(2L, 3L, 4L, 5L);
+    }
+
+    @Test
+    void latestOfARoomWithOnlyArchivedMessagesComesFromTheArchive() {
+        store(archived, 1, 2, 3);
+
+        assertThat(ids(history.latest("public", 2))).containsExactly(2L, 3L);
+    }
+
+    @Test
+    void pagingBackwardsWalksFromTheTableIntoTheArchive() {
+        store(archived, 1, 2, 3);
+        store(table, 4, 5, 6);
+
+        List<Message> first = history.latest("public", 2);
+        assertThat(ids(first)).containsExactly(5L, 6L);
+
+        List<Message> second = history.before("public", first.get(0).getId(), 2).orElseThrow();
+        assertThat(ids(second)).containsExactly(3L, 4L);
+
+        // The cursor itself is archived now
+        List<Message> third = history.before("public", second.get(0).getId(), 2).orElseThrow();
+        assertThat(ids(third)).containsExactly(1L, 2L);
+
+        assertThat(history.before("public", third.get(0).getId(), 2)).contains(List.of());
+    }
+
+    @Test
+    void pagingForwardsFromAnArchivedCursorContinuesIntoTheTable() {
+        store(archived, 1, 2, 3);
+        store(table, 4, 5, 6);
+
+        assertThat(ids(history.after("public", 2L, 3).orElseThrow())).containsExactly(3L, 4L, 5L);
+        assertThat(ids(history.after("public", 4L, 3).orElseThrow())).containsExactly(5L, 6L);
+        assertThat(history.after("public", 6L, 3)).contains(List.of());
+    }
+
+    @Test
+    void messagesSharingATimestampAreOrderedById() {
+        // Same second, ids allocated out of order across nodes
+        table.add(message(7, START));
+        table.add(message(3, START));
+        table.add(message(5, START));
+
+        assertThat(ids(history.latest("public", 10))).containsExactly(3L, 5L, 7L);
+        assertThat(ids(history.before("public", 7L, 10).orElseThrow())).containsExactly(3L, 5L);
+        assertThat(ids(history.after("public", 3L, 10).orElseThrow())).containsExactly(5L, 7L);
+    }
+
+    @Test
+    void otherRoomsAreNotMixedIn() {
+        store(table, 1, 2, 3);
+        Message elsewhere = message(4, START.plusSeconds(4));
+        elsewhere.setRoomId("games");
+        table.add(elsewhere);
+
+        assertThat(ids(history.latest("public", 10))).containsExactly(1L, 2L, 3L);
+        assertThat(ids(history.latest("games", 10))).containsExactly(4L);
+    }
+
+    @Test
+    void unknownCursorIsEmpty() {
+        store(table, 1, 2);
+
+        assertThat(history.before("public", 99L, 10)).isEmpty();
+        assertThat(history.after("public", 99L, 10)).isEmpty();
+    }
+
+    @Test
+    void limitIsClamped() {
+        store(table, 1);
+
+        history.latest("public", 0);
+        verify(repository).findLatest(eq("public"), eq(Pageable.ofSize(ChatHistoryService.DEFAULT_LIMIT)));
+
+        history.latest("public", 10_000);
+        verify(repository).findLatest(eq("public"), eq(Pageable.ofSize(ChatHistoryService.MAX_LIMIT)));
+    }
+
+    private static void store(List<Message> target, long... ids) {
+        for (long id : ids) {
+            target.add(message(id, START.plusSeconds(id)));
+        }
+    }
+
+    private static Message message(long id, LocalDateTime timestamp) {
+        Message message = new Message();
+        message.setId(id);
+        message.setType(MessageType.CHAT);
+        message.setRoomId("public");
+        message.setContent(String.valueOf(id));
+        message.setTimestamp(timestamp);
+        return message;
+    }
+
+    private static List<Message> page(List<Message> source, String room, Predicate<Message> filter, int limit,
+            boolean newestFirst) {
+        return source.stream()
+                .filter(m -> m.getRoomId().equals(room))
+                .filter(filter)
+                .sorted(newestFirst ? TIMELINE.reversed() : TIMELINE)
+                .limit(limit)
+                .toList();
+    }
+
+    private static Predicate<Message> olderThan(LocalDateTime timestamp, long id) {
+        return m -> m.getTimestamp().isBefore(timestamp) || (m.getTimestamp().equals(timestamp) && m.getId() < id);
+    }
+
+    private static Predicate<Message> newerThan(LocalDateTime timestamp, long id) {
+        return m -> m.getTimestamp().isAfter(timestamp) || (m.getTimestamp().equals(timestamp) && m.getId() > id);
+    }
+
+    private static Optional<Message> find(List<Message> source, long id) {
+        return source.stream().filter(m -> m.getId() == id).findFirst();
+    }
+
+    private static List<Long> ids(List<Message> messages) {
+        return messages.stream().map(Message::getId).toList();
+    }
+}
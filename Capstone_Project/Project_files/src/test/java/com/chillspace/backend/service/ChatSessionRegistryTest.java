@@ -0,0 +1,52 @@
+package com.chillspace.backend.service;
+
+import com.chillspace.backend.model.Role;
+import com.chillspace.backend.model.User;
+import com.chillspace.backend.service.ChatSessionRegistry.ChatSession;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class ChatSessionRegistryTest {
+
+    private final ClusterEventRelay clusterEventRelay = mock(ClusterEventRelay.class);
+    private final ChatSessionRegistry registry = new ChatSessionRegistry(clusterEventRelay);
+
+    @Test
+    void refreshAppliesHereAndTellsTheOtherNodes() {
+        ChatSession session = new ChatSession("s1", 7L, "bob", Role.USER);
+        ChatSession other = new ChatSession("s2", 8L, "carol", Role.USER);
+        registry.register(session);
+        registry.register(other);
+
+        User user = user(7L, Role.MODERATOR, true);
+        registry.refreshUser(user);
+
+        assertThat(session.getRole()).isEqualTo(Role.MODERATOR);
+        assertThat(session.isBanned()).isTrue();
+        assertThat(other.isBanned()).isFalse();
+        verify(clusterEventRelay).publish(ClusterEvent.userRefresh(user));
+    }
+
+    @Test
+    void refreshFromAnotherNodeAppliesHere() {
+        ChatSession session = new ChatSession("s1", 7L, "bob", Role.MODERATOR);
+        session.setBanned(true);
+        registry.register(session);
+
+        registry.onClusterEvent(ClusterEvent.userRefresh(user(7L, Role.USER, false)).from("node-b"));
+
+        assertThat(session.getRole()).isEqualTo(Role.USER);
+        assertThat(session.isBanned()).isFalse();
+    }
+
+    private static User user(Long id, Role role, boolean banned) {
+        User user = new User();
+        user.setId(id);
+        user.setRole(role);
+        user.setBanned(banned);
+        return user;
+    }
+}
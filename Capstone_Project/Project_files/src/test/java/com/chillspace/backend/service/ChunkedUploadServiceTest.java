@@ -0,0 +1,271 @@
+package com.chillspace.backend.service;
+
+import com.chillspace.backend.model.FileUpload;
+import com.chillspace.backend.model.SharedFile;
+import com.chillspace.backend.repository.FileUploadRepository;
+import com.chillspace.backend.repository.SharedFileRepository;
+import com.chillspace.backend.storage.LocalBlobStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ChunkedUploadServiceTest {
+
+    @TempDir
+    Path dataDir;
+
+    private final Map<String, FileUpload> uploads = new HashMap<>();
+    private final FileUploadRepository uploadRepository = mock(FileUploadRepository.class);
+    private final SharedFileRepository fileRepository = mock(SharedFileRepository.class);
+    private LocalBlobStore blobStore;
+    private ChunkedUploadService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        when(uploadRepository.findById(any())).thenAnswer(call -> Optional.ofNullable(uploads.get(call.<String>getArgument(0))));
+        when(uploadRepository.save(any())).thenAnswer(call -> {
+            FileUpload upload = call.getArgument(0);
+            uploads.put(upload.getId(), upload);
+            return upload;
+        });
+        doAnswer(call -> uploads.remove(call.<FileUpload>getArgument(0).getId())).when(uploadRepository).delete(any());
+
+        blobStore = new LocalBlobStore();
+        ReflectionTestUtils.setField(blobStore, "blobDir", dataDir.resolve("blobs").toString());
+        blobStore.init();
+
+        FileBlobService fileBlobService = mock(FileBlobService.class);
+        when(fileBlobService.acquire(any())).thenAnswer(call -> call.getArgument(0));
+
+        service = new ChunkedUploadService(uploadRepository, fileRepository, blobStore, fileBlobService,
+                mock(ThumbnailService.class), mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(service, "uploadDir", dataDir.resolve("uploads").toString());
+        ReflectionTestUtils.setField(service, "maxUploadSize", DataSize.ofKilobytes(1));
+        ReflectionTestUtils.setField(service, "chunkSize", DataSize.ofBytes(4));
+        ReflectionTestUtils.setField(service, "expiryHours", 24L);
+        service.init();
+    }
+
+    @Test
+    void chunksAreAcceptedOnlyAtTheReceivedOffset() throws IOException {
+        String id = initiate("abcdefghij");
+
+        assertThat(service.writeChunk(id, 0, body("abcd"), null).getReceivedBytes()).isEqualTo(4);
+        // A retried chunk that already arrived, and one sent too far ahead
+        assertThatThrownBy(() -> service.writeChunk(id, 0, body("abcd"), null))
+                .isInstanceOf(IllegalStateException.class).hasMessageContaining("Expected offset 4");
+        assertThatThrownBy(() -> service.writeChunk(id, 8, body("ij"), null))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(service.writeChunk(id, 4, body("efgh"), null).getReceivedBytes()).isEqualTo(8);
+        assertThat(service.writeChunk(id, 8, body("ij"), null).getReceivedBytes()).isEqualTo(10);
+        assertThat(partContent(id)).isEqualTo("abcdefghij");
+    }
+
+    @Test
+    void interruptedChunkIsTruncatedAndCanBeResent() throws IOException {
+        String id = initiate("abcdefgh");
+        service.writeChunk(id, 0, body("abcd"), null);
+
+        // The connection drops after two bytes of the second chunk
+        InputStream cutOff = new InputStream() {
+            private final InputStream data = body("ef");
+
+            @Override
+            public int read() throws IOException {
+                int next = data.read();
+                if (next == -1) {
+                    throw new IOException("Connection reset");
+                }
+                return next;
+            }
+        };
+        assertThatThrownBy(() -> service.writeChunk(id, 4, cutOff, null)).isInstanceOf(IOException.class);
+        assertThat(uploads.get(id).getReceivedBytes()).isEqualTo(4);
+        assertThat(partContent(id)).isEqualTo("abcd");
+
+        service.writeChunk(id, 4, body("efgh"), null);
+        assertThat(partContent(id)).isEqualTo("abcdefgh");
+    }
+
+    @Test
+    void chunkFailingItsChecksumOrTooLargeIsDiscarded() throws IOException {
+        String id = initiate("abcdefgh");
+
+        assertThatThrownBy(() -> service.writeChunk(id, 0, body("abcd"), sha256("abce")))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("checksum");
+        assertThatThrownBy(() -> service.writeChunk(id, 0, body("abcde"), null))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("larger");
+        assertThat(uploads.get(id).getReceivedBytes()).isZero();
+        assertThat(partContent(id)).isEmpty();
+
+        assertThat(service.writeChunk(id, 0, body("abcd"), sha256("abcd").toUpperCase()).getReceivedBytes()).isEqualTo(4);
+    }
+
+    @Test
+    void completeRequiresEveryByte() throws IOException {
+        String id = initiate("abcdefgh");
+        service.writeChunk(id, 0, body("abcd"), null);
+
+        assertThatThrownBy(() -> service.complete(id))
+                .isInstanceOf(IllegalStateException.class).hasMessageContaining("4 of 8");
+    }
+
+    @Test
+    void failedCompletionKeepsThePartFileSoItCanBeRetried() throws IOException {
+        String id = initiate("abcdefgh");
+        service.writeChunk(id, 0, body("abcd"), null);
+        service.writeChunk(id, 4, body("efgh"), null);
+
+        when(fileRepository.save(any())).thenThrow(new DataAccessResourceFailureException("Connection refused"));
+        assertThatThrownBy(() -> service.complete(id)).isInstanceOf(DataAccessResourceFailureException.class);
+        assertThat(uploads).containsKey(id);
+        assertThat(partContent(id)).isEqualTo("abcdefgh");
+
+        doAnswer(call -> call.getArgument(0)).when(fileRepository).save(any());
+        SharedFile shared = service.complete(id);
+
+        assertThat(shared.getBlobHash()).isEqualTo(sha256("abcdefgh"));
+        assertThat(shared.getFileSize()).isEqualTo(8);
+        try (InputStream stored = blobStore.open(shared.getBlobHash())) {
+            assertThat(new String(stored.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("abcdefgh");
+        }
+        assertThat(uploads).doesNotContainKey(id);
+        assertThat(Files.exists(partFile(id))).isFalse();
+    }
+
+    @Test
+    void abortWaitsForTheChunkBeingWrittenAndTheRowStaysGone() throws Exception {
+        String id = initiate("abcdefgh");
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        InputStream slow = new InputStream() {
+            private final InputStream data = body("abcd");
+
+            @Override
+            public int read() throws IOException {
+                reading.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                return data.read();
+            }
+        };
+
+        CompletableFuture<FileUpload> chunk = CompletableFuture.supplyAsync(() -> {
+            try {
+                return service.writeChunk(id, 0, slow, null);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertThat(reading.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Void> abort = CompletableFuture.runAsync(() -> {
+            try {
+                service.abort(uploads.get(id));
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        Thread.sleep(100);
+        assertThat(abort).isNotDone();
+        release.countDown();
+
+        chunk.get(5, TimeUnit.SECONDS);
+        abort.get(5, TimeUnit.SECONDS);
+        assertThat(uploads).doesNotContainKey(id);
+        assertThat(Files.exists(partFile(id))).isFalse();
+        assertThat(locks()).isEmpty();
+    }
+
+    @Test
+    void chunkForARemovedUploadIsRefusedWithoutRecreatingIt() throws IOException {
+        String id = initiate("abcdefgh");
+        service.abort(uploads.get(id));
+
+        assertThatThrownBy(() -> service.writeChunk(id, 0, body("abcd"), null))
+                .isInstanceOf(IllegalStateException.class).hasMessageContaining("no longer exists");
+        assertThat(uploads).doesNotContainKey(id);
+        assertThat(locks()).isEmpty();
+    }
+
+    @Test
+    void expirySweepSparesAnUploadTouchedSinceItWasListed() throws IOException {
+        String idle = initiate("abcd");
+        String touched = initiate("efgh");
+        uploads.get(idle).setUpdatedAt(LocalDateTime.now().minusDays(2));
+        // Listed as idle, but a chunk has arrived since
+        FileUpload stale = new FileUpload();
+        stale.setId(touched);
+        stale.setUpdatedAt(LocalDateTime.now().minusDays(2));
+        uploads.get(touched).setUpdatedAt(LocalDateTime.now());
+        when(uploadRepository.findByUpdatedAtBefore(any())).thenReturn(List.of(uploads.get(idle), stale));
+
+        service.removeAbandoned();
+
+        assertThat(uploads).doesNotContainKey(idle).containsKey(touched);
+        assertThat(Files.exists(partFile(idle))).isFalse();
+        assertThat(Files.exists(partFile(touched))).isTrue();
+    }
+
+    private String initiate(String content) throws IOException {
+        return service.initiate("alice", "notes.txt", "text/plain", content.length(), null).getId();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, ?> locks() {
+        return (Map<String, ?>) ReflectionTestUtils.getField(service, "locks");
+    }
+
+    private Path partFile(String id) {
+        return ReflectionTestUtils.invokeMethod(service, "partFile", id);
+    }
+
+    private String partContent(String id) throws IOException {
+        return Files.readString(partFile(id));
+    }
+
+    private static InputStream body(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String sha256(String content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.chillspace.backend.service;
+
+import com.chillspace.backend.model.FileBlob;
+import com.chillspace.backend.repository.FileBlobRepository;
+import com.chillspace.backend.storage.BlobStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FileBlobServiceTest {
+
+    private static final String HASH = "a".repeat(64);
+
+    private final BlobStore blobStore = mock(BlobStore.class);
+    private final FileBlobRepository blobRepository = mock(FileBlobRepository.class);
+    private final ThumbnailService thumbnailService = mock(ThumbnailService.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private FileBlobService service;
+
+    @BeforeEach
+    void setUp() {
+        when(transactionManager.getTransaction(any())).thenAnswer(call -> new SimpleTransactionStatus());
+        FileBlobService target = new FileBlobService(blobStore, blobRepository, thumbnailService, transactionManager);
+        ReflectionTestUtils.setField(target, "graceMinutes", 10L);
+
+        // Proxied like in the application, so the @Transactional attributes are what decides commit or rollback
+        ProxyFactory proxy = new ProxyFactory(target);
+        proxy.setProxyTargetClass(true);
+        proxy.addAdvice(new TransactionInterceptor(transactionManager, new AnnotationTransactionAttributeSource()));
+        service = (FileBlobService) proxy.getProxy();
+
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void acquireOfContentSweptAfterPutRollsBackTheReference() {
+        // The sweep deleted identical, unreferenced content between put and acquire
+        when(blobStore.exists(HASH)).thenReturn(false);
+
+        assertThatThrownBy(() -> service.acquire(new BlobStore.StoredBlob(HASH, 3)))
+                .isInstanceOf(IOException.class);
+
+        verify(blobRepository).acquire(HASH, 3);
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+        assertThat(TransactionSynchronizationManager.getSynchronizations()).isEmpty();
+    }
+
+    @Test
+    void acquiredBlobIsLeftForTheSweepWhenTheCallerRollsBack() throws IOException {
+        when(blobStore.exists(HASH)).thenReturn(true);
+
+        service.acquire(new BlobStore.StoredBlob(HASH, 3));
+        verify(transactionManager).commit(any());
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        assertThat(synchronizations).hasSize(1);
+        synchronizations.get(0).afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        verify(blobRepository).registerUnreferenced(HASH, 3);
+    }
+
+    @Test
+    void sweepKeepsBlobReferencedSinceItWasListed() throws IOException {
+        // Listed as unreferenced, but an upload took a reference before the sweep got the row lock
+        when(blobRepository.findUnreferencedSince(any(), any())).thenReturn(List.of(HASH));
+        when(blobRepository.findForUpdate(HASH)).thenReturn(Optional.of(blob(1)));
+
+        service.sweep();
+
+        verify(blobStore, never()).delete(anyString());
+        verify(thumbnailService, never()).delete(anyString());
+        verify(blobRepository, never()).delete(any(FileBlob.class));
+    }
+
+    @Test
+    void sweepRemovesUnreferencedBlobWithItsThumbnail() throws IOException {
+        FileBlob unreferenced = blob(0);
+        when(blobRepository.findUnreferencedSince(any(), any())).thenReturn(List.of(HASH));
+        when(blobRepository.findForUpdate(HASH)).thenReturn(Optional.of(unreferenced));
+
+        service.sweep();
+
+        verify(blobStore).delete(HASH);
+        verify(thumbnailService).delete(HASH);
+        verify(blobRepository).delete(unreferenced);
+        verify(blobRepository, never()).acquire(anyString(), anyLong());
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void sweepLeavesTheRowWhenTheBytesCannotBeDeleted() throws IOException {
+        when(blobRepository.findUnreferencedSince(any(), any())).thenReturn(List.of(HASH));
+        when(blobRepository.findForUpdate(HASH)).thenReturn(Optional.of(blob(0)));
+        doThrow(new IOException("busy")).when(blobStore).delete(eq(HASH));
+
+        service.sweep();
+
+        verify(blobRepository, never()).delete(any(FileBlob.class));
+        verify(transactionManager).rollback(any());
+    }
+
+    private static FileBlob blob(int refCount) {
+        FileBlob blob = new FileBlob();
+        blob.setHash(HASH);
+        blob.setSize(3);
+        blob.setRefCount(refCount);
+        blob.setUpdatedAt(LocalDateTime.now().minusHours(1));
+        return blob;
+    }
+}
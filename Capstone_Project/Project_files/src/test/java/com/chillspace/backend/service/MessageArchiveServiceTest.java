@@ -0,0 +1,258 @@
+package com.chillspace.backend.service;
+
+import com.chillspace.backend.model.Message;
+import com.chillspace.backend.model.MessageType;
+import com.chillspace.backend.repository.MessageRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.doAnswer;
+
+class MessageArchiveServiceTest {
+
+    @TempDir
+    Path archiveDir;
+
+    private final List<Message> table = new ArrayList<>();
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private MessageArchiveService archive;
+    private long nextId = 1;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MessageRepository repository = mock(MessageRepository.class);
+        when(repository.findOldestTimestamp()).thenAnswer(call -> table.stream()
+                .map(Message::getTimestamp).min(Comparator.naturalOrder()).orElse(null));
+        when(repository.findDayAfter(any(), any(), any(), anyLong(), any())).thenAnswer(call -> {
+            LocalDateTime start = call.getArgument(0);
+            LocalDateTime end = call.getArgument(1);
+            LocalDateTime timestamp = call.getArgument(2);
+            long id = call.getArgument(3);
+            Pageable page = call.getArgument(4);
+            return table.stream()
+                    .filter(m -> !m.getTimestamp().isBefore(start) && m.getTimestamp().isBefore(end))
+                    .filter(m -> m.getTimestamp().isAfter(timestamp) || (m.getTimestamp().equals(timestamp) && m.getId() > id))
+                    .sorted(Comparator.comparing(Message::getTimestamp).thenComparing(Message::getId))
+                    .limit(page.getPageSize())
+                    .toList();
+        });
+        doAnswer(call -> {
+            Set<Long> ids = new HashSet<>();
+            call.<Iterable<Long>>getArgument(0).forEach(ids::add);
+            table.removeIf(m -> ids.contains(m.getId()));
+            return null;
+        }).when(repository).deleteAllByIdInBatch(any());
+
+        archive = new MessageArchiveService(repository, mock(PlatformTransactionManager.class), objectMapper);
+        ReflectionTestUtils.setField(archive, "enabled", true);
+        ReflectionTestUtils.setField(archive, "archiveDir", archiveDir.toString());
+        ReflectionTestUtils.setField(archive, "retentionDays", 30);
+        archive.loadSegments();
+    }
+
+    @Test
+    void roomReadsSkipSegmentsWithoutTheRoom() throws Exception {
+        LocalDate first = LocalDate.now().minusDays(40);
+        add("alpha", first.atTime(10, 0), first.atTime(11, 0));
+        add("beta", first.plusDays(1).atTime(9, 0), first.plusDays(1).atTime(9, 30));
+        add("alpha", first.plusDays(2).atTime(8, 0));
+        archive.archiveOldMessages();
+
+        assertThat(table).isEmpty();
+        assertThat(archive.getSegments()).hasSize(3);
+        assertThat(archive.getSegments().get(1).rooms()).containsOnlyKeys("beta");
+
+        // The beta-only day must never be opened for alpha reads
+        Files.delete(archiveDir.resolve(archive.getSegments().get(1).name() + MessageArchiveService.SEGMENT_SUFFIX));
+
+        List<Message> before = archive.before("alpha", LocalDateTime.now(), Long.MAX_VALUE, 10);
+        assertThat(before).extracting(Message::getId).containsExactly(1L, 2L, 5L);
+
+        List<Message> after = archive.after("alpha", first.atTime(10, 0), 1L, 10);
+        assertThat(after).extracting(Message::getId).containsExactly(2L, 5L);
+    }
+
+    @Test
+    void segmentsBeforeTheCursorAreNotRead() throws Exception {
+        LocalDate first = LocalDate.now().minusDays(40);
+        add("alpha", first.atTime(10, 0));
+        add("alpha", first.plusDays(1).atTime(10, 0));
+        archive.archiveOldMessages();
+
+        Files.delete(archiveDir.resolve(archive.getSegments().get(0).name() + MessageArchiveService.SEGMENT_SUFFIX));
+
+        // Served from the second day alone; the first ends before the cursor
+        assertThat(archive.after("alpha", first.atTime(12, 0), 0L, 10))
+                .extracting(Message::getId).containsExactly(2L);
+    }
+
+    @Test
+    void legacyIndexesGainRoomsOnStartup() throws Exception {
+        LocalDate day = LocalDate.now().minusDays(40);
+        add("alpha", day.atTime(10, 0));
+        add("beta", day.atTime(11, 0), day.atTime(12, 0));
+        archive.archiveOldMessages();
+
+        MessageArchiveService.Segment segment = archive.getSegments().get(0);
+        MessageArchiveService.Segment legacy = new MessageArchiveService.Segment(segment.name(), segment.day(),
+                segment.part(), segment.count(), segment.minId(), segment.maxId(), segment.firstTimestamp(),
+                segment.lastTimestamp(), segment.bytes(), null);
+        objectMapper.writeValue(archiveDir.resolve(segment.name() + ".idx.json").toFile(), legacy);
+
+        archive.loadSegments();
+
+        MessageArchiveService.RoomRange beta = archive.getSegments().get(0).rooms().get("beta");
+        assertThat(beta.count()).isEqualTo(2);
+        assertThat(beta.first()).isEqualTo(day.atTime(11, 0));
+        assertThat(beta.last()).isEqualTo(day.atTime(12, 0));
+    }
+
+    @Test
+    void onlyDaysPastTheRetentionWindowAreMovedOut() throws Exception {
+        LocalDate old = LocalDate.now().minusDays(40);
+        LocalDate recent = LocalDate.now().minusDays(5);
+        add("alpha", old.atTime(10, 0), old.atTime(23, 59));
+        add("alpha", recent.atTime(10, 0));
+        archive.archiveOldMessages();
+
+        assertThat(table).extracting(Message::getId).containsExactly(3L);
+        MessageArchiveService.Segment segment = archive.getSegments().get(0);
+        assertThat(segment.name()).isEqualTo("messages-" + old);
+        assertThat(segment.count()).isEqualTo(2);
+        assertThat(segment.minId()).isEqualTo(1L);
+        assertThat(segment.maxId()).isEqualTo(2L);
+        assertThat(archive.getArchivedCount()).isEqualTo(2);
+
+        // Gzipped NDJSON, one message per line, as the download endpoint serves it
+        Path file = archive.segmentFile(segment.name()).orElseThrow();
+        assertThat(file.getFileName().toString()).endsWith(MessageArchiveService.SEGMENT_SUFFIX);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            List<String> lines = reader.lines().toList();
+            assertThat(lines).hasSize(2);
+            assertThat(objectMapper.readValue(lines.get(1), Message.class).getContent()).isEqualTo("message 2");
+        }
+    }
+
+    @Test
+    void disabledArchiveLeavesTheTableAlone() {
+        ReflectionTestUtils.setField(archive, "enabled", false);
+        add("alpha", LocalDate.now().minusDays(40).atTime(10, 0));
+
+        archive.archiveOldMessages();
+
+        assertThat(table).hasSize(1);
+        assertThat(archive.getSegments()).isEmpty();
+    }
+
+    @Test
+    void rowsLeftBehindByAnInterruptedRunAreNotWrittenTwice() throws Exception {
+        LocalDate day = LocalDate.now().minusDays(40);
+        add("alpha", day.atTime(10, 0), day.atTime(11, 0));
+        List<Message> written = List.copyOf(table);
+        archive.archiveOldMessages();
+
+        // The segment was written but the delete never happened; a late row arrived for the same day
+        table.addAll(written);
+        add("alpha", day.atTime(12, 0));
+        archive.archiveOldMessages();
+
+        assertThat(table).isEmpty();
+        assertThat(archive.getSegments()).extracting(MessageArchiveService.Segment::name)
+                .containsExactly("messages-" + day, "messages-" + day + ".1");
+        assertThat(archive.getSegments().get(1).count()).isEqualTo(1);
+        assertThat(archive.getArchivedCount()).isEqualTo(3);
+        // Parts of one day are read as one, in order
+        assertThat(archive.before("alpha", LocalDateTime.now(), Long.MAX_VALUE, 10))
+                .extracting(Message::getId).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    void pagesStopAtTheLimitAndCrossDays() {
+        LocalDate first = LocalDate.now().minusDays(40);
+        add("alpha", first.atTime(10, 0), first.atTime(11, 0));
+        add("alpha", first.plusDays(1).atTime(10, 0), first.plusDays(1).atTime(11, 0));
+        archive.archiveOldMessages();
+
+        assertThat(archive.before("alpha", first.plusDays(1).atTime(11, 0), 4L, 2))
+                .extracting(Message::getId).containsExactly(2L, 3L);
+        assertThat(archive.after("alpha", first.atTime(10, 0), 1L, 2))
+                .extracting(Message::getId).containsExactly(2L, 3L);
+        assertThat(archive.before("gamma", LocalDateTime.now(), Long.MAX_VALUE, 10)).isEmpty();
+    }
+
+    @Test
+    void archivedMessagesAreFoundById() {
+        LocalDate first = LocalDate.now().minusDays(40);
+        add("alpha", first.atTime(10, 0));
+        add("beta", first.plusDays(1).atTime(10, 0));
+        archive.archiveOldMessages();
+
+        assertThat(archive.findById(2L)).map(Message::getRoomId).contains("beta");
+        assertThat(archive.findById(99L)).isEmpty();
+        assertThat(archive.findByIds(List.of(1L, 2L, 99L))).extracting(Message::getId).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void segmentsAreFoundAgainAfterARestart() throws Exception {
+        LocalDate day = LocalDate.now().minusDays(40);
+        add("alpha", day.atTime(10, 0), day.atTime(11, 0));
+        archive.archiveOldMessages();
+
+        MessageArchiveService restarted = new MessageArchiveService(mock(MessageRepository.class),
+                mock(PlatformTransactionManager.class), objectMapper);
+        ReflectionTestUtils.setField(restarted, "archiveDir", archiveDir.toString());
+        restarted.loadSegments();
+
+        assertThat(restarted.getSegments()).isEqualTo(archive.getSegments());
+        assertThat(restarted.findById(2L)).isPresent();
+    }
+
+    @Test
+    void onlyKnownSegmentNamesResolveToFiles() throws Exception {
+        add("alpha", LocalDate.now().minusDays(40).atTime(10, 0));
+        archive.archiveOldMessages();
+        Files.writeString(archiveDir.resolve("stray" + MessageArchiveService.SEGMENT_SUFFIX), "not a segment");
+
+        assertThat(archive.segmentFile(archive.getSegments().get(0).name())).isPresent();
+        assertThat(archive.segmentFile("stray")).isEmpty();
+        assertThat(archive.segmentFile("../" + archiveDir.getFileName() + "/stray")).isEmpty();
+    }
+
+    private void add(String room, LocalDateTime... timestamps) {
+        for (LocalDateTime timestamp : timestamps) {
+            Message message = new Message();
+            message.setId(nextId++);
+            message.setType(MessageType.CHAT);
+            message.setRoomId(room);
+            message.setSender("tester");
+            message.setContent("message " + message.getId());
+            message.setTimestamp(timestamp);
+            table.add(message);
+        }
+    }
+}
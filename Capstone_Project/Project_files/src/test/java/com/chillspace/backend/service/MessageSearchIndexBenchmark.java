@@ -0,0 +1,141 @@
+package com.chillspace.backend.service;
+
+import com.chillspace.backend.repository.MessageRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Search latency of MessageSearchIndex at the target size of one million messages (goal: p99 under
+ * 20 ms). Messages are a few words drawn from a Zipf-distributed vocabulary, like chat, from a few
+ * hundred senders; queries mix common and rare words, two-word conjunctions and from: filters.
+ * Times search() alone: the endpoint then loads one page of results by primary key. Not part of the
+ * normal build:
+ *
+ *   mvn test -Dtest=MessageSearchIndexBenchmark -Dbenchmark=true [-Dbenchmark.messages=1000000]
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class MessageSearchIndexBenchmark {
+
+    private static final int MESSAGES = Integer.getInteger("benchmark.messages", 1_000_000);
+    private static final int QUERIES = Integer.getInteger("benchmark.queries", 10_000);
+    private static final int WARMUP_QUERIES = 2_000;
+    private static final int VOCABULARY = 20_000;
+    private static final int SENDERS = 500;
+    private static final int WORDS_PER_MESSAGE = 8;
+
+    private final Random random = new Random(42);
+    private final double[] zipf = zipf(VOCABULARY);
+
+    @Test
+    void searchAtTargetSize() {
+        MessageSearchIndex index = new MessageSearchIndex(mock(MessageRepository.class),
+                mock(MessageArchiveService.class), mock(UserDirectory.class));
+
+        System.gc();
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        StringBuilder content = new StringBuilder();
+        for (long id = 1; id <= MESSAGES; id++) {
+            content.setLength(0);
+            int words = 1 + random.nextInt(WORDS_PER_MESSAGE * 2);
+            for (int w = 0; w < words; w++) {
+                content.append(word(nextRank())).append(' ');
+            }
+            index.add(id, "user" + random.nextInt(SENDERS), content.toString());
+        }
+        long buildMs = (System.nanoTime() - start) / 1_000_000;
+        System.gc();
+        long heapMb = (usedHeap() - heapBefore) / (1024 * 1024);
+        System.out.printf("Indexed %,d messages, %,d terms in %,d ms, ~%,d MB heap%n",
+                MESSAGES, index.termCount(), buildMs, heapMb);
+
+        List<String> queries = new ArrayList<>();
+        for (int i = 0; i < WARMUP_QUERIES + QUERIES; i++) {
+            queries.add(query(i));
+        }
+        for (int i = 0; i < WARMUP_QUERIES; i++) {
+            index.search(queries.get(i));
+        }
+
+        report("common word (top 10)", index, queries, 0);
+        report("mid-frequency word", index, queries, 1);
+        report("rare word", index, queries, 2);
+        report("two words", index, queries, 3);
+        report("word from:sender", index, queries, 4);
+        report("all", index, queries, -1);
+    }
+
+    // Five query shapes in turn; kind picks one of them, -1 all
+    private String query(int i) {
+        return switch (i % 5) {
+            case 0 -> word(random.nextInt(10));
+            case 1 -> word(100 + random.nextInt(900));
+            case 2 -> word(5_000 + random.nextInt(VOCABULARY - 5_000));
+            case 3 -> word(nextRank()) + " " + word(nextRank());
+            default -> word(nextRank()) + " from:user" + random.nextInt(SENDERS);
+        };
+    }
+
+    private void report(String kind, MessageSearchIndex index, List<String> queries, int shape) {
+        long[] latencies = new long[QUERIES];
+        int count = 0;
+        int capped = 0;
+        long results = 0;
+        for (int i = WARMUP_QUERIES; i < WARMUP_QUERIES + QUERIES; i++) {
+            if (shape >= 0 && i % 5 != shape) {
+                continue;
+            }
+            long start = System.nanoTime();
+            MessageSearchIndex.SearchResult result = index.search(queries.get(i));
+            latencies[count++] = System.nanoTime() - start;
+            results += result.ids().size();
+            if (result.capped()) {
+                capped++;
+            }
+        }
+        long[] measured = Arrays.copyOf(latencies, count);
+        Arrays.sort(measured);
+        System.out.printf("%-22s %6d queries   p50 %7.2f ms   p99 %7.2f ms   max %7.2f ms   avg hits %,8d   capped %d%n",
+                kind, count, ms(measured[count / 2]), ms(measured[(int) (count * 0.99)]), ms(measured[count - 1]),
+                results / count, capped);
+    }
+
+    private int nextRank() {
+        int rank = Arrays.binarySearch(zipf, random.nextDouble());
+        return Math.min(rank >= 0 ? rank : -rank - 1, VOCABULARY - 1);
+    }
+
+    private static String word(int rank) {
+        return "w" + Integer.toString(rank, 36);
+    }
+
+    // Cumulative Zipf (s = 1) distribution over the vocabulary ranks
+    private static double[] zipf(int size) {
+        double[] cumulative = new double[size];
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += 1.0 / (i + 1);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < size; i++) {
+            cumulative[i] /= sum;
+        }
+        return cumulative;
+    }
+
+    private static double ms(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,120 @@
+package com.chillspace.backend.service;
+
+import com.chillspace.backend.repository.MessageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class MessageSearchIndexTest {
+
+    private MessageSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new MessageSearchIndex(mock(MessageRepository.class), mock(MessageArchiveService.class),
+                mock(UserDirectory.class));
+    }
+
+    @Test
+    void findsMessagesContainingEveryTerm() {
+        index.add(1L, "alice", "Deploy the backend tonight");
+        index.add(2L, "bob", "backend tests are green");
+        index.add(3L, "alice", "tonight is pizza night");
+
+        assertThat(index.search("backend").ids()).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(index.search("BACKEND tonight").ids()).containsExactly(1L);
+        assertThat(index.search("backend pizza").ids()).isEmpty();
+        assertThat(index.search("unknown").ids()).isEmpty();
+        // Single letters are not indexed, so a query of only those matches nothing
+        assertThat(index.search("a").ids()).isEmpty();
+    }
+
+    @Test
+    void filtersBySender() {
+        index.add(1L, "alice", "release notes");
+        index.add(2L, "bob", "release party");
+
+        assertThat(index.search("release from:Alice").ids()).containsExactly(1L);
+        assertThat(index.search("@bob").ids()).containsExactly(2L);
+    }
+
+    @Test
+    void ranksRepeatedAndRarerTermsHigherThenNewerFirst() {
+        index.add(1L, "alice", "build build build broke");
+        index.add(2L, "bob", "build passed");
+        index.add(3L, "bob", "build passed");
+        index.add(4L, "bob", "lunch");
+
+        assertThat(index.search("build").ids()).containsExactly(1L, 3L, 2L);
+    }
+
+    @Test
+    void acceptsIdsOutOfOrderAndIgnoresDuplicates() {
+        index.add(5L, "alice", "merge conflict");
+        index.add(2L, "alice", "merge request");
+        index.add(9L, "alice", "merge done");
+        index.add(2L, "alice", "merge request");
+        index.add(7L, "alice", "merge again");
+
+        assertThat(index.search("merge").ids()).containsExactly(9L, 7L, 5L, 2L);
+    }
+
+    @Test
+    void editMovesTheMessageToItsNewTerms() {
+        index.add(1L, "alice", "meeting on monday");
+        index.update(1L, "alice", "meeting on monday", "meeting on tuesday");
+
+        assertThat(index.search("monday").ids()).isEmpty();
+        assertThat(index.search("tuesday").ids()).containsExactly(1L);
+        assertThat(index.search("meeting from:alice").ids()).containsExactly(1L);
+    }
+
+    @Test
+    void renameMovesAndMergesTheSenderPostings() {
+        index.add(1L, "alice", "first");
+        index.add(2L, "alicia", "second");
+        index.renameSender("alice", "alicia");
+
+        assertThat(index.search("from:alice").ids()).isEmpty();
+        assertThat(index.search("from:alicia").ids()).containsExactlyInAnyOrder(1L, 2L);
+    }
+
+    @Test
+    void deletedMessagesAreHiddenAtOnceAndPurgedByCompaction() {
+        index.add(1L, "alice", "secret plan");
+        index.add(2L, "alice", "public plan");
+        int termsBefore = index.termCount();
+
+        index.remove(List.of(1L));
+        assertThat(index.search("plan").ids()).containsExactly(2L);
+        assertThat(index.search("secret").ids()).isEmpty();
+
+        index.compact();
+        assertThat(index.termCount()).isEqualTo(termsBefore - 1);
+        assertThat(index.search("plan").ids()).containsExactly(2L);
+        assertThat(index.search("from:alice").ids()).containsExactly(2L);
+
+        index.remove(List.of(2L));
+        index.compact();
+        assertThat(index.termCount()).isZero();
+    }
+
+    @Test
+    void compactionKeepsPostingsSortedAfterShrinking() {
+        for (long id = 1; id <= 100; id++) {
+            index.add(id, "alice", "status update " + id);
+        }
+        index.remove(LongStream.rangeClosed(1, 95).boxed().toList());
+        index.compact();
+
+        assertThat(index.search("status").ids()).containsExactly(100L, 99L, 98L, 97L, 96L);
+        // Still sorted: a later out-of-order insert lands in place
+        index.add(50L, "alice", "status again");
+        assertThat(index.search("status from:alice").ids()).contains(50L).hasSize(6);
+    }
+}
@@ -0,0 +1,145 @@
+package com.chillspace.backend.service;
+
+import com.chillspace.backend.model.Message;
+import com.chillspace.backend.model.MessageType;
+import jakarta.persistence.EntityManager;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MessageWriteBehindServiceTest {
+
+    private final List<Long> stored = new ArrayList<>();
+    private final List<Long> uncommitted = new ArrayList<>();
+    private final Set<Long> rejected = new HashSet<>();
+    private boolean databaseDown;
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private MessageWriteBehindService writer;
+
+    @BeforeEach
+    void setUp() {
+        EntityManager entityManager = mock(EntityManager.class);
+        doAnswer(call -> {
+            Message message = call.getArgument(0);
+            if (databaseDown) {
+                throw new DataAccessResourceFailureException("Communications link failure");
+            }
+            if (rejected.contains(message.getId()) || stored.contains(message.getId())
+                    || uncommitted.contains(message.getId())) {
+                throw new ConstraintViolationException("Duplicate entry",
+                        new SQLException("Duplicate entry", "23000", 1062), "PRIMARY");
+            }
+            uncommitted.add(message.getId());
+            return null;
+        }).when(entityManager).persist(any(Message.class));
+        when(entityManager.find(eq(Message.class), anyLong()))
+                .thenAnswer(call -> stored.contains(call.<Long>getArgument(1)) ? new Message() : null);
+
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        doAnswer(call -> {
+            stored.addAll(uncommitted);
+            uncommitted.clear();
+            return null;
+        }).when(transactionManager).commit(any());
+        doAnswer(call -> {
+            uncommitted.clear();
+            return null;
+        }).when(transactionManager).rollback(any());
+
+        // The flusher thread is not started; the tests drive writes through flush()
+        writer = new MessageWriteBehindService(transactionManager, eventPublisher, 100, 10, 50, 10, 1, 1);
+        ReflectionTestUtils.setField(writer, "entityManager", entityManager);
+    }
+
+    @Test
+    void unavailableDatabaseKeepsMessagesPendingUntilTheyAreWritten() {
+        databaseDown = true;
+        writer.enqueue(message(1));
+        writer.enqueue(message(2));
+        writer.flush();
+
+        assertThat(stored).isEmpty();
+        assertThat(writer.isPending(1L)).isTrue();
+        assertThat(writer.isPending(2L)).isTrue();
+        assertThat(writer.getDroppedCount()).isZero();
+
+        // Messages accepted during the outage go behind the ones that failed
+        writer.enqueue(message(3));
+        databaseDown = false;
+        writer.flush();
+
+        assertThat(stored).containsExactly(1L, 2L, 3L);
+        assertThat(writer.hasPending()).isFalse();
+        assertThat(writer.getDroppedCount()).isZero();
+    }
+
+    @Test
+    void onlyRowsRejectedByTheDatabaseAreDropped() {
+        rejected.add(2L);
+        writer.enqueue(message(1));
+        writer.enqueue(message(2));
+        writer.enqueue(message(3));
+        writer.flush();
+
+        assertThat(stored).containsExactly(1L, 3L);
+        assertThat(writer.hasPending()).isFalse();
+        assertThat(writer.getDroppedCount()).isEqualTo(1);
+        // It was already broadcast, so the drop is reported rather than only logged
+        verify(eventPublisher).publishEvent(argThat((Object event) ->
+                event instanceof MessageRejectedEvent rejectedEvent && rejectedEvent.message().getId() == 2L));
+    }
+
+    @Test
+    void duplicateOfAnAlreadyCommittedRowIsNotCountedAsDropped() {
+        stored.add(1L);
+        writer.enqueue(message(1));
+        writer.enqueue(message(2));
+        writer.flush();
+
+        assertThat(stored).containsExactly(1L, 2L);
+        assertThat(writer.hasPending()).isFalse();
+        assertThat(writer.getDroppedCount()).isZero();
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void classifiesOnlyIntegrityAndDataErrorsAsRejections() {
+        assertThat(MessageWriteBehindService.isRejected(
+                new RuntimeException(new SQLException("Data too long", "22001")))).isTrue();
+        assertThat(MessageWriteBehindService.isRejected(
+                new RuntimeException(new SQLException("Connection refused", "08S01")))).isFalse();
+        assertThat(MessageWriteBehindService.isRejected(
+                new DataAccessResourceFailureException("Lock wait timeout"))).isFalse();
+    }
+
+    private static Message message(long id) {
+        Message message = new Message();
+        message.setId(id);
+        message.setType(MessageType.CHAT);
+        message.setContent("message " + id);
+        message.setTimestamp(LocalDateTime.now());
+        return message;
+    }
+}
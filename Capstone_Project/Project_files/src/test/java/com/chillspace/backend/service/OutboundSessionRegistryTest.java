@@ -0,0 +1,136 @@
+package com.chillspace.backend.service;
+
+import com.chillspace.backend.service.OutboundSessionRegistry.OutboundSession;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator.OverflowStrategy;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OutboundSessionRegistryTest {
+
+    private static final TextMessage FRAME = new TextMessage("x".repeat(100));
+
+    private final OutboundSessionRegistry registry = new OutboundSessionRegistry();
+    // Every socket write blocks until this opens, as if the client stopped reading
+    private final CountDownLatch clientReads = new CountDownLatch(1);
+    private final List<Thread> writers = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        clientReads.countDown();
+        for (Thread writer : writers) {
+            writer.join(5_000);
+        }
+    }
+
+    @Test
+    void deepestBacklogComesFirst() throws Exception {
+        WebSocketSession slow = register("slow", true);
+        WebSocketSession slower = register("slower", true);
+        WebSocketSession fast = register("fast", false);
+
+        stall(slow, 3);
+        stall(slower, 5);
+        fast.sendMessage(FRAME);
+
+        assertThat(ids(registry.worstConsumers(10))).containsExactly("slower", "slow", "fast");
+        assertThat(ids(registry.worstConsumers(1))).containsExactly("slower");
+        assertThat(outbound("slower").getQueuedBytes()).isEqualTo(5 * 100);
+        assertThat(outbound("slower").getUndelivered()).isEqualTo(6);
+        assertThat(outbound("fast").getUndelivered()).isZero();
+    }
+
+    @Test
+    void withNothingQueuedAStuckWriteRanksAboveIdleSessions() throws Exception {
+        WebSocketSession stuck = register("stuck", true);
+        register("idle-1", false);
+        register("idle-2", false);
+
+        stall(stuck, 0);
+        Thread.sleep(20);
+
+        assertThat(outbound("stuck").getQueuedBytes()).isZero();
+        assertThat(outbound("stuck").getSendInProgressMs()).isPositive();
+        assertThat(ids(registry.worstConsumers(1))).containsExactly("stuck");
+    }
+
+    @Test
+    void amongIdleSessionsTheSlowestWriterRanksFirst() throws Exception {
+        register("quick", false);
+        register("sluggish", false);
+        register("unused", false);
+
+        outbound("quick").recordSend(100, TimeUnit.MILLISECONDS.toNanos(1));
+        outbound("sluggish").recordSend(100, TimeUnit.MILLISECONDS.toNanos(40));
+        outbound("sluggish").recordSend(100, TimeUnit.MILLISECONDS.toNanos(20));
+
+        assertThat(ids(registry.worstConsumers(3))).containsExactly("sluggish", "quick", "unused");
+        assertThat(outbound("sluggish").getAvgSendMs()).isEqualTo(30.0);
+        assertThat(outbound("sluggish").getMaxSendMs()).isEqualTo(40.0);
+        assertThat(outbound("sluggish").getBytesSent()).isEqualTo(200);
+    }
+
+    @Test
+    void closedSessionsAreNoLongerReported() throws Exception {
+        register("gone", false);
+        register("here", false);
+
+        registry.unregister("gone");
+
+        assertThat(ids(registry.worstConsumers(10))).containsExactly("here");
+    }
+
+    private WebSocketSession register(String id, boolean blocking) throws IOException {
+        WebSocketSession raw = mock(WebSocketSession.class);
+        when(raw.getId()).thenReturn(id);
+        when(raw.isOpen()).thenReturn(true);
+        if (blocking) {
+            doAnswer(call -> clientReads.await(10, TimeUnit.SECONDS)).when(raw).sendMessage(any());
+        }
+        return registry.register(raw, 60_000, 1024 * 1024, OverflowStrategy.TERMINATE);
+    }
+
+    // One frame stuck in the socket write, then queued more behind it
+    private void stall(WebSocketSession session, int queued) throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        Thread writer = new Thread(() -> {
+            try {
+                writing.countDown();
+                session.sendMessage(FRAME);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        writers.add(writer);
+        writer.start();
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+        while (outbound(session.getId()).getSendInProgressMs() == 0 && writer.isAlive()) {
+            Thread.sleep(1);
+        }
+
+        for (int i = 0; i < queued; i++) {
+            session.sendMessage(FRAME);
+        }
+    }
+
+    private OutboundSession outbound(String id) {
+        return registry.getSessions().stream().filter(s -> s.getSessionId().equals(id)).findFirst().orElseThrow();
+    }
+
+    private static List<String> ids(List<OutboundSession> sessions) {
+        return sessions.stream().map(OutboundSession::getSessionId).toList();
+    }
+}
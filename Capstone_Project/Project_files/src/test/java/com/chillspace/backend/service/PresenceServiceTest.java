@@ -0,0 +1,178 @@
+package com.chillspace.backend.service;
+
+import com.chillspace.backend.model.Message;
+import com.chillspace.backend.model.MessageType;
+import com.chillspace.backend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PresenceServiceTest {
+
+    private SimpMessageSendingOperations messagingTemplate;
+    private ClusterEventRelay clusterEventRelay;
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void setUp() {
+        messagingTemplate = mock(SimpMessageSendingOperations.class);
+        clusterEventRelay = mock(ClusterEventRelay.class);
+        userRepository = mock(UserRepository.class);
+        when(clusterEventRelay.isEnabled()).thenReturn(true);
+    }
+
+    // Last activity long before any TTL
+    @SuppressWarnings("unchecked")
+    private static void goQuiet(PresenceService presence, String username, String sessionId) {
+        Map<String, Map<String, Long>> sessionsByUser =
+                (Map<String, Map<String, Long>>) ReflectionTestUtils.getField(presence, "sessionsByUser");
+        sessionsByUser.get(username).put(sessionId, 0L);
+    }
+
+    private PresenceService presence(long sessionTtlMs) {
+        return new PresenceService(userRepository, messagingTemplate, mock(PlatformTransactionManager.class),
+                clusterEventRelay, sessionTtlMs);
+    }
+
+    @Test
+    void usersOnOtherNodesAreOnline() {
+        PresenceService presence = presence(45_000);
+        presence.connect("s1", "alice");
+        long version = presence.getVersion();
+
+        presence.onClusterEvent(ClusterEvent.online("bob").from("node-b"));
+
+        assertThat(presence.isOnline("bob")).isTrue();
+        assertThat(presence.getOnlineUsers()).containsExactlyInAnyOrder("alice", "bob");
+        assertThat(presence.getOnlineCount()).isEqualTo(2);
+        assertThat(presence.getVersion()).isGreaterThan(version);
+
+        presence.onClusterEvent(ClusterEvent.offline("bob").from("node-b"));
+        assertThat(presence.isOnline("bob")).isFalse();
+    }
+
+    @Test
+    void localChangesAreAnnouncedAndJoinOnlyForTheFirstSessionAnywhere() {
+        PresenceService presence = presence(45_000);
+
+        assertThat(presence.connect("s1", "alice")).isTrue();
+        verify(clusterEventRelay).publish(ClusterEvent.online("alice"));
+
+        presence.onClusterEvent(ClusterEvent.online("bob").from("node-b"));
+        assertThat(presence.connect("s2", "bob")).isFalse();
+    }
+
+    @Test
+    void lastSessionHereIsNoLeaveWhileOnlineElsewhere() {
+        PresenceService presence = presence(45_000);
+        presence.connect("s1", "bob");
+        presence.onClusterEvent(ClusterEvent.online("bob").from("node-b"));
+
+        presence.disconnect("s1");
+
+        verify(clusterEventRelay).publish(ClusterEvent.offline("bob"));
+        verify(messagingTemplate, never()).convertAndSend(anyString(), any(Object.class));
+        assertThat(presence.isOnline("bob")).isTrue();
+
+        presence.flushPendingWrites();
+        verify(userRepository, never()).updatePresence(any(), eq(false), any());
+    }
+
+    @Test
+    void expiredSessionThatIsStillOpenComesBackOnItsNextFrame() {
+        PresenceService presence = presence(-1); // every session is already stale
+        presence.connect("s1", "alice");
+
+        presence.expireStaleSessions();
+        assertThat(presence.isOnline("alice")).isFalse();
+        verify(messagingTemplate).convertAndSend(eq("/topic/public"),
+                argThat((Message m) -> m.getType() == MessageType.LEAVE && "alice".equals(m.getSender())));
+
+        // A heartbeat from the same socket, e.g. a laptop waking up
+        presence.touch("s1");
+
+        assertThat(presence.isOnline("alice")).isTrue();
+        verify(messagingTemplate).convertAndSend(eq("/topic/public"),
+                argThat((Message m) -> m.getType() == MessageType.JOIN && "alice".equals(m.getSender())));
+
+        // Tracked as usual again: closing the socket is a normal LEAVE
+        presence.disconnect("s1");
+        assertThat(presence.isOnline("alice")).isFalse();
+    }
+
+    @Test
+    void expiredSessionOfAUserStillOnlineComesBackWithoutAJoin() {
+        PresenceService presence = presence(45_000);
+        presence.connect("s1", "alice");
+        presence.connect("s2", "alice");
+        goQuiet(presence, "alice", "s1");
+
+        presence.expireStaleSessions();
+        presence.touch("s1");
+        // s1 counts again, so closing s2 does not take alice offline
+        presence.disconnect("s2");
+
+        assertThat(presence.isOnline("alice")).isTrue();
+        verify(messagingTemplate, never()).convertAndSend(anyString(), any(Object.class));
+    }
+
+    @Test
+    void framesOfSessionsThatNeverJoinedOrHaveClosedAreIgnored() {
+        PresenceService presence = presence(-1);
+        presence.connect("s1", "alice");
+        presence.expireStaleSessions();
+        presence.disconnect("s1"); // the socket closed after all
+
+        presence.touch("s1");
+        presence.touch("s2"); // CONNECT and SUBSCRIBE arrive before chat.addUser
+
+        assertThat(presence.isOnline("alice")).isFalse();
+        assertThat(presence.getOnlineUsers()).isEmpty();
+    }
+
+    @Test
+    void snapshotReplacesWhatANodeReportedAndEmptyOneForgetsIt() {
+        PresenceService presence = presence(45_000);
+        presence.onClusterEvent(ClusterEvent.presence(List.of("bob", "carol")).from("node-b"));
+
+        presence.onClusterEvent(ClusterEvent.presence(List.of("carol", "dave")).from("node-b"));
+        assertThat(presence.getOnlineUsers()).containsExactlyInAnyOrder("carol", "dave");
+
+        long version = presence.getVersion();
+        presence.onClusterEvent(ClusterEvent.presence(List.of("carol", "dave")).from("node-b"));
+        assertThat(presence.getVersion()).isEqualTo(version);
+
+        presence.onClusterEvent(ClusterEvent.presence(List.of()).from("node-b"));
+        assertThat(presence.getOnlineUsers()).isEmpty();
+    }
+
+    @Test
+    void silentNodesAreDroppedAndTheirUsersMarkedOffline() {
+        PresenceService presence = presence(-1); // every remote report is already stale
+        presence.connect("s1", "alice");
+        presence.onClusterEvent(ClusterEvent.online("bob").from("node-b"));
+
+        presence.syncWithOtherNodes();
+
+        verify(clusterEventRelay).publish(ClusterEvent.presence(List.of("alice")));
+        assertThat(presence.isOnline("bob")).isFalse();
+
+        presence.flushPendingWrites();
+        verify(userRepository).updatePresence(eq(List.of("bob")), eq(false), any());
+    }
+}
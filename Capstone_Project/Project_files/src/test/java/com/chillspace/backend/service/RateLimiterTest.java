@@ -0,0 +1,126 @@
+package com.chillspace.backend.service;
+
+import com.chillspace.backend.model.Role;
+import com.chillspace.backend.service.RateLimiter.Action;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimiterTest {
+
+    @Test
+    void allowsABurstOfCapacityThenRejects() {
+        RateLimiter limiter = limiter("chat", "user", 3, 1);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.tryAcquire(Action.CHAT, "alice", Role.USER)).isTrue();
+        }
+        assertThat(limiter.tryAcquire(Action.CHAT, "alice", Role.USER)).isFalse();
+    }
+
+    @Test
+    void refillsOneTokenPerInterval() throws InterruptedException {
+        // One token every 100 ms
+        RateLimiter limiter = limiter("chat", "user", 1, 600);
+
+        assertThat(limiter.tryAcquire(Action.CHAT, "alice", Role.USER)).isTrue();
+        assertThat(limiter.tryAcquire(Action.CHAT, "alice", Role.USER)).isFalse();
+
+        Thread.sleep(150);
+        assertThat(limiter.tryAcquire(Action.CHAT, "alice", Role.USER)).isTrue();
+        assertThat(limiter.tryAcquire(Action.CHAT, "alice", Role.USER)).isFalse();
+    }
+
+    @Test
+    void bucketsAreSeparatePerUserAndAction() {
+        RateLimiter limiter = limiter("chat", "user", 1, 1);
+
+        assertThat(limiter.tryAcquire(Action.CHAT, "alice", Role.USER)).isTrue();
+        assertThat(limiter.tryAcquire(Action.CHAT, "alice", Role.USER)).isFalse();
+        assertThat(limiter.tryAcquire(Action.CHAT, "bob", Role.USER)).isTrue();
+        assertThat(limiter.tryAcquire(Action.UPLOAD, "alice", Role.USER)).isTrue();
+    }
+
+    @Test
+    void limitsComeFromTheRoleAndZeroMeansUnlimited() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("chat.rate-limit.chat.user.capacity", "1")
+                .withProperty("chat.rate-limit.chat.user.per-minute", "1")
+                .withProperty("chat.rate-limit.chat.admin.per-minute", "0");
+        RateLimiter limiter = new RateLimiter(environment);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(limiter.tryAcquire(Action.CHAT, "root", Role.ADMIN)).isTrue();
+        }
+        assertThat(limiter.tryAcquire(Action.CHAT, "alice", null)).isTrue();
+        assertThat(limiter.tryAcquire(Action.CHAT, "alice", Role.USER)).isFalse();
+    }
+
+    @Test
+    void concurrentCallersNeverGetMoreThanTheBurst() throws Exception {
+        RateLimiter limiter = limiter("chat", "user", 50, 1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    int granted = 0;
+                    for (int i = 0; i < 100; i++) {
+                        if (limiter.tryAcquire(Action.CHAT, "alice", Role.USER)) {
+                            granted++;
+                        }
+                    }
+                    return granted;
+                }));
+            }
+            start.countDown();
+
+            int granted = 0;
+            for (Future<Integer> result : results) {
+                granted += result.get(10, TimeUnit.SECONDS);
+            }
+            assertThat(granted).isEqualTo(50);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void evictsOnlyBucketsThatHaveRefilled() throws InterruptedException {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("chat.rate-limit.chat.user.capacity", "1")
+                .withProperty("chat.rate-limit.chat.user.per-minute", "1200")
+                .withProperty("chat.rate-limit.upload.user.per-minute", "1");
+        RateLimiter limiter = new RateLimiter(environment);
+        limiter.tryAcquire(Action.CHAT, "alice", Role.USER);
+        limiter.tryAcquire(Action.UPLOAD, "alice", Role.USER);
+
+        // The chat bucket is full again after 50 ms, the upload one only after a minute
+        Thread.sleep(100);
+        limiter.evictIdleBuckets();
+
+        Map<String, ?> buckets = (Map<String, ?>) ReflectionTestUtils.getField(limiter, "buckets");
+        assertThat(buckets).containsOnlyKeys("upload:alice");
+    }
+
+    private static RateLimiter limiter(String action, String role, int capacity, int perMinute) {
+        String prefix = "chat.rate-limit." + action + "." + role + ".";
+        return new RateLimiter(new MockEnvironment()
+                .withProperty(prefix + "capacity", String.valueOf(capacity))
+                .withProperty(prefix + "per-minute", String.valueOf(perMinute)));
+    }
+}
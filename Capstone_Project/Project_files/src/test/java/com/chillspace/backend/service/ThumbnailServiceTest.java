@@ -0,0 +1,139 @@
+package com.chillspace.backend.service;
+
+import com.chillspace.backend.storage.LocalBlobStore;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ThumbnailServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private LocalBlobStore blobStore;
+    private ThumbnailService thumbnails;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        blobStore = new LocalBlobStore();
+        ReflectionTestUtils.setField(blobStore, "blobDir", dir.resolve("blobs").toString());
+        blobStore.init();
+
+        thumbnails = new ThumbnailService(blobStore, 100, DataSize.ofMegabytes(1), 10_000_000, 1, 10, 10_000);
+        ReflectionTestUtils.setField(thumbnails, "thumbnailDir", dir.resolve("thumbnails").toString());
+        thumbnails.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        thumbnails.shutdown();
+    }
+
+    @Test
+    void supportsReadableImagesAndPdfsWithinTheSizeLimit() {
+        assertThat(thumbnails.supports("image/png", 1000)).isTrue();
+        assertThat(thumbnails.supports("application/pdf", 1000)).isTrue();
+        assertThat(thumbnails.supports("text/plain", 1000)).isFalse();
+        assertThat(thumbnails.supports("image/x-unknown", 1000)).isFalse();
+        assertThat(thumbnails.supports("image/png", 0)).isFalse();
+        assertThat(thumbnails.supports("image/png", DataSize.ofMegabytes(2).toBytes())).isFalse();
+        assertThat(thumbnails.supports(null, 1000)).isFalse();
+    }
+
+    @Test
+    void rendersImagesToFitTheThumbnailSize() throws Exception {
+        byte[] png = png(800, 400);
+        String hash = store(png);
+
+        Optional<Path> thumbnail = thumbnails.getThumbnail(hash, "image/png", png.length);
+
+        BufferedImage rendered = ImageIO.read(thumbnail.orElseThrow().toFile());
+        assertThat(rendered.getWidth()).isEqualTo(100);
+        assertThat(rendered.getHeight()).isEqualTo(50);
+
+        thumbnails.delete(hash);
+        assertThat(thumbnail.get()).doesNotExist();
+    }
+
+    @Test
+    void rendersTheFirstPageOfPdfs() throws Exception {
+        ByteArrayOutputStream pdf = new ByteArrayOutputStream();
+        try (PDDocument document = new PDDocument()) {
+            document.addPage(new PDPage(PDRectangle.A4));
+            document.save(pdf);
+        }
+        String hash = store(pdf.toByteArray());
+
+        Optional<Path> thumbnail = thumbnails.getThumbnail(hash, "application/pdf", pdf.size());
+
+        BufferedImage rendered = ImageIO.read(thumbnail.orElseThrow().toFile());
+        assertThat(Math.max(rendered.getWidth(), rendered.getHeight())).isEqualTo(100);
+        assertThat(rendered.getHeight()).isGreaterThan(rendered.getWidth());
+    }
+
+    @Test
+    void unreadableContentHasNoThumbnail() throws Exception {
+        byte[] garbage = "not really a png".getBytes();
+        String hash = store(garbage);
+
+        assertThat(thumbnails.getThumbnail(hash, "image/png", garbage.length)).isEmpty();
+        // Remembered, so it is not decoded again
+        blobStore.delete(hash);
+        assertThat(thumbnails.getThumbnail(hash, "image/png", garbage.length)).isEmpty();
+    }
+
+    @Test
+    void backgroundRenderWaitsForTheCommit() throws Exception {
+        byte[] png = png(50, 50);
+        String hash = store(png);
+        Path expected = dir.resolve("thumbnails").resolve(hash.substring(0, 2)).resolve(hash + ".jpg");
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            thumbnails.generateAfterCommit(hash, "image/png", png.length);
+            Thread.sleep(200);
+            assertThat(expected).doesNotExist();
+
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCommit();
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!Files.exists(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(expected).exists();
+    }
+
+    private String store(byte[] content) throws IOException {
+        return blobStore.put(new ByteArrayInputStream(content)).hash();
+    }
+
+    private static byte[] png(int width, int height) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", out);
+        return out.toByteArray();
+    }
+}
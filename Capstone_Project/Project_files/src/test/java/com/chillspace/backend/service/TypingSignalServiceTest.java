@@ -0,0 +1,121 @@
+package com.chillspace.backend.service;
+
+import com.chillspace.backend.service.TypingSignalService.TypingSignal;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class TypingSignalServiceTest {
+
+    private final SimpMessageSendingOperations messagingTemplate = mock(SimpMessageSendingOperations.class);
+
+    @Test
+    void keystrokesWithinAWindowAreOneBroadcast() {
+        TypingSignalService signals = new TypingSignalService(messagingTemplate, 5_000);
+        for (int i = 0; i < 20; i++) {
+            signals.typing("public", "alice");
+        }
+        signals.typing("public", "bob");
+
+        signals.flush();
+
+        // Users are listed in no particular order
+        verify(messagingTemplate).convertAndSend(eq(TypingSignalService.topic("public")), argThat((TypingSignal signal) ->
+                signal.typing().size() == 2 && signal.typing().containsAll(List.of("alice", "bob"))
+                        && signal.stopped().isEmpty()));
+        clearInvocations(messagingTemplate);
+
+        // Still typing, but clients already know until half the TTL has passed
+        signals.typing("public", "alice");
+        signals.flush();
+        verify(messagingTemplate, never()).convertAndSend(anyString(), any(Object.class));
+    }
+
+    @Test
+    void eachRoomGetsItsOwnFrame() {
+        TypingSignalService signals = new TypingSignalService(messagingTemplate, 5_000);
+        signals.typing("public", "alice");
+        signals.typing("games", "bob");
+
+        signals.flush();
+
+        verify(messagingTemplate).convertAndSend(TypingSignalService.topic("public"),
+                new TypingSignal("public", List.of("alice"), List.of(), 5_000));
+        verify(messagingTemplate).convertAndSend(TypingSignalService.topic("games"),
+                new TypingSignal("games", List.of("bob"), List.of(), 5_000));
+    }
+
+    @Test
+    void stoppingIsAnnouncedOnTheNextFlush() {
+        TypingSignalService signals = new TypingSignalService(messagingTemplate, 5_000);
+        signals.typing("public", "alice");
+        signals.flush();
+        clearInvocations(messagingTemplate);
+
+        signals.stopped("public", "alice");
+        signals.flush();
+
+        verify(messagingTemplate).convertAndSend(TypingSignalService.topic("public"),
+                new TypingSignal("public", List.of(), List.of("alice"), 5_000));
+        clearInvocations(messagingTemplate);
+
+        signals.flush();
+        verify(messagingTemplate, never()).convertAndSend(anyString(), any(Object.class));
+    }
+
+    @Test
+    void typingThatStoppedWithinOneWindowIsNeverBroadcast() {
+        TypingSignalService signals = new TypingSignalService(messagingTemplate, 5_000);
+        signals.typing("public", "alice");
+        signals.stopped("public", "alice");
+        signals.stopped("games", "nobody");
+
+        signals.flush();
+
+        verify(messagingTemplate, never()).convertAndSend(anyString(), any(Object.class));
+    }
+
+    @Test
+    void silentTypistsExpireAfterTheTtl() throws InterruptedException {
+        TypingSignalService signals = new TypingSignalService(messagingTemplate, 50);
+        signals.typing("public", "alice");
+        signals.flush();
+        clearInvocations(messagingTemplate);
+
+        Thread.sleep(80);
+        signals.flush();
+
+        verify(messagingTemplate).convertAndSend(TypingSignalService.topic("public"),
+                new TypingSignal("public", List.of(), List.of("alice"), 50));
+        clearInvocations(messagingTemplate);
+
+        signals.flush();
+        verify(messagingTemplate, never()).convertAndSend(anyString(), any(Object.class));
+    }
+
+    @Test
+    void typingNonStopIsReannouncedBeforeClientsExpireIt() throws InterruptedException {
+        TypingSignalService signals = new TypingSignalService(messagingTemplate, 200);
+        signals.typing("public", "alice");
+        signals.flush();
+        clearInvocations(messagingTemplate);
+
+        // Past half the TTL, still typing
+        Thread.sleep(120);
+        signals.typing("public", "alice");
+        signals.flush();
+
+        verify(messagingTemplate).convertAndSend(TypingSignalService.topic("public"),
+                new TypingSignal("public", List.of("alice"), List.of(), 200));
+    }
+}
@@ -0,0 +1,92 @@
+package com.chillspace.backend.service;
+
+import com.chillspace.backend.model.Message;
+import com.chillspace.backend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserDirectoryTest {
+
+    private final Map<Long, String> users = Map.of(1L, "alice", 2L, "bob");
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private UserDirectory directory;
+
+    @BeforeEach
+    void setUp() {
+        when(userRepository.findUsernameById(anyLong()))
+                .thenAnswer(call -> Optional.ofNullable(users.get(call.<Long>getArgument(0))));
+        when(userRepository.findUsernamesByIds(any())).thenAnswer(call -> {
+            List<Object[]> rows = new ArrayList<>();
+            for (Long id : call.<Collection<Long>>getArgument(0)) {
+                if (users.containsKey(id)) {
+                    rows.add(new Object[] { id, users.get(id) });
+                }
+            }
+            return rows;
+        });
+        directory = new UserDirectory(userRepository);
+        ReflectionTestUtils.setField(directory, "ttlMs", 60_000L);
+    }
+
+    @Test
+    void resolvesSendersToTheirCurrentNamesInOneQuery() {
+        List<Message> messages = List.of(message(1L, "alice_old"), message(2L, "bob"), message(1L, "alice_old"),
+                message(9L, "deleted_user"), message(null, "system"));
+
+        directory.resolve(messages);
+
+        assertThat(messages).extracting(Message::getSender)
+                .containsExactly("alice", "bob", "alice", "deleted_user", "system");
+        verify(userRepository, times(1)).findUsernamesByIds(any());
+
+        // Cached now
+        directory.resolve(List.of(message(1L, "x"), message(2L, "y")));
+        verify(userRepository, times(1)).findUsernamesByIds(any());
+        assertThat(directory.usernameOf(2L)).isEqualTo("bob");
+        verify(userRepository, never()).findUsernameById(anyLong());
+    }
+
+    @Test
+    void renameIsServedAtOnceAndMovesTheVersion() {
+        assertThat(directory.usernameOf(1L)).isEqualTo("alice");
+        String before = directory.getVersion();
+
+        directory.rename(1L, "alicia");
+
+        assertThat(directory.usernameOf(1L)).isEqualTo("alicia");
+        assertThat(directory.resolve(message(1L, "alice")).getSender()).isEqualTo("alicia");
+        assertThat(directory.getVersion()).isNotEqualTo(before);
+    }
+
+    @Test
+    void expiredEntriesAreReloaded() {
+        ReflectionTestUtils.setField(directory, "ttlMs", -1L);
+        directory.usernameOf(1L);
+        directory.usernameOf(1L);
+
+        verify(userRepository, times(2)).findUsernameById(1L);
+    }
+
+    private static Message message(Long senderId, String sender) {
+        Message message = new Message();
+        message.setSenderId(senderId);
+        message.setSender(sender);
+        return message;
+    }
+}
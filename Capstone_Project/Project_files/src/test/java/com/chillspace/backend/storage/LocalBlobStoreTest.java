@@ -0,0 +1,91 @@
+package com.chillspace.backend.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LocalBlobStoreTest {
+
+    // SHA-256 of "hello"
+    private static final String HELLO = "2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824";
+
+    @TempDir
+    Path dir;
+
+    private LocalBlobStore store;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        store = new LocalBlobStore();
+        ReflectionTestUtils.setField(store, "blobDir", dir.resolve("blobs").toString());
+        store.init();
+    }
+
+    @Test
+    void storesContentUnderItsHash() throws IOException {
+        BlobStore.StoredBlob blob = store.put(content("hello"));
+
+        assertThat(blob.hash()).isEqualTo(HELLO);
+        assertThat(blob.size()).isEqualTo(5);
+        assertThat(store.exists(HELLO)).isTrue();
+        assertThat(store.localPath(HELLO)).get()
+                .isEqualTo(dir.resolve("blobs").resolve("2c").resolve("f2").resolve(HELLO));
+        try (InputStream in = store.open(HELLO)) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("hello");
+        }
+    }
+
+    @Test
+    void identicalContentIsStoredOnceAndLeavesNoTempFiles() throws IOException {
+        store.put(content("hello"));
+        store.put(content("hello"));
+
+        try (Stream<Path> files = Files.walk(dir.resolve("blobs"))) {
+            assertThat(files.filter(Files::isRegularFile)).containsExactly(store.localPath(HELLO).orElseThrow());
+        }
+    }
+
+    @Test
+    void putFileLeavesTheSourceInPlace() throws IOException {
+        Path part = Files.writeString(dir.resolve("upload.part"), "hello");
+
+        assertThat(store.putFile(part).hash()).isEqualTo(HELLO);
+        assertThat(part).hasContent("hello");
+
+        // The caller deletes it once the blob is referenced; the stored copy stays
+        Files.delete(part);
+        assertThat(store.localPath(HELLO)).get().satisfies(path -> assertThat(path).hasContent("hello"));
+    }
+
+    @Test
+    void deleteRemovesTheBlob() throws IOException {
+        store.put(content("hello"));
+        store.delete(HELLO);
+
+        assertThat(store.exists(HELLO)).isFalse();
+        assertThat(store.localPath(HELLO)).isEmpty();
+        store.delete(HELLO);
+    }
+
+    @Test
+    void rejectsNamesThatAreNotHashes() {
+        assertThatThrownBy(() -> store.open("../../etc/passwd")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> store.exists(HELLO.toUpperCase())).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static InputStream content(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}